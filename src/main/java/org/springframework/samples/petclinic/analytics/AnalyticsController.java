@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Answers {@link VisitQuery}s from the in-memory {@link VisitAnalytics}, for example
+ * <code>/analytics/visits?groupBy=MONTH&amp;specialty=surgery&amp;from=2018-01-01</code>.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+@ConditionalOnProperty(prefix = "petclinic.analytics", name = "enabled", havingValue = "true")
+class AnalyticsController {
+
+    private final VisitAnalytics analytics;
+
+    public AnalyticsController(VisitAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    @GetMapping("/analytics/visits")
+    @ResponseBody
+    public VisitAggregation aggregateVisits(VisitQuery query) {
+        return this.analytics.aggregate(query);
+    }
+
+}
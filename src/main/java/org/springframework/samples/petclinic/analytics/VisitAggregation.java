@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import java.util.Map;
+
+/**
+ * The result of a {@link VisitQuery}: the number of matching visits per group.
+ *
+ * @author Jackie Shao
+ */
+public class VisitAggregation {
+
+    private final VisitQuery.Dimension groupBy;
+    private final Map<String, Long> counts;
+    private final long visits;
+    private final int scanned;
+    private final boolean complete;
+    private final double millis;
+
+    VisitAggregation(VisitQuery.Dimension groupBy, Map<String, Long> counts, long visits, int scanned, boolean complete,
+                     double millis) {
+        this.groupBy = groupBy;
+        this.counts = counts;
+        this.visits = visits;
+        this.scanned = scanned;
+        this.complete = complete;
+        this.millis = millis;
+    }
+
+    public VisitQuery.Dimension getGroupBy() {
+        return this.groupBy;
+    }
+
+    /**
+     * Return the number of visits per group, in the order of the groups.
+     */
+    public Map<String, Long> getCounts() {
+        return this.counts;
+    }
+
+    /**
+     * Return the number of matching visits; with {@link VisitQuery.Dimension#SPECIALTY} a
+     * visit counts once for every specialty of its vet, so the counts may add up to more.
+     */
+    public long getVisits() {
+        return this.visits;
+    }
+
+    /**
+     * Return the number of rows scanned, including cancelled visits.
+     */
+    public int getScanned() {
+        return this.scanned;
+    }
+
+    /**
+     * Return whether the visit history was fully loaded when the query ran.
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    public double getMillis() {
+        return this.millis;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventSubscriber;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Embedded analytics over the whole visit history, enabled with
+ * <code>petclinic.analytics.enabled=true</code>.
+ * <p>
+ * The visits are loaded into {@link VisitColumns} page by page in the background after
+ * startup, so queries run in memory without touching the database; until the load is done
+ * they only count the visits loaded so far. Afterwards the columns follow the domain events:
+ * new visits are appended, cancelled ones flagged and vet changes picked up. The pet type
+ * and city of a visit are the ones of the time it was loaded.
+ *
+ * @author Jackie Shao
+ */
+@Component
+@ConditionalOnProperty(prefix = "petclinic.analytics", name = "enabled", havingValue = "true")
+class VisitAnalytics implements DomainEventSubscriber, InitializingBean, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(VisitAnalytics.class);
+
+    private static final int PAGE_SIZE = 10_000;
+
+    private final VisitColumns columns = new VisitColumns();
+    private final VisitFactRepository facts;
+    private final VetRepository vets;
+
+    // events received during the load, applied once it is done
+    private List<DomainEvent> pending = new ArrayList<>();
+    private volatile boolean loaded;
+    private Thread loader;
+
+    VisitAnalytics(VisitFactRepository facts, VetRepository vets) {
+        this.facts = facts;
+        this.vets = vets;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.loader = new Thread(this::load, "visit-analytics-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+    }
+
+    @Override
+    public void destroy() {
+        this.loader.interrupt();
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            this.columns.setVets(this.vets.findAll());
+            List<VisitFact> page;
+            int lastId = -1;
+            do {
+                page = this.facts.findFactsAfter(lastId, PageRequest.of(0, PAGE_SIZE));
+                for (VisitFact fact : page) {
+                    this.columns.append(fact);
+                    lastId = fact.getVisitId();
+                }
+            } while (page.size() == PAGE_SIZE && !Thread.currentThread().isInterrupted());
+            List<DomainEvent> events;
+            synchronized (this) {
+                events = this.pending;
+                this.pending = null;
+                this.loaded = true;
+            }
+            apply(events);
+            logger.info("Loaded " + this.columns.size() + " visits for analytics in "
+                + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException ex) {
+            logger.error("Could not load the visits for analytics", ex);
+        }
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        synchronized (this) {
+            if (this.pending != null) {
+                this.pending.addAll(events);
+                return;
+            }
+        }
+        apply(events);
+    }
+
+    private void apply(List<DomainEvent> events) {
+        boolean vetsChanged = false;
+        for (DomainEvent event : events) {
+            if ("vet".equals(event.getAggregate())) {
+                vetsChanged = true;
+            } else if ("visit".equals(event.getAggregate()) && event.getAggregateId() != null) {
+                if ("removed".equals(event.getType())) {
+                    this.columns.cancel(event.getAggregateId());
+                } else {
+                    VisitFact fact = this.facts.findFactById(event.getAggregateId());
+                    if (fact != null) {
+                        this.columns.append(fact);
+                    }
+                }
+            }
+        }
+        if (vetsChanged) {
+            this.columns.setVets(this.vets.findAll());
+        }
+    }
+
+    /**
+     * Count the visits matching a query, per group.
+     */
+    VisitAggregation aggregate(VisitQuery query) {
+        return this.columns.aggregate(query, this.loaded);
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+
+/**
+ * Visit history held column by column in primitive arrays: one <code>int</code> per visit for
+ * its id, its vet, its time in hours since the epoch, and the dictionary codes of its pet
+ * type and its owner's city, plus a cancellation flag. A vet's specialties are kept once per
+ * vet as a bit mask.
+ * <p>
+ * {@link #aggregate Aggregations} scan the columns in parallel on the common fork-join pool,
+ * without any object per visit, which takes milliseconds even for millions of visits.
+ * Visits are appended and cancelled by a single writer at a time while queries keep running:
+ * a query sees the visits appended before it started.
+ *
+ * @author Jackie Shao
+ */
+class VisitColumns {
+
+    private static final int SCAN_THRESHOLD = 1 << 16;
+    private static final int HOURS_PER_DAY = 24;
+
+    private final Dictionary petTypes = new Dictionary();
+    private final Dictionary cities = new Dictionary();
+    private final Dictionary specialties = new Dictionary();
+
+    private volatile Rows rows = new Rows(1024);
+    private volatile Vets vets = new Vets(new long[0], new HashMap<>());
+
+    // rows [0, sortedRows) are in visit id order, the row of any other visit is in the map
+    private int sortedRows;
+    private final Map<Integer, Integer> unsortedRows = new HashMap<>();
+
+    /**
+     * Append a visit, unless it is already there.
+     * @return whether the visit was appended
+     */
+    synchronized boolean append(VisitFact fact) {
+        int visitId = fact.getVisitId();
+        if (rowOf(visitId) >= 0) {
+            return false;
+        }
+        Rows current = this.rows;
+        int row = current.size;
+        Rows next = row < current.visitIds.length ? current.withSize(row + 1) : current.grow(row + 1);
+        int hour = epochHour(fact.getTime());
+        next.visitIds[row] = visitId;
+        next.vetIds[row] = fact.getVetId();
+        next.hours[row] = hour;
+        next.petTypes[row] = this.petTypes.encode(fact.getPetType());
+        next.cities[row] = this.cities.encode(fact.getCity());
+        next.minHour = row == 0 ? hour : Math.min(current.minHour, hour);
+        next.maxHour = row == 0 ? hour : Math.max(current.maxHour, hour);
+        next.maxVetId = Math.max(current.maxVetId, fact.getVetId());
+        if (this.sortedRows == row && (row == 0 || next.visitIds[row - 1] < visitId)) {
+            this.sortedRows++;
+        } else {
+            this.unsortedRows.put(visitId, row);
+        }
+        this.rows = next;
+        return true;
+    }
+
+    /**
+     * Mark a visit as cancelled; it is no longer counted.
+     * @return whether the visit was found
+     */
+    synchronized boolean cancel(int visitId) {
+        int row = rowOf(visitId);
+        if (row >= 0) {
+            this.rows.cancelled[row] = true;
+        }
+        return row >= 0;
+    }
+
+    private int rowOf(int visitId) {
+        int row = Arrays.binarySearch(this.rows.visitIds, 0, this.sortedRows, visitId);
+        return row >= 0 ? row : this.unsortedRows.getOrDefault(visitId, -1);
+    }
+
+    /**
+     * Replace the vets, for their names and specialties.
+     */
+    synchronized void setVets(Collection<Vet> vets) {
+        int maxVetId = vets.stream().mapToInt(Vet::getId).max().orElse(0);
+        long[] masks = new long[maxVetId + 1];
+        Map<Integer, String> names = new HashMap<>();
+        for (Vet vet : vets) {
+            for (Specialty specialty : vet.getSpecialties()) {
+                int code = this.specialties.encode(specialty.getName());
+                if (code < Long.SIZE) {
+                    masks[vet.getId()] |= 1L << code;
+                }
+            }
+            names.put(vet.getId(), vet.getFirstName() + " " + vet.getLastName());
+        }
+        this.vets = new Vets(masks, names);
+    }
+
+    int size() {
+        return this.rows.size;
+    }
+
+    /**
+     * Count the visits matching a query, per group.
+     * @param query the filters and the dimension to group by
+     * @param complete whether all visits are loaded, to pass on to the result
+     */
+    VisitAggregation aggregate(VisitQuery query, boolean complete) {
+        long start = System.nanoTime();
+        Scan scan = new Scan(this.rows, this.vets, query.getGroupBy());
+        scan.fromHour = query.getFrom() != null ? epochHour(query.getFrom().atStartOfDay()) : Integer.MIN_VALUE;
+        scan.toHour = query.getTo() != null ? epochHour(query.getTo().plusDays(1).atStartOfDay()) : Integer.MAX_VALUE;
+        scan.vetId = query.getVetId() != null ? query.getVetId() : -1;
+        scan.petType = query.getPetType() != null ? this.petTypes.code(query.getPetType()) : -1;
+        scan.city = query.getCity() != null ? this.cities.code(query.getCity()) : -1;
+        scan.specialty = query.getSpecialty() != null ? this.specialties.code(query.getSpecialty()) : -1;
+        boolean unknownValue = (query.getPetType() != null && scan.petType < 0) || (query.getCity() != null && scan.city < 0)
+            || (query.getSpecialty() != null && (scan.specialty < 0 || scan.specialty >= Long.SIZE));
+        long[] counts = scan.rows.size == 0 || unknownValue ? new long[scan.groups + 1]
+            : ForkJoinPool.commonPool().invoke(scan);
+        Map<String, Long> groups = new LinkedHashMap<>();
+        for (int group = 0; group < scan.groups; group++) {
+            if (counts[group] > 0 || scan.keepsEmptyGroups()) {
+                groups.put(label(scan, group), counts[group]);
+            }
+        }
+        return new VisitAggregation(query.getGroupBy(), groups, counts[scan.groups], scan.rows.size, complete,
+            (System.nanoTime() - start) / 1e6);
+    }
+
+    private String label(Scan scan, int group) {
+        switch (scan.dimension) {
+            case YEAR:
+                return String.valueOf(scan.firstYear + group);
+            case MONTH:
+                return Month.of(group + 1).name();
+            case DAY_OF_WEEK:
+                return DayOfWeek.of(group + 1).name();
+            case HOUR:
+                return String.format("%02d:00", group);
+            case VET:
+                return scan.vets.names.getOrDefault(group, String.valueOf(group));
+            case PET_TYPE:
+                return this.petTypes.value(group);
+            case CITY:
+                return this.cities.value(group);
+            default:
+                return this.specialties.value(group);
+        }
+    }
+
+    static int epochHour(LocalDateTime time) {
+        return (int) Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    /**
+     * The columns, of which the first <code>size</code> entries are in use. Appending within
+     * the capacity shares the arrays with the previous instance, whose readers never look
+     * beyond their own size.
+     */
+    private static final class Rows {
+
+        private final int size;
+        private final int[] visitIds;
+        private final int[] vetIds;
+        private final int[] hours;
+        private final int[] petTypes;
+        private final int[] cities;
+        private final boolean[] cancelled;
+        private int minHour;
+        private int maxHour;
+        private int maxVetId;
+
+        Rows(int capacity) {
+            this(0, new int[capacity], new int[capacity], new int[capacity], new int[capacity], new int[capacity],
+                new boolean[capacity]);
+        }
+
+        private Rows(int size, int[] visitIds, int[] vetIds, int[] hours, int[] petTypes, int[] cities,
+                     boolean[] cancelled) {
+            this.size = size;
+            this.visitIds = visitIds;
+            this.vetIds = vetIds;
+            this.hours = hours;
+            this.petTypes = petTypes;
+            this.cities = cities;
+            this.cancelled = cancelled;
+        }
+
+        Rows withSize(int size) {
+            return copyStats(new Rows(size, this.visitIds, this.vetIds, this.hours, this.petTypes, this.cities,
+                this.cancelled));
+        }
+
+        Rows grow(int size) {
+            int capacity = this.visitIds.length * 2;
+            return copyStats(new Rows(size, Arrays.copyOf(this.visitIds, capacity), Arrays.copyOf(this.vetIds, capacity),
+                Arrays.copyOf(this.hours, capacity), Arrays.copyOf(this.petTypes, capacity),
+                Arrays.copyOf(this.cities, capacity), Arrays.copyOf(this.cancelled, capacity)));
+        }
+
+        private Rows copyStats(Rows rows) {
+            rows.minHour = this.minHour;
+            rows.maxHour = this.maxHour;
+            rows.maxVetId = this.maxVetId;
+            return rows;
+        }
+    }
+
+    private static final class Vets {
+
+        private final long[] specialties;
+        private final Map<Integer, String> names;
+
+        Vets(long[] specialties, Map<Integer, String> names) {
+            this.specialties = specialties;
+            this.names = names;
+        }
+
+        long specialtiesOf(int vetId) {
+            return vetId < this.specialties.length ? this.specialties[vetId] : 0;
+        }
+    }
+
+    /**
+     * Strings encoded as consecutive codes, in the order they were first seen.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[0];
+
+        synchronized int encode(String value) {
+            String key = value != null ? value : "";
+            Integer code = this.codes.get(key);
+            if (code == null) {
+                String[] values = Arrays.copyOf(this.values, this.values.length + 1);
+                code = this.values.length;
+                values[code] = key;
+                // the value must be readable before its code is
+                this.values = values;
+                this.codes.put(key, code);
+            }
+            return code;
+        }
+
+        int code(String value) {
+            return this.codes.getOrDefault(value, -1);
+        }
+
+        String value(int code) {
+            return this.values[code];
+        }
+
+        int size() {
+            return this.values.length;
+        }
+    }
+
+    /**
+     * Parallel scan of a range of rows; the last count is the number of matching visits.
+     */
+    private final class Scan extends RecursiveTask<long[]> {
+
+        private final Rows rows;
+        private final Vets vets;
+        private final VisitQuery.Dimension dimension;
+        private final int from;
+        private final int to;
+        private int fromHour;
+        private int toHour;
+        private int vetId;
+        private int petType;
+        private int city;
+        private int specialty;
+        private int groups;
+        private int firstDay;
+        private int firstYear;
+        private int[] groupOfDay;
+
+        Scan(Rows rows, Vets vets, VisitQuery.Dimension dimension) {
+            this.rows = rows;
+            this.vets = vets;
+            this.dimension = dimension;
+            this.from = 0;
+            this.to = rows.size;
+            switch (dimension) {
+                case YEAR:
+                case MONTH:
+                    // the year and month of every day with visits, so they are not computed per visit
+                    this.firstDay = Math.floorDiv(rows.minHour, HOURS_PER_DAY);
+                    int lastDay = Math.floorDiv(rows.maxHour, HOURS_PER_DAY);
+                    this.firstYear = LocalDate.ofEpochDay(this.firstDay).getYear();
+                    this.groupOfDay = new int[rows.size > 0 ? lastDay - this.firstDay + 1 : 0];
+                    for (int day = 0; day < this.groupOfDay.length; day++) {
+                        LocalDate date = LocalDate.ofEpochDay(this.firstDay + day);
+                        this.groupOfDay[day] = dimension == VisitQuery.Dimension.YEAR ? date.getYear() - this.firstYear
+                            : date.getMonthValue() - 1;
+                    }
+                    this.groups = dimension == VisitQuery.Dimension.YEAR
+                        ? (rows.size > 0 ? LocalDate.ofEpochDay(lastDay).getYear() - this.firstYear + 1 : 0) : 12;
+                    break;
+                case DAY_OF_WEEK:
+                    this.groups = 7;
+                    break;
+                case HOUR:
+                    this.groups = HOURS_PER_DAY;
+                    break;
+                case VET:
+                    this.groups = rows.maxVetId + 1;
+                    break;
+                case PET_TYPE:
+                    this.groups = petTypes.size();
+                    break;
+                case CITY:
+                    this.groups = cities.size();
+                    break;
+                default:
+                    this.groups = Math.min(specialties.size(), Long.SIZE);
+            }
+        }
+
+        private Scan(Scan parent, int from, int to) {
+            this.rows = parent.rows;
+            this.vets = parent.vets;
+            this.dimension = parent.dimension;
+            this.from = from;
+            this.to = to;
+            this.fromHour = parent.fromHour;
+            this.toHour = parent.toHour;
+            this.vetId = parent.vetId;
+            this.petType = parent.petType;
+            this.city = parent.city;
+            this.specialty = parent.specialty;
+            this.groups = parent.groups;
+            this.firstDay = parent.firstDay;
+            this.firstYear = parent.firstYear;
+            this.groupOfDay = parent.groupOfDay;
+        }
+
+        boolean keepsEmptyGroups() {
+            return this.dimension == VisitQuery.Dimension.MONTH || this.dimension == VisitQuery.Dimension.DAY_OF_WEEK
+                || this.dimension == VisitQuery.Dimension.HOUR;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (this.to - this.from <= SCAN_THRESHOLD) {
+                return scan();
+            }
+            int middle = (this.from + this.to) >>> 1;
+            Scan left = new Scan(this, this.from, middle);
+            left.fork();
+            long[] counts = new Scan(this, middle, this.to).compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+
+        private long[] scan() {
+            long[] counts = new long[this.groups + 1];
+            Rows rows = this.rows;
+            long specialtyBit = this.specialty >= 0 ? 1L << this.specialty : 0;
+            for (int row = this.from; row < this.to; row++) {
+                int hour = rows.hours[row];
+                if (rows.cancelled[row] || hour < this.fromHour || hour >= this.toHour
+                    || (this.vetId >= 0 && rows.vetIds[row] != this.vetId)
+                    || (this.petType >= 0 && rows.petTypes[row] != this.petType)
+                    || (this.city >= 0 && rows.cities[row] != this.city)
+                    || (specialtyBit != 0 && (this.vets.specialtiesOf(rows.vetIds[row]) & specialtyBit) == 0)) {
+                    continue;
+                }
+                counts[this.groups]++;
+                switch (this.dimension) {
+                    case YEAR:
+                    case MONTH:
+                        counts[this.groupOfDay[Math.floorDiv(hour, HOURS_PER_DAY) - this.firstDay]]++;
+                        break;
+                    case DAY_OF_WEEK:
+                        // the epoch began on a Thursday
+                        counts[Math.floorMod(Math.floorDiv(hour, HOURS_PER_DAY) + 3, 7)]++;
+                        break;
+                    case HOUR:
+                        counts[Math.floorMod(hour, HOURS_PER_DAY)]++;
+                        break;
+                    case VET:
+                        counts[rows.vetIds[row]]++;
+                        break;
+                    case PET_TYPE:
+                        counts[rows.petTypes[row]]++;
+                        break;
+                    case CITY:
+                        counts[rows.cities[row]]++;
+                        break;
+                    default:
+                        long mask = this.vets.specialtiesOf(rows.vetIds[row]);
+                        while (mask != 0) {
+                            counts[Long.numberOfTrailingZeros(mask)]++;
+                            mask &= mask - 1;
+                        }
+                }
+            }
+            return counts;
+        }
+    }
+
+}
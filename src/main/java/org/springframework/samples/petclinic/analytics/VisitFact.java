@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import java.time.LocalDateTime;
+
+/**
+ * A visit joined with its pet, owner and vet, as loaded into the {@link VisitColumns}.
+ *
+ * @author Jackie Shao
+ */
+public class VisitFact {
+
+    private final Integer visitId;
+    private final Integer vetId;
+    private final LocalDateTime time;
+    private final String petType;
+    private final String city;
+
+    public VisitFact(Integer visitId, Integer vetId, LocalDateTime time, String petType, String city) {
+        this.visitId = visitId;
+        this.vetId = vetId;
+        this.time = time;
+        this.petType = petType;
+        this.city = city;
+    }
+
+    public Integer getVisitId() {
+        return this.visitId;
+    }
+
+    public Integer getVetId() {
+        return this.vetId;
+    }
+
+    public LocalDateTime getTime() {
+        return this.time;
+    }
+
+    public String getPetType() {
+        return this.petType;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+}
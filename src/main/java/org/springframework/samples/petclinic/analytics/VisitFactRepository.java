@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for reading visits as {@link VisitFact}s.
+ *
+ * @author Jackie Shao
+ */
+public interface VisitFactRepository extends Repository<Visit, Integer> {
+
+    String FACT = "SELECT NEW org.springframework.samples.petclinic.analytics.VisitFact("
+        + "visit.id, visit.vet.id, visit.time, pet.type.name, pet.owner.city) FROM Visit visit, Pet pet "
+        + "WHERE pet.id = visit.petId AND visit.time IS NOT NULL";
+
+    /**
+     * Retrieve the next page of {@link VisitFact}s in id order.
+     * @param id the id of the last visit already read, -1 for the first page
+     * @param page the number of facts to read
+     * @return the facts of the visits after the given one
+     */
+    @Query(FACT + " AND visit.id > :id ORDER BY visit.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "visitId")
+    List<VisitFact> findFactsAfter(@Param("id") int id, Pageable page);
+
+    /**
+     * Retrieve the {@link VisitFact} of a visit.
+     * @param id the id of the visit
+     * @return the fact, or <code>null</code> if the visit was not found
+     */
+    @Query(FACT + " AND visit.id = :id")
+    @Transactional(readOnly = true)
+    @AllShards
+    VisitFact findFactById(@Param("id") Integer id);
+
+}
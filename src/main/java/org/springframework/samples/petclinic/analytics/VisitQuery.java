@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.analytics;
+
+import java.time.LocalDate;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * What to count with {@link VisitColumns#aggregate}: the visits matching all given filters,
+ * grouped by one dimension.
+ *
+ * @author Jackie Shao
+ */
+public class VisitQuery {
+
+    /**
+     * Dimensions the visits can be grouped by.
+     */
+    public enum Dimension {
+        YEAR, MONTH, DAY_OF_WEEK, HOUR, VET, PET_TYPE, CITY, SPECIALTY
+    }
+
+    private Dimension groupBy = Dimension.MONTH;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private Integer vetId;
+
+    private String petType;
+
+    private String city;
+
+    private String specialty;
+
+    public Dimension getGroupBy() {
+        return this.groupBy;
+    }
+
+    public void setGroupBy(Dimension groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    /**
+     * Return the first day to count, or <code>null</code> to count from the first visit.
+     */
+    public LocalDate getFrom() {
+        return this.from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    /**
+     * Return the last day to count, or <code>null</code> to count up to the last visit.
+     */
+    public LocalDate getTo() {
+        return this.to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public Integer getVetId() {
+        return this.vetId;
+    }
+
+    public void setVetId(Integer vetId) {
+        this.vetId = vetId;
+    }
+
+    public String getPetType() {
+        return this.petType;
+    }
+
+    public void setPetType(String petType) {
+        this.petType = petType;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    /**
+     * Return the specialty the vet of a visit must have, or <code>null</code> for any.
+     */
+    public String getSpecialty() {
+        return this.specialty;
+    }
+
+    public void setSpecialty(String specialty) {
+        this.specialty = specialty;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.availability;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.SpecialtyRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Answers "who is the earliest free surgeon?": the earliest free hours of the vets having
+ * all the selected specialties, between two days, as a page or as JSON.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class AvailabilityController {
+
+    static final int DEFAULT_SIZE = 20;
+    private static final int MAX_SIZE = 200;
+    private static final int DEFAULT_DAYS = 14;
+
+    private final AvailabilitySearch availability;
+    private final SpecialtyRepository specialties;
+
+    public AvailabilityController(AvailabilitySearch availability, SpecialtyRepository specialties) {
+        this.availability = availability;
+        this.specialties = specialties;
+    }
+
+    @GetMapping("/availability.html")
+    public String showAvailability(@RequestParam(value = "specialties", required = false) List<String> specialties,
+                                   @RequestParam(value = "from", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(value = "to", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   @RequestParam(value = "size", defaultValue = "" + DEFAULT_SIZE) int size,
+                                   Map<String, Object> model) {
+        LocalDate first = from != null ? from : LocalDate.now();
+        LocalDate last = to != null ? to : first.plusDays(DEFAULT_DAYS);
+        List<String> selected = specialties != null ? specialties : Collections.emptyList();
+        model.put("allSpecialties", this.specialties.findAll().stream().map(Specialty::getName).sorted()
+            .collect(Collectors.toList()));
+        model.put("specialties", selected);
+        model.put("from", first);
+        model.put("to", last);
+        model.put("slots", search(selected, first, last, size));
+        return "availability/findAvailability";
+    }
+
+    @GetMapping("/availability")
+    @ResponseBody
+    public List<FreeSlot> showResourcesAvailability(@RequestParam(value = "specialties", required = false) List<String> specialties,
+                                                    @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                    @RequestParam(value = "size", defaultValue = "" + DEFAULT_SIZE) int size) {
+        return search(specialties != null ? specialties : Collections.emptyList(), from, to, size);
+    }
+
+    /**
+     * Search from the start of the first day to the end of the last one.
+     */
+    private List<FreeSlot> search(Collection<String> specialties, LocalDate from, LocalDate to, int size) {
+        return this.availability.search(specialties, from.atStartOfDay(), to.plusDays(1).atStartOfDay(),
+            Math.min(Math.max(size, 1), MAX_SIZE));
+    }
+
+}
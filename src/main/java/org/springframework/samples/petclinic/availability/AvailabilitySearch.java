@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.availability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.samples.petclinic.calendar.ClinicCalendar;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventSubscriber;
+import org.springframework.samples.petclinic.system.WarmUpTask;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds the earliest hours at which vets with the given specialties are free, in memory:
+ * the vets are matched through a {@link SpecialtyIndex}, and the hours they work in the
+ * {@link ClinicCalendar} masked with the hours they are booked at in a {@link VetSchedule},
+ * so a search runs no query however many vets it looks at, and any number of searches run
+ * side by side.
+ * <p>
+ * Both are loaded at warm-up, or on first use, with the upcoming visits of all vets, and
+ * kept current by the visit and vet events of all nodes. Events relayed during the load
+ * wait for it, and the ones before it are part of what it reads.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class AvailabilitySearch implements WarmUpTask, DomainEventSubscriber {
+
+    private final VetRepository vets;
+    private final VisitRepository visits;
+    private final ClinicCalendar calendar;
+    private final VetSchedule schedule = new VetSchedule();
+
+    private volatile SpecialtyIndex specialties = SpecialtyIndex.EMPTY;
+    private volatile boolean loaded;
+    private LocalDate today = LocalDate.now();
+
+    AvailabilitySearch(VetRepository vets, VisitRepository visits, ClinicCalendar calendar) {
+        this.vets = vets;
+        this.visits = visits;
+        this.calendar = calendar;
+    }
+
+    /**
+     * Find the earliest free hours of the vets having all the given specialties.
+     *
+     * @param specialties the names of the specialties; any vet if empty
+     * @param from the earliest time, inclusive
+     * @param to the latest time, exclusive
+     * @param limit the maximum number of hours to return
+     * @return the free hours in time order, and for the same hour in vet name order
+     */
+    List<FreeSlot> search(Collection<String> specialties, LocalDateTime from, LocalDateTime to, int limit) {
+        if (!this.loaded) {
+            load();
+        }
+        List<SpecialtyIndex.Entry> matching = this.specialties.match(specialties);
+        List<FreeSlot> free = new ArrayList<>();
+        if (matching.isEmpty()) {
+            return free;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from.isAfter(now) ? from : now;
+        int[] freeHours = new int[matching.size()];
+        for (LocalDate day = start.toLocalDate(); day.atStartOfDay().isBefore(to); day = day.plusDays(1)) {
+            if (this.calendar.openHours(day) == 0) {
+                continue;
+            }
+            int anyFree = 0;
+            for (int i = 0; i < freeHours.length; i++) {
+                int vetId = matching.get(i).id;
+                freeHours[i] = this.calendar.workingHours(vetId, day) & ~this.schedule.bookedHours(vetId, day);
+                anyFree |= freeHours[i];
+            }
+            // the hours free for any vet, lowest first
+            for (; anyFree != 0; anyFree &= anyFree - 1) {
+                int hour = Integer.numberOfTrailingZeros(anyFree);
+                LocalDateTime time = day.atTime(hour, 0);
+                if (time.isBefore(start) || !time.isBefore(to)) {
+                    continue;
+                }
+                for (int i = 0; i < freeHours.length; i++) {
+                    if ((freeHours[i] & (1 << hour)) != 0) {
+                        SpecialtyIndex.Entry vet = matching.get(i);
+                        free.add(new FreeSlot(vet.id, vet.firstName, vet.lastName, time));
+                        if (free.size() == limit) {
+                            return free;
+                        }
+                    }
+                }
+            }
+        }
+        return free;
+    }
+
+    @Override
+    public void warmUp() {
+        load();
+    }
+
+    private synchronized void load() {
+        if (this.loaded) {
+            return;
+        }
+        this.specialties = new SpecialtyIndex(this.vets.findAll());
+        this.schedule.clear();
+        for (Object[] row : this.visits.findVetsAndTimesFrom(LocalDate.now().atStartOfDay())) {
+            this.schedule.book((Integer) row[0], (LocalDateTime) row[1]);
+        }
+        this.loaded = true;
+    }
+
+    @Override
+    public synchronized void onEvents(List<DomainEvent> events) {
+        if (!this.loaded) {
+            // read afresh when loaded
+            return;
+        }
+        boolean vetsChanged = false;
+        for (DomainEvent event : events) {
+            if ("vet".equals(event.getAggregate())) {
+                vetsChanged = true;
+            } else if ("visit".equals(event.getAggregate())) {
+                Integer vetId = event.getInteger("vetId");
+                LocalDateTime time = event.getDateTime("time");
+                if (vetId != null && time != null) {
+                    if ("removed".equals(event.getType())) {
+                        this.schedule.cancel(vetId, time);
+                    } else {
+                        this.schedule.book(vetId, time);
+                    }
+                }
+            }
+        }
+        if (vetsChanged) {
+            this.specialties = new SpecialtyIndex(this.vets.findAll());
+        }
+        if (LocalDate.now().isAfter(this.today)) {
+            this.today = LocalDate.now();
+            this.schedule.removeBefore(this.today);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.availability;
+
+import java.time.LocalDateTime;
+
+/**
+ * An hour a vet is free at.
+ *
+ * @author Jackie Shao
+ */
+public class FreeSlot {
+
+    private final int vetId;
+    private final String vetFirstName;
+    private final String vetLastName;
+    private final LocalDateTime time;
+
+    FreeSlot(int vetId, String vetFirstName, String vetLastName, LocalDateTime time) {
+        this.vetId = vetId;
+        this.vetFirstName = vetFirstName;
+        this.vetLastName = vetLastName;
+        this.time = time;
+    }
+
+    public int getVetId() {
+        return this.vetId;
+    }
+
+    public String getVetFirstName() {
+        return this.vetFirstName;
+    }
+
+    public String getVetLastName() {
+        return this.vetLastName;
+    }
+
+    public LocalDateTime getTime() {
+        return this.time;
+    }
+
+}
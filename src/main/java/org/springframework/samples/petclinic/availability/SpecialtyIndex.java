@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.availability;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+
+/**
+ * Immutable index from specialties to the vets having them: every specialty is given a
+ * bit, and every vet the bits of its specialties, so matching a vet against a set of
+ * specialties is a few <code>AND</code>s. Specialty names are compared ignoring case.
+ *
+ * @author Jackie Shao
+ */
+class SpecialtyIndex {
+
+    static final SpecialtyIndex EMPTY = new SpecialtyIndex(Collections.emptyList());
+
+    private final Map<String, Integer> bits = new HashMap<>();
+    private final List<Entry> vets = new ArrayList<>();
+    private final int words;
+
+    SpecialtyIndex(Collection<Vet> vets) {
+        for (Vet vet : vets) {
+            for (Specialty specialty : vet.getSpecialties()) {
+                this.bits.putIfAbsent(key(specialty.getName()), this.bits.size());
+            }
+        }
+        this.words = (this.bits.size() + 63) / 64;
+        for (Vet vet : vets) {
+            long[] mask = new long[this.words];
+            for (Specialty specialty : vet.getSpecialties()) {
+                set(mask, this.bits.get(key(specialty.getName())));
+            }
+            this.vets.add(new Entry(vet.getId(), vet.getFirstName(), vet.getLastName(), mask));
+        }
+        this.vets.sort(Comparator.comparing((Entry entry) -> entry.lastName).thenComparing(entry -> entry.firstName));
+    }
+
+    private static String key(String specialty) {
+        return specialty.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static void set(long[] mask, int bit) {
+        mask[bit / 64] |= 1L << (bit % 64);
+    }
+
+    /**
+     * The vets having all the given specialties, in name order; all vets if none are given.
+     */
+    List<Entry> match(Collection<String> specialties) {
+        long[] required = new long[this.words];
+        for (String specialty : specialties) {
+            Integer bit = this.bits.get(key(specialty));
+            if (bit == null) {
+                // no vet has it
+                return Collections.emptyList();
+            }
+            set(required, bit);
+        }
+        List<Entry> matching = new ArrayList<>();
+        for (Entry vet : this.vets) {
+            if (vet.has(required)) {
+                matching.add(vet);
+            }
+        }
+        return matching;
+    }
+
+    int size() {
+        return this.vets.size();
+    }
+
+    /**
+     * A vet and the bits of its specialties.
+     */
+    static final class Entry {
+
+        final int id;
+        final String firstName;
+        final String lastName;
+        private final long[] mask;
+
+        Entry(int id, String firstName, String lastName, long[] mask) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.mask = mask;
+        }
+
+        boolean has(long[] required) {
+            for (int i = 0; i < required.length; i++) {
+                if ((this.mask[i] & required[i]) != required[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.availability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The hours each vet is booked at, as a bit per hour of the day for every day the vet has
+ * visits, so that looking up a day is a hash lookup giving the hours to mask. Safe for concurrent
+ * searches while visits are booked and cancelled.
+ *
+ * @author Jackie Shao
+ */
+class VetSchedule {
+
+    private final Map<Integer, Map<LocalDate, Integer>> days = new ConcurrentHashMap<>();
+
+    void book(int vetId, LocalDateTime time) {
+        this.days.computeIfAbsent(vetId, id -> new ConcurrentHashMap<>())
+            .merge(time.toLocalDate(), bit(time), (hours, hour) -> hours | hour);
+    }
+
+    void cancel(int vetId, LocalDateTime time) {
+        Map<LocalDate, Integer> vetDays = this.days.get(vetId);
+        if (vetDays != null) {
+            vetDays.computeIfPresent(time.toLocalDate(), (day, hours) -> {
+                int remaining = hours & ~bit(time);
+                return remaining != 0 ? remaining : null;
+            });
+        }
+    }
+
+    /**
+     * The hours a vet is booked at on a day, bit <code>n</code> standing for hour <code>n</code>.
+     */
+    int bookedHours(int vetId, LocalDate day) {
+        Map<LocalDate, Integer> vetDays = this.days.get(vetId);
+        Integer hours = vetDays != null ? vetDays.get(day) : null;
+        return hours != null ? hours : 0;
+    }
+
+    /**
+     * Forget the days before the given one.
+     */
+    void removeBefore(LocalDate day) {
+        this.days.values().forEach(vetDays -> vetDays.keySet().removeIf(booked -> booked.isBefore(day)));
+    }
+
+    void clear() {
+        this.days.clear();
+    }
+
+    private static int bit(LocalDateTime time) {
+        return 1 << time.getHour();
+    }
+
+}
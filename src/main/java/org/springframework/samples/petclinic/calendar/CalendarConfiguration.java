@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.calendar;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Clinic calendar compiled from the <code>petclinic.calendar</code> rules, which can be
+ * changed through the <code>calendar</code> actuator endpoint.
+ *
+ * @author Jackie Shao
+ * @see CalendarProperties
+ */
+@Configuration
+@EnableConfigurationProperties(CalendarProperties.class)
+class CalendarConfiguration {
+
+    @Bean
+    public ClinicCalendar clinicCalendar(CalendarProperties properties) {
+        return new ClinicCalendar(properties);
+    }
+
+    @Bean
+    public CalendarEndpoint calendarEndpoint(ClinicCalendar calendar) {
+        return new CalendarEndpoint(calendar);
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.calendar;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Actuator endpoint showing the rules of the {@link ClinicCalendar}, and changing them on
+ * this node: a POST to <code>hours/{day}</code>, <code>holidays/{day}</code> or
+ * <code>rosters/{vetId}</code> with a <code>value</code> sets a rule, a DELETE removes it.
+ *
+ * @author Jackie Shao
+ */
+@Endpoint(id = "calendar")
+class CalendarEndpoint {
+
+    private final ClinicCalendar calendar;
+
+    CalendarEndpoint(ClinicCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    @ReadOperation
+    public Map<String, Object> rules() {
+        return this.calendar.describe();
+    }
+
+    @WriteOperation
+    public Map<String, Object> setRule(@Selector String rule, @Selector String key, @Nullable String value) {
+        try {
+            switch (rule) {
+                case "hours":
+                    return recompiled(this.calendar.setOpeningHours(dayOfWeek(key), value));
+                case "holidays":
+                    return recompiled(this.calendar.addHoliday(key));
+                case "rosters":
+                    return recompiled(this.calendar.setRoster(vetId(key), daysOfWeek(value)));
+                default:
+                    throw unknownRule(rule);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidEndpointRequestException(ex.getMessage(), ex.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public Map<String, Object> removeRule(@Selector String rule, @Selector String key) {
+        try {
+            switch (rule) {
+                case "hours":
+                    return recompiled(this.calendar.setOpeningHours(dayOfWeek(key), null));
+                case "holidays":
+                    return recompiled(this.calendar.removeHoliday(key));
+                case "rosters":
+                    return recompiled(this.calendar.setRoster(vetId(key), null));
+                default:
+                    throw unknownRule(rule);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidEndpointRequestException(ex.getMessage(), ex.getMessage());
+        }
+    }
+
+    private static Map<String, Object> recompiled(int days) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recompiledDays", days);
+        return result;
+    }
+
+    private static IllegalArgumentException unknownRule(String rule) {
+        return new IllegalArgumentException("Unknown rule " + rule + ", expected hours, holidays or rosters");
+    }
+
+    private static DayOfWeek dayOfWeek(String day) {
+        return DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    private static int vetId(String vetId) {
+        return Integer.parseInt(vetId.trim());
+    }
+
+    private static Set<DayOfWeek> daysOfWeek(String days) {
+        Set<DayOfWeek> week = EnumSet.noneOf(DayOfWeek.class);
+        if (days != null) {
+            for (String day : days.split(",")) {
+                if (!day.trim().isEmpty()) {
+                    week.add(dayOfWeek(day));
+                }
+            }
+        }
+        return week;
+    }
+
+}
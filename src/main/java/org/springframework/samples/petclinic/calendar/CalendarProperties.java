@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.calendar;
+
+import java.time.DayOfWeek;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Clinic calendar rules, bound from the <code>petclinic.calendar</code> properties.
+ *
+ * @author Jackie Shao
+ * @see ClinicCalendar
+ */
+@ConfigurationProperties("petclinic.calendar")
+public class CalendarProperties {
+
+    /**
+     * Hours at which visits start, per day of the week, such as <code>8-12,14-16</code>;
+     * days without hours are closed.
+     */
+    private Map<DayOfWeek, String> openingHours = new EnumMap<>(DayOfWeek.class);
+
+    /**
+     * Days the clinic is closed, as <code>yyyy-MM-dd</code>, or <code>MM-dd</code> for every
+     * year.
+     */
+    private Set<String> holidays = new LinkedHashSet<>();
+
+    /**
+     * Days of the week each vet works, by vet id; vets without a roster work whenever the
+     * clinic is open.
+     */
+    private Map<Integer, Set<DayOfWeek>> rosters = new TreeMap<>();
+
+    /**
+     * Number of days from today that are compiled ahead; later days are worked out on every
+     * lookup.
+     */
+    private int horizonDays = 400;
+
+    public CalendarProperties() {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY) {
+                this.openingHours.put(day, "8-16");
+            }
+        }
+    }
+
+    public Map<DayOfWeek, String> getOpeningHours() {
+        return this.openingHours;
+    }
+
+    public void setOpeningHours(Map<DayOfWeek, String> openingHours) {
+        this.openingHours = openingHours;
+    }
+
+    public Set<String> getHolidays() {
+        return this.holidays;
+    }
+
+    public void setHolidays(Set<String> holidays) {
+        this.holidays = holidays;
+    }
+
+    public Map<Integer, Set<DayOfWeek>> getRosters() {
+        return this.rosters;
+    }
+
+    public void setRosters(Map<Integer, Set<DayOfWeek>> rosters) {
+        this.rosters = rosters;
+    }
+
+    public int getHorizonDays() {
+        return this.horizonDays;
+    }
+
+    public void setHorizonDays(int horizonDays) {
+        this.horizonDays = horizonDays;
+    }
+
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.calendar;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * The hours the clinic is open and each vet works, compiled from the
+ * {@link CalendarProperties} rules into a bit per hour for every day of a rolling horizon,
+ * bit <code>n</code> standing for hour <code>n</code>, so checking a time is an array lookup
+ * and a bit test.
+ * <p>
+ * The compiled days are replaced as a whole, so lookups never wait. A rule change
+ * recompiles only the days it affects: a holiday its day, or that day of every year, opening
+ * hours their day of the week, and a roster the days of the week it adds or drops for its
+ * vet. Rules changed at runtime apply to this node until it restarts.
+ *
+ * @author Jackie Shao
+ */
+public class ClinicCalendar {
+
+    private static final int ALL_WEEK = (1 << 7) - 1;
+
+    private final Clock clock;
+    private final int horizonDays;
+
+    // the rules, only used while holding the lock
+    private final int[] weekHours = new int[7];
+    private final Set<LocalDate> holidays = new TreeSet<>();
+    private final Set<MonthDay> annualHolidays = new TreeSet<>();
+    private final Map<Integer, Integer> rosters = new TreeMap<>();
+
+    private volatile Compiled compiled;
+
+    public ClinicCalendar(CalendarProperties properties) {
+        this(properties, Clock.systemDefaultZone());
+    }
+
+    ClinicCalendar(CalendarProperties properties, Clock clock) {
+        this.clock = clock;
+        this.horizonDays = Math.max(properties.getHorizonDays(), 1);
+        properties.getOpeningHours().forEach((day, hours) -> this.weekHours[day.ordinal()] = parseHours(hours));
+        properties.getHolidays().forEach(holiday -> addHolidayRule(parseHoliday(holiday)));
+        properties.getRosters().forEach((vetId, days) -> this.rosters.put(vetId, weekMask(days)));
+        this.compiled = compile(LocalDate.now(clock));
+    }
+
+    /**
+     * The hours visits can start at on a day, bit <code>n</code> standing for hour
+     * <code>n</code>; 0 if the clinic is closed.
+     */
+    public int openHours(LocalDate day) {
+        Compiled compiled = current();
+        int index = compiled.index(day);
+        return index >= 0 ? compiled.clinic[index] : evaluate(day);
+    }
+
+    /**
+     * The hours a vet works on a day, bit <code>n</code> standing for hour <code>n</code>;
+     * 0 if the vet is off or the clinic closed.
+     */
+    public int workingHours(int vetId, LocalDate day) {
+        Compiled compiled = current();
+        int index = compiled.index(day);
+        if (index < 0) {
+            return evaluate(vetId, day);
+        }
+        int[] hours = compiled.vets.get(vetId);
+        return hours != null ? hours[index] : compiled.clinic[index];
+    }
+
+    public boolean isOpen(LocalDateTime time) {
+        return (openHours(time.toLocalDate()) & bit(time.getHour())) != 0;
+    }
+
+    public boolean isWorking(int vetId, LocalDateTime time) {
+        return (workingHours(vetId, time.toLocalDate()) & bit(time.getHour())) != 0;
+    }
+
+    /**
+     * Change the hours visits can start at on a day of the week.
+     *
+     * @param day the day of the week
+     * @param hours the hours, such as <code>8-12,14-16</code>; empty if closed
+     * @return the number of days recompiled
+     */
+    public synchronized int setOpeningHours(DayOfWeek day, String hours) {
+        this.weekHours[day.ordinal()] = parseHours(hours);
+        return recompile(date -> date.getDayOfWeek() == day);
+    }
+
+    /**
+     * Close the clinic on a day.
+     *
+     * @param holiday the day as <code>yyyy-MM-dd</code>, or <code>MM-dd</code> for every year
+     * @return the number of days recompiled
+     */
+    public synchronized int addHoliday(String holiday) {
+        Object rule = parseHoliday(holiday);
+        addHolidayRule(rule);
+        return recompile(holidayMatcher(rule));
+    }
+
+    /**
+     * Open the clinic again on a day it was closed on by {@link #addHoliday}.
+     *
+     * @param holiday the day as <code>yyyy-MM-dd</code>, or <code>MM-dd</code> for every year
+     * @return the number of days recompiled
+     */
+    public synchronized int removeHoliday(String holiday) {
+        Object rule = parseHoliday(holiday);
+        boolean removed = rule instanceof LocalDate ? this.holidays.remove(rule) : this.annualHolidays.remove(rule);
+        if (!removed) {
+            return 0;
+        }
+        return recompile(holidayMatcher(rule));
+    }
+
+    /**
+     * Change the days of the week a vet works.
+     *
+     * @param vetId the id of the vet
+     * @param days the days the vet works, or <code>null</code> to work whenever the clinic is open
+     * @return the number of days recompiled
+     */
+    public synchronized int setRoster(int vetId, Set<DayOfWeek> days) {
+        Integer previous = days != null ? this.rosters.put(vetId, weekMask(days)) : this.rosters.remove(vetId);
+        int current = days != null ? weekMask(days) : ALL_WEEK;
+        int changed = (previous != null ? previous : ALL_WEEK) ^ current;
+        Compiled compiled = current();
+        Map<Integer, int[]> vets = new HashMap<>(compiled.vets);
+        if (days == null) {
+            vets.remove(vetId);
+        } else {
+            int[] previousHours = compiled.vets.get(vetId);
+            int[] hours = (previousHours != null ? previousHours : compiled.clinic).clone();
+            for (int i = 0; i < hours.length; i++) {
+                if ((changed & weekBit(compiled.start.plusDays(i))) != 0) {
+                    hours[i] = working(current, compiled.clinic[i], compiled.start.plusDays(i));
+                }
+            }
+            vets.put(vetId, hours);
+        }
+        this.compiled = new Compiled(compiled.start, compiled.clinic, vets);
+        int count = 0;
+        for (int i = 0; i < this.horizonDays; i++) {
+            if ((changed & weekBit(compiled.start.plusDays(i))) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Describe the rules and the compiled days.
+     */
+    synchronized Map<String, Object> describe() {
+        Map<String, Object> openingHours = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            openingHours.put(day.name(), formatHours(this.weekHours[day.ordinal()]));
+        }
+        List<String> holidays = new ArrayList<>();
+        this.holidays.forEach(holiday -> holidays.add(holiday.toString()));
+        this.annualHolidays.forEach(holiday -> holidays.add(holiday.toString().substring(2)));
+        Map<String, Object> rosters = new LinkedHashMap<>();
+        this.rosters.forEach((vetId, week) -> {
+            List<String> days = new ArrayList<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((week & (1 << day.ordinal())) != 0) {
+                    days.add(day.name());
+                }
+            }
+            rosters.put(vetId.toString(), days);
+        });
+        Compiled compiled = current();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("openingHours", openingHours);
+        description.put("holidays", holidays);
+        description.put("rosters", rosters);
+        description.put("compiledFrom", compiled.start);
+        description.put("compiledTo", compiled.start.plusDays(this.horizonDays - 1));
+        return description;
+    }
+
+    /**
+     * Return the compiled days, moved on to start today first if a day has passed.
+     */
+    private Compiled current() {
+        Compiled compiled = this.compiled;
+        return compiled.start.isBefore(LocalDate.now(this.clock)) ? roll() : compiled;
+    }
+
+    private synchronized Compiled roll() {
+        LocalDate today = LocalDate.now(this.clock);
+        Compiled compiled = this.compiled;
+        if (!compiled.start.isBefore(today)) {
+            return compiled;
+        }
+        int shift = (int) Math.min(ChronoUnit.DAYS.between(compiled.start, today), this.horizonDays);
+        int kept = this.horizonDays - shift;
+        int[] clinic = new int[this.horizonDays];
+        System.arraycopy(compiled.clinic, shift, clinic, 0, kept);
+        for (int i = kept; i < this.horizonDays; i++) {
+            clinic[i] = evaluate(today.plusDays(i));
+        }
+        Map<Integer, int[]> vets = new HashMap<>();
+        compiled.vets.forEach((vetId, previous) -> {
+            int[] hours = new int[this.horizonDays];
+            System.arraycopy(previous, shift, hours, 0, kept);
+            for (int i = kept; i < this.horizonDays; i++) {
+                hours[i] = working(this.rosters.get(vetId), clinic[i], today.plusDays(i));
+            }
+            vets.put(vetId, hours);
+        });
+        this.compiled = new Compiled(today, clinic, vets);
+        return this.compiled;
+    }
+
+    private Compiled compile(LocalDate start) {
+        int[] clinic = new int[this.horizonDays];
+        for (int i = 0; i < this.horizonDays; i++) {
+            clinic[i] = evaluate(start.plusDays(i));
+        }
+        Map<Integer, int[]> vets = new HashMap<>();
+        this.rosters.forEach((vetId, week) -> {
+            int[] hours = new int[this.horizonDays];
+            for (int i = 0; i < this.horizonDays; i++) {
+                hours[i] = working(week, clinic[i], start.plusDays(i));
+            }
+            vets.put(vetId, hours);
+        });
+        return new Compiled(start, clinic, vets);
+    }
+
+    /**
+     * Recompile the days matching a predicate, for the clinic and every vet with a roster.
+     */
+    private int recompile(Predicate<LocalDate> affected) {
+        Compiled compiled = current();
+        int[] clinic = compiled.clinic.clone();
+        Map<Integer, int[]> vets = new HashMap<>();
+        compiled.vets.forEach((vetId, hours) -> vets.put(vetId, hours.clone()));
+        int count = 0;
+        for (int i = 0; i < this.horizonDays; i++) {
+            LocalDate day = compiled.start.plusDays(i);
+            if (affected.test(day)) {
+                clinic[i] = evaluate(day);
+                for (Map.Entry<Integer, int[]> vet : vets.entrySet()) {
+                    vet.getValue()[i] = working(this.rosters.get(vet.getKey()), clinic[i], day);
+                }
+                count++;
+            }
+        }
+        this.compiled = new Compiled(compiled.start, clinic, vets);
+        return count;
+    }
+
+    private synchronized int evaluate(LocalDate day) {
+        if (this.holidays.contains(day) || this.annualHolidays.contains(MonthDay.from(day))) {
+            return 0;
+        }
+        return this.weekHours[day.getDayOfWeek().ordinal()];
+    }
+
+    private synchronized int evaluate(int vetId, LocalDate day) {
+        return working(this.rosters.get(vetId), evaluate(day), day);
+    }
+
+    private static int working(Integer week, int clinicHours, LocalDate day) {
+        return week == null || (week & weekBit(day)) != 0 ? clinicHours : 0;
+    }
+
+    private static int weekBit(LocalDate day) {
+        return 1 << day.getDayOfWeek().ordinal();
+    }
+
+    private static int bit(int hour) {
+        return 1 << hour;
+    }
+
+    private void addHolidayRule(Object rule) {
+        if (rule instanceof LocalDate) {
+            this.holidays.add((LocalDate) rule);
+        } else {
+            this.annualHolidays.add((MonthDay) rule);
+        }
+    }
+
+    private static Predicate<LocalDate> holidayMatcher(Object rule) {
+        return rule instanceof LocalDate ? rule::equals : day -> rule.equals(MonthDay.from(day));
+    }
+
+    /**
+     * Read a holiday as a {@link LocalDate}, or a {@link MonthDay} if it is every year.
+     */
+    private static Object parseHoliday(String holiday) {
+        String text = holiday.trim();
+        try {
+            return text.length() == 5 ? MonthDay.parse("--" + text) : LocalDate.parse(text);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Holiday " + holiday + " is neither yyyy-MM-dd nor MM-dd", ex);
+        }
+    }
+
+    /**
+     * Read hours such as <code>8-12,14-16</code> into a bit per hour.
+     */
+    static int parseHours(String hours) {
+        int mask = 0;
+        if (hours == null) {
+            return mask;
+        }
+        for (String range : hours.split(",")) {
+            String text = range.trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            String[] bounds = text.split("-", 2);
+            try {
+                int first = Integer.parseInt(bounds[0].trim());
+                int last = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : first;
+                if (first < 0 || last > 23 || first > last) {
+                    throw new IllegalArgumentException("Hours " + text + " are not within 0-23");
+                }
+                for (int hour = first; hour <= last; hour++) {
+                    mask |= bit(hour);
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Hours " + text + " are not a range such as 8-16", ex);
+            }
+        }
+        return mask;
+    }
+
+    static String formatHours(int mask) {
+        StringBuilder hours = new StringBuilder();
+        for (int hour = 0; hour < 24; hour++) {
+            if ((mask & bit(hour)) != 0 && (hour == 0 || (mask & bit(hour - 1)) == 0)) {
+                int last = hour;
+                while (last < 23 && (mask & bit(last + 1)) != 0) {
+                    last++;
+                }
+                hours.append(hours.length() > 0 ? "," : "").append(hour);
+                if (last > hour) {
+                    hours.append('-').append(last);
+                }
+            }
+        }
+        return hours.toString();
+    }
+
+    private static int weekMask(Set<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << day.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * The compiled days, from <code>start</code> on, of the clinic and of every vet with a
+     * roster; never changed once published.
+     */
+    private static class Compiled {
+
+        private final LocalDate start;
+        private final int[] clinic;
+        private final Map<Integer, int[]> vets;
+
+        Compiled(LocalDate start, int[] clinic, Map<Integer, int[]> vets) {
+            this.start = start;
+            this.clinic = clinic;
+            this.vets = vets;
+        }
+
+        /**
+         * The index of a day, or -1 if it is not compiled.
+         */
+        int index(LocalDate day) {
+            long index = ChronoUnit.DAYS.between(this.start, day);
+            return index >= 0 && index < this.clinic.length ? (int) index : -1;
+        }
+    }
+
+}
@@ -17,14 +17,19 @@ package org.springframework.samples.petclinic.model;
 
 import java.io.Serializable;
 
+import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Version;
 
 /**
  * Simple JavaBean domain object with an id property. Used as a base class for objects
  * needing this property.
+ * <p>
+ * Also carries the optimistic locking version, which is bumped on every update of the
+ * row and doubles as a cheap change indicator for ETags.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -35,6 +40,10 @@ public class BaseEntity implements Serializable {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     public Integer getId() {
         return id;
     }
@@ -43,6 +52,14 @@ public class BaseEntity implements Serializable {
         this.id = id;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public boolean isNew() {
         return this.id == null;
     }
@@ -81,8 +81,12 @@ public class Owner extends Person {
         return this.telephone;
     }
 
+    /**
+     * Set the telephone number, keeping its digits only: that is the form the unique
+     * <code>owners_telephone</code> index and the {@link TelephoneIndex} compare.
+     */
     public void setTelephone(String telephone) {
-        this.telephone = telephone;
+        this.telephone = telephone != null ? TelephoneIndex.normalize(telephone) : null;
     }
 
     protected Set<Pet> getPetsInternal() {
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Returns many owners at once as JSON, with their pets and visits, for systems that need
+ * the data of hundreds of owners at a time.
+ * <p>
+ * However many owners are asked for, they are loaded level by level with one
+ * <code>IN (...)</code> query per {@link #BATCH_SIZE} ids: owners, then the pets of all
+ * owners, then the visits of all pets, then the vets of all visits. Pet types and vets are
+ * shared by many pets and visits, so they are returned once, by id, next to the owners.
+ * <p>
+ * <code>fields</code> selects what is returned, as paths such as <code>lastName</code>,
+ * <code>pets.name</code> or <code>pets.visits</code>; a path selects everything below it and
+ * ids are always returned. Levels nothing is selected from are not queried at all.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class OwnerBatchController {
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_OWNERS = 1000;
+
+    private final OwnerRepository owners;
+    private final PetRepository pets;
+    private final VisitRepository visits;
+    private final VetRepository vets;
+
+    public OwnerBatchController(OwnerRepository owners, PetRepository pets, VisitRepository visits, VetRepository vets) {
+        this.owners = owners;
+        this.pets = pets;
+        this.visits = visits;
+        this.vets = vets;
+    }
+
+    @GetMapping("/owners/batch")
+    @ResponseBody
+    public Map<String, Object> showOwners(@RequestParam("ids") List<Integer> ids,
+                                          @RequestParam(value = "fields", required = false) List<String> fields) {
+        return load(ids, fields);
+    }
+
+    @PostMapping("/owners/batch")
+    @ResponseBody
+    public Map<String, Object> processOwners(@RequestBody BatchRequest request) {
+        return load(request.getIds(), request.getFields());
+    }
+
+    private Map<String, Object> load(List<Integer> ids, List<String> fields) {
+        Set<Integer> ownerIds = new LinkedHashSet<>(ids != null ? ids : Collections.emptyList());
+        ownerIds.remove(null);
+        if (ownerIds.size() > MAX_OWNERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_OWNERS + " owners at a time");
+        }
+        Fields selected = new Fields(fields);
+
+        Map<Integer, Map<String, Object>> ownersById = new HashMap<>();
+        for (OwnerSummary summary : inBatches(ownerIds, this.owners::findSummariesByIds)) {
+            Map<String, Object> owner = new LinkedHashMap<>();
+            owner.put("id", summary.getId());
+            selected.put(owner, "firstName", summary.getFirstName());
+            selected.put(owner, "lastName", summary.getLastName());
+            selected.put(owner, "address", summary.getAddress());
+            selected.put(owner, "city", summary.getCity());
+            selected.put(owner, "telephone", summary.getTelephone());
+            if (selected.any("pets")) {
+                owner.put("pets", new ArrayList<>());
+            }
+            ownersById.put(summary.getId(), owner);
+        }
+
+        Set<Integer> typeIds = new LinkedHashSet<>();
+        Set<Integer> vetIds = new LinkedHashSet<>();
+        if (selected.any("pets") && !ownersById.isEmpty()) {
+            Map<Integer, Map<String, Object>> petsById = new LinkedHashMap<>();
+            for (Object[] row : inBatches(ownersById.keySet(), this.pets::findRowsByOwnerIds)) {
+                Map<String, Object> pet = new LinkedHashMap<>();
+                pet.put("id", row[1]);
+                selected.put(pet, "pets.name", row[2]);
+                selected.put(pet, "pets.birthDate", row[3]);
+                if (selected.put(pet, "pets.type", row[4]) && row[4] != null) {
+                    typeIds.add((Integer) row[4]);
+                }
+                if (selected.any("pets.visits")) {
+                    pet.put("visits", new ArrayList<>());
+                }
+                add(ownersById.get(row[0]), "pets", pet);
+                petsById.put((Integer) row[1], pet);
+            }
+            if (selected.any("pets.visits") && !petsById.isEmpty()) {
+                for (Object[] row : inBatches(petsById.keySet(), this.visits::findRowsByPetIds)) {
+                    Map<String, Object> visit = new LinkedHashMap<>();
+                    visit.put("id", row[1]);
+                    selected.put(visit, "pets.visits.time", row[2]);
+                    selected.put(visit, "pets.visits.description", row[3]);
+                    if (selected.put(visit, "pets.visits.vet", row[4]) && row[4] != null) {
+                        vetIds.add((Integer) row[4]);
+                    }
+                    add(petsById.get(row[0]), "visits", visit);
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Map<String, Object>> found = new ArrayList<>();
+        List<Integer> notFound = new ArrayList<>();
+        for (Integer id : ownerIds) {
+            Map<String, Object> owner = ownersById.get(id);
+            if (owner == null) {
+                notFound.add(id);
+            } else {
+                found.add(owner);
+            }
+        }
+        result.put("owners", found);
+        result.put("notFound", notFound);
+        if (!typeIds.isEmpty()) {
+            Map<Integer, String> types = new TreeMap<>();
+            this.pets.findPetTypes().stream().filter(type -> typeIds.contains(type.getId()))
+                .forEach(type -> types.put(type.getId(), type.getName()));
+            result.put("petTypes", types);
+        }
+        if (!vetIds.isEmpty()) {
+            Map<Integer, Map<String, Object>> vetsById = new TreeMap<>();
+            for (Object[] row : inBatches(vetIds, this.vets::findNamesByIds)) {
+                Map<String, Object> vet = new LinkedHashMap<>();
+                vet.put("firstName", row[1]);
+                vet.put("lastName", row[2]);
+                vetsById.put((Integer) row[0], vet);
+            }
+            result.put("vets", vetsById);
+        }
+        return result;
+    }
+
+    /**
+     * Run a query for the given ids, {@link #BATCH_SIZE} at a time.
+     */
+    private static <T> List<T> inBatches(Collection<Integer> ids, Function<Collection<Integer>, List<T>> query) {
+        List<Integer> all = new ArrayList<>(ids);
+        List<T> results = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += BATCH_SIZE) {
+            results.addAll(query.apply(all.subList(from, Math.min(from + BATCH_SIZE, all.size()))));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Map<String, Object> parent, String name, Map<String, Object> child) {
+        if (parent != null) {
+            ((List<Map<String, Object>>) parent.computeIfAbsent(name, key -> new ArrayList<>())).add(child);
+        }
+    }
+
+    /**
+     * The selected field paths; all fields if none are given.
+     */
+    private static class Fields {
+
+        private final Set<String> paths = new LinkedHashSet<>();
+
+        Fields(List<String> fields) {
+            if (fields != null) {
+                for (String field : fields) {
+                    Arrays.stream(field.split(",")).map(String::trim).filter(path -> !path.isEmpty())
+                        .forEach(this.paths::add);
+                }
+            }
+        }
+
+        /**
+         * Whether the field itself, or one of the fields it is part of, is selected.
+         */
+        boolean is(String path) {
+            if (this.paths.isEmpty()) {
+                return true;
+            }
+            for (String selected : this.paths) {
+                if (path.equals(selected) || path.startsWith(selected + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether the field or any field below it is selected, so that it has to be loaded.
+         */
+        boolean any(String path) {
+            return is(path) || this.paths.stream().anyMatch(selected -> selected.startsWith(path + "."));
+        }
+
+        boolean put(Map<String, Object> target, String path, Object value) {
+            if (!is(path)) {
+                return false;
+            }
+            target.put(path.substring(path.lastIndexOf('.') + 1), value);
+            return true;
+        }
+    }
+
+    /**
+     * The owners and fields asked for in a request body, for more ids than fit in a URL.
+     */
+    static class BatchRequest {
+
+        private List<Integer> ids;
+        private List<String> fields;
+
+        public List<Integer> getIds() {
+            return this.ids;
+        }
+
+        public void setIds(List<Integer> ids) {
+            this.ids = ids;
+        }
+
+        public List<String> getFields() {
+            return this.fields;
+        }
+
+        public void setFields(List<String> fields) {
+            this.fields = fields;
+        }
+    }
+
+}
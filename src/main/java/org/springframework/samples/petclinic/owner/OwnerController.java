@@ -15,18 +15,26 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.VisitArchive;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.util.Collection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
 /**
@@ -39,11 +47,19 @@ import java.util.Map;
 class OwnerController {
 
     private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
     private final OwnerRepository owners;
+    private final VetRepository vets;
+    private final VisitArchive archive;
+    private final TelephoneIndex telephones;
 
 
-    public OwnerController(OwnerRepository clinicService) {
+    public OwnerController(OwnerRepository clinicService, VetRepository vets, VisitArchive archive,
+                           TelephoneIndex telephones) {
         this.owners = clinicService;
+        this.vets = vets;
+        this.archive = archive;
+        this.telephones = telephones;
     }
 
     @InitBinder
@@ -60,6 +76,7 @@ class OwnerController {
 
     @PostMapping("/owners/new")
     public String processCreationForm(@Valid Owner owner, BindingResult result) {
+        rejectTelephoneInUse(owner, result);
         if (result.hasErrors()) {
             return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
         } else {
@@ -75,7 +92,18 @@ class OwnerController {
     }
 
     @GetMapping("/owners")
-    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model,
+                                  HttpServletResponse response) {
+
+        // a caller's telephone number leads straight to their record, from the in-memory index
+        if (StringUtils.hasText(owner.getTelephone())) {
+            Integer ownerId = this.telephones.findOwnerId(owner.getTelephone());
+            if (ownerId == null) {
+                result.rejectValue("telephone", "notFound", "not found");
+                return "owners/findOwners";
+            }
+            return "redirect:/owners/" + ownerId;
+        }
 
         // allow parameterless GET request for /owners to return all records
         if (owner.getLastName() == null) {
@@ -83,22 +111,31 @@ class OwnerController {
         }
 
         // find owners by last name
-        Collection<Owner> results = this.owners.findByLastName(owner.getLastName());
+        OwnerCursor results = new OwnerCursor(this.owners, owner.getLastName(), OwnerCursor.DEFAULT_BATCH_SIZE);
         if (results.isEmpty()) {
             // no owners found
             result.rejectValue("lastName", "notFound", "not found");
             return "owners/findOwners";
-        } else if (results.size() == 1) {
+        } else if (results.getSingleResult() != null) {
             // 1 owner found
-            owner = results.iterator().next();
-            return "redirect:/owners/" + owner.getId();
+            return "redirect:/owners/" + results.getSingleResult().getId();
         } else {
-            // multiple owners found
+            // multiple owners found: the view pulls them batch by batch while rendering, and the
+            // rows of each batch are sent to the browser before the next one is fetched
+            results.beforeNextBatch(() -> flush(response));
             model.put("selections", results);
             return "owners/ownersList";
         }
     }
 
+    private static void flush(HttpServletResponse response) {
+        try {
+            response.flushBuffer();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     @GetMapping("/owners/{ownerId}/edit")
     public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
         Owner owner = this.owners.findById(ownerId);
@@ -108,12 +145,30 @@ class OwnerController {
 
     @PostMapping("/owners/{ownerId}/edit")
     public String processUpdateOwnerForm(@Valid Owner owner, BindingResult result, @PathVariable("ownerId") int ownerId) {
+        owner.setId(ownerId);
+        rejectTelephoneInUse(owner, result);
         if (result.hasErrors()) {
             return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
-        } else {
-            owner.setId(ownerId);
-            this.owners.save(owner);
-            return "redirect:/owners/{ownerId}";
+        }
+        if (this.owners.updateIfVersionMatches(owner) == 0) {
+            // changed in the meantime: keep the submitted values, but let a resubmission win
+            result.reject("concurrentModification", "changed in the meantime");
+            owner.setVersion(this.owners.findVersionById(ownerId));
+            return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
+        }
+        return "redirect:/owners/{ownerId}";
+    }
+
+    /**
+     * Telephone numbers identify callers, so no two owners may share one; the unique index
+     * enforces it on each database, this check across shards and with a proper message.
+     */
+    private void rejectTelephoneInUse(Owner owner, BindingResult result) {
+        if (owner.getTelephone() != null && !result.hasFieldErrors("telephone")) {
+            Integer ownerId = this.owners.findIdByTelephone(owner.getTelephone());
+            if (ownerId != null && !ownerId.equals(owner.getId())) {
+                result.rejectValue("telephone", "duplicate", "already used by another owner");
+            }
         }
     }
 
@@ -121,12 +176,21 @@ class OwnerController {
      * Custom handler for displaying an owner.
      *
      * @param ownerId the ID of the owner to display
+     * @param request the current request, answered with 304 if the page did not change
      * @return a ModelMap with the model attributes for the view
      */
     @GetMapping("/owners/{ownerId}")
-    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
+    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId, WebRequest request) {
+        // the page shows the owner with its pets and visits, the vet names of the visits and
+        // cancel links for visits that are still ahead, which only change on the hour
+        Integer version = this.owners.findVersionById(ownerId);
+        if (version != null && request.checkNotModified("W/\"owner-" + ownerId + "-" + version + "-"
+            + this.vets.sumVersions() + "-" + LocalDateTime.now().format(HOUR_FORMATTER) + "\"")) {
+            return null;
+        }
         ModelAndView mav = new ModelAndView("owners/ownerDetails");
         mav.addObject(this.owners.findById(ownerId));
+        mav.addObject("archive", this.archive);
         return mav;
     }
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Iterator over the {@link OwnerSummary OwnerSummaries} matching a last name search, fetched
+ * from the {@link OwnerRepository} in batches by id (keyset pagination). Only the current batch
+ * is held in memory, so the owner list view can be rendered and streamed to the client while
+ * it iterates.
+ *
+ * @author Jackie Shao
+ */
+class OwnerCursor implements Iterator<OwnerSummary> {
+
+    static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final OwnerRepository owners;
+    private final String lastName;
+    private final int batchSize;
+
+    private List<OwnerSummary> batch;
+    private int position;
+    private boolean exhausted;
+    private Runnable beforeNextBatch = () -> { };
+
+    /**
+     * Create a cursor and eagerly fetch its first batch.
+     */
+    OwnerCursor(OwnerRepository owners, String lastName, int batchSize) {
+        this.owners = owners;
+        this.lastName = lastName;
+        this.batchSize = Math.max(batchSize, 2);
+        this.batch = fetch(0);
+    }
+
+    /**
+     * Register a callback run before every batch after the first one is fetched, typically to
+     * flush the rows rendered so far to the client.
+     */
+    void beforeNextBatch(Runnable callback) {
+        this.beforeNextBatch = callback;
+    }
+
+    boolean isEmpty() {
+        return this.batch.isEmpty();
+    }
+
+    /**
+     * Return the only matching owner, or <code>null</code> if there are none or several.
+     */
+    OwnerSummary getSingleResult() {
+        return this.exhausted && this.batch.size() == 1 ? this.batch.get(0) : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.position < this.batch.size()) {
+            return true;
+        }
+        if (this.exhausted) {
+            return false;
+        }
+        this.beforeNextBatch.run();
+        this.batch = fetch(this.batch.get(this.batch.size() - 1).getId());
+        this.position = 0;
+        return !this.batch.isEmpty();
+    }
+
+    @Override
+    public OwnerSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.batch.get(this.position++);
+    }
+
+    private List<OwnerSummary> fetch(int afterId) {
+        List<OwnerSummary> summaries = this.owners.findSummariesByLastName(this.lastName, afterId,
+            PageRequest.of(0, this.batchSize));
+        this.exhausted = summaries.size() < this.batchSize;
+        if (summaries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, OwnerSummary> byId = new LinkedHashMap<>();
+        for (OwnerSummary summary : summaries) {
+            byId.put(summary.getId(), summary);
+        }
+        for (Object[] petName : this.owners.findPetNamesByOwnerIds(byId.keySet())) {
+            byId.get(petName[0]).addPetName((String) petName[1]);
+        }
+        return summaries;
+    }
+
+}
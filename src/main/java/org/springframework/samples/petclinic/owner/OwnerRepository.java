@@ -16,10 +16,16 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.samples.petclinic.system.DomainChange;
+import org.springframework.samples.petclinic.system.ShardKey;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -42,8 +48,76 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
      */
     @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.lastName LIKE :lastName%")
     @Transactional(readOnly = true)
+    @AllShards
     Collection<Owner> findByLastName(@Param("lastName") String lastName);
 
+    /**
+     * Retrieve a page of {@link OwnerSummary OwnerSummaries} whose last name <i>starts</i> with the
+     * given name, in id order and after the given id. Summaries are not managed by the persistence
+     * context, so walking a large result page by page keeps memory flat.
+     * @param lastName Value to search for
+     * @param afterId only owners with a greater id are returned
+     * @param pageable the maximum number of owners to return
+     * @return a List of matching {@link OwnerSummary OwnerSummaries}, without pet names
+     */
+    @Query("SELECT NEW org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, owner.lastName, "
+        + "owner.address, owner.city, owner.telephone) FROM Owner owner "
+        + "WHERE owner.lastName LIKE :lastName% AND owner.id > :afterId ORDER BY owner.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "id")
+    List<OwnerSummary> findSummariesByLastName(@Param("lastName") String lastName, @Param("afterId") Integer afterId,
+                                               Pageable pageable);
+
+    /**
+     * Retrieve the {@link OwnerSummary OwnerSummaries} of the given {@link Owner}s.
+     * @param ids the owners to search for
+     * @return a List of the {@link OwnerSummary OwnerSummaries} found, without pet names, in id order
+     */
+    @Query("SELECT NEW org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, owner.lastName, "
+        + "owner.address, owner.city, owner.telephone) FROM Owner owner WHERE owner.id IN :ids ORDER BY owner.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "id")
+    List<OwnerSummary> findSummariesByIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve the pet names of the given {@link Owner}s.
+     * @param ownerIds the owners to search for
+     * @return a List of (owner id, pet name) pairs, ordered by pet name
+     */
+    @Query("SELECT owner.id, pet.name FROM Owner owner JOIN owner.pets pet WHERE owner.id IN :ownerIds ORDER BY pet.name")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findPetNamesByOwnerIds(@Param("ownerIds") Collection<Integer> ownerIds);
+
+    /**
+     * Retrieve the id of the {@link Owner} with the given telephone number, on the unique
+     * <code>owners_telephone</code> index.
+     * @param telephone the telephone number, digits only
+     * @return the id of the owner, or <code>null</code> if not found
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.telephone = :telephone")
+    @Transactional(readOnly = true)
+    @AllShards
+    Integer findIdByTelephone(@Param("telephone") String telephone);
+
+    /**
+     * Retrieve the ids and telephone numbers of all {@link Owner}s.
+     * @return a List of (owner id, telephone) pairs
+     */
+    @Query("SELECT owner.id, owner.telephone FROM Owner owner WHERE owner.telephone IS NOT NULL")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findIdsAndTelephones();
+
+    /**
+     * Retrieve the telephone number of an {@link Owner}.
+     * @param id the id to search for
+     * @return the telephone number, or <code>null</code> if not found
+     */
+    @Query("SELECT owner.telephone FROM Owner owner WHERE owner.id =:id")
+    @Transactional(readOnly = true)
+    String findTelephoneById(@ShardKey @Param("id") Integer id);
+
     /**
      * Retrieve an {@link Owner} from the data store by id.
      * @param id the id to search for
@@ -51,13 +125,47 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
      */
     @Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
     @Transactional(readOnly = true)
-    Owner findById(@Param("id") Integer id);
+    Owner findById(@ShardKey @Param("id") Integer id);
 
     /**
      * Save an {@link Owner} to the data store, either inserting or updating it.
      * @param owner the {@link Owner} to save
      */
-    void save(Owner owner);
+    @DomainChange(aggregate = "owner", type = "saved")
+    void save(@ShardKey("id") Owner owner);
+
+    /**
+     * Retrieve the version of an {@link Owner}, which changes whenever the owner or one of
+     * its pets or visits is changed.
+     * @param id the id to search for
+     * @return the version, or <code>null</code> if not found
+     */
+    @Query("SELECT owner.version FROM Owner owner WHERE owner.id =:id")
+    @Transactional(readOnly = true)
+    Integer findVersionById(@ShardKey @Param("id") Integer id);
+
+    /**
+     * Update the fields of an {@link Owner} with a single statement, provided its version in
+     * the data store is still the one the given owner was read with.
+     * @param owner the {@link Owner} to update, with id and version set
+     * @return 1 if the owner was updated, 0 if it was changed or removed in the meantime
+     */
+    @Query("UPDATE Owner owner SET owner.firstName = :#{#owner.firstName}, owner.lastName = :#{#owner.lastName}, "
+        + "owner.address = :#{#owner.address}, owner.city = :#{#owner.city}, owner.telephone = :#{#owner.telephone}, "
+        + "owner.version = owner.version + 1 WHERE owner.id = :#{#owner.id} AND owner.version = :#{#owner.version}")
+    @Transactional
+    @Modifying
+    @DomainChange(aggregate = "owner", type = "updated")
+    int updateIfVersionMatches(@ShardKey("id") @Param("owner") Owner owner);
+
+    /**
+     * Increment the version of an {@link Owner} after one of its pets or visits changed.
+     * @param id the id of the owner
+     */
+    @Query("UPDATE Owner owner SET owner.version = owner.version + 1 WHERE owner.id =:id")
+    @Transactional
+    @Modifying
+    void incrementVersion(@ShardKey @Param("id") Integer id);
 
 
 }
@@ -15,12 +15,14 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.util.Collection;
@@ -82,6 +84,7 @@ class PetController {
             return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
         } else {
             this.pets.save(pet);
+            this.owners.incrementVersion(owner.getId());
             return "redirect:/owners/{ownerId}";
         }
     }
@@ -94,14 +97,25 @@ class PetController {
     }
 
     @PostMapping("/pets/{petId}/edit")
-    public String processUpdateForm(@Valid Pet pet, BindingResult result, Owner owner, ModelMap model) {
+    public String processUpdateForm(@Valid Pet pet, BindingResult result, Owner owner, ModelMap model,
+                                    @PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId) {
+        pet.setId(petId);
+        if (!result.hasErrors() && this.pets.updateIfVersionMatches(pet, ownerId) == 0) {
+            Integer version = this.pets.findVersionByIdAndOwnerId(petId, ownerId);
+            if (version == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Pet " + petId + " of owner " + ownerId + " is not found.");
+            }
+            // changed in the meantime: keep the submitted values, but let a resubmission win
+            result.reject("concurrentModification", "changed in the meantime");
+            pet.setVersion(version);
+        }
         if (result.hasErrors()) {
             pet.setOwner(owner);
             model.put("pet", pet);
             return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
         } else {
-            owner.addPet(pet);
-            this.pets.save(pet);
+            this.owners.incrementVersion(owner.getId());
             return "redirect:/owners/{ownerId}";
         }
     }
@@ -15,10 +15,18 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.samples.petclinic.system.DomainChange;
+import org.springframework.samples.petclinic.system.ShardKey;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -33,13 +41,47 @@ import org.springframework.transaction.annotation.Transactional;
 public interface PetRepository extends Repository<Pet, Integer> {
 
     /**
-     * Retrieve all {@link PetType}s from the data store.
+     * Retrieve all {@link PetType}s from the data store, cached as pet types are only ever
+     * changed by the database scripts.
      * @return a Collection of {@link PetType}s.
      */
     @Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
     @Transactional(readOnly = true)
+    @Cacheable("petTypes")
     List<PetType> findPetTypes();
 
+    /**
+     * Retrieve a page of {@link PetSummary PetSummaries} whose name <i>starts</i> with the
+     * given prefix, in name and id order and after the given name and id, on the
+     * <code>pets_name</code> index.
+     * @param prefix the start of the name, as stored, with <code>%</code>, <code>_</code> and
+     * <code>!</code> escaped by <code>!</code>
+     * @param afterName only pets with a greater name, or the same name and a greater id, are
+     * returned; empty for the first page
+     * @param afterId see afterName; 0 for the first page
+     * @param pageable the maximum number of pets to return
+     * @return a List of matching {@link PetSummary PetSummaries}
+     */
+    @Query("SELECT NEW org.springframework.samples.petclinic.owner.PetSummary(pet.id, pet.name, pet.birthDate, "
+        + "type.name, owner.id, owner.firstName, owner.lastName) FROM Pet pet JOIN pet.type type JOIN pet.owner owner "
+        + "WHERE pet.name LIKE :prefix% ESCAPE '!' AND (pet.name > :afterName OR (pet.name = :afterName AND pet.id > :afterId)) "
+        + "ORDER BY pet.name, pet.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "sortKey")
+    List<PetSummary> findSummariesByNamePrefix(@Param("prefix") String prefix, @Param("afterName") String afterName,
+                                               @Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Retrieve the pets of the given {@link Owner}s, without loading them as {@link Pet}s.
+     * @param ownerIds the owners to search for
+     * @return a List of (owner id, pet id, name, birth date, pet type id) rows, ordered by pet name
+     */
+    @Query("SELECT pet.owner.id, pet.id, pet.name, pet.birthDate, pet.type.id FROM Pet pet "
+        + "WHERE pet.owner.id IN :ownerIds ORDER BY pet.name")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findRowsByOwnerIds(@Param("ownerIds") Collection<Integer> ownerIds);
+
     /**
      * Retrieve a {@link Pet} from the data store by id.
      * @param id the id to search for
@@ -48,11 +90,48 @@ public interface PetRepository extends Repository<Pet, Integer> {
     @Transactional(readOnly = true)
     Pet findById(Integer id);
 
+    /**
+     * Retrieve the types of pets, in one query.
+     *
+     * @param ids the ids of the pets
+     * @return a List of (pet id, pet type id) rows
+     */
+    @Query("SELECT pet.id, pet.type.id FROM Pet pet WHERE pet.id IN :ids")
+    @Transactional(readOnly = true)
+    List<Object[]> findTypeIdsByIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * Save a {@link Pet} to the data store, either inserting or updating it.
      * @param pet the {@link Pet} to save
      */
-    void save(Pet pet);
+    @DomainChange(aggregate = "pet", type = "saved")
+    void save(@ShardKey("owner.id") Pet pet);
+
+    /**
+     * Retrieve the version of a {@link Pet} of an {@link Owner}.
+     * @param id the id to search for
+     * @param ownerId the id of the owner the pet must belong to
+     * @return the version, or <code>null</code> if not found
+     */
+    @Query("SELECT pet.version FROM Pet pet WHERE pet.id =:id AND pet.owner.id = :ownerId")
+    @Transactional(readOnly = true)
+    Integer findVersionByIdAndOwnerId(@Param("id") Integer id, @ShardKey @Param("ownerId") Integer ownerId);
+
+    /**
+     * Update the fields of a {@link Pet} with a single statement, provided its version in the
+     * data store is still the one the given pet was read with and it belongs to the given owner.
+     * @param pet the {@link Pet} to update, with id and version set
+     * @param ownerId the id of the owner the pet must belong to
+     * @return 1 if the pet was updated, 0 if it was changed or removed in the meantime, or is
+     * not the owner's
+     */
+    @Query("UPDATE Pet pet SET pet.name = :#{#pet.name}, pet.birthDate = :#{#pet.birthDate}, pet.type = :#{#pet.type}, "
+        + "pet.version = pet.version + 1 WHERE pet.id = :#{#pet.id} AND pet.version = :#{#pet.version} "
+        + "AND pet.owner.id = :ownerId")
+    @Transactional
+    @Modifying
+    @DomainChange(aggregate = "pet", type = "updated")
+    int updateIfVersionMatches(@Param("pet") Pet pet, @ShardKey @Param("ownerId") Integer ownerId);
 
 }
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+/**
+ * A page of {@link PetSummary PetSummaries} matching a pet name search, with the keyset of
+ * the next page when there may be one.
+ *
+ * @author Jackie Shao
+ */
+public class PetSearch {
+
+    private final String name;
+    private final List<PetSummary> pets;
+    private final boolean more;
+
+    PetSearch(String name, List<PetSummary> pets, boolean more) {
+        this.name = name;
+        this.pets = pets;
+        this.more = more;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public List<PetSummary> getPets() {
+        return this.pets;
+    }
+
+    public boolean isMore() {
+        return this.more;
+    }
+
+    /**
+     * The name of the last pet on this page, to pass as <code>afterName</code> for the next
+     * one, or <code>null</code> if this is the last page.
+     */
+    public String getNextAfterName() {
+        return this.more ? this.pets.get(this.pets.size() - 1).getName() : null;
+    }
+
+    /**
+     * The id of the last pet on this page, to pass as <code>afterId</code> for the next one,
+     * or <code>null</code> if this is the last page.
+     */
+    public Integer getNextAfterId() {
+        return this.more ? this.pets.get(this.pets.size() - 1).getId() : null;
+    }
+
+}
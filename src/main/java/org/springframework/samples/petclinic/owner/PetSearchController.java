@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Finds pets by the start of their name, as a page or as JSON, a page at a time: the next
+ * page starts after the name and id of the last pet on the current one.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class PetSearchController {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final PetRepository pets;
+
+    public PetSearchController(PetRepository pets) {
+        this.pets = pets;
+    }
+
+    @GetMapping("/pets.html")
+    public String showPetSearch(@RequestParam(value = "name", required = false) String name,
+                                @RequestParam(value = "afterName", defaultValue = "") String afterName,
+                                @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+                                @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                Map<String, Object> model) {
+        model.put("search", search(name, afterName, afterId, size));
+        return "pets/findPets";
+    }
+
+    @GetMapping("/pets")
+    @ResponseBody
+    public PetSearch showResourcesPetSearch(@RequestParam("name") String name,
+                                            @RequestParam(value = "afterName", defaultValue = "") String afterName,
+                                            @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+                                            @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        return search(name, afterName, afterId, size);
+    }
+
+    private PetSearch search(String name, String afterName, int afterId, int size) {
+        if (!StringUtils.hasText(name)) {
+            return new PetSearch("", Collections.emptyList(), false);
+        }
+        // names are compared as stored, so that the pets_name index is used; Pet stores
+        // them capitalized, so "leo" finds "Leo"
+        String prefix = StringUtils.capitalize(name.trim());
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<PetSummary> found = this.pets.findSummariesByNamePrefix(escapeLike(prefix), afterName, afterId,
+            PageRequest.of(0, pageSize));
+        return new PetSearch(prefix, found, found.size() == pageSize);
+    }
+
+    /**
+     * Escape the LIKE wildcards, so that "a_b" only finds names starting with "a_b".
+     */
+    static String escapeLike(String prefix) {
+        return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Read-only view of a {@link Pet} with its type and owner, as shown in the pet name search
+ * results.
+ *
+ * @author Jackie Shao
+ */
+public class PetSummary {
+
+    private final Integer id;
+    private final String name;
+    private final LocalDate birthDate;
+    private final String type;
+    private final Integer ownerId;
+    private final String ownerFirstName;
+    private final String ownerLastName;
+
+    public PetSummary(Integer id, String name, LocalDate birthDate, String type, Integer ownerId, String ownerFirstName,
+                      String ownerLastName) {
+        this.id = id;
+        this.name = name;
+        this.birthDate = birthDate;
+        this.type = type;
+        this.ownerId = ownerId;
+        this.ownerFirstName = ownerFirstName;
+        this.ownerLastName = ownerLastName;
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public LocalDate getBirthDate() {
+        return this.birthDate;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public Integer getOwnerId() {
+        return this.ownerId;
+    }
+
+    public String getOwnerFirstName() {
+        return this.ownerFirstName;
+    }
+
+    public String getOwnerLastName() {
+        return this.ownerLastName;
+    }
+
+    /**
+     * The position in the search results, by name and then id, for merging the results of
+     * several shards in the order of the keyset.
+     */
+    @JsonIgnore
+    public String getSortKey() {
+        // NUL sorts a name before the longer names it is a prefix of, as in the database
+        return this.name + '\u0000' + String.format("%010d", this.id);
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventSubscriber;
+import org.springframework.samples.petclinic.system.WarmUpTask;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory hash index from telephone number to owner id, so that the front desk pulls up
+ * a caller's record without a query. Numbers are compared by their digits only, as
+ * "(608) 555-1023" is the same caller as "6085551023".
+ * <p>
+ * The index is loaded at warm-up, or on first use, and kept current by the owner events of
+ * all nodes. A number it does not know yet, such as that of an owner created a moment ago
+ * whose event has not been relayed, is looked up on the unique telephone index of the
+ * data store.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class TelephoneIndex implements WarmUpTask, DomainEventSubscriber {
+
+    private final OwnerRepository owners;
+
+    private final Map<String, Integer> ownerIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> telephones = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    TelephoneIndex(OwnerRepository owners) {
+        this.owners = owners;
+    }
+
+    /**
+     * The digits of a telephone number, as {@link Owner#setTelephone} stores them.
+     */
+    static String normalize(String telephone) {
+        StringBuilder digits = new StringBuilder(telephone.length());
+        for (int i = 0; i < telephone.length(); i++) {
+            char c = telephone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * The id of the owner with the given telephone number, in any format.
+     * @return the id of the owner, or <code>null</code> if not found
+     */
+    Integer findOwnerId(String telephone) {
+        String digits = normalize(telephone);
+        if (digits.isEmpty()) {
+            return null;
+        }
+        if (!this.loaded) {
+            load();
+        }
+        Integer ownerId = this.ownerIds.get(digits);
+        if (ownerId == null) {
+            ownerId = this.owners.findIdByTelephone(digits);
+            if (ownerId != null) {
+                put(ownerId, digits);
+            }
+        }
+        return ownerId;
+    }
+
+    @Override
+    public void warmUp() {
+        load();
+    }
+
+    private synchronized void load() {
+        if (this.loaded) {
+            return;
+        }
+        for (Object[] row : this.owners.findIdsAndTelephones()) {
+            put((Integer) row[0], normalize((String) row[1]));
+        }
+        this.loaded = true;
+    }
+
+    @Override
+    public synchronized void onEvents(List<DomainEvent> events) {
+        if (!this.loaded) {
+            // read afresh when loaded
+            return;
+        }
+        for (DomainEvent event : events) {
+            if ("owner".equals(event.getAggregate()) && event.getAggregateId() != null) {
+                String telephone = this.owners.findTelephoneById(event.getAggregateId());
+                put(event.getAggregateId(), telephone != null ? normalize(telephone) : null);
+            }
+        }
+    }
+
+    private synchronized void put(Integer ownerId, String digits) {
+        String previous = this.telephones.remove(ownerId);
+        if (previous != null) {
+            this.ownerIds.remove(previous, ownerId);
+        }
+        if (digits != null && !digits.isEmpty()) {
+            this.telephones.put(ownerId, digits);
+            this.ownerIds.put(digits, ownerId);
+        }
+    }
+
+}
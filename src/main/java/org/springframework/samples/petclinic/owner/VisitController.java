@@ -15,7 +15,6 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -26,6 +25,8 @@ import java.util.Objects;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.samples.petclinic.calendar.ClinicCalendar;
+import org.springframework.samples.petclinic.system.FragmentCache;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.samples.petclinic.visit.Visit;
@@ -53,8 +54,11 @@ class VisitController {
     private static final String Name_DELIMITER = " ";
 
     private final VisitRepository visits;
+    private final OwnerRepository owners;
     private final PetRepository pets;
     private final VetRepository vets;
+    private final FragmentCache fragmentCache;
+    private final ClinicCalendar calendar;
 
     public static enum TimeError {
         NONE,
@@ -62,10 +66,14 @@ class VisitController {
         WRONG_DATE
     };
 
-    public VisitController(VisitRepository visits, PetRepository pets, VetRepository vets) {
+    public VisitController(VisitRepository visits, OwnerRepository owners, PetRepository pets, VetRepository vets,
+                           FragmentCache fragmentCache, ClinicCalendar calendar) {
         this.visits = visits;
+        this.owners = owners;
         this.pets = pets;
         this.vets = vets;
+        this.fragmentCache = fragmentCache;
+        this.calendar = calendar;
     }
 
     @InitBinder
@@ -108,21 +116,22 @@ class VisitController {
     }
 
     // Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is called
-    @GetMapping("/owners/*/pets/{petId}/visits/new")
+    @GetMapping("/owners/{ownerId}/pets/{petId}/visits/new")
     public String initNewVisitForm(@PathVariable("petId") int petId, Map<String, Object> model) {
         return "pets/createOrUpdateVisitForm";
     }
 
     // Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is called
     @PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-    public String processNewVisitForm(@Valid Visit visit, BindingResult result, Map<String, Object> model) {
-        TimeError timeError = validateAppointment(visit);
+    public String processNewVisitForm(@PathVariable("ownerId") int ownerId, @Valid Visit visit, BindingResult result,
+                                      Map<String, Object> model) {
+        TimeError timeError = validateAppointment(visit.getTime());
         switch (timeError) {
             case BEFORE_CURRENT:
                 result.rejectValue("time", "past", visit.getTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")) + " is in the past.");
                 break;
             case WRONG_DATE:
-                result.rejectValue("time", "weekend", "The day is a " + visit.getTime().getDayOfWeek());
+                result.rejectValue("time", "closed", "The clinic is closed at " + visit.getTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")) + ".");
                 break;
             default:
                 break;
@@ -150,25 +159,29 @@ class VisitController {
             else {
                 Vet vet = found_vets.iterator().next();
                 LocalDateTime appointmentTime = visit.getTime();
+                if (!this.calendar.isWorking(vet.getId(), appointmentTime)) {
+                    result.rejectValue("inputVetFullName", "off", vetFullName + " does not work on " + appointmentTime.getDayOfWeek());
+                    return PETS_CREATE_OR_UPDATE_FORM;
+                }
                 if (isTimeTaken(vet, appointmentTime)) {
                     result.rejectValue("inputVetFullName", "taken", vetFullName + " already has appointment at " + appointmentTime);
                     return PETS_CREATE_OR_UPDATE_FORM;
                 }
                 visit.setVet(vet);
                 this.visits.save(visit);
+                this.owners.incrementVersion(ownerId);
+                this.fragmentCache.invalidate(FragmentCache.petVisitsKey(visit.getPetId()));
                 return "redirect:/owners/{ownerId}";
             }
         }
     }
 
-    private static TimeError validateAppointment(Visit visit) {
-        LocalDateTime visit_time = visit.getTime();
+    private TimeError validateAppointment(LocalDateTime visit_time) {
         if (LocalDateTime.now().isAfter(visit_time)) {
             return TimeError.BEFORE_CURRENT;
         }
 
-        DayOfWeek dayOfWeek = visit_time.getDayOfWeek();
-        if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
+        if (!this.calendar.isOpen(visit_time)) {
             return  TimeError.WRONG_DATE;
         }
         else return TimeError.NONE;
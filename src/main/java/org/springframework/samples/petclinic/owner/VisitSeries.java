@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Form backing object for a series of visits: the first visit, and the same vet and
+ * description again every so many days or weeks.
+ *
+ * @author Jackie Shao
+ */
+public class VisitSeries {
+
+    static final int MAX_OCCURRENCES = 52;
+
+    public enum Unit {
+        DAYS(ChronoUnit.DAYS),
+        WEEKS(ChronoUnit.WEEKS);
+
+        private final ChronoUnit chronoUnit;
+
+        Unit(ChronoUnit chronoUnit) {
+            this.chronoUnit = chronoUnit;
+        }
+    }
+
+    @NotNull
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:00")
+    private LocalDateTime time;
+
+    @NotBlank
+    private String inputVetFullName;
+
+    @NotBlank
+    private String description;
+
+    @Min(1)
+    @Max(52)
+    private int interval = 1;
+
+    @NotNull
+    private Unit unit = Unit.WEEKS;
+
+    @Min(1)
+    @Max(MAX_OCCURRENCES)
+    private int occurrences = 4;
+
+    private boolean allOrNothing = true;
+
+    public LocalDateTime getTime() {
+        return this.time;
+    }
+
+    public void setTime(LocalDateTime time) {
+        this.time = time;
+    }
+
+    public String getInputVetFullName() {
+        return this.inputVetFullName;
+    }
+
+    public void setInputVetFullName(String inputVetFullName) {
+        this.inputVetFullName = inputVetFullName;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public int getInterval() {
+        return this.interval;
+    }
+
+    public void setInterval(int interval) {
+        this.interval = interval;
+    }
+
+    public Unit getUnit() {
+        return this.unit;
+    }
+
+    public void setUnit(Unit unit) {
+        this.unit = unit;
+    }
+
+    public int getOccurrences() {
+        return this.occurrences;
+    }
+
+    public void setOccurrences(int occurrences) {
+        this.occurrences = occurrences;
+    }
+
+    /**
+     * Whether the series is only booked if every visit of it can be; otherwise the free
+     * ones are booked and the others reported.
+     */
+    public boolean isAllOrNothing() {
+        return this.allOrNothing;
+    }
+
+    public void setAllOrNothing(boolean allOrNothing) {
+        this.allOrNothing = allOrNothing;
+    }
+
+    /**
+     * The times of all visits of the series, in order.
+     */
+    public List<LocalDateTime> getTimes() {
+        List<LocalDateTime> times = new ArrayList<>(this.occurrences);
+        for (int i = 0; i < this.occurrences; i++) {
+            times.add(this.time.plus((long) i * this.interval, this.unit.chronoUnit));
+        }
+        return times;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.samples.petclinic.calendar.ClinicCalendar;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Books a {@link VisitSeries}: all of its times are checked against the vet's visits in one
+ * query, on all shards before the transaction starts, and the free ones are inserted in
+ * one transaction on the owner's shard, together with their domain events. Either the
+ * whole series is booked or, if it is not all or nothing, every free visit of it; either
+ * way the outcome is reported per visit.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class VisitSeriesBooking {
+
+    /**
+     * What became of one visit of a series.
+     */
+    public enum Status {
+        BOOKED,
+        TAKEN,
+        PAST,
+        CLOSED,
+        OFF,
+        NOT_BOOKED
+    }
+
+    private final VisitRepository visits;
+    private final OwnerRepository owners;
+    private final ClinicCalendar calendar;
+    private final TransactionTemplate transactionTemplate;
+
+    VisitSeriesBooking(VisitRepository visits, OwnerRepository owners, ClinicCalendar calendar,
+                       PlatformTransactionManager transactionManager) {
+        this.visits = visits;
+        this.owners = owners;
+        this.calendar = calendar;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public List<Occurrence> book(int ownerId, int petId, Vet vet, VisitSeries series) {
+        List<LocalDateTime> times = series.getTimes();
+        Set<LocalDateTime> taken = new HashSet<>(this.visits.findTakenTimes(vet.getId(), times));
+        List<Occurrence> occurrences = new ArrayList<>(times.size());
+        boolean conflicts = false;
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDateTime time : times) {
+            Status status = null;
+            if (now.isAfter(time)) {
+                status = Status.PAST;
+            } else if (!this.calendar.isOpen(time)) {
+                status = Status.CLOSED;
+            } else if (!this.calendar.isWorking(vet.getId(), time)) {
+                status = Status.OFF;
+            } else if (taken.contains(time)) {
+                status = Status.TAKEN;
+            }
+            conflicts |= status != null;
+            occurrences.add(new Occurrence(time, status));
+        }
+        if (conflicts && series.isAllOrNothing()) {
+            occurrences.replaceAll(occurrence -> occurrence.status == null
+                ? new Occurrence(occurrence.time, Status.NOT_BOOKED) : occurrence);
+            return occurrences;
+        }
+        this.transactionTemplate.execute(status -> {
+            boolean booked = false;
+            for (int i = 0; i < occurrences.size(); i++) {
+                Occurrence occurrence = occurrences.get(i);
+                if (occurrence.status == null) {
+                    Visit visit = new Visit();
+                    visit.setPetId(petId);
+                    visit.setTime(occurrence.time);
+                    visit.setDescription(series.getDescription());
+                    visit.setVet(vet);
+                    this.visits.save(visit);
+                    occurrences.set(i, new Occurrence(occurrence.time, Status.BOOKED));
+                    booked = true;
+                }
+            }
+            if (booked) {
+                this.owners.incrementVersion(ownerId);
+            }
+            return null;
+        });
+        return occurrences;
+    }
+
+    /**
+     * One visit of a series and what became of it.
+     */
+    public static class Occurrence {
+
+        private final LocalDateTime time;
+        private final Status status;
+
+        Occurrence(LocalDateTime time, Status status) {
+            this.time = time;
+            this.status = status;
+        }
+
+        public LocalDateTime getTime() {
+            return this.time;
+        }
+
+        public Status getStatus() {
+            return this.status;
+        }
+
+        public boolean isBooked() {
+            return this.status == Status.BOOKED;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.validation.Valid;
+import org.springframework.samples.petclinic.system.FragmentCache;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+
+/**
+ * Books a series of visits for a pet, with the outcome of every visit of it shown on the
+ * form when not all of them could be booked.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class VisitSeriesController {
+
+    private static final String VISIT_SERIES_FORM = "pets/createVisitSeriesForm";
+
+    private final PetRepository pets;
+    private final VetRepository vets;
+    private final VisitSeriesBooking booking;
+    private final FragmentCache fragmentCache;
+
+    VisitSeriesController(PetRepository pets, VetRepository vets, VisitSeriesBooking booking,
+                          FragmentCache fragmentCache) {
+        this.pets = pets;
+        this.vets = vets;
+        this.booking = booking;
+        this.fragmentCache = fragmentCache;
+    }
+
+    @ModelAttribute("pet")
+    public Pet findPet(@PathVariable("petId") int petId) {
+        return this.pets.findById(petId);
+    }
+
+    @ModelAttribute("vets")
+    public Collection<String> populateVets() {
+        return this.vets.findAll().stream()
+            .map(vet -> vet.getFirstName() + " " + vet.getLastName())
+            .collect(Collectors.toList());
+    }
+
+    @GetMapping("/owners/{ownerId}/pets/{petId}/visits/series")
+    public String initVisitSeriesForm(Map<String, Object> model) {
+        model.put("visitSeries", new VisitSeries());
+        return VISIT_SERIES_FORM;
+    }
+
+    @PostMapping("/owners/{ownerId}/pets/{petId}/visits/series")
+    public String processVisitSeriesForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+                                         @Valid VisitSeries visitSeries, BindingResult result,
+                                         Map<String, Object> model) {
+        if (result.hasErrors()) {
+            return VISIT_SERIES_FORM;
+        }
+        String vetFullName = visitSeries.getInputVetFullName();
+        String[] names = vetFullName.split(" ", 2);
+        Collection<Vet> found = names.length == 2 ? this.vets.findByFirstAndLastName(names[0], names[1]) : null;
+        if (found == null || found.isEmpty()) {
+            result.rejectValue("inputVetFullName", "notFound", vetFullName + " is not found.");
+            return VISIT_SERIES_FORM;
+        }
+        List<VisitSeriesBooking.Occurrence> occurrences =
+            this.booking.book(ownerId, petId, found.iterator().next(), visitSeries);
+        if (occurrences.stream().anyMatch(VisitSeriesBooking.Occurrence::isBooked)) {
+            this.fragmentCache.invalidate(FragmentCache.petVisitsKey(petId));
+        }
+        if (occurrences.stream().allMatch(VisitSeriesBooking.Occurrence::isBooked)) {
+            return "redirect:/owners/{ownerId}";
+        }
+        model.put("occurrences", occurrences);
+        return VISIT_SERIES_FORM;
+    }
+
+}
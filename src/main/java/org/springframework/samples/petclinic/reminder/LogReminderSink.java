@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The default {@link ReminderSink}, appending reminders to a file as JSON lines, or logging
+ * them without one.
+ *
+ * @author Jackie Shao
+ */
+class LogReminderSink implements ReminderSink {
+
+    private static final Log logger = LogFactory.getLog(LogReminderSink.class);
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    LogReminderSink(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void deliver(List<Reminder> reminders) {
+        if (this.file == null) {
+            reminders.forEach(logger::info);
+            return;
+        }
+        try {
+            List<String> lines = new ArrayList<>();
+            for (Reminder reminder : reminders) {
+                lines.add(this.objectMapper.writeValueAsString(reminder));
+            }
+            Files.write(this.file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not append reminders to " + this.file, ex);
+        }
+    }
+
+}
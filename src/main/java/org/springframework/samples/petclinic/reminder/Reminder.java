@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * A reminder of an upcoming visit, due some lead time before it.
+ *
+ * @author Jackie Shao
+ * @see ReminderSink
+ */
+public class Reminder {
+
+    private final Integer visitId;
+    private final Integer petId;
+    private final Integer vetId;
+    private final LocalDateTime time;
+    private final Duration lead;
+
+    public Reminder(Integer visitId, Integer petId, Integer vetId, LocalDateTime time, Duration lead) {
+        this.visitId = visitId;
+        this.petId = petId;
+        this.vetId = vetId;
+        this.time = time;
+        this.lead = lead;
+    }
+
+    public Integer getVisitId() {
+        return this.visitId;
+    }
+
+    public Integer getPetId() {
+        return this.petId;
+    }
+
+    /**
+     * @return the id of the vet, <code>null</code> if the visit has none
+     */
+    public Integer getVetId() {
+        return this.vetId;
+    }
+
+    /**
+     * @return the time of the visit
+     */
+    public LocalDateTime getTime() {
+        return this.time;
+    }
+
+    public Duration getLead() {
+        return this.lead;
+    }
+
+    public LocalDateTime getDueTime() {
+        return this.time.minus(this.lead);
+    }
+
+    @Override
+    public String toString() {
+        return "Reminder " + this.lead + " ahead of visit " + this.visitId + " of pet " + this.petId + " at "
+            + this.time;
+    }
+
+}
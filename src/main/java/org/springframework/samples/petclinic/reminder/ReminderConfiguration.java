@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reminders of upcoming visits, enabled with <code>petclinic.reminders.enabled=true</code>.
+ *
+ * @author Jackie Shao
+ * @see ReminderProperties
+ */
+@Configuration
+@EnableConfigurationProperties(ReminderProperties.class)
+@ConditionalOnProperty(prefix = "petclinic.reminders", name = "enabled", havingValue = "true")
+class ReminderConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReminderSink reminderSink(ObjectMapper objectMapper, ReminderProperties properties) {
+        return new LogReminderSink(properties.getFile(), objectMapper);
+    }
+
+    @Bean
+    public ReminderScheduler reminderScheduler(UpcomingVisitRepository visits, ReminderSink sink,
+                                               ReminderProperties properties) {
+        return new ReminderScheduler(visits, sink, properties);
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Appointment reminder settings, bound from the <code>petclinic.reminders</code> properties.
+ *
+ * @author Jackie Shao
+ * @see ReminderScheduler
+ */
+@ConfigurationProperties("petclinic.reminders")
+public class ReminderProperties {
+
+    /**
+     * Whether reminders are sent by this node. Every node sees all visit changes, so only one
+     * of them should.
+     */
+    private boolean enabled;
+
+    /**
+     * How long before a visit each of its reminders is due.
+     */
+    private List<Duration> leads = Arrays.asList(Duration.ofHours(24), Duration.ofHours(1));
+
+    /**
+     * Resolution of the due times, and interval at which due reminders are delivered.
+     */
+    private Duration tick = Duration.ofMinutes(1);
+
+    /**
+     * Maximum number of reminders handed to the sink at once.
+     */
+    private int batchSize = 500;
+
+    /**
+     * File the default sink appends reminders to as JSON lines; without one they are logged.
+     */
+    private Path file;
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Duration> getLeads() {
+        return this.leads;
+    }
+
+    public void setLeads(List<Duration> leads) {
+        this.leads = leads;
+    }
+
+    public Duration getTick() {
+        return this.tick;
+    }
+
+    public void setTick(Duration tick) {
+        this.tick = tick;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public void setFile(Path file) {
+        this.file = file;
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventSubscriber;
+
+/**
+ * Schedules a {@link Reminder} for every lead time ahead of every upcoming visit, and hands
+ * them to the {@link ReminderSink} as they come due.
+ * <p>
+ * The reminders are kept in a {@link TimingWheel} ticking at <code>petclinic.reminders.tick</code>
+ * instead of polling the visits by time: the upcoming visits are loaded page by page in the
+ * background after startup, and afterwards the wheel follows the domain events, scheduling
+ * the reminders of new or changed visits and cancelling those of removed ones. Reminders
+ * that are already past when scheduled are skipped. A load that fails is retried with a
+ * growing delay, the events received meanwhile being applied as they come.
+ *
+ * @author Jackie Shao
+ */
+class ReminderScheduler implements DomainEventSubscriber, InitializingBean, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(ReminderScheduler.class);
+
+    private static final int PAGE_SIZE = 10_000;
+
+    private static final long RETRY_MILLIS = 1_000;
+
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    private final UpcomingVisitRepository visits;
+    private final ReminderSink sink;
+    private final List<Duration> leads;
+    private final long tickMillis;
+    private final int batchSize;
+    private final TimingWheel<Reminder> wheel;
+
+    // the scheduled reminders of each visit, to cancel them
+    private final Map<Integer, List<TimingWheel.Timer<Reminder>>> timers = new HashMap<>();
+
+    // events received during a load, applied once it is done or failed
+    private List<DomainEvent> pending = new ArrayList<>();
+    private Thread loader;
+    private ScheduledExecutorService ticker;
+
+    ReminderScheduler(UpcomingVisitRepository visits, ReminderSink sink, ReminderProperties properties) {
+        this.visits = visits;
+        this.sink = sink;
+        this.leads = new ArrayList<>(properties.getLeads());
+        this.tickMillis = properties.getTick().toMillis();
+        this.batchSize = properties.getBatchSize();
+        this.wheel = new TimingWheel<>(tickOf(LocalDateTime.now()));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.loader = new Thread(this::loadUntilDone, "reminder-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(() -> tick(LocalDateTime.now()), this.tickMillis, this.tickMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        this.loader.interrupt();
+        this.ticker.shutdownNow();
+    }
+
+    private void loadUntilDone() {
+        long delay = RETRY_MILLIS;
+        while (!load()) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    /**
+     * Schedule the reminders of the upcoming visits, which replace those already scheduled
+     * by a failed load.
+     * @return whether the visits could be read
+     */
+    boolean load() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            if (this.pending == null) {
+                this.pending = new ArrayList<>();
+            }
+        }
+        boolean loaded = false;
+        try {
+            LocalDateTime from = LocalDateTime.now();
+            List<UpcomingVisit> page;
+            int lastId = -1;
+            do {
+                page = this.visits.findUpcomingAfter(from, lastId, PageRequest.of(0, PAGE_SIZE));
+                synchronized (this) {
+                    for (UpcomingVisit visit : page) {
+                        schedule(visit.getVisitId(), visit.getPetId(), visit.getVetId(), visit.getTime());
+                        lastId = visit.getVisitId();
+                    }
+                }
+            } while (page.size() == PAGE_SIZE && !Thread.currentThread().isInterrupted());
+            loaded = true;
+        } catch (RuntimeException ex) {
+            logger.error("Could not load the upcoming visits for reminders, retrying", ex);
+        } finally {
+            int scheduled;
+            synchronized (this) {
+                apply(this.pending);
+                this.pending = null;
+                scheduled = this.wheel.size();
+            }
+            if (loaded) {
+                logger.info("Scheduled " + scheduled + " reminders in " + (System.currentTimeMillis() - start)
+                    + " ms");
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public synchronized void onEvents(List<DomainEvent> events) {
+        if (this.pending != null) {
+            this.pending.addAll(events);
+        } else {
+            apply(events);
+        }
+    }
+
+    private void apply(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if ("visit".equals(event.getAggregate()) && event.getAggregateId() != null) {
+                if ("removed".equals(event.getType())) {
+                    cancel(event.getAggregateId());
+                } else {
+                    schedule(event.getAggregateId(), event.getInteger("petId"), event.getInteger("vetId"),
+                        event.getDateTime("time"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the reminders of a visit by the ones still ahead.
+     */
+    private void schedule(Integer visitId, Integer petId, Integer vetId, LocalDateTime time) {
+        cancel(visitId);
+        if (time == null) {
+            return;
+        }
+        List<TimingWheel.Timer<Reminder>> visitTimers = new ArrayList<>(this.leads.size());
+        for (Duration lead : this.leads) {
+            Reminder reminder = new Reminder(visitId, petId, vetId, time, lead);
+            long due = tickOf(reminder.getDueTime());
+            if (due >= this.wheel.getCurrentTick()) {
+                visitTimers.add(this.wheel.schedule(due, reminder));
+            }
+        }
+        if (!visitTimers.isEmpty()) {
+            this.timers.put(visitId, visitTimers);
+        }
+    }
+
+    private void cancel(Integer visitId) {
+        List<TimingWheel.Timer<Reminder>> visitTimers = this.timers.remove(visitId);
+        if (visitTimers != null) {
+            visitTimers.forEach(this.wheel::cancel);
+        }
+    }
+
+    /**
+     * Deliver the reminders due up to a time, in batches.
+     */
+    void tick(LocalDateTime now) {
+        List<Reminder> due;
+        synchronized (this) {
+            due = this.wheel.advance(tickOf(now));
+            for (Reminder reminder : due) {
+                this.timers.computeIfPresent(reminder.getVisitId(),
+                    (visitId, visitTimers) -> visitTimers.stream().anyMatch(TimingWheel.Timer::isScheduled)
+                        ? visitTimers : null);
+            }
+        }
+        for (int i = 0; i < due.size(); i += this.batchSize) {
+            List<Reminder> batch = due.subList(i, Math.min(i + this.batchSize, due.size()));
+            try {
+                this.sink.deliver(batch);
+            } catch (RuntimeException ex) {
+                logger.warn("Could not deliver " + batch.get(0) + " and the following reminders", ex);
+            }
+        }
+    }
+
+    synchronized int getScheduledCount() {
+        return this.wheel.size();
+    }
+
+    private long tickOf(LocalDateTime time) {
+        return Math.floorDiv(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), this.tickMillis);
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.util.List;
+
+/**
+ * Delivers the reminders that came due, in batches and in due order, on the reminder
+ * thread. A bean implementing this interface replaces the default one, which appends them
+ * to <code>petclinic.reminders.file</code> or else logs them.
+ *
+ * @author Jackie Shao
+ * @see ReminderScheduler
+ */
+public interface ReminderSink {
+
+    void deliver(List<Reminder> reminders);
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: four levels of 64 slots, each slot of a level spanning a whole
+ * turn of the level below, so timers up to 64<sup>4</sup> ticks ahead are kept in 256 slots.
+ * A timer goes into the lowest level whose turn reaches it, and is moved down a level each
+ * time the slot it sits in comes round, until it expires from the lowest one.
+ * <p>
+ * Scheduling and cancelling a timer take constant time, as slots are doubly linked lists
+ * and every timer knows its slot; advancing takes time in the number of ticks passed and of
+ * timers moved or expired. Not thread-safe.
+ *
+ * @author Jackie Shao
+ * @param <T> the type of what is scheduled
+ */
+class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    // the slot of timers that were already due when scheduled
+    private static final int OVERDUE = LEVELS * SLOTS;
+
+    private final Timer<T>[] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long currentTick) {
+        this.slots = new Timer[LEVELS * SLOTS + 1];
+        this.currentTick = currentTick;
+    }
+
+    long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Schedule something for a tick; if the tick has passed, it expires on the next advance.
+     */
+    Timer<T> schedule(long tick, T value) {
+        Timer<T> timer = new Timer<>(tick, value);
+        if (tick <= this.currentTick) {
+            link(timer, OVERDUE);
+        } else {
+            place(timer);
+        }
+        this.size++;
+        return timer;
+    }
+
+    /**
+     * Cancel a timer.
+     *
+     * @return false if it had already expired or been cancelled
+     */
+    boolean cancel(Timer<T> timer) {
+        if (timer.slot < 0) {
+            return false;
+        }
+        unlink(timer);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Move on to a tick, and return what expired on the way, in tick order.
+     */
+    List<T> advance(long tick) {
+        List<T> expired = new ArrayList<>();
+        expire(OVERDUE, expired);
+        while (this.currentTick < tick) {
+            this.currentTick++;
+            // bring down the timers of the next slot of every level that completed a turn
+            for (int level = 1; level < LEVELS; level++) {
+                int shift = SLOT_BITS * level;
+                if ((this.currentTick & ((1L << shift) - 1)) != 0) {
+                    break;
+                }
+                Timer<T> timer = detach(level * SLOTS + (int) ((this.currentTick >>> shift) & (SLOTS - 1)));
+                while (timer != null) {
+                    Timer<T> next = timer.next;
+                    place(timer);
+                    timer = next;
+                }
+            }
+            expire((int) (this.currentTick & (SLOTS - 1)), expired);
+        }
+        return expired;
+    }
+
+    private void expire(int slot, List<T> expired) {
+        for (Timer<T> timer = detach(slot); timer != null; timer = timer.next) {
+            expired.add(timer.value);
+            this.size--;
+        }
+    }
+
+    /**
+     * Put a timer due at or after the current tick into the lowest level whose turn reaches it.
+     */
+    private void place(Timer<T> timer) {
+        long delta = timer.tick - this.currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        // timers beyond the top level wait in its last slot and are placed again from there
+        long tick = delta < SPAN ? timer.tick : this.currentTick + SPAN - 1;
+        link(timer, level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+    }
+
+    private void link(Timer<T> timer, int slot) {
+        Timer<T> head = this.slots[slot];
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = head;
+        if (head != null) {
+            head.previous = timer;
+        }
+        this.slots[slot] = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            this.slots[timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.slot = -1;
+        timer.previous = null;
+        timer.next = null;
+    }
+
+    /**
+     * Empty a slot and return its timers, still linked to each other but no longer scheduled.
+     */
+    private Timer<T> detach(int slot) {
+        Timer<T> head = this.slots[slot];
+        this.slots[slot] = null;
+        for (Timer<T> timer = head; timer != null; timer = timer.next) {
+            timer.slot = -1;
+        }
+        return head;
+    }
+
+    /**
+     * Something scheduled for a tick.
+     */
+    static final class Timer<T> {
+
+        private final long tick;
+        private final T value;
+        private int slot = -1;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(long tick, T value) {
+            this.tick = tick;
+            this.value = value;
+        }
+
+        long getTick() {
+            return this.tick;
+        }
+
+        T getValue() {
+            return this.value;
+        }
+
+        boolean isScheduled() {
+            return this.slot >= 0;
+        }
+    }
+
+}
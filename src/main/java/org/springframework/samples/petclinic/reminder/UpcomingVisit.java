@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A visit to remind of, as loaded by the {@link ReminderScheduler}.
+ *
+ * @author Jackie Shao
+ */
+public class UpcomingVisit {
+
+    private final Integer visitId;
+    private final Integer petId;
+    private final Integer vetId;
+    private final LocalDateTime time;
+
+    public UpcomingVisit(Integer visitId, Integer petId, Integer vetId, LocalDateTime time) {
+        this.visitId = visitId;
+        this.petId = petId;
+        this.vetId = vetId;
+        this.time = time;
+    }
+
+    public Integer getVisitId() {
+        return this.visitId;
+    }
+
+    public Integer getPetId() {
+        return this.petId;
+    }
+
+    public Integer getVetId() {
+        return this.vetId;
+    }
+
+    public LocalDateTime getTime() {
+        return this.time;
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reminder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for reading visits as {@link UpcomingVisit}s.
+ *
+ * @author Jackie Shao
+ */
+public interface UpcomingVisitRepository extends Repository<Visit, Integer> {
+
+    /**
+     * Retrieve the next page of visits from a time on, in id order.
+     * @param from the earliest time of the visits
+     * @param id the id of the last visit already read, -1 for the first page
+     * @param page the number of visits to read
+     * @return the visits after the given one
+     */
+    @Query("SELECT NEW org.springframework.samples.petclinic.reminder.UpcomingVisit("
+        + "visit.id, visit.petId, vet.id, visit.time) FROM Visit visit LEFT JOIN visit.vet vet "
+        + "WHERE visit.time >= :from AND visit.id > :id ORDER BY visit.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "visitId")
+    List<UpcomingVisit> findUpcomingAfter(@Param("from") LocalDateTime from, @Param("id") int id, Pageable page);
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Map;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Shows the {@link ActivityReport} of a week, as a page or as JSON.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class ActivityController {
+
+    private final VetDayActivityRepository vetDays;
+    private final PetTypeActivityRepository petTypes;
+    private final VetRepository vets;
+    private final PetRepository pets;
+
+    public ActivityController(VetDayActivityRepository vetDays, PetTypeActivityRepository petTypes, VetRepository vets,
+                              PetRepository pets) {
+        this.vetDays = vetDays;
+        this.petTypes = petTypes;
+        this.vets = vets;
+        this.pets = pets;
+    }
+
+    @GetMapping("/activity.html")
+    public String showActivity(@RequestParam(value = "week", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                   LocalDate week, Map<String, Object> model) {
+        model.put("report", report(week));
+        return "reports/activity";
+    }
+
+    @GetMapping("/activity")
+    @ResponseBody
+    public ActivityReport showResourcesActivity(@RequestParam(value = "week", required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate week) {
+        return report(week);
+    }
+
+    /**
+     * Build the report of the week with the given day, this week by default.
+     */
+    private ActivityReport report(LocalDate week) {
+        LocalDate weekStart = (week != null ? week : LocalDate.now()).with(DayOfWeek.MONDAY);
+        return new ActivityReport(weekStart, this.vets.findAll(), this.vetDays.findByDayBetween(weekStart, weekStart.plusDays(6)),
+            this.pets.findPetTypes(), this.petTypes.findAll());
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventBatch;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts every created and cancelled visit into the {@link VetDayActivity} of its vet and
+ * day and the {@link PetTypeActivity} of its pet's type. The counts are updated inside the
+ * transaction that creates or removes the visit, so they stay exact without ever scanning
+ * the visits.
+ * <p>
+ * Each count is added with a single upsert, <code>MERGE</code> on HSQLDB and
+ * <code>INSERT ... ON DUPLICATE KEY UPDATE</code> on MySQL, so that the first two visits of
+ * a vet's day booked at the same time cannot both insert its row and fail the booking.
+ * <p>
+ * The events of a bulk change arrive as one {@link DomainEventBatch}. Their counts are
+ * added up first and written with one batch of upserts per table, after reading the types
+ * of all their pets in one query.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class ActivityRecorder {
+
+    private static final String HSQLDB_VET_DAY = "MERGE INTO vet_day_activity activity USING (VALUES "
+        + "(CAST(? AS INTEGER), CAST(? AS DATE), CAST(? AS INTEGER), CAST(? AS INTEGER))) "
+        + "AS change (vet_id, activity_day, visits, cancellations) "
+        + "ON activity.vet_id = change.vet_id AND activity.activity_day = change.activity_day "
+        + "WHEN MATCHED THEN UPDATE SET activity.visits = activity.visits + change.visits, "
+        + "activity.cancellations = activity.cancellations + change.cancellations "
+        + "WHEN NOT MATCHED THEN INSERT (vet_id, activity_day, visits, cancellations) "
+        + "VALUES (change.vet_id, change.activity_day, change.visits, change.cancellations)";
+
+    private static final String HSQLDB_PET_TYPE = "MERGE INTO pet_type_activity activity USING (VALUES "
+        + "(CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS INTEGER))) "
+        + "AS change (type_id, visits, cancellations) ON activity.type_id = change.type_id "
+        + "WHEN MATCHED THEN UPDATE SET activity.visits = activity.visits + change.visits, "
+        + "activity.cancellations = activity.cancellations + change.cancellations "
+        + "WHEN NOT MATCHED THEN INSERT (type_id, visits, cancellations) "
+        + "VALUES (change.type_id, change.visits, change.cancellations)";
+
+    private static final String MYSQL_VET_DAY = "INSERT INTO vet_day_activity "
+        + "(vet_id, activity_day, visits, cancellations) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+        + "visits = visits + VALUES(visits), cancellations = cancellations + VALUES(cancellations)";
+
+    private static final String MYSQL_PET_TYPE = "INSERT INTO pet_type_activity "
+        + "(type_id, visits, cancellations) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE "
+        + "visits = visits + VALUES(visits), cancellations = cancellations + VALUES(cancellations)";
+
+    private final JdbcTemplate template;
+    private final PetRepository pets;
+    private final String vetDayUpsert;
+    private final String petTypeUpsert;
+
+    ActivityRecorder(DataSource dataSource, PetRepository pets, @Value("${database:hsqldb}") String database) {
+        // joins the transaction of the visit change, on its shard
+        this.template = new JdbcTemplate(dataSource);
+        this.pets = pets;
+        boolean mysql = "mysql".equals(database);
+        this.vetDayUpsert = mysql ? MYSQL_VET_DAY : HSQLDB_VET_DAY;
+        this.petTypeUpsert = mysql ? MYSQL_PET_TYPE : HSQLDB_PET_TYPE;
+    }
+
+    @EventListener(condition = "#event.aggregate == 'visit'")
+    public void onVisitChange(DomainEvent event) {
+        record(Collections.singletonList(event));
+    }
+
+    @EventListener
+    public void onVisitChanges(DomainEventBatch batch) {
+        record(batch.getEvents());
+    }
+
+    private void record(List<DomainEvent> events) {
+        // sorted, so concurrent transactions lock the rows in the same order
+        SortedMap<Integer, SortedMap<LocalDate, int[]>> vetDays = new TreeMap<>();
+        SortedMap<Integer, int[]> petCounts = new TreeMap<>();
+        for (DomainEvent event : events) {
+            int visits = "saved".equals(event.getType()) ? 1 : 0;
+            int cancellations = "removed".equals(event.getType()) ? 1 : 0;
+            Map<String, Object> data = event.getData();
+            Integer vetId = (Integer) data.get("vetId");
+            Integer petId = (Integer) data.get("petId");
+            if (!"visit".equals(event.getAggregate()) || visits + cancellations == 0 || vetId == null
+                || data.get("time") == null) {
+                continue;
+            }
+            // the time is a LocalDateTime, or its ISO string once the event went through the outbox
+            LocalDate day = LocalDateTime.parse(data.get("time").toString()).toLocalDate();
+            add(vetDays.computeIfAbsent(vetId, id -> new TreeMap<>()).computeIfAbsent(day, d -> new int[2]),
+                visits, cancellations);
+            if (petId != null) {
+                add(petCounts.computeIfAbsent(petId, id -> new int[2]), visits, cancellations);
+            }
+        }
+        List<Object[]> vetDayChanges = new ArrayList<>();
+        vetDays.forEach((vetId, days) -> days.forEach((day, counts) ->
+            vetDayChanges.add(new Object[] { vetId, Date.valueOf(day), counts[0], counts[1] })));
+        if (vetDayChanges.isEmpty()) {
+            return;
+        }
+        this.template.batchUpdate(this.vetDayUpsert, vetDayChanges);
+        if (petCounts.isEmpty()) {
+            return;
+        }
+        SortedMap<Integer, int[]> typeCounts = new TreeMap<>();
+        for (Object[] row : this.pets.findTypeIdsByIds(petCounts.keySet())) {
+            int[] counts = petCounts.get((Integer) row[0]);
+            add(typeCounts.computeIfAbsent((Integer) row[1], id -> new int[2]), counts[0], counts[1]);
+        }
+        List<Object[]> typeChanges = new ArrayList<>();
+        typeCounts.forEach((typeId, counts) -> typeChanges.add(new Object[] { typeId, counts[0], counts[1] }));
+        if (!typeChanges.isEmpty()) {
+            this.template.batchUpdate(this.petTypeUpsert, typeChanges);
+        }
+    }
+
+    private static void add(int[] counts, int visits, int cancellations) {
+        counts[0] += visits;
+        counts[1] += cancellations;
+    }
+
+}
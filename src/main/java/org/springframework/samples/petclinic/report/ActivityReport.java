@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.vet.Vet;
+
+/**
+ * Clinic activity of one week: the visits per vet and day, and the visits per pet type
+ * since the beginning, each with its cancellation rate. Built from the aggregates alone, so
+ * its cost depends on the number of vets and pet types but not on the number of visits.
+ *
+ * @author Jackie Shao
+ */
+public class ActivityReport {
+
+    private final LocalDate weekStart;
+    private final List<LocalDate> days = new ArrayList<>();
+    private final List<VetActivity> vets = new ArrayList<>();
+    private final List<PetTypeActivityTotal> petTypes = new ArrayList<>();
+
+    ActivityReport(LocalDate weekStart, Collection<Vet> vets, List<VetDayActivity> vetDays, Collection<PetType> petTypes,
+                   List<PetTypeActivity> petTypeActivity) {
+        this.weekStart = weekStart;
+        for (int i = 0; i < 7; i++) {
+            this.days.add(weekStart.plusDays(i));
+        }
+        // with shards there is one aggregate per shard, so they are added up
+        Map<Integer, VetActivity> byVet = new HashMap<>();
+        for (Vet vet : vets) {
+            VetActivity activity = new VetActivity(vet.getId(), vet.getFirstName() + " " + vet.getLastName());
+            byVet.put(vet.getId(), activity);
+            this.vets.add(activity);
+        }
+        for (VetDayActivity vetDay : vetDays) {
+            VetActivity activity = byVet.get(vetDay.getVetId());
+            if (activity != null) {
+                activity.visitsPerDay[(int) ChronoUnit.DAYS.between(weekStart, vetDay.getDay())] += vetDay.getVisits();
+                activity.visits += vetDay.getVisits();
+                activity.cancellations += vetDay.getCancellations();
+            }
+        }
+        Map<Integer, PetTypeActivityTotal> byType = new HashMap<>();
+        for (PetType petType : petTypes) {
+            PetTypeActivityTotal total = new PetTypeActivityTotal(petType.getName());
+            byType.put(petType.getId(), total);
+            this.petTypes.add(total);
+        }
+        for (PetTypeActivity activity : petTypeActivity) {
+            PetTypeActivityTotal total = byType.get(activity.getTypeId());
+            if (total != null) {
+                total.visits += activity.getVisits();
+                total.cancellations += activity.getCancellations();
+            }
+        }
+    }
+
+    /**
+     * Return the Monday the week begins with.
+     */
+    public LocalDate getWeekStart() {
+        return this.weekStart;
+    }
+
+    public List<LocalDate> getDays() {
+        return this.days;
+    }
+
+    public List<VetActivity> getVets() {
+        return this.vets;
+    }
+
+    public List<PetTypeActivityTotal> getPetTypes() {
+        return this.petTypes;
+    }
+
+    private static Double rate(int cancellations, int visits) {
+        return visits > 0 ? (double) cancellations / visits : null;
+    }
+
+    /**
+     * The visits of one vet in the week; cancelled visits count as visits too.
+     */
+    public static class VetActivity {
+
+        private final Integer vetId;
+        private final String name;
+        private final int[] visitsPerDay = new int[7];
+        private int visits;
+        private int cancellations;
+
+        VetActivity(Integer vetId, String name) {
+            this.vetId = vetId;
+            this.name = name;
+        }
+
+        public Integer getVetId() {
+            return this.vetId;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int[] getVisitsPerDay() {
+            return this.visitsPerDay;
+        }
+
+        public int getVisits() {
+            return this.visits;
+        }
+
+        public int getCancellations() {
+            return this.cancellations;
+        }
+
+        /**
+         * Return the share of the visits that were cancelled, or <code>null</code> without visits.
+         */
+        public Double getCancellationRate() {
+            return rate(this.cancellations, this.visits);
+        }
+    }
+
+    /**
+     * The visits of the pets of one type since the beginning; cancelled visits count as visits too.
+     */
+    public static class PetTypeActivityTotal {
+
+        private final String petType;
+        private int visits;
+        private int cancellations;
+
+        PetTypeActivityTotal(String petType) {
+            this.petType = petType;
+        }
+
+        public String getPetType() {
+            return this.petType;
+        }
+
+        public int getVisits() {
+            return this.visits;
+        }
+
+        public int getCancellations() {
+            return this.cancellations;
+        }
+
+        /**
+         * Return the share of the visits that were cancelled, or <code>null</code> without visits.
+         */
+        public Double getCancellationRate() {
+            return rate(this.cancellations, this.visits);
+        }
+    }
+
+}
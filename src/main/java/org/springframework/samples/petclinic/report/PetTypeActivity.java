@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The visits ever scheduled and cancelled for the pets of one type, maintained by the
+ * {@link ActivityRecorder} as visits are created and cancelled.
+ *
+ * @author Jackie Shao
+ */
+@Entity
+@Table(name = "pet_type_activity")
+public class PetTypeActivity {
+
+    @Id
+    @Column(name = "type_id")
+    private Integer typeId;
+
+    @Column(name = "visits")
+    private int visits;
+
+    @Column(name = "cancellations")
+    private int cancellations;
+
+    protected PetTypeActivity() {
+    }
+
+    PetTypeActivity(Integer typeId, int visits, int cancellations) {
+        this.typeId = typeId;
+        this.visits = visits;
+        this.cancellations = cancellations;
+    }
+
+    public Integer getTypeId() {
+        return this.typeId;
+    }
+
+    public int getVisits() {
+        return this.visits;
+    }
+
+    public int getCancellations() {
+        return this.cancellations;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for <code>PetTypeActivity</code> aggregates.
+ *
+ * @author Jackie Shao
+ */
+public interface PetTypeActivityRepository extends Repository<PetTypeActivity, Integer> {
+
+    /**
+     * Retrieve the {@link PetTypeActivity} of all pet types. With shards, a pet type has one
+     * per shard.
+     * @return the activity of the pet types that had any
+     */
+    @Query("SELECT activity FROM PetTypeActivity activity")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<PetTypeActivity> findAll();
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+/**
+ * The visits scheduled with and cancelled for a vet on one day, maintained by the
+ * {@link ActivityRecorder} as visits are created and cancelled.
+ *
+ * @author Jackie Shao
+ */
+@Entity
+@Table(name = "vet_day_activity")
+@IdClass(VetDayActivity.Key.class)
+public class VetDayActivity {
+
+    @Id
+    @Column(name = "vet_id")
+    private Integer vetId;
+
+    @Id
+    @Column(name = "activity_day")
+    private LocalDate day;
+
+    @Column(name = "visits")
+    private int visits;
+
+    @Column(name = "cancellations")
+    private int cancellations;
+
+    protected VetDayActivity() {
+    }
+
+    VetDayActivity(Integer vetId, LocalDate day, int visits, int cancellations) {
+        this.vetId = vetId;
+        this.day = day;
+        this.visits = visits;
+        this.cancellations = cancellations;
+    }
+
+    public Integer getVetId() {
+        return this.vetId;
+    }
+
+    public LocalDate getDay() {
+        return this.day;
+    }
+
+    public int getVisits() {
+        return this.visits;
+    }
+
+    public int getCancellations() {
+        return this.cancellations;
+    }
+
+    /**
+     * Identifier of a {@link VetDayActivity}.
+     */
+    public static class Key implements Serializable {
+
+        private Integer vetId;
+        private LocalDate day;
+
+        public Key() {
+        }
+
+        public Key(Integer vetId, LocalDate day) {
+            this.vetId = vetId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return Objects.equals(this.vetId, key.vetId) && Objects.equals(this.day, key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.vetId, this.day);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.report;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for <code>VetDayActivity</code> aggregates.
+ *
+ * @author Jackie Shao
+ */
+public interface VetDayActivityRepository extends Repository<VetDayActivity, VetDayActivity.Key> {
+
+    /**
+     * Retrieve the {@link VetDayActivity} of all vets in a range of days. With shards, a vet
+     * has one per shard and day.
+     * @param from the first day
+     * @param to the last day
+     * @return the activity of the days that had any
+     */
+    @Query("SELECT activity FROM VetDayActivity activity WHERE activity.day BETWEEN :from AND :to")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<VetDayActivity> findByDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+}
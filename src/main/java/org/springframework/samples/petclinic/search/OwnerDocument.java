@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The searchable text of an owner: its own fields, the names of its pets and the
+ * descriptions of their visits, indexed together as one document of the {@link OwnerIndex}.
+ *
+ * @author Jackie Shao
+ */
+public class OwnerDocument {
+
+    private final Integer id;
+    private final String firstName;
+    private final String lastName;
+    private final String address;
+    private final String city;
+    private final String telephone;
+    private final List<String> petNames = new ArrayList<>();
+    private final List<String> visitDescriptions = new ArrayList<>();
+
+    public OwnerDocument(Integer id, String firstName, String lastName, String address, String city, String telephone) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.city = city;
+        this.telephone = telephone;
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getAddress() {
+        return this.address;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public String getTelephone() {
+        return this.telephone;
+    }
+
+    public List<String> getPetNames() {
+        return this.petNames;
+    }
+
+    public List<String> getVisitDescriptions() {
+        return this.visitDescriptions;
+    }
+
+}
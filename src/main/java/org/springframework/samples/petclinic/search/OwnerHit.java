@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+/**
+ * An owner found by a search, with the fields stored in the {@link OwnerIndex}, best hits
+ * first.
+ *
+ * @author Jackie Shao
+ */
+public class OwnerHit {
+
+    private final int ownerId;
+    private final String firstName;
+    private final String lastName;
+    private final String city;
+    private final String telephone;
+    private final float score;
+
+    OwnerHit(int ownerId, String firstName, String lastName, String city, String telephone, float score) {
+        this.ownerId = ownerId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.city = city;
+        this.telephone = telephone;
+        this.score = score;
+    }
+
+    public int getOwnerId() {
+        return this.ownerId;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public String getTelephone() {
+        return this.telephone;
+    }
+
+    public float getScore() {
+        return this.score;
+    }
+
+}
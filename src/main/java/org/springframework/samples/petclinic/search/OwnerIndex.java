@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+
+/**
+ * Lucene index of {@link OwnerDocument}s, one per owner.
+ * <p>
+ * A search matches every word of the query against the name, pet names, telephone, city,
+ * address and visit descriptions of the owners, in that order of weight, allowing one typo
+ * in words of four letters or more and two in words of eight or more. The first letter has
+ * to be right, which keeps the terms to expand few and queries fast on large indexes.
+ * <p>
+ * Changes are seen by searches, and kept on disk, once {@link #publish() published}.
+ *
+ * @author Jackie Shao
+ */
+class OwnerIndex implements Closeable {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String FIRST_NAME = "firstName";
+    private static final String LAST_NAME = "lastName";
+    private static final String PETS = "pets";
+    private static final String TELEPHONE = "telephone";
+    private static final String CITY = "city";
+    private static final String ADDRESS = "address";
+    private static final String VISITS = "visits";
+    private static final String UPDATED = "updated";
+
+    private static final Map<String, Float> WEIGHTS = new LinkedHashMap<>();
+
+    static {
+        WEIGHTS.put(NAME, 4f);
+        WEIGHTS.put(PETS, 3f);
+        WEIGHTS.put(TELEPHONE, 3f);
+        WEIGHTS.put(CITY, 1.5f);
+        WEIGHTS.put(ADDRESS, 1f);
+        WEIGHTS.put(VISITS, 1f);
+    }
+
+    private static final int MAX_EXPANSIONS = 50;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searchers;
+
+    OwnerIndex(Directory directory) throws IOException {
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(this.analyzer)
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND).setCommitOnClose(false));
+        this.searchers = new SearcherManager(this.writer, null);
+    }
+
+    /**
+     * Add or replace the document of an owner.
+     */
+    void update(OwnerDocument owner) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(ID, Integer.toString(owner.getId()), Field.Store.YES));
+        document.add(new TextField(NAME, join(owner.getFirstName(), owner.getLastName()), Field.Store.NO));
+        document.add(new StoredField(FIRST_NAME, nonNull(owner.getFirstName())));
+        document.add(new StoredField(LAST_NAME, nonNull(owner.getLastName())));
+        document.add(new TextField(CITY, nonNull(owner.getCity()), Field.Store.YES));
+        document.add(new TextField(ADDRESS, nonNull(owner.getAddress()), Field.Store.NO));
+        document.add(new StringField(TELEPHONE, nonNull(owner.getTelephone()), Field.Store.YES));
+        document.add(new TextField(PETS, String.join(" ", owner.getPetNames()), Field.Store.NO));
+        document.add(new TextField(VISITS, String.join(" ", owner.getVisitDescriptions()), Field.Store.NO));
+        document.add(new LongPoint(UPDATED, System.currentTimeMillis()));
+        this.writer.updateDocument(new Term(ID, Integer.toString(owner.getId())), document);
+    }
+
+    void delete(int ownerId) throws IOException {
+        this.writer.deleteDocuments(new Term(ID, Integer.toString(ownerId)));
+    }
+
+    /**
+     * Delete the documents last written before the given time, in milliseconds since the
+     * epoch, such as those of the owners a rebuild did not find any more.
+     */
+    void deleteUpdatedBefore(long time) throws IOException {
+        this.writer.deleteDocuments(LongPoint.newRangeQuery(UPDATED, Long.MIN_VALUE, time - 1));
+    }
+
+    /**
+     * Commit the changes so far, and show them to the searches that start from now on.
+     */
+    void publish() throws IOException {
+        this.writer.commit();
+        this.searchers.maybeRefreshBlocking();
+    }
+
+    /**
+     * The number of owners searched.
+     */
+    int size() throws IOException {
+        IndexSearcher searcher = this.searchers.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            this.searchers.release(searcher);
+        }
+    }
+
+    /**
+     * The owners best matching the words of the given text, best first.
+     */
+    List<OwnerHit> search(String text, int maxHits) throws IOException {
+        Query query = query(text);
+        List<OwnerHit> hits = new ArrayList<>();
+        if (query == null) {
+            return hits;
+        }
+        IndexSearcher searcher = this.searchers.acquire();
+        try {
+            TopDocs top = searcher.search(query, maxHits);
+            for (ScoreDoc scoreDoc : top.scoreDocs) {
+                Document document = searcher.doc(scoreDoc.doc);
+                hits.add(new OwnerHit(Integer.parseInt(document.get(ID)), document.get(FIRST_NAME),
+                    document.get(LAST_NAME), document.get(CITY), document.get(TELEPHONE), scoreDoc.score));
+            }
+        } finally {
+            this.searchers.release(searcher);
+        }
+        return hits;
+    }
+
+    private Query query(String text) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean empty = true;
+        try (TokenStream tokens = this.analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                query.add(wordQuery(term.toString()), Occur.SHOULD);
+                empty = false;
+            }
+            tokens.end();
+        }
+        // a telephone number however it is written, as the analyzer splits it on dashes
+        String digits = text.replaceAll("[^0-9]", "");
+        if (digits.length() >= 7) {
+            query.add(new BoostQuery(new TermQuery(new Term(TELEPHONE, digits)), WEIGHTS.get(TELEPHONE) * 2), Occur.SHOULD);
+            empty = false;
+        }
+        return empty ? null : query.build();
+    }
+
+    private static Query wordQuery(String word) {
+        int maxEdits = word.length() >= 8 ? 2 : word.length() >= 4 ? 1 : 0;
+        BooleanQuery.Builder fields = new BooleanQuery.Builder();
+        for (Map.Entry<String, Float> field : WEIGHTS.entrySet()) {
+            Term term = new Term(field.getKey(), word);
+            // an exact match weighs more than a near one
+            fields.add(new BoostQuery(new TermQuery(term), field.getValue() * 2), Occur.SHOULD);
+            if (maxEdits > 0) {
+                fields.add(new BoostQuery(new FuzzyQuery(term, maxEdits, 1, MAX_EXPANSIONS, true), field.getValue()),
+                    Occur.SHOULD);
+            }
+        }
+        return fields.build();
+    }
+
+    private static String join(String first, String second) {
+        return nonNull(first) + " " + nonNull(second);
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.searchers.close();
+        this.writer.close();
+    }
+
+}
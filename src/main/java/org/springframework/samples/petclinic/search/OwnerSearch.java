@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventSubscriber;
+
+/**
+ * Typo-tolerant owner search over an {@link OwnerIndex} on disk.
+ * <p>
+ * The index follows the owner, pet and visit events of all nodes: the owners they concern
+ * are read again and their documents replaced. It is rebuilt in the background at startup,
+ * as the changes made while the node was down were missed, and on demand through the
+ * <code>search</code> actuator endpoint; searches use the previous index until the rebuild
+ * is done, and the events received meanwhile are applied after it.
+ * <p>
+ * A rebuild replaces the documents in place and only removes the ones it did not write
+ * once it has read every owner, so a rebuild that fails or is interrupted leaves a complete
+ * index, partly refreshed, to publish along with the events received meanwhile.
+ *
+ * @author Jackie Shao
+ * @see SearchProperties
+ */
+class OwnerSearch implements DomainEventSubscriber, InitializingBean, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(OwnerSearch.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final OwnerSourceRepository owners;
+    private final OwnerIndex index;
+    private final SearchProperties properties;
+
+    // events received during a rebuild, applied once it is done
+    private List<DomainEvent> pending;
+    private Thread rebuilder;
+    private volatile long lastRebuildDuration = -1;
+
+    OwnerSearch(OwnerSourceRepository owners, OwnerIndex index, SearchProperties properties) {
+        this.owners = owners;
+        this.index = index;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (this.properties.isRebuildOnStartup()) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = this.rebuilder;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * The owners best matching the words of the given text, best first.
+     */
+    List<OwnerHit> search(String text) {
+        try {
+            return this.index.search(text, this.properties.getMaxHits());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Start rebuilding the index in the background.
+     * @return false if a rebuild is already running
+     */
+    synchronized boolean rebuild() {
+        if (this.rebuilder != null) {
+            return false;
+        }
+        this.pending = new ArrayList<>();
+        this.rebuilder = new Thread(this::runRebuild, "owner-search-rebuild");
+        this.rebuilder.setDaemon(true);
+        this.rebuilder.start();
+        return true;
+    }
+
+    private void runRebuild() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        try {
+            List<OwnerDocument> page;
+            int lastId = 0;
+            do {
+                page = this.owners.findDocumentsAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+                if (!page.isEmpty()) {
+                    index(page);
+                    lastId = page.get(page.size() - 1).getId();
+                    count += page.size();
+                }
+            } while (page.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+            if (Thread.currentThread().isInterrupted()) {
+                // shutting down: the owners not read yet keep their previous documents
+                return;
+            }
+            // the owners removed since their documents were written
+            this.index.deleteUpdatedBefore(start);
+            this.index.publish();
+            this.lastRebuildDuration = System.currentTimeMillis() - start;
+            logger.info("Indexed " + count + " owners for search in " + this.lastRebuildDuration + " ms");
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Could not rebuild the owner search index after " + count + " owners", ex);
+        } finally {
+            List<DomainEvent> events;
+            synchronized (this) {
+                events = this.pending;
+                this.pending = null;
+                this.rebuilder = null;
+            }
+            if (!events.isEmpty()) {
+                apply(events);
+            }
+        }
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        synchronized (this) {
+            if (this.pending != null) {
+                this.pending.addAll(events);
+                return;
+            }
+        }
+        apply(events);
+    }
+
+    private void apply(List<DomainEvent> events) {
+        Set<Integer> ownerIds = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            Integer ownerId = null;
+            if ("owner".equals(event.getAggregate())) {
+                ownerId = event.getAggregateId();
+            } else if ("pet".equals(event.getAggregate()) && event.getAggregateId() != null) {
+                ownerId = this.owners.findOwnerIdByPetId(event.getAggregateId());
+            } else if ("visit".equals(event.getAggregate()) && event.getData().get("petId") != null) {
+                ownerId = this.owners.findOwnerIdByPetId(((Number) event.getData().get("petId")).intValue());
+            }
+            if (ownerId != null) {
+                ownerIds.add(ownerId);
+            }
+        }
+        if (ownerIds.isEmpty()) {
+            return;
+        }
+        try {
+            List<OwnerDocument> documents = this.owners.findDocumentsByIds(ownerIds);
+            index(documents);
+            for (OwnerDocument document : documents) {
+                ownerIds.remove(document.getId());
+            }
+            for (Integer removed : ownerIds) {
+                this.index.delete(removed);
+            }
+            this.index.publish();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Add the pet names and visit descriptions of the given owners, with one query each for
+     * all of them, and write their documents.
+     */
+    private void index(List<OwnerDocument> documents) throws IOException {
+        Map<Integer, OwnerDocument> byId = new LinkedHashMap<>();
+        for (OwnerDocument document : documents) {
+            byId.put(document.getId(), document);
+        }
+        Collection<Integer> ids = byId.keySet();
+        for (Object[] petName : this.owners.findPetNamesByOwnerIds(ids)) {
+            byId.get(petName[0]).getPetNames().add((String) petName[1]);
+        }
+        for (Object[] description : this.owners.findVisitDescriptionsByOwnerIds(ids)) {
+            byId.get(description[0]).getVisitDescriptions().add((String) description[1]);
+        }
+        for (OwnerDocument document : documents) {
+            this.index.update(document);
+        }
+    }
+
+    /**
+     * The state of the index, for the actuator endpoint.
+     */
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        try {
+            description.put("owners", this.index.size());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        synchronized (this) {
+            description.put("rebuilding", this.rebuilder != null);
+        }
+        description.put("lastRebuildMillis", this.lastRebuildDuration);
+        return description;
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for reading owners, their pets and their visits as the text of
+ * {@link OwnerDocument}s, a batch of owners at a time.
+ *
+ * @author Jackie Shao
+ */
+public interface OwnerSourceRepository extends Repository<Owner, Integer> {
+
+    String DOCUMENT = "SELECT NEW org.springframework.samples.petclinic.search.OwnerDocument(owner.id, owner.firstName, "
+        + "owner.lastName, owner.address, owner.city, owner.telephone) FROM Owner owner";
+
+    /**
+     * Retrieve the next page of owners in id order.
+     * @param id the id of the last owner already read, 0 for the first page
+     * @param page the number of owners to read
+     * @return the owners after the given one, without pet names and visit descriptions
+     */
+    @Query(DOCUMENT + " WHERE owner.id > :id ORDER BY owner.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "id")
+    List<OwnerDocument> findDocumentsAfter(@Param("id") int id, Pageable page);
+
+    /**
+     * Retrieve the given owners.
+     * @param ids the ids of the owners
+     * @return the owners found, without pet names and visit descriptions
+     */
+    @Query(DOCUMENT + " WHERE owner.id IN :ids")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<OwnerDocument> findDocumentsByIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve the pet names of the given owners.
+     * @param ids the ids of the owners
+     * @return a List of (owner id, pet name) pairs
+     */
+    @Query("SELECT pet.owner.id, pet.name FROM Pet pet WHERE pet.owner.id IN :ids")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findPetNamesByOwnerIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve the visit descriptions of the given owners.
+     * @param ids the ids of the owners
+     * @return a List of (owner id, visit description) pairs
+     */
+    @Query("SELECT pet.owner.id, visit.description FROM Visit visit, Pet pet "
+        + "WHERE pet.id = visit.petId AND pet.owner.id IN :ids AND visit.description IS NOT NULL")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findVisitDescriptionsByOwnerIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve the owner of a pet.
+     * @param petId the id of the pet
+     * @return the id of its owner, or <code>null</code> if the pet was not found
+     */
+    @Query("SELECT pet.owner.id FROM Pet pet WHERE pet.id = :petId")
+    @Transactional(readOnly = true)
+    @AllShards
+    Integer findOwnerIdByPetId(@Param("petId") Integer petId);
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.io.IOException;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Owner search at <code>/search.html</code>, enabled by setting
+ * <code>petclinic.search.directory</code>.
+ *
+ * @author Jackie Shao
+ * @see SearchProperties
+ */
+@Configuration
+@EnableConfigurationProperties(SearchProperties.class)
+@ConditionalOnProperty(prefix = "petclinic.search", name = "directory")
+class SearchConfiguration {
+
+    @Bean
+    public OwnerIndex ownerIndex(SearchProperties properties) throws IOException {
+        return new OwnerIndex(FSDirectory.open(properties.getDirectory()));
+    }
+
+    @Bean
+    public OwnerSearch ownerSearch(OwnerSourceRepository owners, OwnerIndex index, SearchProperties properties) {
+        return new OwnerSearch(owners, index, properties);
+    }
+
+    @Bean
+    public SearchEndpoint searchEndpoint(OwnerSearch search) {
+        return new SearchEndpoint(search);
+    }
+
+}
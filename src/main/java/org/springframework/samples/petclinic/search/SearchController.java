@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Searches owners by any words of their names, address, city, telephone, pet names and
+ * visit descriptions, misspelt or not, as a page or as JSON.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+@ConditionalOnProperty(prefix = "petclinic.search", name = "directory")
+class SearchController {
+
+    private final OwnerSearch search;
+
+    SearchController(OwnerSearch search) {
+        this.search = search;
+    }
+
+    @GetMapping("/search.html")
+    public String showSearch(@RequestParam(value = "q", required = false) String text, Map<String, Object> model) {
+        model.put("q", text != null ? text : "");
+        model.put("hits", search(text));
+        return "search/searchOwners";
+    }
+
+    @GetMapping("/search")
+    @ResponseBody
+    public List<OwnerHit> showResourcesSearch(@RequestParam("q") String text) {
+        return search(text);
+    }
+
+    private List<OwnerHit> search(String text) {
+        return StringUtils.hasText(text) ? this.search.search(text) : Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * Actuator endpoint showing the state of the owner search index, and rebuilding it in the
+ * background on a POST.
+ *
+ * @author Jackie Shao
+ */
+@Endpoint(id = "search")
+class SearchEndpoint {
+
+    private final OwnerSearch search;
+
+    SearchEndpoint(OwnerSearch search) {
+        this.search = search;
+    }
+
+    @ReadOperation
+    public Map<String, Object> index() {
+        return this.search.describe();
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("started", this.search.rebuild());
+        return result;
+    }
+
+}
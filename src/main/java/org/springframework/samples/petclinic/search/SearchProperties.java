@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Owner search settings, bound from the <code>petclinic.search</code> properties.
+ *
+ * @author Jackie Shao
+ * @see OwnerSearch
+ */
+@ConfigurationProperties("petclinic.search")
+public class SearchProperties {
+
+    /**
+     * Directory of the search index; without one there is no owner search.
+     */
+    private Path directory;
+
+    /**
+     * Whether the index is rebuilt in the background at startup, to pick up the changes
+     * made while the node was down.
+     */
+    private boolean rebuildOnStartup = true;
+
+    /**
+     * Maximum number of owners returned by a search.
+     */
+    private int maxHits = 20;
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public boolean isRebuildOnStartup() {
+        return this.rebuildOnStartup;
+    }
+
+    public void setRebuildOnStartup(boolean rebuildOnStartup) {
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    public int getMaxHits() {
+        return this.maxHits;
+    }
+
+    public void setMaxHits(int maxHits) {
+        this.maxHits = maxHits;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.data.repository.core.support.RepositoryProxyPostProcessor;
+
+/**
+ * Creates repositories advised by the {@link RepositoryProxyPostProcessor} beans of the
+ * application, in their order. Their advice comes before the transaction interceptor of the
+ * repository, so it can pick the database (see {@link ShardingConfiguration}) or surround
+ * the repository transaction with its own (see {@link DomainEventConfiguration}).
+ *
+ * @author Jackie Shao
+ * @see RepositoryConfiguration
+ */
+class AdvisedJpaRepositoryFactoryBean<T extends Repository<S, ID>, S, ID> extends JpaRepositoryFactoryBean<T, S, ID> {
+
+    private List<RepositoryProxyPostProcessor> postProcessors = new ArrayList<>();
+
+    AdvisedJpaRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+        super(repositoryInterface);
+    }
+
+    @Autowired(required = false)
+    void setPostProcessors(List<RepositoryProxyPostProcessor> postProcessors) {
+        this.postProcessors = new ArrayList<>(postProcessors);
+        AnnotationAwareOrderComparator.sort(this.postProcessors);
+    }
+
+    @Override
+    protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
+        RepositoryFactorySupport factory = super.createRepositoryFactory(entityManager);
+        this.postProcessors.forEach(factory::addRepositoryProxyPostProcessor);
+        return factory;
+    }
+
+}
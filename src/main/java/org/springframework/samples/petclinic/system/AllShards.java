@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository method that runs on all owner shards in parallel, each shard in its
+ * own transaction. Collection results are concatenated, sorted by {@link #orderBy()} and cut
+ * to the page size of a {@link org.springframework.data.domain.Pageable} argument; the row
+ * counts of modifying methods are added up; any other result is the first one found.
+ *
+ * @author Jackie Shao
+ * @see ShardingConfiguration
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AllShards {
+
+    /**
+     * Property the merged results are sorted by, ascending; empty to keep them in shard order.
+     */
+    String orderBy() default "";
+
+}
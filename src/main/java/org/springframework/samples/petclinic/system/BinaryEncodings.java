@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.List;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Compact binary encodings of the JSON resources, CBOR and Smile, for internal consumers
+ * that poll them often: they are negotiated through the <code>Accept</code> header for
+ * every <code>@ResponseBody</code> handler, and used by handlers that serialize ahead of
+ * time, like the vet list.
+ * <p>
+ * The mappers are configured like the JSON one, so the same fields are written. Their
+ * factories do not recycle buffers through thread locals, which would keep buffers alive
+ * for every request thread; the writers are immutable and shared. JSON stays the default
+ * when a client accepts anything.
+ *
+ * @author Jackie Shao
+ */
+@Component
+public class BinaryEncodings implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectWriter cborWriter;
+    private final ObjectWriter smileWriter;
+
+    public BinaryEncodings(Jackson2ObjectMapperBuilder builder) {
+        CBORFactory cborFactory = new CBORFactory();
+        cborFactory.disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING);
+        SmileFactory smileFactory = new SmileFactory();
+        smileFactory.disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING);
+        // names of specialties, cities and pet types repeat, so they are written once and referenced
+        smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        this.cborMapper = new ObjectMapper(cborFactory);
+        builder.configure(this.cborMapper);
+        this.smileMapper = new ObjectMapper(smileFactory);
+        builder.configure(this.smileMapper);
+        this.cborWriter = this.cborMapper.writer();
+        this.smileWriter = this.smileMapper.writer();
+    }
+
+    public ObjectMapper getCborMapper() {
+        return this.cborMapper;
+    }
+
+    public ObjectMapper getSmileMapper() {
+        return this.smileMapper;
+    }
+
+    public byte[] toCbor(Object value) {
+        return write(this.cborWriter, value);
+    }
+
+    public byte[] toSmile(Object value) {
+        return write(this.smileWriter, value);
+    }
+
+    private static byte[] write(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize " + value.getClass().getSimpleName(), ex);
+        }
+    }
+
+    /**
+     * Spring MVC registers its own CBOR and Smile converters after the JSON one when the
+     * formats are on the class path; they are replaced in place by ones using these mappers,
+     * so that they keep coming after JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        boolean cbor = false;
+        boolean smile = false;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, new MappingJackson2CborHttpMessageConverter(this.cborMapper));
+                cbor = true;
+            } else if (converters.get(i) instanceof MappingJackson2SmileHttpMessageConverter) {
+                converters.set(i, new MappingJackson2SmileHttpMessageConverter(this.smileMapper));
+                smile = true;
+            }
+        }
+        if (!cbor) {
+            converters.add(new MappingJackson2CborHttpMessageConverter(this.cborMapper));
+        }
+        if (!smile) {
+            converters.add(new MappingJackson2SmileHttpMessageConverter(this.smileMapper));
+        }
+    }
+
+}
@@ -4,8 +4,12 @@ import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.AccessedExpiryPolicy;
+import javax.cache.expiry.Duration;
 
 /**
  * Cache configuration intended for caches providing the JCache API. This configuration creates the used cache for the
@@ -18,7 +22,32 @@ class CacheConfiguration {
     @Bean
     public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
         return cm -> {
-            cm.createCache("vets", cacheConfiguration());
+            createCache(cm, "vets", cacheConfiguration());
+            createCache(cm, "petTypes", cacheConfiguration());
+            createCache(cm, "specialties", cacheConfiguration());
+            createCache(cm, FragmentCache.CACHE_NAME, fragmentCacheConfiguration());
+        };
+    }
+
+    /**
+     * The default JSR-107 CacheManager is shared by every application context of the class
+     * loader (as in the tests), so a cache may have been created by another context already.
+     */
+    private static void createCache(javax.cache.CacheManager cm, String name,
+                                    javax.cache.configuration.Configuration<Object, Object> configuration) {
+        if (cm.getCache(name) == null) {
+            cm.createCache(name, configuration);
+        }
+    }
+
+    @Bean
+    public WebMvcConfigurer fragmentCacheSnapshotConfigurer(FragmentCache fragmentCache) {
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new FragmentCacheSnapshotInterceptor(fragmentCache));
+            }
         };
     }
 
@@ -33,4 +62,13 @@ class CacheConfiguration {
         return new MutableConfiguration<>().setStatisticsEnabled(true);
     }
 
+    /**
+     * Rendered fragments are never removed explicitly: a change bumps the version in their key, so
+     * superseded renderings simply expire once they are no longer read.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> fragmentCacheConfiguration() {
+        return new MutableConfiguration<>().setStatisticsEnabled(true)
+            .setExpiryPolicyFactory(AccessedExpiryPolicy.factoryOf(Duration.TEN_MINUTES));
+    }
+
 }
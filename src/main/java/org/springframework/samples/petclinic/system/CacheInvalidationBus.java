@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Spreads cache invalidations to the other nodes of a deployment.
+ * <p>
+ * Code that changes cached data drops its own copy first and then publishes an
+ * {@link Invalidation}, which is sent once the surrounding transaction committed. Other
+ * nodes hand it to the listeners of the cache, or evict the key from the
+ * {@link CacheManager} cache of the same name when the cache has no listener. Without an
+ * {@link InvalidationTransport} (see <code>petclinic.cache.invalidation.transport</code>)
+ * invalidations stay on this node.
+ * <p>
+ * The highest version applied per entry is remembered, so an invalidation that arrives
+ * after a newer one is dropped, and a cache can refuse to store data read before the last
+ * invalidation with {@link #isCurrent}.
+ *
+ * @author Jackie Shao
+ */
+@Component
+public class CacheInvalidationBus {
+
+    private static final Log logger = LogFactory.getLog(CacheInvalidationBus.class);
+
+    private final String node = UUID.randomUUID().toString();
+    private final CacheManager cacheManager;
+    private final InvalidationTransport transport;
+    private final Map<String, List<Consumer<Invalidation>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Long> appliedVersions = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(CacheManager cacheManager, @Nullable InvalidationTransport transport) {
+        this.cacheManager = cacheManager;
+        this.transport = transport;
+        if (transport != null) {
+            transport.start(this::receive);
+        }
+    }
+
+    /**
+     * Return the id of this node, which tells its own invalidations apart.
+     */
+    public String getNode() {
+        return this.node;
+    }
+
+    /**
+     * Register a listener for the invalidations of the given cache published by other nodes.
+     */
+    public void subscribe(String cacheName, Consumer<Invalidation> listener) {
+        this.listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Tell the other nodes that an entry is stale, after the current transaction committed.
+     * @param cacheName the name of the cache
+     * @param key the stale key, or <code>null</code> for the whole cache
+     * @param version the version of the data after the change, or {@link Invalidation#UNVERSIONED}
+     */
+    public void publish(String cacheName, String key, long version) {
+        Invalidation invalidation = new Invalidation(this.node, cacheName, key, version);
+        advance(invalidation);
+        if (this.transport == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+                    transport.send(invalidation);
+                }
+            });
+        } else {
+            this.transport.send(invalidation);
+        }
+    }
+
+    /**
+     * Return whether data of the given version may still be cached, that is whether no
+     * newer invalidation of the entry has been seen.
+     */
+    public boolean isCurrent(String cacheName, String key, long version) {
+        Long applied = this.appliedVersions.get(entry(cacheName, key));
+        return applied == null || version >= applied;
+    }
+
+    void receive(Invalidation invalidation) {
+        if (this.node.equals(invalidation.getNode()) || !advance(invalidation)) {
+            return;
+        }
+        List<Consumer<Invalidation>> cacheListeners = this.listeners.get(invalidation.getCacheName());
+        try {
+            if (cacheListeners != null) {
+                cacheListeners.forEach(listener -> listener.accept(invalidation));
+            } else {
+                Cache cache = this.cacheManager.getCache(invalidation.getCacheName());
+                if (cache != null && invalidation.getKey() != null) {
+                    cache.evict(invalidation.getKey());
+                } else if (cache != null) {
+                    cache.clear();
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Could not apply " + invalidation, ex);
+        }
+    }
+
+    /**
+     * Record the version of an invalidation.
+     * @return whether it is newer than the ones applied so far
+     */
+    private boolean advance(Invalidation invalidation) {
+        if (!invalidation.isVersioned()) {
+            return true;
+        }
+        long version = invalidation.getVersion();
+        boolean[] newer = new boolean[1];
+        this.appliedVersions.compute(entry(invalidation.getCacheName(), invalidation.getKey()), (entry, applied) -> {
+            newer[0] = applied == null || version > applied;
+            return newer[0] ? version : applied;
+        });
+        return newer[0];
+    }
+
+    private static String entry(String cacheName, String key) {
+        return key != null ? cacheName + "::" + key : cacheName;
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up the {@link InvalidationTransport} chosen with
+ * <code>petclinic.cache.invalidation.transport</code>, for deployments with several nodes.
+ *
+ * @author Jackie Shao
+ * @see CacheInvalidationBus
+ */
+@Configuration
+@EnableConfigurationProperties(CacheInvalidationProperties.class)
+class CacheInvalidationConfiguration {
+
+    private static final String PREFIX = "petclinic.cache.invalidation";
+
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "transport", havingValue = "outbox")
+    public OutboxInvalidationTransport outboxInvalidationTransport(DataSource dataSource,
+                                                                   CacheInvalidationProperties properties) {
+        return new OutboxInvalidationTransport(dataSource, properties.getPollInterval(), properties.getRetention());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "transport", havingValue = "udp")
+    public UdpInvalidationTransport udpInvalidationTransport(CacheInvalidationProperties properties)
+        throws SocketException {
+        return new UdpInvalidationTransport(new InetSocketAddress(properties.getUdpHost(), properties.getUdpPort()),
+            properties.getUdpPeers());
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Cache invalidation settings, bound from the <code>petclinic.cache.invalidation</code> properties.
+ *
+ * @author Jackie Shao
+ * @see CacheInvalidationConfiguration
+ */
+@ConfigurationProperties("petclinic.cache.invalidation")
+public class CacheInvalidationProperties {
+
+    /**
+     * How invalidations reach the other nodes: <code>outbox</code> (polled database table)
+     * or <code>udp</code> (datagrams to the peers); invalidations stay on this node if unset.
+     */
+    private String transport;
+
+    /**
+     * How often the outbox table is polled.
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * How long invalidations are kept in the outbox table.
+     */
+    private Duration retention = Duration.ofHours(1);
+
+    /**
+     * Address to receive datagrams on.
+     */
+    private String udpHost = "127.0.0.1";
+
+    private int udpPort = 7370;
+
+    /**
+     * Addresses of the other nodes, as <code>host:port</code>.
+     */
+    private List<String> udpPeers = new ArrayList<>();
+
+    public String getTransport() {
+        return this.transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public Duration getPollInterval() {
+        return this.pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public Duration getRetention() {
+        return this.retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public String getUdpHost() {
+        return this.udpHost;
+    }
+
+    public void setUdpHost(String udpHost) {
+        this.udpHost = udpHost;
+    }
+
+    public int getUdpPort() {
+        return this.udpPort;
+    }
+
+    public void setUdpPort(int udpPort) {
+        this.udpPort = udpPort;
+    }
+
+    public List<String> getUdpPeers() {
+        return this.udpPeers;
+    }
+
+    public void setUdpPeers(List<String> udpPeers) {
+        this.udpPeers = udpPeers;
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Binary HSQLDB snapshot of the schema and data scripts.
+ * <p>
+ * A snapshot is a file database with a compressed script, named after a checksum of the
+ * scripts, so it is rebuilt whenever they change. The database is opened read-only on the
+ * files: the rows are loaded in one go, changes are kept in memory like those of an
+ * in-memory database, and several processes can share the same snapshot.
+ *
+ * @author Jackie Shao
+ * @see StartupConfiguration
+ */
+final class DatabaseSnapshot {
+
+    private static final Log logger = LogFactory.getLog(DatabaseSnapshot.class);
+
+    private static final String DATABASE_NAME = "petclinic";
+
+    private DatabaseSnapshot() {
+    }
+
+    /**
+     * The JDBC url of the snapshot of the given scripts, built first if needed.
+     * @param directory the directory of the snapshots
+     * @param scripts the schema and data scripts, in order
+     * @param populator how to run the scripts, to which they are added
+     */
+    static String url(Path directory, List<Resource> scripts, ResourceDatabasePopulator populator) throws IOException {
+        Path snapshot = directory.resolve(DATABASE_NAME + "-" + checksum(scripts));
+        if (!Files.exists(snapshot)) {
+            build(snapshot, scripts, populator);
+        }
+        return "jdbc:hsqldb:file:" + snapshot.resolve(DATABASE_NAME).toAbsolutePath() + ";hsqldb.files_readonly=true";
+    }
+
+    private static String checksum(List<Resource> scripts) throws IOException {
+        CRC32 checksum = new CRC32();
+        byte[] buffer = new byte[8192];
+        for (Resource script : scripts) {
+            try (InputStream input = script.getInputStream()) {
+                int read;
+                while ((read = input.read(buffer)) >= 0) {
+                    checksum.update(buffer, 0, read);
+                }
+            }
+        }
+        return Long.toHexString(checksum.getValue());
+    }
+
+    private static void build(Path snapshot, List<Resource> scripts, ResourceDatabasePopulator populator)
+        throws IOException {
+        long start = System.currentTimeMillis();
+        // built aside and moved in place once complete, another process may be building it too
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + "-" + UUID.randomUUID());
+        Files.createDirectories(temporary);
+        try {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:hsqldb:file:" + temporary.resolve(DATABASE_NAME).toAbsolutePath(), "sa", "");
+            scripts.forEach(populator::addScript);
+            populator.execute(dataSource);
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.execute("SET FILES SCRIPT FORMAT COMPRESSED");
+            template.execute("SHUTDOWN COMPACT");
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Built database snapshot " + snapshot + " in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (FileSystemException ex) {
+            if (!Files.exists(snapshot)) {
+                throw ex;
+            }
+            // built by another process in the meantime
+        } finally {
+            delete(temporary);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+}
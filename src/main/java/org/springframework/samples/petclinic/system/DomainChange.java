@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository method that changes the data store, so a {@link DomainEvent} is
+ * written to the outbox in the same transaction. The id of the changed entity is taken from
+ * the first entity or <code>Integer</code> argument; no event is written when the method
+ * returns 0, such as a versioned update that did not match. A <code>remove</code> method
+ * taking a collection of ids writes an event for every entity it removes.
+ *
+ * @author Jackie Shao
+ * @see DomainEventConfiguration
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DomainChange {
+
+    /**
+     * Kind of the changed entity, such as <code>"owner"</code>.
+     */
+    String aggregate();
+
+    /**
+     * What happened to it, such as <code>"saved"</code>.
+     */
+    String type();
+
+}
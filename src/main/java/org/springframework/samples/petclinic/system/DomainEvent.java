@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A change of the data store, as recorded in the <code>domain_events</code> outbox.
+ * <p>
+ * The data holds the simple properties of the changed entity, with associated entities
+ * replaced by their ids (for example <code>vet</code> by <code>vetId</code>); for removals
+ * it is the entity as it was before, for other methods their named parameters.
+ *
+ * @author Jackie Shao
+ * @see DomainEventSubscriber
+ */
+public final class DomainEvent {
+
+    private final long sequence;
+    private final String aggregate;
+    private final Integer aggregateId;
+    private final String type;
+    private final Map<String, Object> data;
+    private final long created;
+
+    public DomainEvent(long sequence, String aggregate, Integer aggregateId, String type, Map<String, Object> data,
+                       long created) {
+        this.sequence = sequence;
+        this.aggregate = aggregate;
+        this.aggregateId = aggregateId;
+        this.type = type;
+        this.data = Collections.unmodifiableMap(data);
+        this.created = created;
+    }
+
+    /**
+     * Return the position of the event in the outbox; events are delivered in this order.
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    public String getAggregate() {
+        return this.aggregate;
+    }
+
+    public Integer getAggregateId() {
+        return this.aggregateId;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public Map<String, Object> getData() {
+        return this.data;
+    }
+
+    /**
+     * Return a number of the data as an integer, such as an id.
+     * @return the value, or <code>null</code> if absent
+     */
+    public Integer getInteger(String key) {
+        Object value = this.data.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    /**
+     * Return a date and time of the data. Relayed events hold it as the application's object
+     * mapper wrote it: an ISO string, or an array of fields when dates are written as
+     * timestamps.
+     * @return the value, or <code>null</code> if absent
+     */
+    public LocalDateTime getDateTime(String key) {
+        Object value = this.data.get(key);
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof String) {
+            return LocalDateTime.parse((String) value);
+        }
+        if (value instanceof List && ((List<?>) value).size() >= 5) {
+            List<?> fields = (List<?>) value;
+            return LocalDateTime.of(((Number) fields.get(0)).intValue(), ((Number) fields.get(1)).intValue(),
+                ((Number) fields.get(2)).intValue(), ((Number) fields.get(3)).intValue(),
+                ((Number) fields.get(4)).intValue());
+        }
+        return null;
+    }
+
+    /**
+     * Return when the change was made, in milliseconds since the epoch.
+     */
+    public long getCreated() {
+        return this.created;
+    }
+
+    @Override
+    public String toString() {
+        return this.sequence + " " + this.aggregate + ":" + this.aggregateId + " " + this.type;
+    }
+
+}
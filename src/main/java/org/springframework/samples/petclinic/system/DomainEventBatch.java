@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The events of a bulk change, such as a removal by a collection of ids, published as one
+ * application event so that listeners inside the transaction handle them in one pass. In
+ * the outbox, and so for the {@link DomainEventSubscriber}s, every event still has a row of
+ * its own.
+ *
+ * @author Jackie Shao
+ */
+public final class DomainEventBatch {
+
+    private final List<DomainEvent> events;
+
+    public DomainEventBatch(List<DomainEvent> events) {
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public List<DomainEvent> getEvents() {
+        return this.events;
+    }
+
+    @Override
+    public String toString() {
+        return this.events.toString();
+    }
+
+}
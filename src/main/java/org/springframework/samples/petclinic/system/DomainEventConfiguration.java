@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collections;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.repository.core.support.RepositoryProxyPostProcessor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records the changes made through {@link DomainChange} repository methods in the
+ * <code>domain_events</code> outbox and relays them to the {@link DomainEventSubscriber}
+ * beans.
+ *
+ * @author Jackie Shao
+ * @see DomainEventInterceptor
+ * @see DomainEventRelay
+ */
+@Configuration
+@EnableConfigurationProperties(DomainEventProperties.class)
+class DomainEventConfiguration {
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    DomainEventConfiguration(ObjectProvider<ObjectMapper> objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.objectMapper = objectMapper.getIfAvailable(() -> Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Write the event after routing to a shard, around the transaction of the repository.
+     */
+    @Bean
+    @Order(1)
+    public RepositoryProxyPostProcessor domainEventPostProcessor(DataSource dataSource,
+                                                                 EntityManagerFactory entityManagerFactory,
+                                                                 PlatformTransactionManager transactionManager) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(new DomainEventInterceptor(
+            repositoryInformation.getDomainType(), SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory),
+            template, transactionTemplate, this.objectMapper, this.eventPublisher));
+    }
+
+    @Bean
+    public DomainEventRelay domainEventRelay(DataSource dataSource, ObjectProvider<List<DomainEventSubscriber>> subscribers,
+                                             DomainEventProperties properties) {
+        return new DomainEventRelay(dataSource, subscribers.getIfAvailable(Collections::emptyList), this.objectMapper,
+            properties);
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes a row to the <code>domain_events</code> outbox for every {@link DomainChange}
+ * repository method, in a transaction that the repository method joins, so the change and
+ * its event are committed or rolled back together.
+ * <p>
+ * The event is also published as an application event right away, so
+ * {@link org.springframework.context.event.EventListener}s can keep their own tables
+ * consistent with the change: they run inside the same transaction, on the same database.
+ * <p>
+ * A removal by a collection of ids writes one event per removed entity, each the same as
+ * for a removal by its id, so a bulk change needs nothing new from the subscribers. Those
+ * events are published together as one {@link DomainEventBatch}.
+ *
+ * @author Jackie Shao
+ */
+class DomainEventInterceptor implements MethodInterceptor {
+
+    private final Class<?> domainType;
+    private final EntityManager entityManager;
+    private final JdbcTemplate template;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    DomainEventInterceptor(Class<?> domainType, EntityManager entityManager, JdbcTemplate template,
+                           TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                           ApplicationEventPublisher eventPublisher) {
+        this.domainType = domainType;
+        this.entityManager = entityManager;
+        this.template = template;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        DomainChange change = AnnotationUtils.findAnnotation(invocation.getMethod(), DomainChange.class);
+        if (change == null) {
+            return invocation.proceed();
+        }
+        Object[] result = new Object[1];
+        Throwable[] failure = new Throwable[1];
+        this.transactionTemplate.execute(status -> {
+            List<Map<String, Object>> removed = removedEntities(invocation);
+            try {
+                result[0] = invocation.proceed();
+            } catch (Throwable ex) {
+                failure[0] = ex;
+                status.setRollbackOnly();
+                return null;
+            }
+            if (result[0] instanceof Number && ((Number) result[0]).longValue() == 0) {
+                return null;
+            }
+            Object[] arguments = invocation.getArguments();
+            if (invocation.getMethod().getName().startsWith("remove") && arguments.length > 0
+                && arguments[0] instanceof Collection) {
+                List<DomainEvent> events = new ArrayList<>(removed.size());
+                for (Map<String, Object> entity : removed) {
+                    events.add(insert(change, invocation.getMethod(), (Integer) entity.get("id"), entity));
+                }
+                if (!events.isEmpty()) {
+                    this.eventPublisher.publishEvent(new DomainEventBatch(events));
+                }
+            } else {
+                write(change, invocation, removed.isEmpty() ? null : removed.get(0));
+            }
+            return null;
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return result[0];
+    }
+
+    /**
+     * Describe the entities a removal by id or ids is about to remove, as they cannot be read
+     * afterwards.
+     */
+    private List<Map<String, Object>> removedEntities(MethodInvocation invocation) {
+        Object id = invocation.getArguments().length > 0 ? invocation.getArguments()[0] : null;
+        if (!invocation.getMethod().getName().startsWith("remove")) {
+            return Collections.emptyList();
+        }
+        if (id instanceof Integer) {
+            Object entity = this.entityManager.find(this.domainType, id);
+            return entity != null ? Collections.singletonList(describe(entity)) : Collections.emptyList();
+        }
+        if (!(id instanceof Collection) || ((Collection<?>) id).isEmpty()) {
+            return Collections.emptyList();
+        }
+        String entityName = this.entityManager.getMetamodel().entity(this.domainType).getName();
+        List<Map<String, Object>> removed = new ArrayList<>();
+        for (Object entity : this.entityManager.createQuery("SELECT entity FROM " + entityName
+            + " entity WHERE entity.id IN :ids", this.domainType).setParameter("ids", id).getResultList()) {
+            removed.add(describe(entity));
+        }
+        return removed;
+    }
+
+    private void write(DomainChange change, MethodInvocation invocation, Map<String, Object> before) {
+        Integer aggregateId = null;
+        Map<String, Object> data = before;
+        Object[] arguments = invocation.getArguments();
+        Method method = invocation.getMethod();
+        for (Object argument : arguments) {
+            if (argument instanceof BaseEntity) {
+                aggregateId = ((BaseEntity) argument).getId();
+                if (data == null) {
+                    data = describe(argument);
+                }
+                break;
+            } else if (argument instanceof Integer) {
+                aggregateId = (Integer) argument;
+                break;
+            }
+        }
+        if (data == null) {
+            data = new LinkedHashMap<>();
+            Parameter[] parameters = method.getParameters();
+            for (int i = 0; i < parameters.length; i++) {
+                Param param = parameters[i].getAnnotation(Param.class);
+                data.put(param != null ? param.value() : parameters[i].getName(), arguments[i]);
+            }
+        }
+        this.eventPublisher.publishEvent(insert(change, method, aggregateId, data));
+    }
+
+    private DomainEvent insert(DomainChange change, Method method, Integer aggregateId, Map<String, Object> data) {
+        String json;
+        try {
+            json = this.objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot write " + change.aggregate() + " event of " + method, ex);
+        }
+        long created = System.currentTimeMillis();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        this.template.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO domain_events "
+                + "(aggregate, aggregate_id, event_type, data, created) VALUES (?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, change.aggregate());
+            statement.setObject(2, aggregateId, Types.INTEGER);
+            statement.setString(3, change.type());
+            statement.setString(4, json);
+            statement.setLong(5, created);
+            return statement;
+        }, keyHolder);
+        return new DomainEvent(keyHolder.getKey().longValue(), change.aggregate(), aggregateId, change.type(), data,
+            created);
+    }
+
+    /**
+     * Return the simple properties of an entity, with associated entities replaced by their ids.
+     */
+    static Map<String, Object> describe(Object entity) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        BeanWrapper wrapper = new BeanWrapperImpl(entity);
+        for (PropertyDescriptor property : wrapper.getPropertyDescriptors()) {
+            Class<?> type = property.getPropertyType();
+            if (property.getReadMethod() == null || type == null || Class.class.equals(type) || "new".equals(property.getName())
+                || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+                continue;
+            }
+            if (BaseEntity.class.isAssignableFrom(type)) {
+                BaseEntity associated = (BaseEntity) wrapper.getPropertyValue(property.getName());
+                data.put(property.getName() + "Id", associated != null ? associated.getId() : null);
+            } else if (BeanUtils.isSimpleValueType(type) || Temporal.class.isAssignableFrom(type)) {
+                data.put(property.getName(), wrapper.getPropertyValue(property.getName()));
+            }
+        }
+        return data;
+    }
+
+}
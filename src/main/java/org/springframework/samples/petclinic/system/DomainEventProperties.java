@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Domain event relay settings, bound from the <code>petclinic.events</code> properties.
+ *
+ * @author Jackie Shao
+ * @see DomainEventConfiguration
+ */
+@ConfigurationProperties("petclinic.events")
+public class DomainEventProperties {
+
+    /**
+     * How often the outbox is polled for new events; zero to only relay on demand.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * The maximum number of events handed to the subscribers at once.
+     */
+    private int batchSize = 100;
+
+    /**
+     * How long to wait for a missing sequence number, which is either a transaction that has
+     * not committed yet or one that rolled back, before relaying the events after it.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(2);
+
+    /**
+     * How long events are kept in the outbox.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * File to append the relayed events to, one JSON document per line; none if unset.
+     */
+    private String logFile;
+
+    public Duration getPollInterval() {
+        return this.pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getGapTimeout() {
+        return this.gapTimeout;
+    }
+
+    public void setGapTimeout(Duration gapTimeout) {
+        this.gapTimeout = gapTimeout;
+    }
+
+    public Duration getRetention() {
+        return this.retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public String getLogFile() {
+        return this.logFile;
+    }
+
+    public void setLogFile(String logFile) {
+        this.logFile = logFile;
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Relays the events of the <code>domain_events</code> outbox to the
+ * {@link DomainEventSubscriber}s and the optional log file, in batches and in sequence order.
+ * <p>
+ * Sequence numbers are handed out before commit, so a later event may become visible before
+ * an earlier one. The relay stops at a missing sequence number until it shows up or the gap
+ * timeout has passed since the relay first found it missing, after which it is taken for a
+ * rolled back transaction. Every node
+ * relays all events, starting with the ones written after it started; with shards, the
+ * outbox of every shard is relayed in its own order.
+ *
+ * @author Jackie Shao
+ */
+class DomainEventRelay implements InitializingBean, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(DomainEventRelay.class);
+
+    private static final TypeReference<Map<String, Object>> DATA_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final List<Outbox> outboxes = new ArrayList<>();
+    private final List<DomainEventSubscriber> subscribers;
+    private final ObjectMapper objectMapper;
+    private final DomainEventProperties properties;
+    private final Path logFile;
+
+    private ScheduledExecutorService poller;
+    private long lastPurge;
+
+    DomainEventRelay(DataSource dataSource, List<DomainEventSubscriber> subscribers, ObjectMapper objectMapper,
+                     DomainEventProperties properties) {
+        if (dataSource instanceof ShardRoutingDataSource) {
+            ShardRoutingDataSource shards = (ShardRoutingDataSource) dataSource;
+            for (int i = 0; i < shards.getShardCount(); i++) {
+                this.outboxes.add(new Outbox(shards.getShard(i), properties.getBatchSize()));
+            }
+        } else {
+            this.outboxes.add(new Outbox(dataSource, properties.getBatchSize()));
+        }
+        this.subscribers = new ArrayList<>(subscribers);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.logFile = properties.getLogFile() != null ? Paths.get(properties.getLogFile()) : null;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.outboxes.forEach(Outbox::start);
+        if (!this.properties.getPollInterval().isZero()) {
+            this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "domain-event-relay");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = this.properties.getPollInterval().toMillis();
+            this.poller.scheduleWithFixedDelay(this::relay, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.poller != null) {
+            this.poller.shutdownNow();
+        }
+    }
+
+    void subscribe(DomainEventSubscriber subscriber) {
+        this.subscribers.add(subscriber);
+    }
+
+    /**
+     * Relay all events that are ready, batch by batch.
+     */
+    void relay() {
+        relay(System.currentTimeMillis());
+    }
+
+    synchronized void relay(long now) {
+        for (Outbox outbox : this.outboxes) {
+            try {
+                List<DomainEvent> batch;
+                do {
+                    batch = outbox.next(now);
+                    if (!batch.isEmpty()) {
+                        publish(batch);
+                    }
+                } while (batch.size() == this.properties.getBatchSize());
+                if (now - this.lastPurge > this.properties.getRetention().toMillis()) {
+                    outbox.template.update("DELETE FROM domain_events WHERE created < ?",
+                        now - this.properties.getRetention().toMillis());
+                }
+            } catch (DataAccessException ex) {
+                logger.warn("Could not relay domain events", ex);
+            }
+        }
+        if (now - this.lastPurge > this.properties.getRetention().toMillis()) {
+            this.lastPurge = now;
+        }
+    }
+
+    private void publish(List<DomainEvent> batch) {
+        for (DomainEventSubscriber subscriber : this.subscribers) {
+            try {
+                subscriber.onEvents(batch);
+            } catch (RuntimeException ex) {
+                logger.warn("Domain event subscriber " + subscriber + " failed on " + batch.get(0)
+                    + " and the following events", ex);
+            }
+        }
+        if (this.logFile != null) {
+            try {
+                List<String> lines = new ArrayList<>();
+                for (DomainEvent event : batch) {
+                    lines.add(this.objectMapper.writeValueAsString(event));
+                }
+                Files.write(this.logFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                logger.warn("Could not append domain events to " + this.logFile, ex);
+            }
+        }
+    }
+
+    /**
+     * Read position in the outbox of one database.
+     */
+    private class Outbox {
+
+        private final JdbcTemplate template;
+        private Long lastSequence;
+
+        // the first missing sequence number, and when it was found missing
+        private long gapSequence = -1;
+        private long gapSince;
+
+        Outbox(DataSource dataSource, int batchSize) {
+            this.template = new JdbcTemplate(dataSource);
+            this.template.setMaxRows(batchSize);
+        }
+
+        void start() {
+            try {
+                Long maxSequence = this.template.queryForObject("SELECT MAX(id) FROM domain_events", Long.class);
+                this.lastSequence = maxSequence != null ? maxSequence : -1;
+            } catch (DataAccessException ex) {
+                // not initialized yet, start with the first event
+                this.lastSequence = -1L;
+            }
+        }
+
+        /**
+         * Read the next batch of events, up to the first gap that may still be filled.
+         */
+        List<DomainEvent> next(long now) {
+            List<DomainEvent> batch = new ArrayList<>();
+            boolean[] blocked = new boolean[1];
+            this.template.query("SELECT id, aggregate, aggregate_id, event_type, data, created FROM domain_events "
+                + "WHERE id > ? ORDER BY id", rs -> {
+                long sequence = rs.getLong("id");
+                long created = rs.getLong("created");
+                long expected = batch.isEmpty() ? this.lastSequence + 1 : batch.get(batch.size() - 1).getSequence() + 1;
+                if (blocked[0]) {
+                    return;
+                }
+                if (sequence != expected) {
+                    if (this.gapSequence != expected) {
+                        this.gapSequence = expected;
+                        this.gapSince = now;
+                    }
+                    if (now - this.gapSince < properties.getGapTimeout().toMillis()) {
+                        blocked[0] = true;
+                        return;
+                    }
+                }
+                Map<String, Object> data;
+                try {
+                    data = objectMapper.readValue(rs.getString("data"), DATA_TYPE);
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Unreadable domain event " + sequence, ex);
+                }
+                int aggregateId = rs.getInt("aggregate_id");
+                batch.add(new DomainEvent(sequence, rs.getString("aggregate"), rs.wasNull() ? null : aggregateId,
+                    rs.getString("event_type"), data, created));
+            }, this.lastSequence);
+            if (!batch.isEmpty()) {
+                this.lastSequence = batch.get(batch.size() - 1).getSequence();
+            }
+            return batch;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.List;
+
+/**
+ * Receives the domain events of all nodes, in batches and in outbox order, on the relay
+ * thread. Beans implementing this interface are subscribed automatically.
+ *
+ * @author Jackie Shao
+ * @see DomainEventRelay
+ */
+public interface DomainEventSubscriber {
+
+    void onEvents(List<DomainEvent> events);
+
+}
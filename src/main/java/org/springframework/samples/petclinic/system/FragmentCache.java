@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Store for rendered HTML fragments, used by the <code>pc:cache</code> Thymeleaf attribute
+ * (see {@link FragmentCacheDialect}).
+ * <p>
+ * Templates name a fragment with a key built from entity ids (for example
+ * <code>pet:7:visits</code>). Every key has a change counter that is bumped through
+ * {@link #invalidate(String)} by the code paths that modify the data shown in that
+ * fragment, so a stale rendering is simply never looked up again and ages out of the
+ * underlying "fragments" cache. Invalidations are passed on to the other nodes through the
+ * {@link CacheInvalidationBus}. Only the keys invalidated since the last
+ * {@link #invalidateAll()} have a counter, and once {@value #MAX_VERSIONED_KEYS} have one
+ * the next invalidation of a new key marks every fragment as stale instead, so the
+ * counters do not grow with the number of pets.
+ * <p>
+ * Changes are numbered from a single sequence. A request takes a {@link #snapshot()} of it
+ * before its controller loads the model (see {@link FragmentCacheSnapshotInterceptor}), and
+ * a fragment is only stored if its key has not {@link #changedSince changed since}, so a
+ * rendering of data loaded before an invalidation is never kept under the new version.
+ * <p>
+ * Keys starting with <code>static:</code> name fragments of reference data (pet types,
+ * specialties) that the application never modifies. They are never invalidated and only
+ * change with a redeploy, which starts with an empty cache.
+ *
+ * @author Jackie Shao
+ */
+@Component
+public class FragmentCache {
+
+    static final String CACHE_NAME = "fragments";
+
+    static final String SNAPSHOT_ATTRIBUTE = FragmentCache.class.getName() + ".snapshot";
+
+    static final int MAX_VERSIONED_KEYS = 10_000;
+
+    private final Cache cache;
+    private final CacheInvalidationBus invalidationBus;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // replaced as a whole on a change of generation, so that readers see the counters of one
+    private volatile Versions versions = new Versions(0);
+
+    public FragmentCache(CacheManager cacheManager, CacheInvalidationBus invalidationBus) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        Assert.state(this.cache != null, "No '" + CACHE_NAME + "' cache configured");
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(CACHE_NAME, invalidation -> {
+            if (invalidation.getKey() != null) {
+                bump(invalidation.getKey());
+            } else {
+                bumpAll();
+            }
+        });
+    }
+
+    /**
+     * Key of the visit table rendered for a pet on the owner details page.
+     */
+    public static String petVisitsKey(Integer petId) {
+        return "pet:" + petId + ":visits";
+    }
+
+    /**
+     * Mark every fragment rendered under the given key as stale.
+     */
+    public void invalidate(String key) {
+        bump(key);
+        this.invalidationBus.publish(CACHE_NAME, key, Invalidation.UNVERSIONED);
+    }
+
+    /**
+     * Mark every rendered fragment as stale, for changes that are shown in many places
+     * (for example a vet name).
+     */
+    public void invalidateAll() {
+        bumpAll();
+        this.invalidationBus.publish(CACHE_NAME, null, Invalidation.UNVERSIONED);
+    }
+
+    /**
+     * Number of the last change, to be passed to {@link #changedSince} once the data read
+     * after it has been rendered.
+     */
+    public long snapshot() {
+        return this.sequence.get();
+    }
+
+    /**
+     * Whether the fragments under the given key have been invalidated after the snapshot.
+     */
+    boolean changedSince(String key, long snapshot) {
+        Versions versions = this.versions;
+        return versions.generation > snapshot || versions.of(key) > snapshot;
+    }
+
+    private synchronized void bump(String key) {
+        long change = this.sequence.incrementAndGet();
+        Versions versions = this.versions;
+        if (versions.ofKeys.size() >= MAX_VERSIONED_KEYS && !versions.ofKeys.containsKey(key)) {
+            this.versions = new Versions(change);
+        } else {
+            versions.ofKeys.put(key, change);
+        }
+    }
+
+    private synchronized void bumpAll() {
+        this.versions = new Versions(this.sequence.incrementAndGet());
+    }
+
+    String entryKey(String key, Object vary) {
+        Versions versions = this.versions;
+        return versions.generation + ":" + key + "@" + versions.of(key) + "#" + vary;
+    }
+
+    int getVersionedKeyCount() {
+        return this.versions.ofKeys.size();
+    }
+
+    String get(String entryKey) {
+        return this.cache.get(entryKey, String.class);
+    }
+
+    void put(String entryKey, String html) {
+        this.cache.put(entryKey, html);
+    }
+
+    /**
+     * The change counters of one generation: the last change to all fragments, and the
+     * last change to each key invalidated since.
+     */
+    private static class Versions {
+
+        private final long generation;
+        private final Map<String, Long> ofKeys = new ConcurrentHashMap<>();
+
+        Versions(long generation) {
+            this.generation = generation;
+        }
+
+        long of(String key) {
+            Long version = this.ofKeys.get(key);
+            return version != null ? version : 0;
+        }
+    }
+
+}
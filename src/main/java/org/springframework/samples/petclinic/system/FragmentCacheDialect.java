@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.dialect.IExecutionAttributeDialect;
+import org.thymeleaf.dialect.IPostProcessorDialect;
+import org.thymeleaf.engine.AbstractTemplateHandler;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IDocType;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IProcessingInstruction;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.ITemplateEvent;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.postprocessor.IPostProcessor;
+import org.thymeleaf.postprocessor.PostProcessor;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.standard.StandardDialect;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * Thymeleaf dialect adding fragment-level HTML caching through the <code>pc:cache</code>
+ * attribute, backed by the {@link FragmentCache}:
+ *
+ * <pre>
+ * &lt;table pc:cache="|pet:${pet.id}:visits|" pc:cache-vary="${hour}"&gt;...&lt;/table&gt;
+ * </pre>
+ * <p>
+ * On a hit the element is replaced by the cached markup and its body is never evaluated.
+ * On a miss the element is rendered normally and captured on its way to the output by a
+ * post-processor, which stores it for the next request. The optional
+ * <code>pc:cache-vary</code> value is appended to the key for renderings that also depend
+ * on request state (such as the selected option of a form field). A miss is not captured
+ * if the key was invalidated after the snapshot taken when the request started, as the
+ * model may then have been loaded before the change.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class FragmentCacheDialect extends AbstractProcessorDialect implements IPostProcessorDialect, IExecutionAttributeDialect {
+
+    private static final String PREFIX = "pc";
+    private static final String CAPTURE_ATTRIBUTE = "data-pc-cache";
+    private static final String FRAGMENT_CACHE_ATTRIBUTE = FragmentCache.class.getName();
+
+    // after the standard dialect, so th:each, th:if and th:with on the same element apply first
+    private static final int PRECEDENCE = StandardDialect.PROCESSOR_PRECEDENCE + 100;
+
+    private final FragmentCache fragmentCache;
+
+    public FragmentCacheDialect(FragmentCache fragmentCache) {
+        super("PetClinic Fragment Cache", PREFIX, PRECEDENCE);
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Collections.singleton(new CacheAttributeTagProcessor(dialectPrefix));
+    }
+
+    @Override
+    public int getDialectPostProcessorPrecedence() {
+        return PRECEDENCE;
+    }
+
+    @Override
+    public Set<IPostProcessor> getPostProcessors() {
+        return Collections.singleton(new PostProcessor(TemplateMode.HTML, FragmentCaptureHandler.class, PRECEDENCE));
+    }
+
+    @Override
+    public Map<String, Object> getExecutionAttributes() {
+        return Collections.singletonMap(FRAGMENT_CACHE_ATTRIBUTE, this.fragmentCache);
+    }
+
+    private static FragmentCache fragmentCache(ITemplateContext context) {
+        return (FragmentCache) context.getConfiguration().getExecutionAttributes().get(FRAGMENT_CACHE_ATTRIBUTE);
+    }
+
+    /**
+     * Serves the element from the cache, or marks it for capture by the {@link FragmentCaptureHandler}.
+     */
+    private static class CacheAttributeTagProcessor extends AbstractAttributeTagProcessor {
+
+        private static final String VARY_ATTRIBUTE = "cache-vary";
+
+        CacheAttributeTagProcessor(String dialectPrefix) {
+            super(TemplateMode.HTML, dialectPrefix, null, false, "cache", true, PRECEDENCE, true);
+        }
+
+        @Override
+        protected void doProcess(ITemplateContext context, IProcessableElementTag tag, AttributeName attributeName,
+                                 String attributeValue, IElementTagStructureHandler structureHandler) {
+            Object key = evaluate(context, attributeValue);
+            Object vary = null;
+            String varyExpression = tag.getAttributeValue(attributeName.getPrefix(), VARY_ATTRIBUTE);
+            if (varyExpression != null) {
+                vary = evaluate(context, varyExpression);
+                structureHandler.removeAttribute(attributeName.getPrefix(), VARY_ATTRIBUTE);
+            }
+            if (key == null) {
+                return;
+            }
+            FragmentCache fragmentCache = fragmentCache(context);
+            String entryKey = fragmentCache.entryKey(key.toString(), vary);
+            String html = fragmentCache.get(entryKey);
+            if (html != null) {
+                structureHandler.replaceWith(html, false);
+            } else if (isCurrent(context, fragmentCache, key.toString())) {
+                structureHandler.setAttribute(CAPTURE_ATTRIBUTE, entryKey);
+            }
+        }
+
+        /**
+         * Whether the model was loaded after the last change of the key, so its rendering may be stored.
+         */
+        private static boolean isCurrent(ITemplateContext context, FragmentCache fragmentCache, String key) {
+            Object snapshot = context.getVariable(FragmentCache.SNAPSHOT_ATTRIBUTE);
+            return !(snapshot instanceof Long) || !fragmentCache.changedSince(key, (Long) snapshot);
+        }
+
+        private static Object evaluate(ITemplateContext context, String expression) {
+            return StandardExpressions.getExpressionParser(context.getConfiguration())
+                .parseExpression(context, expression)
+                .execute(context);
+        }
+    }
+
+    /**
+     * Post-processor copying the rendered markup of every element marked by the
+     * {@link CacheAttributeTagProcessor} into the {@link FragmentCache}. Events are always
+     * passed on unchanged (apart from the removed marker attribute).
+     */
+    public static class FragmentCaptureHandler extends AbstractTemplateHandler {
+
+        private final Deque<Capture> captures = new ArrayDeque<>();
+
+        @Override
+        public void handleOpenElement(IOpenElementTag openElementTag) {
+            IOpenElementTag tag = openElementTag;
+            String entryKey = tag.getAttributeValue(CAPTURE_ATTRIBUTE);
+            if (entryKey != null) {
+                tag = getContext().getModelFactory().removeAttribute(tag, CAPTURE_ATTRIBUTE);
+                this.captures.push(new Capture(entryKey));
+            }
+            for (Capture capture : this.captures) {
+                capture.depth++;
+            }
+            capture(tag);
+            super.handleOpenElement(tag);
+        }
+
+        @Override
+        public void handleCloseElement(ICloseElementTag closeElementTag) {
+            capture(closeElementTag);
+            if (!closeElementTag.isUnmatched()) {
+                for (Iterator<Capture> it = this.captures.iterator(); it.hasNext();) {
+                    Capture capture = it.next();
+                    if (--capture.depth == 0) {
+                        fragmentCache(getContext()).put(capture.entryKey, capture.writer.toString());
+                        it.remove();
+                    }
+                }
+            }
+            super.handleCloseElement(closeElementTag);
+        }
+
+        @Override
+        public void handleStandaloneElement(IStandaloneElementTag standaloneElementTag) {
+            IStandaloneElementTag tag = standaloneElementTag;
+            String entryKey = tag.getAttributeValue(CAPTURE_ATTRIBUTE);
+            if (entryKey != null) {
+                tag = getContext().getModelFactory().removeAttribute(tag, CAPTURE_ATTRIBUTE);
+                StringWriter writer = new StringWriter();
+                write(tag, writer);
+                fragmentCache(getContext()).put(entryKey, writer.toString());
+            }
+            capture(tag);
+            super.handleStandaloneElement(tag);
+        }
+
+        @Override
+        public void handleText(IText text) {
+            capture(text);
+            super.handleText(text);
+        }
+
+        @Override
+        public void handleComment(IComment comment) {
+            capture(comment);
+            super.handleComment(comment);
+        }
+
+        @Override
+        public void handleCDATASection(ICDATASection cdataSection) {
+            capture(cdataSection);
+            super.handleCDATASection(cdataSection);
+        }
+
+        @Override
+        public void handleDocType(IDocType docType) {
+            capture(docType);
+            super.handleDocType(docType);
+        }
+
+        @Override
+        public void handleProcessingInstruction(IProcessingInstruction processingInstruction) {
+            capture(processingInstruction);
+            super.handleProcessingInstruction(processingInstruction);
+        }
+
+        private void capture(ITemplateEvent event) {
+            for (Capture capture : this.captures) {
+                write(event, capture.writer);
+            }
+        }
+
+        private static void write(ITemplateEvent event, StringWriter writer) {
+            try {
+                event.write(writer);
+            } catch (IOException ex) {
+                // cannot happen with a StringWriter
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private static class Capture {
+
+        private final String entryKey;
+        private final StringWriter writer = new StringWriter();
+        private int depth;
+
+        Capture(String entryKey) {
+            this.entryKey = entryKey;
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Records the {@link FragmentCache#snapshot()} in a request attribute before the handler
+ * loads the model, so fragments rendered from it are not stored if their key was
+ * invalidated in the meantime.
+ *
+ * @author Jackie Shao
+ */
+class FragmentCacheSnapshotInterceptor extends HandlerInterceptorAdapter {
+
+    private final FragmentCache fragmentCache;
+
+    FragmentCacheSnapshotInterceptor(FragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(FragmentCache.SNAPSHOT_ATTRIBUTE, this.fragmentCache.snapshot());
+        return true;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+/**
+ * Message telling every node that a cache entry, or a whole cache, is stale.
+ * <p>
+ * The version is the version of the data the entry was built from, such as an entity
+ * version. A node only applies an invalidation newer than the last one it applied for the
+ * same entry, so messages arriving late or twice never undo a newer one.
+ *
+ * @author Jackie Shao
+ * @see CacheInvalidationBus
+ */
+public final class Invalidation {
+
+    /**
+     * Version of invalidations that only bump change counters, which are always applied.
+     */
+    public static final long UNVERSIONED = -1;
+
+    private final String node;
+    private final String cacheName;
+    private final String key;
+    private final long version;
+
+    public Invalidation(String node, String cacheName, String key, long version) {
+        this.node = node;
+        this.cacheName = cacheName;
+        this.key = key;
+        this.version = version;
+    }
+
+    /**
+     * Return the node that published the invalidation.
+     */
+    public String getNode() {
+        return this.node;
+    }
+
+    public String getCacheName() {
+        return this.cacheName;
+    }
+
+    /**
+     * Return the stale key, or <code>null</code> if the whole cache is stale.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public boolean isVersioned() {
+        return this.version != UNVERSIONED;
+    }
+
+    @Override
+    public String toString() {
+        return this.cacheName + ":" + this.key + "@" + this.version + " from " + this.node;
+    }
+
+}
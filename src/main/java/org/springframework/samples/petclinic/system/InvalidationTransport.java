@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link Invalidation}s between the nodes of a deployment.
+ *
+ * @author Jackie Shao
+ * @see CacheInvalidationConfiguration
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Start delivering the invalidations of all nodes, including the ones sent by this node,
+     * to the given receiver.
+     */
+    void start(Consumer<Invalidation> receiver);
+
+    /**
+     * Send an invalidation to all nodes; may return before it is delivered.
+     */
+    void send(Invalidation invalidation);
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Carries invalidations through the <code>cache_invalidations</code> table of the shared
+ * database, which every node polls at a fixed interval; an invalidation reaches the other
+ * nodes within about twice that interval.
+ * <p>
+ * Rows are written and read on a background thread, so they always go to the primary
+ * database and never take part in a request's transaction. Ids are handed out before
+ * commit and may become visible out of order, so each poll looks back a few rows and
+ * skips the ones already delivered. Rows older than the retention are removed.
+ *
+ * @author Jackie Shao
+ */
+class OutboxInvalidationTransport implements InvalidationTransport, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(OutboxInvalidationTransport.class);
+
+    private static final int LOOKBACK = 100;
+
+    private final JdbcTemplate template;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final ConcurrentLinkedQueue<Invalidation> outgoing = new ConcurrentLinkedQueue<>();
+    private final Set<Long> delivered = new LinkedHashSet<>();
+
+    private Consumer<Invalidation> receiver;
+    private ScheduledExecutorService poller;
+    private Long startId;
+    private long lastId;
+    private long lastPurge;
+
+    OutboxInvalidationTransport(DataSource dataSource, Duration pollInterval, Duration retention) {
+        this.template = new JdbcTemplate(dataSource);
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+    }
+
+    @Override
+    public void start(Consumer<Invalidation> receiver) {
+        this.receiver = receiver;
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = this.pollInterval.toMillis();
+        this.poller.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(Invalidation invalidation) {
+        this.outgoing.add(invalidation);
+    }
+
+    @Override
+    public void destroy() {
+        if (this.poller != null) {
+            this.poller.shutdownNow();
+        }
+    }
+
+    /**
+     * Write the queued invalidations, then deliver the ones written since the last poll.
+     */
+    void poll() {
+        try {
+            long now = System.currentTimeMillis();
+            if (this.startId == null) {
+                // invalidations written before this node started are of no interest
+                Long maxId = this.template.queryForObject("SELECT MAX(id) FROM cache_invalidations", Long.class);
+                this.startId = maxId != null ? maxId : -1;
+                this.lastId = this.startId;
+            }
+            Invalidation invalidation;
+            while ((invalidation = this.outgoing.peek()) != null) {
+                this.template.update("INSERT INTO cache_invalidations (node, cache_name, cache_key, version, created) "
+                        + "VALUES (?, ?, ?, ?, ?)", invalidation.getNode(), invalidation.getCacheName(),
+                    invalidation.getKey(), invalidation.getVersion(), now);
+                this.outgoing.poll();
+            }
+            List<Long> ids = new ArrayList<>();
+            List<Invalidation> invalidations = new ArrayList<>();
+            this.template.query("SELECT id, node, cache_name, cache_key, version FROM cache_invalidations "
+                + "WHERE id > ? ORDER BY id", rs -> {
+                ids.add(rs.getLong("id"));
+                invalidations.add(new Invalidation(rs.getString("node"), rs.getString("cache_name"),
+                    rs.getString("cache_key"), rs.getLong("version")));
+            }, Math.max(-1, this.lastId - LOOKBACK));
+            for (int i = 0; i < ids.size(); i++) {
+                long id = ids.get(i);
+                if (id > this.startId && this.delivered.add(id)) {
+                    this.receiver.accept(invalidations.get(i));
+                }
+                this.lastId = Math.max(this.lastId, id);
+            }
+            this.delivered.removeIf(id -> id <= this.lastId - 2 * LOOKBACK);
+            if (now - this.lastPurge > this.retention.toMillis()) {
+                this.template.update("DELETE FROM cache_invalidations WHERE created < ?", now - this.retention.toMillis());
+                this.lastPurge = now;
+            }
+        } catch (DataAccessException ex) {
+            logger.warn("Could not exchange cache invalidations", ex);
+        }
+    }
+
+}
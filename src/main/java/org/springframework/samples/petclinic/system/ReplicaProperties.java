@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read replica settings, bound from the <code>petclinic.datasource.replicas</code> properties.
+ *
+ * @author Jackie Shao
+ * @see ReplicaRoutingConfiguration
+ */
+@ConfigurationProperties("petclinic.datasource.replicas")
+public class ReplicaProperties {
+
+    /**
+     * JDBC urls of the replicas; read-only transactions are only routed when at least one is set.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * Login of the replicas, defaults to the one of the primary.
+     */
+    private String username;
+
+    private String password;
+
+    /**
+     * How far a replica may be behind the primary and still serve reads.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /**
+     * How often the heartbeat is written to the primary and read back from the replicas.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(1);
+
+    /**
+     * Whether to run the primary's schema and data scripts on the replicas, for replicas
+     * that are not fed by real replication (such as embedded databases). The heartbeat is
+     * not replicated to those either, so they only serve reads once a row is inserted into
+     * their <code>replication_heartbeat</code> table by hand.
+     */
+    private boolean initialize;
+
+    public List<String> getUrls() {
+        return this.urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    public String getUsername() {
+        return this.username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return this.password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public Duration getMaxLag() {
+        return this.maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return this.heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public boolean isInitialize() {
+        return this.initialize;
+    }
+
+    public void setInitialize(boolean initialize) {
+        this.initialize = initialize;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Routes read-only transactions to the read replicas listed in
+ * <code>petclinic.datasource.replicas.urls</code>; without replicas the single
+ * auto-configured DataSource is used as before.
+ *
+ * @author Jackie Shao
+ * @see ReplicaRoutingDataSource
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "petclinic.datasource.replicas", name = "urls")
+@EnableConfigurationProperties(ReplicaProperties.class)
+class ReplicaRoutingConfiguration {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties, ReplicaProperties replicaProperties,
+                                               ResourceLoader resourceLoader) throws IOException {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaProperties.getUrls()) {
+            DataSource replica = DataSourceBuilder.create(properties.getClassLoader())
+                .type(properties.getType())
+                .url(url)
+                .username(replicaProperties.getUsername() != null ? replicaProperties.getUsername() : properties.determineUsername())
+                .password(replicaProperties.getPassword() != null ? replicaProperties.getPassword() : properties.determinePassword())
+                .build();
+            if (replicaProperties.isInitialize()) {
+                initialize(replica, properties, resourceLoader);
+            }
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getMaxLag(),
+            replicaProperties.getHeartbeatInterval());
+    }
+
+    private static void initialize(DataSource replica, DataSourceProperties properties, ResourceLoader resourceLoader)
+        throws IOException {
+        ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        populator.setSqlScriptEncoding(properties.getSqlScriptEncoding() != null ? properties.getSqlScriptEncoding().name() : null);
+        populator.setSeparator(properties.getSeparator());
+        List<String> locations = new ArrayList<>();
+        if (properties.getSchema() != null) {
+            locations.addAll(properties.getSchema());
+        }
+        if (properties.getData() != null) {
+            locations.addAll(properties.getData());
+        }
+        for (String location : locations) {
+            populator.addScripts(resolver.getResources(location));
+        }
+        populator.execute(replica);
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * DataSource sending read-only transactions to a read replica and everything else to the
+ * primary.
+ * <p>
+ * Replica lag is tracked with a heartbeat: the current time is written to the
+ * <code>replication_heartbeat</code> table of the primary at a fixed interval and read back
+ * from every replica, which tells up to when each replica is complete. A replica only
+ * serves a read if it is no further behind than the allowed lag <i>and</i> already has the
+ * last write committed through this DataSource, so a page rendered right after a form
+ * submission shows the submitted data. When no replica qualifies the read goes to the
+ * primary, including the replicas that have no heartbeat at all.
+ * <p>
+ * The routing decision needs the read-only flag of the transaction, which Spring only sets
+ * after the transaction has begun, so connections are handed out as lazy proxies that pick
+ * the database on the first statement.
+ *
+ * @author Jackie Shao
+ */
+class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private static final Log logger = LogFactory.getLog(ReplicaRoutingDataSource.class);
+
+    private final Router router = new Router();
+    private final DataSource primary;
+    private final JdbcTemplate primaryTemplate;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final Duration heartbeatInterval;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile long lastWrite;
+    private ScheduledExecutorService heartbeat;
+
+    private final TransactionSynchronization writeTracker = new TransactionSynchronizationAdapter() {
+
+        @Override
+        public void afterCommit() {
+            // reads stay on the primary until the replicas have a heartbeat written after now
+            lastWrite = System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Create a new routing DataSource.
+     * @param primary the primary database
+     * @param replicas the read replicas of the primary
+     * @param maxLag how far a replica may be behind and still serve reads
+     * @param heartbeatInterval how often the heartbeat is written and checked, or zero to
+     * only do so through {@link #beat()}
+     */
+    ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag, Duration heartbeatInterval) {
+        this.primary = primary;
+        this.primaryTemplate = new JdbcTemplate(primary);
+        this.maxLagMillis = maxLag.toMillis();
+        this.heartbeatInterval = heartbeatInterval;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (DataSource replica : replicas) {
+            Replica state = new Replica("replica-" + this.replicas.size(), replica);
+            this.replicas.add(state);
+            targetDataSources.put(state.key, replica);
+        }
+        this.router.setTargetDataSources(targetDataSources);
+        this.router.setDefaultTargetDataSource(primary);
+        setTargetDataSource(this.router);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.router.afterPropertiesSet();
+        super.afterPropertiesSet();
+        if (!this.heartbeatInterval.isZero()) {
+            this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = this.heartbeatInterval.toMillis();
+            // the first beat waits one interval, so the schema can be initialized first
+            this.heartbeat.scheduleWithFixedDelay(this::beat, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (this.heartbeat != null) {
+            this.heartbeat.shutdownNow();
+        }
+        close(this.primary);
+        for (Replica replica : this.replicas) {
+            close(replica.dataSource);
+        }
+    }
+
+    private static void close(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+
+    /**
+     * Write the heartbeat to the primary, then read it back from every replica.
+     */
+    void beat() {
+        long now = System.currentTimeMillis();
+        try {
+            if (this.primaryTemplate.update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", now) == 0) {
+                this.primaryTemplate.update("INSERT INTO replication_heartbeat (id, beat) VALUES (1, ?)", now);
+            }
+        } catch (DataAccessException ex) {
+            logger.warn("Could not write replication heartbeat to the primary", ex);
+        }
+        checkReplicas();
+    }
+
+    /**
+     * Read the heartbeat of every replica; a replica that cannot be read no longer serves reads.
+     */
+    void checkReplicas() {
+        for (Replica replica : this.replicas) {
+            try {
+                replica.completeUntil = replica.template.queryForObject(
+                    "SELECT beat FROM replication_heartbeat WHERE id = 1", Long.class);
+            } catch (EmptyResultDataAccessException ex) {
+                replica.completeUntil = -1;
+            } catch (DataAccessException ex) {
+                if (replica.completeUntil >= 0) {
+                    logger.warn("Replica " + replica.key + " is not available, reading from the primary", ex);
+                }
+                replica.completeUntil = -1;
+            }
+        }
+    }
+
+    private Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(this.writeTracker);
+            }
+            return PRIMARY;
+        }
+        long requiredUntil = Math.max(this.lastWrite, System.currentTimeMillis() - this.maxLagMillis);
+        int size = this.replicas.size();
+        int start = Math.floorMod(this.nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = this.replicas.get((start + i) % size);
+            if (replica.completeUntil >= requiredUntil) {
+                return replica.key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private class Router extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return ReplicaRoutingDataSource.this.determineCurrentLookupKey();
+        }
+    }
+
+    private static class Replica {
+
+        private final String key;
+        private final DataSource dataSource;
+        private final JdbcTemplate template;
+        private volatile long completeUntil = -1;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+            this.template = new JdbcTemplate(dataSource);
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Creates the repositories with an {@link AdvisedJpaRepositoryFactoryBean}, so sharding and
+ * the domain event outbox can advise them.
+ *
+ * @author Jackie Shao
+ */
+@Configuration
+@EnableJpaRepositories(basePackages = "org.springframework.samples.petclinic",
+    repositoryFactoryBeanClass = AdvisedJpaRepositoryFactoryBean.class)
+class RepositoryConfiguration {
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Runs the request on the shard of the owner in its path, so pets and visits, which are
+ * looked up by their own ids, are read from the shard of their owner.
+ *
+ * @author Jackie Shao
+ */
+class ShardContextInterceptor extends HandlerInterceptorAdapter {
+
+    private final ShardRoutingDataSource dataSource;
+
+    ShardContextInterceptor(ShardRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+            HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String ownerId = variables != null ? variables.get("ownerId") : null;
+        if (ownerId != null && ownerId.matches("\\d{1,9}")) {
+            this.dataSource.setCurrentShard(this.dataSource.shardOf(Integer.valueOf(ownerId)));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        this.dataSource.setCurrentShard(null);
+    }
+
+}
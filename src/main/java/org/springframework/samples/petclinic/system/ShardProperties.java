@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Owner shard settings, bound from the <code>petclinic.datasource.shards</code> properties.
+ * Sharding replaces the <code>spring.datasource</code> database and cannot be combined with
+ * read replicas.
+ *
+ * @author Jackie Shao
+ * @see ShardingConfiguration
+ */
+@ConfigurationProperties("petclinic.datasource.shards")
+public class ShardProperties {
+
+    /**
+     * JDBC urls of the shards. The first one is the global shard, which also owns the
+     * reference data (vets, specialties and pet types) copied to the other shards.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * Login of the shards, defaults to the one of <code>spring.datasource</code>.
+     */
+    private String username;
+
+    private String password;
+
+    /**
+     * Whether to run the schema and data scripts on every shard and keep only the owners
+     * (with their pets and visits) that belong to it, for local databases.
+     */
+    private boolean initialize;
+
+    public List<String> getUrls() {
+        return this.urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    public String getUsername() {
+        return this.username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return this.password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public boolean isInitialize() {
+        return this.initialize;
+    }
+
+    public void setInitialize(boolean initialize) {
+        this.initialize = initialize;
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Runs repository methods on the right shard, before any transaction is started:
+ * <ul>
+ * <li>on the shard of the owner given by a {@link ShardKey} parameter,</li>
+ * <li>on all shards for {@link AllShards} methods, adding up the row counts of modifying
+ * ones,</li>
+ * <li>on the global shard for {@link ReferenceData} repositories, copying the reference
+ * data to the other shards after writes, or after the commit of the transaction they
+ * take part in,</li>
+ * <li>on the current shard of the thread otherwise.</li>
+ * </ul>
+ *
+ * @author Jackie Shao
+ */
+class ShardRepositoryInterceptor implements MethodInterceptor {
+
+    private final ShardRoutingDataSource dataSource;
+    private final Class<?> repositoryInterface;
+    private final Map<Method, Routing> routings = new ConcurrentHashMap<>();
+
+    private final TransactionSynchronization replication = new TransactionSynchronizationAdapter() {
+
+        @Override
+        public void afterCommit() {
+            dataSource.replicateReferenceData();
+        }
+    };
+
+    ShardRepositoryInterceptor(ShardRoutingDataSource dataSource, Class<?> repositoryInterface) {
+        this.dataSource = dataSource;
+        this.repositoryInterface = repositoryInterface;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Routing routing = this.routings.computeIfAbsent(invocation.getMethod(), this::routing);
+        if (routing.shardKey >= 0) {
+            Object key = invocation.getArguments()[routing.shardKey];
+            if (key != null && !routing.shardKeyPath.isEmpty()) {
+                key = new BeanWrapperImpl(key).getPropertyValue(routing.shardKeyPath);
+            }
+            return this.dataSource.callOnShard(this.dataSource.shardOf((Integer) key), invocation::proceed);
+        }
+        if (routing.allShards != null) {
+            List<Object> results = this.dataSource.callOnAllShards(
+                () -> ((ProxyMethodInvocation) invocation).invocableClone().proceed());
+            return merge(results, routing.allShards, invocation);
+        }
+        if (routing.referenceData) {
+            Object result = this.dataSource.callOnShard(ShardRoutingDataSource.GLOBAL_SHARD, invocation::proceed);
+            if (routing.write) {
+                replicateReferenceData();
+            }
+            return result;
+        }
+        return invocation.proceed();
+    }
+
+    private void replicateReferenceData() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.dataSource.replicateReferenceData();
+        } else if (!TransactionSynchronizationManager.getSynchronizations().contains(this.replication)) {
+            // the other shards cannot read the changes before they are committed
+            TransactionSynchronizationManager.registerSynchronization(this.replication);
+        }
+    }
+
+    private Routing routing(Method method) {
+        Routing routing = new Routing();
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            ShardKey shardKey = AnnotationUtils.findAnnotation(method.getParameters()[i], ShardKey.class);
+            if (shardKey != null) {
+                routing.shardKey = i;
+                routing.shardKeyPath = shardKey.value();
+            }
+        }
+        routing.allShards = AnnotationUtils.findAnnotation(method, AllShards.class);
+        routing.referenceData = AnnotationUtils.findAnnotation(this.repositoryInterface, ReferenceData.class) != null;
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+        routing.write = transactional == null || !transactional.readOnly();
+        return routing;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object merge(List<Object> results, AllShards allShards, MethodInvocation invocation) {
+        Class<?> returnType = invocation.getMethod().getReturnType();
+        if ((returnType == int.class || returnType == Integer.class)
+            && AnnotationUtils.findAnnotation(invocation.getMethod(), Modifying.class) != null) {
+            // counts of modified rows add up
+            return results.stream().filter(result -> result != null).mapToInt(result -> (Integer) result).sum();
+        }
+        if (!Collection.class.isAssignableFrom(returnType)) {
+            return results.stream().filter(result -> result != null).findFirst().orElse(null);
+        }
+        List<Object> merged = new ArrayList<>();
+        for (Object result : results) {
+            if (result != null) {
+                merged.addAll((Collection<?>) result);
+            }
+        }
+        if (StringUtils.hasLength(allShards.orderBy())) {
+            // read every sort key once rather than on every comparison
+            Map<Object, Comparable> keys = new IdentityHashMap<>();
+            for (Object element : merged) {
+                keys.put(element, (Comparable) new BeanWrapperImpl(element).getPropertyValue(allShards.orderBy()));
+            }
+            merged.sort(Comparator.comparing(keys::get, Comparator.nullsLast(Comparator.naturalOrder())));
+        }
+        for (Object argument : invocation.getArguments()) {
+            if (argument instanceof Pageable && ((Pageable) argument).isPaged()
+                && merged.size() > ((Pageable) argument).getPageSize()) {
+                merged = new ArrayList<>(merged.subList(0, ((Pageable) argument).getPageSize()));
+            }
+        }
+        return merged;
+    }
+
+    private static class Routing {
+
+        private int shardKey = -1;
+        private String shardKeyPath;
+        private AllShards allShards;
+        private boolean referenceData;
+        private boolean write;
+    }
+
+}
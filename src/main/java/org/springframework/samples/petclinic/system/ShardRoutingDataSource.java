@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * DataSource spreading owners, with their pets and visits, over several databases.
+ * <p>
+ * The shard of an owner follows from its id, <code>(id - 1) mod shards</code>, so no lookup
+ * table is needed; the shards hand out ids of their own residue class, which keeps ids
+ * unique across shards and new owners on the shard they were inserted into. Statements run
+ * on the current shard of the thread, which is set around repository calls and web requests
+ * that name an owner, and default to the first, global shard. That shard is also the
+ * authoritative copy of the vets, specialties and pet types, which every shard has a copy of.
+ * <p>
+ * The shard is only known once the calling code has set it, so connections are handed out
+ * as lazy proxies that pick the database on the first statement.
+ *
+ * @author Jackie Shao
+ */
+class ShardRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    static final int GLOBAL_SHARD = 0;
+
+    private final Router router = new Router();
+    private final List<DataSource> shards;
+    private final ThreadLocal<Integer> currentShard = new ThreadLocal<>();
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ExecutorService scatter;
+
+    /**
+     * Create a new routing DataSource.
+     * @param shards the shard databases, the global shard first
+     */
+    ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = new ArrayList<>(shards);
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targetDataSources.put(i, shards.get(i));
+        }
+        this.router.setTargetDataSources(targetDataSources);
+        this.router.setDefaultTargetDataSource(shards.get(GLOBAL_SHARD));
+        setTargetDataSource(this.router);
+        AtomicInteger threads = new AtomicInteger();
+        this.scatter = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.router.afterPropertiesSet();
+        super.afterPropertiesSet();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        this.scatter.shutdownNow();
+        for (DataSource shard : this.shards) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+
+    int getShardCount() {
+        return this.shards.size();
+    }
+
+    DataSource getShard(int shard) {
+        return this.shards.get(shard);
+    }
+
+    /**
+     * Return the shard of an owner, or the next shard in turn for a new owner.
+     * @param ownerId the id of the owner, or <code>null</code> for a new owner
+     */
+    int shardOf(Integer ownerId) {
+        if (ownerId == null) {
+            return Math.floorMod(this.nextShard.getAndIncrement(), this.shards.size());
+        }
+        return Math.floorMod(ownerId - 1, this.shards.size());
+    }
+
+    /**
+     * Return the shard statements of the current thread run on, or <code>null</code> for the
+     * global shard.
+     */
+    Integer getCurrentShard() {
+        return this.currentShard.get();
+    }
+
+    void setCurrentShard(Integer shard) {
+        if (shard == null) {
+            this.currentShard.remove();
+        } else {
+            this.currentShard.set(shard);
+        }
+    }
+
+    /**
+     * Run a task on the given shard of the current thread.
+     */
+    <T> T callOnShard(int shard, ShardTask<T> task) throws Throwable {
+        Integer previous = getCurrentShard();
+        setCurrentShard(shard);
+        try {
+            return task.call();
+        } finally {
+            setCurrentShard(previous);
+        }
+    }
+
+    /**
+     * Run a task on every shard in parallel.
+     * @return the results in shard order
+     */
+    <T> List<T> callOnAllShards(ShardTask<T> task) throws Throwable {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            int shard = i;
+            futures.add(this.scatter.submit(() -> {
+                try {
+                    return callOnShard(shard, task);
+                } catch (Exception | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new ExecutionException(ex);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof ExecutionException ? cause.getCause() : cause;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * Copy the vets, specialties and pet types of the global shard to the other shards.
+     * Rows are updated in place, as pets and visits refer to them, and never removed.
+     */
+    void replicateReferenceData() {
+        JdbcTemplate global = new JdbcTemplate(this.shards.get(GLOBAL_SHARD));
+        List<Map<String, Object>> vets = global.queryForList("SELECT id, first_name, last_name, version FROM vets");
+        List<Map<String, Object>> specialties = global.queryForList("SELECT id, name, version FROM specialties");
+        List<Map<String, Object>> types = global.queryForList("SELECT id, name, version FROM types");
+        List<Map<String, Object>> vetSpecialties = global.queryForList("SELECT vet_id, specialty_id FROM vet_specialties");
+        for (int i = GLOBAL_SHARD + 1; i < this.shards.size(); i++) {
+            DataSource shard = this.shards.get(i);
+            JdbcTemplate template = new JdbcTemplate(shard);
+            new TransactionTemplate(new DataSourceTransactionManager(shard)).execute(status -> {
+                for (Map<String, Object> vet : vets) {
+                    if (template.update("UPDATE vets SET first_name = ?, last_name = ?, version = ? WHERE id = ?",
+                        vet.get("first_name"), vet.get("last_name"), vet.get("version"), vet.get("id")) == 0) {
+                        template.update("INSERT INTO vets (id, first_name, last_name, version) VALUES (?, ?, ?, ?)",
+                            vet.get("id"), vet.get("first_name"), vet.get("last_name"), vet.get("version"));
+                    }
+                }
+                copyNamed(template, "specialties", specialties);
+                copyNamed(template, "types", types);
+                template.update("DELETE FROM vet_specialties");
+                for (Map<String, Object> vetSpecialty : vetSpecialties) {
+                    template.update("INSERT INTO vet_specialties (vet_id, specialty_id) VALUES (?, ?)",
+                        vetSpecialty.get("vet_id"), vetSpecialty.get("specialty_id"));
+                }
+                return null;
+            });
+        }
+    }
+
+    private static void copyNamed(JdbcTemplate template, String table, List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            if (template.update("UPDATE " + table + " SET name = ?, version = ? WHERE id = ?",
+                row.get("name"), row.get("version"), row.get("id")) == 0) {
+                template.update("INSERT INTO " + table + " (id, name, version) VALUES (?, ?, ?)",
+                    row.get("id"), row.get("name"), row.get("version"));
+            }
+        }
+    }
+
+    /**
+     * Task run on one shard, such as a repository method invocation.
+     */
+    interface ShardTask<T> {
+
+        T call() throws Throwable;
+    }
+
+    private class Router extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            Integer shard = getCurrentShard();
+            return shard != null ? shard : GLOBAL_SHARD;
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DataSourceInitializationMode;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.data.repository.core.support.RepositoryProxyPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spreads owners over the databases listed in <code>petclinic.datasource.shards.urls</code>;
+ * without shards the single auto-configured DataSource is used as before.
+ * <p>
+ * Repository methods are routed with the {@link ShardKey}, {@link AllShards} and
+ * {@link ReferenceData} annotations, and web requests naming an owner run on its shard.
+ * Each shard has to hand out ids of its own residue class: on MySQL that is
+ * <code>auto_increment_increment</code> set to the number of shards and
+ * <code>auto_increment_offset</code> to the shard number plus one, on embedded HSQLDB
+ * shards <code>initialize</code> takes care of it.
+ *
+ * @author Jackie Shao
+ * @see ShardRoutingDataSource
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "petclinic.datasource.shards", name = "urls")
+@EnableConfigurationProperties(ShardProperties.class)
+class ShardingConfiguration {
+
+    private static final String[] OWNER_TABLES = { "owners", "pets", "visits" };
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties, ShardProperties shardProperties,
+                                             ResourceLoader resourceLoader) throws IOException {
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : shardProperties.getUrls()) {
+            DataSource shard = DataSourceBuilder.create(properties.getClassLoader())
+                .type(properties.getType())
+                .driverClassName(properties.getDriverClassName())
+                .url(url)
+                .username(shardProperties.getUsername() != null ? shardProperties.getUsername() : properties.determineUsername())
+                .password(shardProperties.getPassword() != null ? shardProperties.getPassword() : properties.determinePassword())
+                .build();
+            if (shardProperties.isInitialize()) {
+                initialize(shard, shards.size(), shardProperties.getUrls().size(), properties, resourceLoader);
+            }
+            shards.add(shard);
+        }
+        if (shardProperties.isInitialize()) {
+            // the global shard is initialized above, the scripts must not run on it again
+            properties.setInitializationMode(DataSourceInitializationMode.NEVER);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Release the connection after every transaction, so that an open session in view does
+     * not hold on to the shard of its first one.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardConnectionHandlingCustomizer() {
+        return hibernateProperties -> hibernateProperties.put("hibernate.connection.handling_mode",
+            "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    /**
+     * Route repository methods before any other advice, in particular before a transaction begins.
+     */
+    @Bean
+    @Order(0)
+    public RepositoryProxyPostProcessor shardRepositoryPostProcessor(ShardRoutingDataSource dataSource) {
+        return (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+            new ShardRepositoryInterceptor(dataSource, repositoryInformation.getRepositoryInterface()));
+    }
+
+    @Bean
+    public WebMvcConfigurer shardContextConfigurer(ShardRoutingDataSource dataSource) {
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ShardContextInterceptor(dataSource));
+            }
+        };
+    }
+
+    /**
+     * Run the schema and data scripts on an embedded HSQLDB shard, remove the owners of the
+     * other shards and restart the ids after the highest one of all shards.
+     */
+    private static void initialize(DataSource shard, int index, int count, DataSourceProperties properties,
+                                   ResourceLoader resourceLoader) throws IOException {
+        ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        populator.setSqlScriptEncoding(properties.getSqlScriptEncoding() != null ? properties.getSqlScriptEncoding().name() : null);
+        populator.setSeparator(properties.getSeparator());
+        List<String> locations = new ArrayList<>();
+        if (properties.getSchema() != null) {
+            locations.addAll(properties.getSchema());
+        }
+        if (properties.getData() != null) {
+            locations.addAll(properties.getData());
+        }
+        for (String location : locations) {
+            populator.addScripts(resolver.getResources(location));
+        }
+        populator.execute(shard);
+
+        JdbcTemplate template = new JdbcTemplate(shard);
+        List<Integer> maxIds = new ArrayList<>();
+        for (String table : OWNER_TABLES) {
+            Integer maxId = template.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+            maxIds.add(maxId != null ? maxId : 0);
+        }
+        template.update("DELETE FROM visits WHERE pet_id IN (SELECT id FROM pets WHERE MOD(owner_id - 1, ?) <> ?)",
+            count, index);
+        template.update("DELETE FROM pets WHERE MOD(owner_id - 1, ?) <> ?", count, index);
+        template.update("DELETE FROM owners WHERE MOD(id - 1, ?) <> ?", count, index);
+        // the seed activity counts the visits of all shards, count the remaining ones again
+        template.update("DELETE FROM vet_day_activity");
+        template.update("INSERT INTO vet_day_activity (vet_id, activity_day, visits, cancellations) "
+            + "SELECT vet_id, CAST(visit_time AS DATE), COUNT(*), 0 FROM visits GROUP BY vet_id, CAST(visit_time AS DATE)");
+        template.update("DELETE FROM pet_type_activity");
+        template.update("INSERT INTO pet_type_activity (type_id, visits, cancellations) "
+            + "SELECT pets.type_id, COUNT(*), 0 FROM visits, pets WHERE visits.pet_id = pets.id GROUP BY pets.type_id");
+        for (int i = 0; i < OWNER_TABLES.length; i++) {
+            // the first id above the highest seed id with (id - 1) mod count = index
+            int restartWith = maxIds.get(i) + 1 + Math.floorMod(index - maxIds.get(i), count);
+            template.execute("ALTER TABLE " + OWNER_TABLES[i] + " ALTER COLUMN id RESTART WITH " + restartWith
+                + " SET INCREMENT BY " + count);
+        }
+    }
+
+}
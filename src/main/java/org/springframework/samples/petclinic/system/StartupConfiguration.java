@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Startup timeline at <code>/manage/startup</code>, and the shortcuts of the
+ * <code>fast</code> profile for the single default database: a binary snapshot instead of
+ * the SQL scripts, JPA bootstrapped in the background and beans created when first needed.
+ *
+ * @author Jackie Shao
+ * @see StartupProperties
+ */
+@Configuration
+@EnableConfigurationProperties(StartupProperties.class)
+class StartupConfiguration {
+
+    private static final String PREFIX = "petclinic.startup";
+
+    @Bean
+    public static StartupTimeline startupTimeline() {
+        return new StartupTimeline();
+    }
+
+    @Bean
+    public StartupTimelineEndpoint startupTimelineEndpoint(StartupTimeline timeline) {
+        return new StartupTimelineEndpoint(timeline);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "snapshot")
+    public DataSource dataSource(DataSourceProperties properties, StartupProperties startupProperties,
+                                 ResourceLoader resourceLoader) throws IOException {
+        ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        populator.setSqlScriptEncoding(properties.getSqlScriptEncoding() != null ? properties.getSqlScriptEncoding().name() : null);
+        populator.setSeparator(properties.getSeparator());
+        List<String> locations = new ArrayList<>();
+        if (properties.getSchema() != null) {
+            locations.addAll(properties.getSchema());
+        }
+        if (properties.getData() != null) {
+            locations.addAll(properties.getData());
+        }
+        List<Resource> scripts = new ArrayList<>();
+        for (String location : locations) {
+            scripts.addAll(Arrays.asList(resolver.getResources(location)));
+        }
+        return properties.initializeDataSourceBuilder()
+            .url(DatabaseSnapshot.url(startupProperties.getSnapshot(), scripts, populator))
+            .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "lazy-initialization", havingValue = "true")
+    public static BeanFactoryPostProcessor lazyInitialization() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (definition.isSingleton() && definition.getRole() == BeanDefinition.ROLE_APPLICATION
+                    && !worksOnItsOwn(definition, beanFactory)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * Whether a bean has to be created at startup even if nothing needs it: it holds
+     * resources or threads of its own, or it expects the callback once all singletons are
+     * created. Only the declared type is checked, the bean is not created for it.
+     */
+    private static boolean worksOnItsOwn(BeanDefinition definition, ConfigurableListableBeanFactory beanFactory) {
+        String typeName = definition.getBeanClassName();
+        if (definition instanceof AnnotatedBeanDefinition
+            && ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() != null) {
+            typeName = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata().getReturnTypeName();
+        }
+        if (typeName == null) {
+            return true;
+        }
+        try {
+            Class<?> type = ClassUtils.forName(typeName, beanFactory.getBeanClassLoader());
+            return DisposableBean.class.isAssignableFrom(type) || Lifecycle.class.isAssignableFrom(type)
+                || SmartInitializingSingleton.class.isAssignableFrom(type);
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return true;
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "deferred-jpa", havingValue = "true")
+    public static DeferredJpaBootstrap deferredJpaBootstrap() {
+        return new DeferredJpaBootstrap();
+    }
+
+    /**
+     * Bootstraps the EntityManagerFactory in the background, and has repositories created on
+     * first use, so startup only waits for JPA once a repository is called.
+     */
+    static class DeferredJpaBootstrap implements BeanFactoryPostProcessor, BeanPostProcessor {
+
+        /**
+         * Reads the properties of the EntityManagerFactory as soon as it is created, which
+         * waits for the bootstrap, to run the data scripts after Hibernate created the
+         * schema; this application never has Hibernate create the schema.
+         */
+        private static final String DATA_SOURCE_INITIALIZED_PUBLISHER = "dataSourceInitializedPublisher";
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            if (beanFactory instanceof BeanDefinitionRegistry
+                && beanFactory.containsBeanDefinition(DATA_SOURCE_INITIALIZED_PUBLISHER)) {
+                ((BeanDefinitionRegistry) beanFactory).removeBeanDefinition(DATA_SOURCE_INITIALIZED_PUBLISHER);
+            }
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            if (bean instanceof AbstractEntityManagerFactoryBean) {
+                ((AbstractEntityManagerFactoryBean) bean).setBootstrapExecutor(new SimpleAsyncTaskExecutor("jpa-bootstrap-"));
+            } else if (bean instanceof RepositoryFactoryBeanSupport) {
+                ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).setLazyInit(true);
+            }
+            return bean;
+        }
+    }
+
+}
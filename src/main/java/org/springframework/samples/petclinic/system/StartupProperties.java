@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Startup settings, bound from the <code>petclinic.startup</code> properties and all set by
+ * the <code>fast</code> profile.
+ *
+ * @author Jackie Shao
+ * @see StartupConfiguration
+ */
+@ConfigurationProperties("petclinic.startup")
+public class StartupProperties {
+
+    /**
+     * Directory of the binary HSQLDB snapshots of the schema and data scripts. When set, the
+     * database is opened from the snapshot of the current scripts, built on first use,
+     * instead of running the scripts; set <code>spring.datasource.initialization-mode</code>
+     * to <code>never</code> along with it.
+     */
+    private Path snapshot;
+
+    /**
+     * Whether beans are only created when first needed, except those that work on their own
+     * such as the relays and transports between nodes.
+     */
+    private boolean lazyInitialization;
+
+    /**
+     * Whether JPA is bootstrapped in the background and repositories are only created when
+     * first used.
+     */
+    private boolean deferredJpa;
+
+    public Path getSnapshot() {
+        return this.snapshot;
+    }
+
+    public void setSnapshot(Path snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public boolean isLazyInitialization() {
+        return this.lazyInitialization;
+    }
+
+    public void setLazyInitialization(boolean lazyInitialization) {
+        this.lazyInitialization = lazyInitialization;
+    }
+
+    public boolean isDeferredJpa() {
+        return this.deferredJpa;
+    }
+
+    public void setDeferredJpa(boolean deferredJpa) {
+        this.deferredJpa = deferredJpa;
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+/**
+ * Records when the beans are created and how long they take, along with the startup phases
+ * up to the first request handled, in milliseconds since the start of the JVM.
+ * <p>
+ * The time of a bean runs from its instantiation to the end of its initialization and
+ * includes the beans created meanwhile for it, which name it as the bean they were created
+ * for; its own time leaves those out. The post
+ * processors themselves are created before the timeline and are not in it, and a bean
+ * created lazily shows up when it is first needed.
+ *
+ * @author Jackie Shao
+ * @see StartupTimelineEndpoint
+ */
+class StartupTimeline implements InstantiationAwareBeanPostProcessor, ApplicationListener<ApplicationEvent>,
+    PriorityOrdered {
+
+    private final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private final ThreadLocal<Deque<BeanCreation>> creations = ThreadLocal.withInitial(ArrayDeque::new);
+    private final List<BeanCreation> beans = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Long> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, BeanCreation> pending = new ConcurrentHashMap<>();
+
+    StartupTimeline() {
+        phase("timelineStarted");
+    }
+
+    @Override
+    public int getOrder() {
+        return HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        BeanCreation creation = new BeanCreation(beanName, now());
+        this.creations.get().push(creation);
+        this.pending.put(beanName, creation);
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // also called for the objects of factory beans, which were not instantiated here
+        BeanCreation creation = this.pending.remove(beanName);
+        if (creation != null) {
+            Deque<BeanCreation> stack = this.creations.get();
+            creation.type = AopUtils.getTargetClass(bean).getName();
+            creation.thread = Thread.currentThread().getName();
+            creation.duration = now() - creation.start;
+            // beans that failed to initialize are left on the stack above this one
+            BeanCreation top;
+            do {
+                top = stack.poll();
+            } while (top != null && top != creation);
+            BeanCreation parent = stack.peek();
+            if (parent != null) {
+                parent.childDuration += creation.duration;
+                creation.createdFor = parent.name;
+            }
+            this.beans.add(creation);
+        }
+        return bean;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent) {
+            phase("contextRefreshed");
+        } else if (event instanceof WebServerInitializedEvent) {
+            phase("webServerStarted");
+        } else if (event instanceof ApplicationReadyEvent) {
+            phase("applicationReady");
+        } else if (event instanceof ServletRequestHandledEvent && !this.phases.containsKey("firstRequestHandled")) {
+            phase("firstRequestHandled");
+        }
+    }
+
+    /**
+     * Record that the given phase was reached, unless it already was.
+     */
+    void phase(String name) {
+        this.phases.putIfAbsent(name, now());
+    }
+
+    private long now() {
+        return System.currentTimeMillis() - this.jvmStart;
+    }
+
+    /**
+     * The phases reached so far, in order.
+     */
+    Map<String, Long> getPhases() {
+        synchronized (this.phases) {
+            return new LinkedHashMap<>(this.phases);
+        }
+    }
+
+    /**
+     * The beans created so far, in order of completion.
+     */
+    List<BeanCreation> getBeans() {
+        synchronized (this.beans) {
+            return new ArrayList<>(this.beans);
+        }
+    }
+
+    public static class BeanCreation {
+
+        private final String name;
+        private final long start;
+        private String type;
+        private String thread;
+        private String createdFor;
+        private long duration;
+        private long childDuration;
+
+        BeanCreation(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getType() {
+            return this.type;
+        }
+
+        public String getThread() {
+            return this.thread;
+        }
+
+        public String getCreatedFor() {
+            return this.createdFor;
+        }
+
+        public long getStart() {
+            return this.start;
+        }
+
+        public long getDuration() {
+            return this.duration;
+        }
+
+        public long getOwnDuration() {
+            return this.duration - this.childDuration;
+        }
+    }
+
+}
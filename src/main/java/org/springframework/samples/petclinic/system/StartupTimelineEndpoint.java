@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.samples.petclinic.system.StartupTimeline.BeanCreation;
+
+/**
+ * Actuator endpoint showing the {@link StartupTimeline}: the startup phases and the beans
+ * in the order they were started, with the time each one took, and the resident memory of
+ * the process where Linux reports it.
+ *
+ * @author Jackie Shao
+ */
+@Endpoint(id = "startup")
+class StartupTimelineEndpoint {
+
+    private static final Path PROCESS_STATUS = Paths.get("/proc/self/status");
+
+    private final StartupTimeline timeline;
+
+    StartupTimelineEndpoint(StartupTimeline timeline) {
+        this.timeline = timeline;
+    }
+
+    @ReadOperation
+    public Map<String, Object> timeline() {
+        List<BeanCreation> beans = this.timeline.getBeans();
+        beans.sort(Comparator.comparingLong(BeanCreation::getStart));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("phases", this.timeline.getPhases());
+        Long residentMemory = residentMemory();
+        if (residentMemory != null) {
+            result.put("residentMemory", residentMemory);
+        }
+        result.put("beans", beans);
+        return result;
+    }
+
+    /**
+     * The resident set size in bytes, or
+     * <code>null</code> off Linux.
+     */
+    private static Long residentMemory() {
+        if (!Files.isReadable(PROCESS_STATUS)) {
+            return null;
+        }
+        try {
+            for (String line : Files.readAllLines(PROCESS_STATUS)) {
+                // VmRSS:     123456 kB
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            // reported as unknown
+        }
+        return null;
+    }
+
+}
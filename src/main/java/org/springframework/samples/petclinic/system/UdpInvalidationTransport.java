@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Sends invalidations as UDP datagrams to a fixed list of peers, a stand-in for multicast
+ * on hosts (or a single loopback interface) where multicast is not available.
+ * <p>
+ * Datagrams arrive within milliseconds but may be lost, so stale entries can survive until
+ * they expire; use the outbox transport where that matters. Each datagram holds one
+ * invalidation as tab separated text.
+ *
+ * @author Jackie Shao
+ */
+class UdpInvalidationTransport implements InvalidationTransport, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(UdpInvalidationTransport.class);
+
+    private static final int MAX_DATAGRAM = 1024;
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers = new ArrayList<>();
+
+    /**
+     * Create a new transport.
+     * @param address the address to receive on
+     * @param peers the addresses of the other nodes, as <code>host:port</code>
+     */
+    UdpInvalidationTransport(InetSocketAddress address, List<String> peers) throws SocketException {
+        this.socket = new DatagramSocket(address);
+        for (String peer : peers) {
+            int colon = peer.lastIndexOf(':');
+            this.peers.add(new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+        }
+    }
+
+    int getLocalPort() {
+        return this.socket.getLocalPort();
+    }
+
+    @Override
+    public void start(Consumer<Invalidation> receiver) {
+        Thread thread = new Thread(() -> receive(receiver), "cache-invalidation-udp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void send(Invalidation invalidation) {
+        byte[] data = String.join("\t", invalidation.getNode(), invalidation.getCacheName(),
+            invalidation.getKey() != null ? invalidation.getKey() : "", Long.toString(invalidation.getVersion()))
+            .getBytes(StandardCharsets.UTF_8);
+        for (InetSocketAddress peer : this.peers) {
+            try {
+                this.socket.send(new DatagramPacket(data, data.length, peer));
+            } catch (IOException ex) {
+                logger.warn("Could not send " + invalidation + " to " + peer, ex);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.socket.close();
+    }
+
+    private void receive(Consumer<Invalidation> receiver) {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        while (!this.socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                this.socket.receive(packet);
+                String[] fields = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split("\t", -1);
+                if (fields.length == 4) {
+                    receiver.accept(new Invalidation(fields[0], fields[1], fields[2].isEmpty() ? null : fields[2],
+                        Long.parseLong(fields[3])));
+                }
+            } catch (IOException | NumberFormatException ex) {
+                if (!this.socket.isClosed()) {
+                    logger.warn("Could not receive cache invalidation", ex);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.function.Supplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Runs the {@link WarmUpTask}s on a thread of its own once the application is ready, then
+ * replays the synthetic requests against this node, so that caches are loaded and the
+ * owner and booking paths are compiled before real traffic comes in.
+ * <p>
+ * Until then the <code>warmUp</code> health is <code>OUT_OF_SERVICE</code>, and so is the
+ * overall health at <code>/manage/health</code>, which load balancers check before routing
+ * requests to the node. A failing task is logged and does not keep the node out.
+ * <p>
+ * The tasks are only looked up when the warm-up starts: as a listener this bean is created
+ * before the others, and depending on the tasks directly would pull the repositories in
+ * while the database is still being initialized.
+ *
+ * @author Jackie Shao
+ * @see WarmUpProperties
+ */
+class WarmUp implements HealthIndicator, ApplicationListener<ApplicationEvent> {
+
+    private static final Log logger = LogFactory.getLog(WarmUp.class);
+
+    private final Supplier<List<WarmUpTask>> tasks;
+    private final WarmUpProperties properties;
+    private final StartupTimeline timeline;
+    private final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+
+    private volatile int port = -1;
+    private volatile String state = "pending";
+    private volatile int failures;
+    private volatile long duration;
+
+    WarmUp(Supplier<List<WarmUpTask>> tasks, WarmUpProperties properties, StartupTimeline timeline) {
+        this.tasks = tasks;
+        this.properties = properties;
+        this.timeline = timeline;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof WebServerInitializedEvent
+            && ((WebServerInitializedEvent) event).getApplicationContext().getServerNamespace() == null) {
+            // the application port, not the management one
+            this.port = ((WebServerInitializedEvent) event).getWebServer().getPort();
+        } else if (event instanceof ApplicationReadyEvent && "pending".equals(this.state)) {
+            this.state = "starting";
+            Thread thread = new Thread(this::run, "warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    void run() {
+        long start = System.currentTimeMillis();
+        this.state = "preloading";
+        for (WarmUpTask task : this.tasks.get()) {
+            try {
+                task.warmUp();
+            } catch (RuntimeException ex) {
+                this.failures++;
+                logger.warn("Warm-up task " + task.getClass().getName() + " failed", ex);
+            }
+        }
+        if (this.properties.getRequests() > 0 && this.port > 0 && !this.properties.getPaths().isEmpty()) {
+            this.state = "replaying";
+            replay(this.properties.getRequests(), this.properties.getPaths());
+        }
+        this.duration = System.currentTimeMillis() - start;
+        this.state = "done";
+        this.timeline.phase("warmedUp");
+        logger.info("Warmed up in " + this.duration + "ms" + (this.failures > 0 ? " with " + this.failures + " failures" : ""));
+    }
+
+    private void replay(int requests, List<String> paths) {
+        for (int i = 0; i < requests; i++) {
+            String path = paths.get(i % paths.size());
+            try (ClientHttpResponse response = this.requestFactory
+                .createRequest(URI.create("http://localhost:" + this.port + path), HttpMethod.GET).execute()) {
+                if (response.getRawStatusCode() >= 500) {
+                    this.failures++;
+                }
+                try (InputStream body = response.getBody()) {
+                    StreamUtils.drain(body);
+                } catch (IOException ex) {
+                    // error responses may have no body
+                }
+            } catch (IOException ex) {
+                this.failures++;
+                logger.debug("Warm-up request to " + path + " failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (!"done".equals(this.state)) {
+            return Health.outOfService().withDetail("state", this.state).build();
+        }
+        return Health.up().withDetail("duration", this.duration + "ms").withDetail("failures", this.failures).build();
+    }
+
+}
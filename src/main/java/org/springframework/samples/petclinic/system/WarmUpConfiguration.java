@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collections;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Warms up the node after startup, unless <code>petclinic.warmup.enabled</code> is false.
+ *
+ * @author Jackie Shao
+ * @see WarmUp
+ */
+@Configuration
+@EnableConfigurationProperties(WarmUpProperties.class)
+@ConditionalOnProperty(prefix = "petclinic.warmup", name = "enabled", matchIfMissing = true)
+class WarmUpConfiguration {
+
+    @Bean
+    public WarmUp warmUp(ObjectProvider<List<WarmUpTask>> tasks, WarmUpProperties properties,
+                         StartupTimeline timeline) {
+        return new WarmUp(() -> tasks.getIfAvailable(Collections::emptyList), properties, timeline);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Startup warm-up settings, bound from the <code>petclinic.warmup</code> properties.
+ *
+ * @author Jackie Shao
+ * @see WarmUpConfiguration
+ */
+@ConfigurationProperties("petclinic.warmup")
+public class WarmUpProperties {
+
+    /**
+     * Whether the {@link WarmUpTask}s are run after startup, the health being
+     * <code>OUT_OF_SERVICE</code> until they are done.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The number of synthetic requests replayed against this node once the tasks are done,
+     * going round the paths; none by default.
+     */
+    private int requests;
+
+    /**
+     * The paths of the synthetic requests, all GET requests that do not change any data.
+     */
+    private List<String> paths = new ArrayList<>(Arrays.asList("/owners?lastName=", "/owners/1",
+        "/owners/1/pets/1/visits/new", "/owners/6/pets/7/visits/new", "/vets.html"));
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRequests() {
+        return this.requests;
+    }
+
+    public void setRequests(int requests) {
+        this.requests = requests;
+    }
+
+    public List<String> getPaths() {
+        return this.paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+}
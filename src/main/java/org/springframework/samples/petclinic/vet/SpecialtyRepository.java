@@ -16,10 +16,12 @@
 package org.springframework.samples.petclinic.vet;
 
 import java.util.Collection;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.ReferenceData;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -28,15 +30,18 @@ import org.springframework.transaction.annotation.Transactional;
  *
  * @author Jackie Shao
  */
+@ReferenceData
 public interface SpecialtyRepository extends Repository<Specialty, Integer> {
 
     /**
-     * Retrieve all <code>Specialty</code>s from the data store.
+     * Retrieve all <code>Specialty</code>s from the data store, cached as specialties are
+     * only ever changed by the database scripts.
      *
      * @return a <code>Collection</code> of <code>Specialty</code>s
      */
     @Query("SELECT specialty FROM Specialty specialty ORDER BY specialty.name")
     @Transactional(readOnly = true)
+    @Cacheable("specialties")
     Collection<Specialty> findAll() throws DataAccessException;
 
     /**
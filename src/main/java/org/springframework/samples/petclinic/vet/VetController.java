@@ -15,11 +15,18 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import javax.validation.Valid;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.system.BinaryEncodings;
+import org.springframework.samples.petclinic.system.FragmentCache;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.ui.ModelMap;
@@ -27,9 +34,12 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
+import org.thymeleaf.context.LazyContextVariable;
 
 /**
  * @author Juergen Hoeller
@@ -42,13 +52,18 @@ class VetController {
 
     private final VetRepository vets;
     private final SpecialtyRepository specialtyRepository;
+    private final VetListCache vetListCache;
+    private final FragmentCache fragmentCache;
 
     private static final String VIEWS_VET_CREATE_OR_UPDATE_FORM = "vets/createOrUpdateVetForm";
     private static final String VIEWS_SPECIALTIES_CREATE_FORM = "vets/addSpecialtyForm";
 
-    public VetController(VetRepository clinicService, SpecialtyRepository specialtyRepository) {
+    public VetController(VetRepository clinicService, SpecialtyRepository specialtyRepository, VetListCache vetListCache,
+                         FragmentCache fragmentCache) {
         this.vets = clinicService;
         this.specialtyRepository = specialtyRepository;
+        this.vetListCache = vetListCache;
+        this.fragmentCache = fragmentCache;
     }
 
     @ModelAttribute("specialties")
@@ -59,20 +74,70 @@ class VetController {
     @GetMapping("/vets.html")
     public String showVetList(Map<String, Object> model) {
         // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for Object-Xml mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        model.put("vets", vets);
+        // objects so it is simpler for Object-Xml mapping. It is only loaded if the vet table
+        // is not already in the fragment cache.
+        model.put("vets", new LazyContextVariable<Vets>() {
+            @Override
+            protected Vets loadValue() {
+                Vets vets = new Vets();
+                vets.getVetList().addAll(VetController.this.vets.findAll());
+                return vets;
+            }
+        });
         return "vets/vetList";
     }
 
     @GetMapping({ "/vets" })
-    public @ResponseBody Vets showResourcesVetList() {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for JSon/Object mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        return vets;
+    public ResponseEntity<byte[]> showResourcesVetList(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws HttpMediaTypeNotAcceptableException {
+        // The serialized 'Vets' wrapper is kept by the VetListCache, so we only pick the
+        // representation here; a matching If-None-Match is answered with 304 by Spring MVC
+        VetListCache.Representations representations = this.vetListCache.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        MediaType type = negotiate(accept);
+        if (type == MediaType.APPLICATION_XML) {
+            return response.eTag(representations.getXmlETag())
+                .contentType(MediaType.APPLICATION_XML)
+                .body(representations.getXml());
+        }
+        if (type == BinaryEncodings.APPLICATION_CBOR) {
+            return response.eTag(representations.getCborETag())
+                .contentType(BinaryEncodings.APPLICATION_CBOR)
+                .body(representations.getCbor());
+        }
+        if (type == BinaryEncodings.APPLICATION_SMILE) {
+            return response.eTag(representations.getSmileETag())
+                .contentType(BinaryEncodings.APPLICATION_SMILE)
+                .body(representations.getSmile());
+        }
+        return response.eTag(representations.getJsonETag())
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .body(representations.getJson());
+    }
+
+    private static MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+        if (StringUtils.isBlank(accept)) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            if (acceptedType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (acceptedType.isCompatibleWith(MediaType.APPLICATION_XML)
+                || acceptedType.isCompatibleWith(MediaType.TEXT_XML)) {
+                return MediaType.APPLICATION_XML;
+            }
+            if (acceptedType.isCompatibleWith(BinaryEncodings.APPLICATION_CBOR)) {
+                return BinaryEncodings.APPLICATION_CBOR;
+            }
+            if (acceptedType.isCompatibleWith(BinaryEncodings.APPLICATION_SMILE)) {
+                return BinaryEncodings.APPLICATION_SMILE;
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(Arrays.asList(MediaType.APPLICATION_JSON_UTF8,
+            MediaType.APPLICATION_XML, BinaryEncodings.APPLICATION_CBOR, BinaryEncodings.APPLICATION_SMILE));
     }
 
     @GetMapping("/vets/new")
@@ -88,6 +153,8 @@ class VetController {
             return VIEWS_VET_CREATE_OR_UPDATE_FORM;
         } else {
             this.vets.save(vet);
+            this.vetListCache.invalidate();
+            this.fragmentCache.invalidateAll();
             return "redirect:/vets/" + vet.getId();
         }
     }
@@ -96,10 +163,15 @@ class VetController {
      * Custom handler for displaying a vet.
      *
      * @param vetId the ID of the vet to display
+     * @param request the current request, answered with 304 if the vet did not change
      * @return a ModelMap with the model attributes for the view
      */
     @GetMapping("/vets/{vetId}")
-    public ModelAndView showVet(@PathVariable("vetId") int vetId) {
+    public ModelAndView showVet(@PathVariable("vetId") int vetId, WebRequest request) {
+        Integer version = this.vets.findVersionById(vetId);
+        if (version != null && request.checkNotModified("W/\"vet-" + vetId + "-" + version + "\"")) {
+            return null;
+        }
         ModelAndView mav = new ModelAndView("vets/vetDetails");
         mav.addObject(this.vets.findById(vetId));
         return mav;
@@ -116,16 +188,17 @@ class VetController {
     public String processUpdateVetForm(@Valid Vet vet, BindingResult result, @PathVariable("vetId") int vetId, ModelMap modelMap) {
         if (result.hasErrors()) {
             return VIEWS_VET_CREATE_OR_UPDATE_FORM;
-        } else {
-            String firstName = vet.getFirstName();
-            String lastName = vet.getLastName();
-            vet = this.vets.findById(vetId);
-            vet.setId(vetId);
-            vet.setFirstName(firstName);
-            vet.setLastName(lastName);
-            this.vets.save(vet);
-            return "redirect:/vets/{vetId}";
         }
+        vet.setId(vetId);
+        if (this.vets.updateIfVersionMatches(vet) == 0) {
+            // changed in the meantime: keep the submitted values, but let a resubmission win
+            result.reject("concurrentModification", "changed in the meantime");
+            vet.setVersion(this.vets.findVersionById(vetId));
+            return VIEWS_VET_CREATE_OR_UPDATE_FORM;
+        }
+        this.vetListCache.invalidate();
+        this.fragmentCache.invalidateAll();
+        return "redirect:/vets/{vetId}";
     }
     @GetMapping("/vets/{vetId}/specialty/add")
     public String initAddSpecialtyForm(@PathVariable("vetId") int vetId, ModelMap model) {
@@ -139,11 +212,11 @@ class VetController {
         if (result.hasErrors()) {
             return "redirect:/vets.html";
         }
-        String specialtyName = vet.getSpecialtyToAdd();
-        Specialty specialty = specialtyRepository.findByName(specialtyName);
-        vet = this.vets.findById(vetId);
-        vet.addSpecialty(specialty);
-        this.vets.save(vet);
+        // adding a specialty is idempotent, so it needs no version check
+        if (this.vets.addSpecialty(vetId, vet.getSpecialtyToAdd())) {
+            this.vetListCache.invalidate();
+            this.fragmentCache.invalidateAll();
+        }
         return "redirect:/vets/{vetId}";
     }
 }
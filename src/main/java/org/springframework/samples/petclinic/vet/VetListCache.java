@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.samples.petclinic.system.BinaryEncodings;
+import org.springframework.samples.petclinic.system.CacheInvalidationBus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Keeps the serialized JSON, XML, CBOR and Smile representations of the vet list in memory,
+ * so that polling clients of <code>/vets</code> are served without touching the database or
+ * running Jackson/JAXB again. The representations are rebuilt lazily after
+ * {@link #invalidate()} is called for a vet or specialty change, on this node or, through
+ * the {@link CacheInvalidationBus}, on another one. They carry the version of the vet list
+ * they were built from, so a list read before the latest invalidation is never kept.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class VetListCache {
+
+    static final String CACHE_NAME = "vets";
+
+    private final VetRepository vets;
+    private final ObjectMapper objectMapper;
+    private final BinaryEncodings binaryEncodings;
+    private final JAXBContext jaxbContext;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Representations current;
+
+    public VetListCache(VetRepository vets, ObjectMapper objectMapper, BinaryEncodings binaryEncodings,
+                        CacheInvalidationBus invalidationBus) throws JAXBException {
+        this.vets = vets;
+        this.objectMapper = objectMapper;
+        this.binaryEncodings = binaryEncodings;
+        this.jaxbContext = JAXBContext.newInstance(Vets.class);
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(CACHE_NAME, invalidation -> {
+            Representations representations = this.current;
+            if (representations != null && representations.version < invalidation.getVersion()) {
+                this.generation.incrementAndGet();
+                this.current = null;
+            }
+        });
+    }
+
+    /**
+     * Return the current representations, building them from the data store if the vet
+     * list changed since they were last built.
+     */
+    public Representations get() {
+        Representations representations = this.current;
+        if (representations == null) {
+            representations = build();
+        }
+        return representations;
+    }
+
+    /**
+     * Discard the cached representations; must be called after any vet or specialty change.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.current = null;
+        Long version = this.vets.findListVersion();
+        this.invalidationBus.publish(CACHE_NAME, null, version != null ? version : 0);
+    }
+
+    private synchronized Representations build() {
+        Representations representations = this.current;
+        if (representations != null) {
+            return representations;
+        }
+        long startGeneration = this.generation.get();
+        Vets vets = new Vets();
+        vets.getVetList().addAll(this.vets.findAll());
+        // the same version as VetRepository.findListVersion()
+        long version = vets.getVetList().size();
+        for (Vet vet : vets.getVetList()) {
+            version += vet.getVersion() != null ? vet.getVersion() : 0;
+        }
+        representations = new Representations(version, toJson(vets), toXml(vets), this.binaryEncodings.toCbor(vets),
+            this.binaryEncodings.toSmile(vets));
+        // only publish if no write happened while we were reading the vets
+        if (this.generation.get() == startGeneration && this.invalidationBus.isCurrent(CACHE_NAME, null, version)) {
+            this.current = representations;
+        }
+        return representations;
+    }
+
+    private byte[] toJson(Vets vets) {
+        try {
+            return this.objectMapper.writeValueAsBytes(vets);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize vets to JSON", ex);
+        }
+    }
+
+    private byte[] toXml(Vets vets) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Marshaller marshaller = this.jaxbContext.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+            marshaller.marshal(vets, out);
+            return out.toByteArray();
+        } catch (JAXBException ex) {
+            throw new IllegalStateException("Could not serialize vets to XML", ex);
+        }
+    }
+
+    /**
+     * Immutable set of serialized vet lists, each with its own strong ETag.
+     */
+    static final class Representations {
+
+        private final long version;
+        private final byte[] json;
+        private final String jsonETag;
+        private final byte[] xml;
+        private final String xmlETag;
+        private final byte[] cbor;
+        private final String cborETag;
+        private final byte[] smile;
+        private final String smileETag;
+
+        Representations(long version, byte[] json, byte[] xml, byte[] cbor, byte[] smile) {
+            this.version = version;
+            this.json = json;
+            this.jsonETag = eTag(json);
+            this.xml = xml;
+            this.xmlETag = eTag(xml);
+            this.cbor = cbor;
+            this.cborETag = eTag(cbor);
+            this.smile = smile;
+            this.smileETag = eTag(smile);
+        }
+
+        private static String eTag(byte[] content) {
+            return "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+        }
+
+        public byte[] getJson() {
+            return this.json;
+        }
+
+        public String getJsonETag() {
+            return this.jsonETag;
+        }
+
+        public byte[] getXml() {
+            return this.xml;
+        }
+
+        public String getXmlETag() {
+            return this.xmlETag;
+        }
+
+        public byte[] getCbor() {
+            return this.cbor;
+        }
+
+        public String getCborETag() {
+            return this.cborETag;
+        }
+
+        public byte[] getSmile() {
+            return this.smile;
+        }
+
+        public String getSmileETag() {
+            return this.smileETag;
+        }
+    }
+
+}
@@ -16,11 +16,15 @@
 package org.springframework.samples.petclinic.vet;
 
 import java.util.Collection;
+import java.util.List;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.DomainChange;
+import org.springframework.samples.petclinic.system.ReferenceData;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -32,6 +36,7 @@ import org.springframework.transaction.annotation.Transactional;
  * @author Sam Brannen
  * @author Michael Isvy
  */
+@ReferenceData
 public interface VetRepository extends Repository<Vet, Integer> {
 
     /**
@@ -43,6 +48,15 @@ public interface VetRepository extends Repository<Vet, Integer> {
     @Transactional(readOnly = true)
     Collection<Vet> findAll() throws DataAccessException;
 
+    /**
+     * Retrieve the names of the given {@link Vet}s, without loading their specialties.
+     * @param ids the vets to search for
+     * @return a List of (vet id, first name, last name) rows
+     */
+    @Query("SELECT vet.id, vet.firstName, vet.lastName FROM Vet vet WHERE vet.id IN :ids")
+    @Transactional(readOnly = true)
+    List<Object[]> findNamesByIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * Retrieve an {@link Vet} from the data store by id.
      * @param id the id to search for
@@ -56,8 +70,89 @@ public interface VetRepository extends Repository<Vet, Integer> {
      * Save an {@link Vet} to the data store, either inserting or updating it.
      * @param vet the {@link Vet} to save
      */
+    @DomainChange(aggregate = "vet", type = "saved")
     void save(Vet vet);
 
+    /**
+     * Retrieve the version of a {@link Vet}, which changes whenever the vet or its
+     * specialties are changed.
+     * @param id the id to search for
+     * @return the version, or <code>null</code> if not found
+     */
+    @Query("SELECT vet.version FROM Vet vet WHERE vet.id =:id")
+    @Transactional(readOnly = true)
+    Integer findVersionById(@Param("id") Integer id);
+
+    /**
+     * Retrieve the sum of all {@link Vet} versions, which changes whenever any vet is changed.
+     * @return the sum of all versions, or <code>null</code> if there are no vets
+     */
+    @Query("SELECT SUM(vet.version) FROM Vet vet")
+    @Transactional(readOnly = true)
+    Long sumVersions();
+
+    /**
+     * Retrieve the version of the vet list as a whole: the number of {@link Vet}s plus the sum
+     * of their versions, which grows whenever a vet is added or changed.
+     * @return the version of the vet list, or <code>null</code> if there are no vets
+     */
+    @Query("SELECT COUNT(vet) + SUM(vet.version) FROM Vet vet")
+    @Transactional(readOnly = true)
+    Long findListVersion();
+
+    /**
+     * Update the name of a {@link Vet} with a single statement, provided its version in the
+     * data store is still the one the given vet was read with.
+     * @param vet the {@link Vet} to update, with id and version set
+     * @return 1 if the vet was updated, 0 if it was changed or removed in the meantime
+     */
+    @Query("UPDATE Vet vet SET vet.firstName = :#{#vet.firstName}, vet.lastName = :#{#vet.lastName}, "
+        + "vet.version = vet.version + 1 WHERE vet.id = :#{#vet.id} AND vet.version = :#{#vet.version}")
+    @Transactional
+    @Modifying
+    @DomainChange(aggregate = "vet", type = "updated")
+    int updateIfVersionMatches(@Param("vet") Vet vet);
+
+    /**
+     * Add the {@link Specialty} with the given name to a {@link Vet} with a single statement,
+     * unless the vet already has it.
+     * @param vetId the id of the vet
+     * @param specialtyName the name of the specialty
+     * @return 1 if the specialty was added, 0 otherwise
+     */
+    @Query(value = "INSERT INTO vet_specialties (vet_id, specialty_id) SELECT vets.id, specialties.id "
+        + "FROM vets, specialties WHERE vets.id = :vetId AND specialties.name = :specialtyName AND NOT EXISTS "
+        + "(SELECT 1 FROM vet_specialties WHERE vet_id = vets.id AND specialty_id = specialties.id)", nativeQuery = true)
+    @Transactional
+    @Modifying
+    @DomainChange(aggregate = "vet", type = "specialty-added")
+    int addSpecialtyIfAbsent(@Param("vetId") Integer vetId, @Param("specialtyName") String specialtyName);
+
+    /**
+     * Add the {@link Specialty} with the given name to a {@link Vet} unless it already has
+     * it, and increment the version of the vet if it did not, in one transaction.
+     * @param vetId the id of the vet
+     * @param specialtyName the name of the specialty
+     * @return whether the specialty was added
+     */
+    @Transactional
+    default boolean addSpecialty(Integer vetId, String specialtyName) {
+        if (addSpecialtyIfAbsent(vetId, specialtyName) == 0) {
+            return false;
+        }
+        incrementVersion(vetId);
+        return true;
+    }
+
+    /**
+     * Increment the version of a {@link Vet} after its specialties changed.
+     * @param id the id of the vet
+     */
+    @Query("UPDATE Vet vet SET vet.version = vet.version + 1 WHERE vet.id =:id")
+    @Transactional
+    @Modifying
+    void incrementVersion(@Param("id") Integer id);
+
     /**
      * Retrieve {@link Vet}s from the data store by first and last name, returning all vets
      * whose first, last name <i>starts</i> with the given names.
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import org.springframework.samples.petclinic.system.WarmUpTask;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the serialized vet list and the specialties before the first request needs them.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class VetWarmUp implements WarmUpTask {
+
+    private final VetListCache vetListCache;
+    private final SpecialtyRepository specialties;
+
+    VetWarmUp(VetListCache vetListCache, SpecialtyRepository specialties) {
+        this.vetListCache = vetListCache;
+        this.specialties = specialties;
+    }
+
+    @Override
+    public void warmUp() {
+        this.vetListCache.get();
+        this.specialties.findAll();
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.system.FragmentCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Cancels all upcoming visits of a vet over a range of days, such as when the vet calls in
+ * sick. Visits that already took place, earlier on the first day, stay in the history.
+ * <p>
+ * The visits are read from all shards in one query and removed with one statement per
+ * shard, in one transaction with the version bumps of their owners (with owner shards,
+ * the removal on each shard commits in a transaction of that shard). Every removed visit
+ * gets its own domain event in the outbox, so the activity counts, the availability index,
+ * the slot feed and the search index catch up as for a single cancellation, but with one
+ * batch; the owners and the visit fragments of their pets are invalidated once each.
+ *
+ * @author Jackie Shao
+ */
+@Component
+class BulkCancellation {
+
+    private final VisitRepository visits;
+    private final OwnerRepository owners;
+    private final FragmentCache fragmentCache;
+    private final TransactionTemplate transactionTemplate;
+
+    BulkCancellation(VisitRepository visits, OwnerRepository owners, FragmentCache fragmentCache,
+                     PlatformTransactionManager transactionManager) {
+        this.visits = visits;
+        this.owners = owners;
+        this.fragmentCache = fragmentCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Cancel the visits of a vet from one day to another, from now on.
+     *
+     * @param vetId the id of the vet
+     * @param from the first day, inclusive
+     * @param to the last day, inclusive
+     * @return the cancelled visits, in time order
+     */
+    public List<CancelledVisit> cancel(int vetId, LocalDate from, LocalDate to) {
+        List<CancelledVisit> cancelled = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from.atStartOfDay().isBefore(now) ? now : from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        if (!start.isBefore(end)) {
+            return cancelled;
+        }
+        for (Object[] row : this.visits.findRowsByVetBetween(vetId, start, end)) {
+            cancelled.add(new CancelledVisit((Integer) row[0], (Integer) row[1], (Integer) row[2],
+                (LocalDateTime) row[3], (String) row[4]));
+        }
+        if (cancelled.isEmpty()) {
+            return cancelled;
+        }
+        List<Integer> ids = new ArrayList<>(cancelled.size());
+        Set<Integer> ownerIds = new LinkedHashSet<>();
+        Set<Integer> petIds = new LinkedHashSet<>();
+        for (CancelledVisit visit : cancelled) {
+            ids.add(visit.getId());
+            ownerIds.add(visit.getOwnerId());
+            petIds.add(visit.getPetId());
+        }
+        this.transactionTemplate.execute(status -> {
+            this.visits.removeByIds(ids);
+            ownerIds.forEach(this.owners::incrementVersion);
+            return null;
+        });
+        petIds.forEach(petId -> this.fragmentCache.invalidate(FragmentCache.petVisitsKey(petId)));
+        return cancelled;
+    }
+
+    /**
+     * A cancelled visit, with the owner to tell about it.
+     */
+    public static class CancelledVisit {
+
+        private final int id;
+        private final int petId;
+        private final int ownerId;
+        private final LocalDateTime time;
+        private final String description;
+
+        CancelledVisit(int id, int petId, int ownerId, LocalDateTime time, String description) {
+            this.id = id;
+            this.petId = petId;
+            this.ownerId = ownerId;
+            this.time = time;
+            this.description = description;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public int getPetId() {
+            return this.petId;
+        }
+
+        public int getOwnerId() {
+            return this.ownerId;
+        }
+
+        public LocalDateTime getTime() {
+            return this.time;
+        }
+
+        public String getDescription() {
+            return this.description;
+        }
+    }
+
+}
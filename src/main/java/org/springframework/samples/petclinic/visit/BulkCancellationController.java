@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Cancels the visits of a vet over a range of days with {@link BulkCancellation}, and lists
+ * the cancelled ones so their owners can be told.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class BulkCancellationController {
+
+    private static final String VETS_CANCEL_VISITS_FORM = "vets/cancelVisitsForm";
+
+    static final int MAX_DAYS = 31;
+
+    private final VetRepository vets;
+    private final BulkCancellation bulkCancellation;
+
+    BulkCancellationController(VetRepository vets, BulkCancellation bulkCancellation) {
+        this.vets = vets;
+        this.bulkCancellation = bulkCancellation;
+    }
+
+    @ModelAttribute("vet")
+    public Vet findVet(@PathVariable("vetId") int vetId) {
+        Vet vet = this.vets.findById(vetId);
+        if (vet == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Vet " + vetId + " is not found.");
+        }
+        return vet;
+    }
+
+    @GetMapping("/vets/{vetId}/visits/cancel")
+    public String initCancelVisitsForm(Map<String, Object> model) {
+        model.put("from", LocalDate.now());
+        model.put("to", LocalDate.now());
+        return VETS_CANCEL_VISITS_FORM;
+    }
+
+    @PostMapping("/vets/{vetId}/visits/cancel")
+    public String processCancelVisitsForm(@PathVariable("vetId") int vetId,
+                                          @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          Map<String, Object> model) {
+        if (to.isBefore(from) || from.plusDays(MAX_DAYS).isBefore(to.plusDays(1))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "The days have to be from one day to another, at most " + MAX_DAYS + " days.");
+        }
+        List<BulkCancellation.CancelledVisit> cancelled = this.bulkCancellation.cancel(vetId, from, to);
+        model.put("from", from);
+        model.put("to", to);
+        model.put("cancelled", cancelled);
+        return VETS_CANCEL_VISITS_FORM;
+    }
+
+}
@@ -16,8 +16,8 @@
 package org.springframework.samples.petclinic.visit;
 
 import java.util.Map;
-import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.system.FragmentCache;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
@@ -36,9 +36,13 @@ class OtherVisitController {
     private static final String PETS_DELETE_APPOINMENT_FORM = "pets/deleteVisitForm";
 
     private final VisitRepository visits;
+    private final OwnerRepository owners;
+    private final FragmentCache fragmentCache;
 
-    public OtherVisitController(VisitRepository visits) {
+    public OtherVisitController(VisitRepository visits, OwnerRepository owners, FragmentCache fragmentCache) {
         this.visits = visits;
+        this.owners = owners;
+        this.fragmentCache = fragmentCache;
     }
 
     @InitBinder
@@ -56,8 +60,12 @@ class OtherVisitController {
     }
 
     @PostMapping("/owners/{ownerId}/pets/{petId}/visits/{visitId}/cancel")
-    public String processVisitDeleteForm(@PathVariable("visitId") Integer visitId, Visit visit, BindingResult result, Map<String, Object> model) {
+    public String processVisitDeleteForm(@PathVariable("ownerId") Integer ownerId, @PathVariable("petId") Integer petId,
+                                         @PathVariable("visitId") Integer visitId, Visit visit, BindingResult result,
+                                         Map<String, Object> model) {
         visits.removeById(visitId);
+        owners.incrementVersion(ownerId);
+        fragmentCache.invalidate(FragmentCache.petVisitsKey(petId));
         return "redirect:/owners/{ownerId}";
     }
 
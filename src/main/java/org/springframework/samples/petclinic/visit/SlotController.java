@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * The taken hours of a vet on a day, and the {@link SlotFeed} that tells what changes
+ * afterwards, for the booking form.
+ *
+ * @author Jackie Shao
+ */
+@Controller
+class SlotController {
+
+    private final VisitRepository visits;
+    private final VetRepository vets;
+    private final SlotFeed slotFeed;
+
+    public SlotController(VisitRepository visits, VetRepository vets, SlotFeed slotFeed) {
+        this.visits = visits;
+        this.vets = vets;
+        this.slotFeed = slotFeed;
+    }
+
+    @GetMapping("/slots")
+    @ResponseBody
+    public Map<String, Object> showTakenSlots(@RequestParam("vet") String vetFullName,
+                                              @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        Vet vet = findVet(vetFullName);
+        List<Integer> taken = this.visits.findTimesByVetBetween(vet.getId(), date.atStartOfDay(),
+            date.plusDays(1).atStartOfDay()).stream().map(LocalDateTime::getHour).distinct().sorted()
+            .collect(Collectors.toList());
+        Map<String, Object> slots = new LinkedHashMap<>();
+        slots.put("vetId", vet.getId());
+        slots.put("date", date);
+        slots.put("taken", taken);
+        return slots;
+    }
+
+    @GetMapping("/slots/events")
+    public SseEmitter streamSlotEvents(@RequestParam(value = "vetId", required = false) Integer vetId) {
+        return this.slotFeed.subscribe(vetId);
+    }
+
+    /**
+     * Find the vet by the full name the booking form shows.
+     */
+    private Vet findVet(String fullName) {
+        String[] names = fullName.trim().split(" ", 2);
+        if (names.length == 2) {
+            Collection<Vet> found = this.vets.findByFirstAndLastName(names[0], names[1]);
+            for (Vet vet : found) {
+                if (vet.getFirstName().equals(names[0]) && vet.getLastName().equals(names[1])) {
+                    return vet;
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, fullName + " is not found.");
+    }
+
+}
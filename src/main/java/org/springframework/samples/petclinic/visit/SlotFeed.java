@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.system.DomainEventSubscriber;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Broadcasts <code>slot-taken</code> and <code>slot-freed</code> server-sent events whenever a
+ * visit with a vet is booked or cancelled, on any node, so that open booking forms can grey
+ * out the hours that are no longer free.
+ * <p>
+ * Each event is serialized once and queued for every subscriber; the relay thread never
+ * writes to a connection. Writer threads drain the queues, at most one per subscriber at a
+ * time. {@link SseEmitter} sends block, so the writers are not a fixed pool: a client stuck
+ * in a send holds a thread of its own and never keeps the others waiting for one. A client
+ * whose current send has not returned for {@link #STALL_SECONDS} seconds is disconnected,
+ * however few or many events are waiting for it, and its writer is interrupted; the send
+ * ends at the latest with the write timeout of the servlet container. Its browser
+ * reconnects and reloads the taken hours. A heartbeat comment is sent every
+ * {@link #HEARTBEAT_SECONDS} seconds to notice closed connections and keep proxies from
+ * timing them out.
+ *
+ * @author Jackie Shao
+ */
+@Component
+public class SlotFeed implements DomainEventSubscriber, DisposableBean {
+
+    static final String TAKEN = "slot-taken";
+    static final String FREED = "slot-freed";
+
+    static final long STALL_SECONDS = 30;
+    static final long HEARTBEAT_SECONDS = 20;
+    private static final long TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private final ObjectMapper objectMapper;
+    private final long stallMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService writers;
+    private final ScheduledExecutorService heartbeat;
+
+    @Autowired
+    public SlotFeed(ObjectMapper objectMapper) {
+        this(objectMapper, TimeUnit.SECONDS.toMillis(STALL_SECONDS));
+    }
+
+    SlotFeed(ObjectMapper objectMapper, long stallMillis) {
+        this.objectMapper = objectMapper;
+        this.stallMillis = stallMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.writers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "slot-feed-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "slot-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleWithFixedDelay(() -> broadcast(null, () -> SseEmitter.event().comment("")),
+            HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        long stallCheck = Math.max(stallMillis / 4, 1);
+        this.heartbeat.scheduleWithFixedDelay(this::closeStalled, stallCheck, stallCheck, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        this.heartbeat.shutdownNow();
+        this.subscribers.forEach(Subscriber::close);
+        this.writers.shutdownNow();
+    }
+
+    /**
+     * Open a stream of slot events.
+     *
+     * @param vetId the vet to send the events of, or <code>null</code> for all vets
+     */
+    public SseEmitter subscribe(Integer vetId) {
+        return subscribe(new SseEmitter(TIMEOUT), vetId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Integer vetId) {
+        Subscriber subscriber = new Subscriber(emitter, vetId);
+        emitter.onCompletion(() -> this.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> this.subscribers.remove(subscriber));
+        this.subscribers.add(subscriber);
+        return emitter;
+    }
+
+    int getSubscriberCount() {
+        return this.subscribers.size();
+    }
+
+    private void closeStalled() {
+        for (Subscriber subscriber : this.subscribers) {
+            if (subscriber.isStalled()) {
+                subscriber.close();
+            }
+        }
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        if (this.subscribers.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (DomainEvent event : events) {
+            if (!"visit".equals(event.getAggregate())) {
+                continue;
+            }
+            Integer vetId = event.getInteger("vetId");
+            LocalDateTime time = event.getDateTime("time");
+            if (vetId == null || time == null || time.isBefore(now)) {
+                continue;
+            }
+            slotChanged(vetId, time, !"removed".equals(event.getType()));
+        }
+    }
+
+    /**
+     * Tell the subscribers that a vet's hour was taken or freed.
+     */
+    void slotChanged(int vetId, LocalDateTime time, boolean taken) {
+        Map<String, Object> slot = new LinkedHashMap<>();
+        slot.put("vetId", vetId);
+        slot.put("time", time.format(TIME_FORMAT));
+        String data;
+        try {
+            data = this.objectMapper.writeValueAsString(slot);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize slot " + slot, ex);
+        }
+        String name = taken ? TAKEN : FREED;
+        broadcast(vetId, () -> SseEmitter.event().name(name).data(data));
+    }
+
+    /**
+     * Queue an event for the matching subscribers; never blocks.
+     */
+    private void broadcast(Integer vetId, Supplier<SseEmitter.SseEventBuilder> event) {
+        for (Subscriber subscriber : this.subscribers) {
+            if (vetId == null || subscriber.vetId == null || subscriber.vetId.equals(vetId)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * An open stream, with the events not yet written to it.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Integer vetId;
+        private final Queue<Supplier<SseEmitter.SseEventBuilder>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        // when the send in progress started, 0 when there is none
+        private volatile long sendingSince;
+        private volatile boolean closed;
+        // the writer thread in a send, guarded by this subscriber
+        private Thread sender;
+
+        Subscriber(SseEmitter emitter, Integer vetId) {
+            this.emitter = emitter;
+            this.vetId = vetId;
+        }
+
+        void offer(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (isStalled()) {
+                close();
+                return;
+            }
+            this.queue.add(event);
+            schedule();
+        }
+
+        boolean isStalled() {
+            long sendingSince = this.sendingSince;
+            return sendingSince != 0 && System.currentTimeMillis() - sendingSince > stallMillis;
+        }
+
+        private void schedule() {
+            if (!this.closed && this.writing.compareAndSet(false, true)) {
+                writers.execute(this::write);
+            }
+        }
+
+        private void write() {
+            synchronized (this) {
+                this.sender = Thread.currentThread();
+            }
+            try {
+                Supplier<SseEmitter.SseEventBuilder> event;
+                while (!this.closed && (event = this.queue.poll()) != null) {
+                    this.sendingSince = System.currentTimeMillis();
+                    try {
+                        this.emitter.send(event.get());
+                    } catch (IOException | IllegalStateException ex) {
+                        // the client went away, or the send was interrupted as stalled
+                        close();
+                    } finally {
+                        this.sendingSince = 0;
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    this.sender = null;
+                }
+                // an interrupt meant for this subscriber's send must not reach the next task
+                Thread.interrupted();
+            }
+            this.writing.set(false);
+            if (this.closed) {
+                // completed by a writer, as the emitter is locked while a send is in progress
+                if (this.writing.compareAndSet(false, true)) {
+                    this.emitter.complete();
+                }
+                return;
+            }
+            // an event may have been queued after the last poll, before writing was reset
+            if (!this.queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void close() {
+            this.closed = true;
+            if (!subscribers.remove(this)) {
+                return;
+            }
+            this.queue.clear();
+            synchronized (this) {
+                if (this.sender != null) {
+                    this.sender.interrupt();
+                }
+            }
+            if (this.writing.compareAndSet(false, true)) {
+                // no writer running, which would complete the emitter once its send returns
+                writers.execute(this.emitter::complete);
+            }
+        }
+    }
+
+}
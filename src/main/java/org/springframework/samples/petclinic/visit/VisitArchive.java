@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+
+/**
+ * Archive of historical visits, kept out of the database in immutable segment files.
+ * <p>
+ * {@link #export()} moves the visits older than the configured age into new segments,
+ * one per batch: a batch is first written and synced, then deleted from the database, and
+ * visits that are already in a segment are not written again, so an export interrupted
+ * in between is completed by the next one. The segments are memory mapped, and the
+ * history of a pet is decoded from them on every read.
+ * <p>
+ * Archived visits are removed without a domain event: they stay counted by the activity
+ * report and the analytics, and are not cancellations.
+ *
+ * @author Jackie Shao
+ * @see VisitSegment
+ */
+public class VisitArchive {
+
+    private static final Log logger = LogFactory.getLog(VisitArchive.class);
+
+    private static final String SEGMENT_PREFIX = "visits-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final VisitRepository visits;
+    private final VetRepository vets;
+    private final VisitArchiveProperties properties;
+
+    private volatile List<VisitSegment> segments = Collections.emptyList();
+
+    VisitArchive(VisitRepository visits, VetRepository vets, VisitArchiveProperties properties) throws IOException {
+        this.visits = visits;
+        this.vets = vets;
+        this.properties = properties;
+        if (properties.getDirectory() != null) {
+            Files.createDirectories(properties.getDirectory());
+            this.segments = Collections.unmodifiableList(openSegments(properties.getDirectory()));
+        }
+    }
+
+    private static List<VisitSegment> openSegments(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "[0-9]*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        List<VisitSegment> segments = new ArrayList<>();
+        for (Path file : files) {
+            segments.add(VisitSegment.open(file));
+        }
+        return segments;
+    }
+
+    /**
+     * Retrieve the archived visits of a pet, newest first.
+     * @param petId the id of the pet
+     * @return the archived visits, or an empty List if none
+     */
+    public List<Visit> findByPetId(int petId) {
+        List<VisitSegment> segments = this.segments;
+        if (segments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Vet> vets = new HashMap<>();
+        for (Vet vet : this.vets.findAll()) {
+            vets.put(vet.getId(), vet);
+        }
+        List<Visit> result = new ArrayList<>();
+        for (VisitSegment segment : segments) {
+            segment.visitsOf(petId, (visitId, time, vetId, description) -> {
+                Visit visit = new Visit();
+                visit.setId(visitId);
+                visit.setPetId(petId);
+                visit.setTime(time);
+                visit.setDescription(description);
+                visit.setVet(vetId != null ? vets.get(vetId) : null);
+                result.add(visit);
+            });
+        }
+        result.sort(Comparator.comparing(Visit::getTime).reversed());
+        return result;
+    }
+
+    /**
+     * Move the visits older than the configured age from the database to new segments.
+     * @return the number of visits archived
+     */
+    public synchronized int export() {
+        Path directory = this.properties.getDirectory();
+        if (directory == null) {
+            throw new IllegalStateException("No archive directory configured (petclinic.archive.directory)");
+        }
+        LocalDateTime before = LocalDateTime.now().minus(this.properties.getOlderThan());
+        PageRequest batch = PageRequest.of(0, this.properties.getSegmentSize());
+        List<VisitSegment> segments = new ArrayList<>(this.segments);
+        int archived = 0;
+        int lastId = -1;
+        List<Visit> page;
+        while (!(page = this.visits.findBeforeAfterId(before, lastId, batch)).isEmpty()) {
+            List<Visit> fresh = new ArrayList<>();
+            for (Visit visit : page) {
+                if (!isArchived(segments, visit)) {
+                    fresh.add(visit);
+                }
+            }
+            if (!fresh.isEmpty()) {
+                try {
+                    segments.add(VisitSegment.write(directory.resolve(nextSegmentName(segments)), fresh));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+            }
+            List<Integer> ids = page.stream().map(Visit::getId).collect(Collectors.toList());
+            this.visits.removeArchived(ids);
+            archived += fresh.size();
+            lastId = ids.get(ids.size() - 1);
+        }
+        if (archived > 0) {
+            logger.info("Archived " + archived + " visits older than " + before + " to " + directory);
+        }
+        return archived;
+    }
+
+    private static boolean isArchived(List<VisitSegment> segments, Visit visit) {
+        for (VisitSegment segment : segments) {
+            if (segment.contains(visit.getPetId(), visit.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String nextSegmentName(List<VisitSegment> segments) {
+        int number = 0;
+        if (!segments.isEmpty()) {
+            String last = segments.get(segments.size() - 1).getFile().getFileName().toString();
+            number = Integer.parseInt(last.substring(SEGMENT_PREFIX.length(), last.length() - SEGMENT_SUFFIX.length())) + 1;
+        }
+        return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * The segments of the archive, oldest first.
+     */
+    List<VisitSegment> getSegments() {
+        return this.segments;
+    }
+
+}
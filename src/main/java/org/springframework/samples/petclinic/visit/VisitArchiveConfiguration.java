@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.io.IOException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.samples.petclinic.vet.VetRepository;
+
+/**
+ * Archive of historical visits, empty until <code>petclinic.archive.directory</code> is set
+ * and visits are exported through the <code>visitarchive</code> actuator endpoint.
+ *
+ * @author Jackie Shao
+ * @see VisitArchiveProperties
+ */
+@Configuration
+@EnableConfigurationProperties(VisitArchiveProperties.class)
+class VisitArchiveConfiguration {
+
+    @Bean
+    public VisitArchive visitArchive(VisitRepository visits, VetRepository vets, VisitArchiveProperties properties)
+        throws IOException {
+        return new VisitArchive(visits, vets, properties);
+    }
+
+    @Bean
+    public VisitArchiveEndpoint visitArchiveEndpoint(ObjectProvider<VisitArchive> archive) {
+        return new VisitArchiveEndpoint(archive);
+    }
+
+}
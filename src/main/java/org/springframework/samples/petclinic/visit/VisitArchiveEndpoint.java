@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * Actuator endpoint listing the segments of the {@link VisitArchive} and exporting the
+ * old visits to it on a POST.
+ *
+ * @author Jackie Shao
+ */
+@Endpoint(id = "visitarchive")
+class VisitArchiveEndpoint {
+
+    private final ObjectProvider<VisitArchive> archive;
+
+    /**
+     * Create the endpoint, which is always created at startup, while the archive can be
+     * left until it is first needed.
+     */
+    VisitArchiveEndpoint(ObjectProvider<VisitArchive> archive) {
+        this.archive = archive;
+    }
+
+    @ReadOperation
+    public Map<String, Object> segments() {
+        List<Map<String, Object>> segments = new ArrayList<>();
+        int visits = 0;
+        for (VisitSegment segment : this.archive.getObject().getSegments()) {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("file", segment.getFile().getFileName().toString());
+            description.put("pets", segment.getPetCount());
+            description.put("visits", segment.getVisitCount());
+            description.put("bytes", segment.getSize());
+            segments.add(description);
+            visits += segment.getVisitCount();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("visits", visits);
+        result.put("segments", segments);
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Object> export() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("archived", this.archive.getObject().export());
+        return result;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Visit archive settings, bound from the <code>petclinic.archive</code> properties.
+ *
+ * @author Jackie Shao
+ * @see VisitArchive
+ */
+@ConfigurationProperties("petclinic.archive")
+public class VisitArchiveProperties {
+
+    /**
+     * Directory of the archive segments; without one visits are never archived.
+     */
+    private Path directory;
+
+    /**
+     * How old a visit must be to be moved from the database to the archive.
+     */
+    private Duration olderThan = Duration.ofDays(730);
+
+    /**
+     * Maximum number of visits written to one segment.
+     */
+    private int segmentSize = 100_000;
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public Duration getOlderThan() {
+        return this.olderThan;
+    }
+
+    public void setOlderThan(Duration olderThan) {
+        this.olderThan = olderThan;
+    }
+
+    public int getSegmentSize() {
+        return this.segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+}
@@ -19,11 +19,14 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.samples.petclinic.system.AllShards;
+import org.springframework.samples.petclinic.system.DomainChange;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -44,10 +47,23 @@ public interface VisitRepository extends Repository<Visit, Integer> {
      * @param visit the <code>Visit</code> to save
      * @see BaseEntity#isNew
      */
+    @DomainChange(aggregate = "visit", type = "saved")
     void save(Visit visit) throws DataAccessException;
 
     List<Visit> findByPetId(Integer petId);
 
+    /**
+     * Retrieve the visits of the given pets, without loading them as {@link Visit}s.
+     *
+     * @param petIds the pets to search for
+     * @return a List of (pet id, visit id, time, description, vet id) rows, ordered by time
+     */
+    @Query("SELECT visit.petId, visit.id, visit.time, visit.description, visit.vet.id FROM Visit visit "
+        + "WHERE visit.petId IN :petIds ORDER BY visit.time")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findRowsByPetIds(@Param("petIds") Collection<Integer> petIds);
+
     /**
      * Retrieve an {@link Visit} from the data store by id.
      * @param id the id to search for
@@ -65,8 +81,40 @@ public interface VisitRepository extends Repository<Visit, Integer> {
     @Query("DELETE FROM Visit visit WHERE visit.id =:id")
     @Transactional
     @Modifying
+    @DomainChange(aggregate = "visit", type = "removed")
     void removeById(@Param("id") Integer id);
 
+    /**
+     * Remove {@link Visit}s from the data store by id, with one statement per shard. Every
+     * removed visit gets its own domain event, as if removed by {@link #removeById}.
+     *
+     * @param ids the ids of the visits
+     * @return the number of visits removed
+     */
+    @Query("DELETE FROM Visit visit WHERE visit.id IN :ids")
+    @Transactional
+    @Modifying
+    @AllShards
+    @DomainChange(aggregate = "visit", type = "removed")
+    int removeByIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve the visits of a vet in a time range, with the owners of their pets, without
+     * loading them as {@link Visit}s.
+     *
+     * @param vetId the id of the vet
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, exclusive
+     * @return a List of (visit id, pet id, owner id, time, description) rows, ordered by time
+     */
+    @Query("SELECT visit.id, visit.petId, pet.owner.id, visit.time, visit.description FROM Visit visit, Pet pet "
+        + "WHERE pet.id = visit.petId AND visit.vet.id = :vetId AND visit.time >= :from AND visit.time < :to "
+        + "ORDER BY visit.time")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findRowsByVetBetween(@Param("vetId") Integer vetId, @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
     /**
      * Retrieve {@link Visit}s from the data store by vet and the visit time
      *
@@ -76,6 +124,69 @@ public interface VisitRepository extends Repository<Visit, Integer> {
      */
     @Query("SELECT DISTINCT visit FROM Visit visit WHERE visit.vet.id=:id AND visit.time=:time")
     @Transactional(readOnly = true)
+    @AllShards
     Collection<Visit> findByVetAndTime(@Param("id") Integer vetId,
         @Param("time") LocalDateTime appointmentTime);
+
+    /**
+     * Retrieve which of the given times a vet already has {@link Visit}s at, in one query.
+     *
+     * @param vetId the id of the vet
+     * @param times the times to check
+     * @return the times out of the given ones that are taken
+     */
+    @Query("SELECT DISTINCT visit.time FROM Visit visit WHERE visit.vet.id = :vetId AND visit.time IN :times")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<LocalDateTime> findTakenTimes(@Param("vetId") Integer vetId, @Param("times") Collection<LocalDateTime> times);
+
+    /**
+     * Retrieve the times of a vet's {@link Visit}s in a time range.
+     *
+     * @param vetId the id of the vet
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, exclusive
+     * @return the times of the visits, or an empty List if none
+     */
+    @Query("SELECT visit.time FROM Visit visit WHERE visit.vet.id = :vetId AND visit.time >= :from AND visit.time < :to")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<LocalDateTime> findTimesByVetBetween(@Param("vetId") Integer vetId, @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+
+    /**
+     * Retrieve the vets and times of the {@link Visit}s from a time on.
+     *
+     * @param from the time the visits are at or after
+     * @return a List of (vet id, time) rows, for the visits with a vet
+     */
+    @Query("SELECT visit.vet.id, visit.time FROM Visit visit WHERE visit.time >= :from AND visit.vet IS NOT NULL")
+    @Transactional(readOnly = true)
+    @AllShards
+    List<Object[]> findVetsAndTimesFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Retrieve the {@link Visit}s before a time, in id order, starting after an id.
+     *
+     * @param before the time the visits are before
+     * @param id the id the visits come after
+     * @param pageable the number of visits to retrieve
+     * @return the next {@link Visit}s, or an empty List if none
+     */
+    @Query("SELECT visit FROM Visit visit WHERE visit.time < :before AND visit.id > :id ORDER BY visit.id")
+    @Transactional(readOnly = true)
+    @AllShards(orderBy = "id")
+    List<Visit> findBeforeAfterId(@Param("before") LocalDateTime before, @Param("id") int id, Pageable pageable);
+
+    /**
+     * Remove {@link Visit}s that were moved to the {@link VisitArchive}. Unlike
+     * {@link #removeById} this is no domain change: the visits still took place.
+     *
+     * @param ids the ids of the visits
+     */
+    @Query("DELETE FROM Visit visit WHERE visit.id IN :ids")
+    @Transactional
+    @Modifying
+    @AllShards
+    void removeArchived(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable file of archived visits, read through a memory mapping.
+ * <p>
+ * The visits are grouped by pet, newest first, and stored compactly: variable-length
+ * integers, visit times as differences in minutes, and descriptions as codes into a
+ * dictionary of distinct descriptions. A fixed-width index of the pets, sorted by id, is
+ * searched in place, and a pet's visits are decoded straight from the mapped pages, so
+ * neither the database nor the heap hold the archive.
+ * <pre>
+ * header      magic, format version, pet count, visit count, dictionary offset, index offset
+ * pet block   visit count, then per visit: id, minutes since the previous visit (since the
+ *             epoch for the first), vet id (zig-zag encoded, -1 for none), description code
+ * dictionary  description count, then per description: UTF-8 length and bytes
+ * index       per pet: pet id, block offset
+ * </pre>
+ *
+ * @author Jackie Shao
+ */
+final class VisitSegment {
+
+    private static final int MAGIC = 0x50435653;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int INDEX_ENTRY_SIZE = 8;
+    private static final int NO_VET = -1;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int petCount;
+    private final int visitCount;
+    private final int indexOffset;
+    private final int[] descriptionOffsets;
+
+    private VisitSegment(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException(file + " is not a visit segment");
+        }
+        this.petCount = buffer.getInt(8);
+        this.visitCount = buffer.getInt(12);
+        this.indexOffset = (int) buffer.getLong(24);
+        // only the positions of the descriptions are kept, they are decoded when read
+        Reader reader = new Reader(buffer, (int) buffer.getLong(16));
+        this.descriptionOffsets = new int[reader.readInt()];
+        for (int i = 0; i < this.descriptionOffsets.length; i++) {
+            this.descriptionOffsets[i] = reader.position;
+            int length = reader.readInt();
+            reader.position += length;
+        }
+    }
+
+    /**
+     * Map an existing segment file.
+     */
+    static VisitSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new VisitSegment(file, buffer);
+        }
+    }
+
+    /**
+     * Write visits to a new segment file, which only appears under its name once complete.
+     */
+    static VisitSegment write(Path file, List<Visit> visits) throws IOException {
+        Map<Integer, List<Visit>> byPet = new TreeMap<>();
+        for (Visit visit : visits) {
+            byPet.computeIfAbsent(visit.getPetId(), petId -> new ArrayList<>()).add(visit);
+        }
+        Map<String, Integer> descriptions = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOutput = new DataOutputStream(index);
+        for (Map.Entry<Integer, List<Visit>> pet : byPet.entrySet()) {
+            indexOutput.writeInt(pet.getKey());
+            indexOutput.writeInt(HEADER_SIZE + blocks.size());
+            List<Visit> petVisits = pet.getValue();
+            petVisits.sort(Comparator.comparing(Visit::getTime).reversed());
+            writeLong(blocks, petVisits.size());
+            long previousMinute = 0;
+            for (Visit visit : petVisits) {
+                long minute = Math.floorDiv(visit.getTime().toEpochSecond(ZoneOffset.UTC), 60);
+                String description = visit.getDescription() != null ? visit.getDescription() : "";
+                Integer code = descriptions.get(description);
+                if (code == null) {
+                    code = dictionary.size();
+                    descriptions.put(description, code);
+                    dictionary.add(description);
+                }
+                writeLong(blocks, visit.getId());
+                writeLong(blocks, zigZag(minute - previousMinute));
+                writeLong(blocks, zigZag(visit.getVet() != null ? visit.getVet().getId() : NO_VET));
+                writeLong(blocks, code);
+                previousMinute = minute;
+            }
+        }
+        ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        writeLong(dictionaryBytes, dictionary.size());
+        for (String description : dictionary) {
+            byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+            writeLong(dictionaryBytes, bytes.length);
+            dictionaryBytes.write(bytes);
+        }
+        long dictionaryOffset = HEADER_SIZE + blocks.size();
+        long indexOffset = dictionaryOffset + dictionaryBytes.size();
+        if (indexOffset + index.size() > Integer.MAX_VALUE) {
+            throw new IOException("Too many visits for one segment: " + visits.size());
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(byPet.size());
+            output.writeInt(visits.size());
+            output.writeLong(dictionaryOffset);
+            output.writeLong(indexOffset);
+            blocks.writeTo(output);
+            dictionaryBytes.writeTo(output);
+            index.writeTo(output);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    Path getFile() {
+        return this.file;
+    }
+
+    int getPetCount() {
+        return this.petCount;
+    }
+
+    int getVisitCount() {
+        return this.visitCount;
+    }
+
+    int getSize() {
+        return this.buffer.capacity();
+    }
+
+    /**
+     * Decode the archived visits of a pet, newest first.
+     * @param petId the id of the pet
+     * @param visitor called with the id, time, vet id ({@code null} if none) and description of every visit
+     * @return whether the segment has visits of the pet
+     */
+    boolean visitsOf(int petId, ArchivedVisitVisitor visitor) {
+        int block = blockOf(petId);
+        if (block < 0) {
+            return false;
+        }
+        Reader reader = new Reader(this.buffer, block);
+        int count = reader.readInt();
+        long minute = 0;
+        for (int i = 0; i < count; i++) {
+            int visitId = reader.readInt();
+            minute += unZigZag(reader.readLong());
+            int vetId = (int) unZigZag(reader.readLong());
+            int code = reader.readInt();
+            visitor.visit(visitId, LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC),
+                vetId != NO_VET ? vetId : null, description(code));
+        }
+        return true;
+    }
+
+    /**
+     * Whether the segment has a visit, without decoding the other visits of the pet.
+     */
+    boolean contains(int petId, int visitId) {
+        int block = blockOf(petId);
+        if (block < 0) {
+            return false;
+        }
+        Reader reader = new Reader(this.buffer, block);
+        int count = reader.readInt();
+        for (int i = 0; i < count; i++) {
+            if (reader.readInt() == visitId) {
+                return true;
+            }
+            reader.readLong();
+            reader.readLong();
+            reader.readLong();
+        }
+        return false;
+    }
+
+    private int blockOf(int petId) {
+        int low = 0;
+        int high = this.petCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = this.indexOffset + middle * INDEX_ENTRY_SIZE;
+            int id = this.buffer.getInt(entry);
+            if (id < petId) {
+                low = middle + 1;
+            } else if (id > petId) {
+                high = middle - 1;
+            } else {
+                return this.buffer.getInt(entry + 4);
+            }
+        }
+        return -1;
+    }
+
+    private String description(int code) {
+        Reader reader = new Reader(this.buffer, this.descriptionOffsets[code]);
+        byte[] bytes = new byte[reader.readInt()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.buffer.get(reader.position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(OutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Receives the archived visits of a pet.
+     */
+    interface ArchivedVisitVisitor {
+
+        void visit(int visitId, LocalDateTime time, Integer vetId, String description);
+    }
+
+    /**
+     * Reads variable-length integers at absolute positions, so the mapped buffer is shared
+     * between threads without copies.
+     */
+    private static final class Reader {
+
+        private final ByteBuffer buffer;
+        private int position;
+
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.buffer.get(this.position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        int readInt() {
+            return (int) readLong();
+        }
+    }
+
+}
@@ -1,22 +1,29 @@
 DROP TABLE vet_specialties IF EXISTS;
+DROP TABLE visits IF EXISTS;
 DROP TABLE vets IF EXISTS;
 DROP TABLE specialties IF EXISTS;
-DROP TABLE visits IF EXISTS;
 DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
+DROP TABLE replication_heartbeat IF EXISTS;
+DROP TABLE cache_invalidations IF EXISTS;
+DROP TABLE domain_events IF EXISTS;
+DROP TABLE vet_day_activity IF EXISTS;
+DROP TABLE pet_type_activity IF EXISTS;
 
 
 CREATE TABLE vets (
   id         INTEGER IDENTITY PRIMARY KEY,
   first_name VARCHAR(30),
-  last_name  VARCHAR(30)
+  last_name  VARCHAR(30),
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX vets_last_name ON vets (last_name);
 
 CREATE TABLE specialties (
   id   INTEGER IDENTITY PRIMARY KEY,
-  name VARCHAR(80)
+  name VARCHAR(80),
+  version INTEGER DEFAULT 0 NOT NULL
 );
 CREATE UNIQUE INDEX specialties_name ON specialties (name);
 
@@ -29,7 +36,8 @@ ALTER TABLE vet_specialties ADD CONSTRAINT fk_vet_specialties_specialties FOREIG
 
 CREATE TABLE types (
   id   INTEGER IDENTITY PRIMARY KEY,
-  name VARCHAR(80)
+  name VARCHAR(80),
+  version INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX types_name ON types (name);
 
@@ -39,16 +47,19 @@ CREATE TABLE owners (
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
-  telephone  VARCHAR(20)
+  telephone  VARCHAR(20),
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX owners_last_name ON owners (last_name);
+CREATE UNIQUE INDEX owners_telephone ON owners (telephone);
 
 CREATE TABLE pets (
   id         INTEGER IDENTITY PRIMARY KEY,
   name       VARCHAR(30),
   birth_date DATE,
   type_id    INTEGER NOT NULL,
-  owner_id   INTEGER NOT NULL
+  owner_id   INTEGER NOT NULL,
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 ALTER TABLE pets ADD CONSTRAINT fk_pets_owners FOREIGN KEY (owner_id) REFERENCES owners (id);
 ALTER TABLE pets ADD CONSTRAINT fk_pets_types FOREIGN KEY (type_id) REFERENCES types (id);
@@ -59,7 +70,8 @@ CREATE TABLE visits (
   pet_id      INTEGER NOT NULL,
   vet_id      INTEGER NOT NULL,
   visit_time  TIMESTAMP ,
-  description VARCHAR(255)
+  description VARCHAR(255),
+  version     INTEGER DEFAULT 0 NOT NULL
 );
 
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
@@ -68,3 +80,42 @@ CREATE INDEX visits_pet_id ON visits (pet_id);
 ALTER TABLE visits ADD CONSTRAINT fk_visits_vets FOREIGN KEY (vet_id) REFERENCES vets (id);
 CREATE INDEX visits_vet_id ON visits (vet_id);
 
+CREATE TABLE replication_heartbeat (
+  id   INTEGER PRIMARY KEY,
+  beat BIGINT NOT NULL
+);
+
+CREATE TABLE cache_invalidations (
+  id         BIGINT IDENTITY PRIMARY KEY,
+  node       VARCHAR(40) NOT NULL,
+  cache_name VARCHAR(80) NOT NULL,
+  cache_key  VARCHAR(255),
+  version    BIGINT NOT NULL,
+  created    BIGINT NOT NULL
+);
+CREATE INDEX cache_invalidations_created ON cache_invalidations (created);
+
+CREATE TABLE domain_events (
+  id           BIGINT IDENTITY PRIMARY KEY,
+  aggregate    VARCHAR(20) NOT NULL,
+  aggregate_id INTEGER,
+  event_type   VARCHAR(30) NOT NULL,
+  data         VARCHAR(4000) NOT NULL,
+  created      BIGINT NOT NULL
+);
+CREATE INDEX domain_events_created ON domain_events (created);
+
+CREATE TABLE vet_day_activity (
+  vet_id        INTEGER NOT NULL,
+  activity_day  DATE NOT NULL,
+  visits        INTEGER NOT NULL,
+  cancellations INTEGER NOT NULL,
+  PRIMARY KEY (vet_id, activity_day)
+);
+CREATE INDEX vet_day_activity_day ON vet_day_activity (activity_day);
+
+CREATE TABLE pet_type_activity (
+  type_id       INTEGER NOT NULL PRIMARY KEY,
+  visits        INTEGER NOT NULL,
+  cancellations INTEGER NOT NULL
+);
@@ -12,12 +12,14 @@ CREATE TABLE IF NOT EXISTS vets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   INDEX(last_name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS specialties (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   name VARCHAR(80),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   INDEX(name)
 ) engine=InnoDB;
 
@@ -32,6 +34,7 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
 CREATE TABLE IF NOT EXISTS types (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   name VARCHAR(80),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   INDEX(name)
 ) engine=InnoDB;
 
@@ -42,7 +45,9 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
+  INDEX(last_name),
+  UNIQUE INDEX(telephone)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
@@ -51,6 +56,7 @@ CREATE TABLE IF NOT EXISTS pets (
   birth_date DATE,
   type_id INT(4) UNSIGNED NOT NULL,
   owner_id INT(4) UNSIGNED NOT NULL,
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   INDEX(name),
   FOREIGN KEY (owner_id) REFERENCES owners(id),
   FOREIGN KEY (type_id) REFERENCES types(id)
@@ -61,5 +67,46 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED NOT NULL,
   visit_date DATE,
   description VARCHAR(255),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+  beat BIGINT NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS cache_invalidations (
+  id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  node VARCHAR(40) NOT NULL,
+  cache_name VARCHAR(80) NOT NULL,
+  cache_key VARCHAR(255),
+  version BIGINT NOT NULL,
+  created BIGINT NOT NULL,
+  INDEX(created)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS domain_events (
+  id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  aggregate VARCHAR(20) NOT NULL,
+  aggregate_id INT(4) UNSIGNED,
+  event_type VARCHAR(30) NOT NULL,
+  data TEXT NOT NULL,
+  created BIGINT NOT NULL,
+  INDEX(created)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS vet_day_activity (
+  vet_id INT(4) UNSIGNED NOT NULL,
+  activity_day DATE NOT NULL,
+  visits INT NOT NULL,
+  cancellations INT NOT NULL,
+  PRIMARY KEY (vet_id, activity_day),
+  INDEX(activity_day)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS pet_type_activity (
+  type_id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+  visits INT NOT NULL,
+  cancellations INT NOT NULL
+) engine=InnoDB;
@@ -0,0 +1,126 @@
+package org.springframework.samples.petclinic.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.samples.petclinic.analytics.VisitQuery.Dimension;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+
+/**
+ * Test class for {@link VisitColumns}, comparing its aggregations with plain stream
+ * operations over enough random visits to scan them in parallel.
+ */
+public class VisitColumnsTests {
+
+    private static final String[] PET_TYPES = { "cat", "dog", "lizard", "snake", "bird", "hamster" };
+    private static final String[] CITIES = { "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona" };
+
+    private final VisitColumns columns = new VisitColumns();
+    private final List<VisitFact> facts = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        this.columns.setVets(Arrays.asList(vet(1, "James", "Carter"), vet(2, "Helen", "Leary", "radiology"),
+            vet(3, "Linda", "Douglas", "surgery", "dentistry")));
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2016, 1, 1, 0, 0);
+        for (int id = 1; id <= 300_000; id++) {
+            VisitFact fact = new VisitFact(id, 1 + random.nextInt(3), start.plusHours(random.nextInt(3 * 365 * 24)),
+                PET_TYPES[random.nextInt(PET_TYPES.length)], CITIES[random.nextInt(CITIES.length)]);
+            this.facts.add(fact);
+            this.columns.append(fact);
+        }
+    }
+
+    @Test
+    public void shouldCountByMonth() {
+        VisitQuery query = query(Dimension.MONTH);
+        assertThat(this.columns.aggregate(query, true).getCounts())
+            .isEqualTo(expected(fact -> true, fact -> fact.getTime().getMonth().name()));
+    }
+
+    @Test
+    public void shouldCountByYearWithFilters() {
+        VisitQuery query = query(Dimension.YEAR);
+        query.setPetType("cat");
+        query.setCity("Madison");
+        query.setFrom(LocalDate.of(2016, 7, 1));
+        query.setTo(LocalDate.of(2017, 12, 31));
+        VisitAggregation aggregation = this.columns.aggregate(query, true);
+        Predicate<VisitFact> filter = fact -> fact.getPetType().equals("cat") && fact.getCity().equals("Madison")
+            && !fact.getTime().isBefore(LocalDateTime.of(2016, 7, 1, 0, 0))
+            && fact.getTime().isBefore(LocalDateTime.of(2018, 1, 1, 0, 0));
+        assertThat(aggregation.getCounts()).isEqualTo(expected(filter, fact -> String.valueOf(fact.getTime().getYear())));
+        assertThat(aggregation.getVisits()).isEqualTo(this.facts.stream().filter(filter).count());
+        assertThat(aggregation.getScanned()).isEqualTo(300_000);
+    }
+
+    @Test
+    public void shouldCountBySpecialtyOfVet() {
+        VisitQuery query = query(Dimension.SPECIALTY);
+        query.setCity("Windsor");
+        Map<String, Long> counts = this.columns.aggregate(query, true).getCounts();
+        long linda = this.facts.stream().filter(fact -> fact.getCity().equals("Windsor") && fact.getVetId() == 3).count();
+        long helen = this.facts.stream().filter(fact -> fact.getCity().equals("Windsor") && fact.getVetId() == 2).count();
+        assertThat(counts).containsEntry("surgery", linda).containsEntry("dentistry", linda)
+            .containsEntry("radiology", helen).hasSize(3);
+    }
+
+    @Test
+    public void shouldCountByVetAndSkipCancelledVisits() {
+        assertThat(this.columns.cancel(10)).isTrue();
+        assertThat(this.columns.cancel(300_001)).isFalse();
+        // appended after the load, out of id order, and once only
+        VisitFact late = new VisitFact(0, 2, LocalDateTime.of(2019, 6, 3, 9, 0), "dog", "Madison");
+        assertThat(this.columns.append(late)).isTrue();
+        assertThat(this.columns.append(late)).isFalse();
+        assertThat(this.columns.cancel(0)).isTrue();
+        this.facts.remove(9);
+
+        assertThat(this.columns.aggregate(query(Dimension.VET), true).getCounts())
+            .isEqualTo(expected(fact -> true, fact -> new String[] { "", "James Carter", "Helen Leary", "Linda Douglas" }[fact.getVetId()]));
+    }
+
+    @Test
+    public void shouldCountNothingForUnknownValue() {
+        VisitQuery query = query(Dimension.CITY);
+        query.setCity("Springfield");
+        assertThat(this.columns.aggregate(query, true).getCounts()).isEmpty();
+    }
+
+    private Map<String, Long> expected(Predicate<VisitFact> filter, Function<VisitFact, String> group) {
+        return this.facts.stream().filter(filter).collect(Collectors.groupingBy(group, Collectors.counting()));
+    }
+
+    private static VisitQuery query(Dimension groupBy) {
+        VisitQuery query = new VisitQuery();
+        query.setGroupBy(groupBy);
+        return query;
+    }
+
+    private static Vet vet(int id, String firstName, String lastName, String... specialties) {
+        Vet vet = new Vet();
+        vet.setId(id);
+        vet.setFirstName(firstName);
+        vet.setLastName(lastName);
+        for (String name : specialties) {
+            Specialty specialty = new Specialty();
+            specialty.setName(name);
+            vet.addSpecialty(specialty);
+        }
+        return vet;
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.springframework.samples.petclinic.availability;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.SpecialtyRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for {@link AvailabilityController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(AvailabilityController.class)
+public class AvailabilityControllerTests {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 9, 2);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AvailabilitySearch availability;
+
+    @MockBean
+    private SpecialtyRepository specialties;
+
+    @Before
+    public void setup() {
+        Specialty surgery = new Specialty();
+        surgery.setId(2);
+        surgery.setName("surgery");
+        given(this.specialties.findAll()).willReturn(Collections.singletonList(surgery));
+        given(this.availability.search(Collections.singletonList("surgery"), DAY.atStartOfDay(),
+            DAY.plusDays(2).atStartOfDay(), AvailabilityController.DEFAULT_SIZE))
+            .willReturn(Arrays.asList(new FreeSlot(3, "Linda", "Douglas", DAY.atTime(9, 0)),
+                new FreeSlot(4, "Rafael", "Ortega", DAY.atTime(9, 0))));
+    }
+
+    @Test
+    public void testShowAvailability() throws Exception {
+        mockMvc.perform(get("/availability.html").param("specialties", "surgery")
+            .param("from", DAY.toString()).param("to", DAY.plusDays(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(view().name("availability/findAvailability"))
+            .andExpect(content().string(Matchers.containsString("Rafael Ortega")))
+            .andExpect(content().string(Matchers.containsString("2030-09-02 09:00")));
+    }
+
+    @Test
+    public void testShowResourcesAvailability() throws Exception {
+        mockMvc.perform(get("/availability").param("specialties", "surgery")
+            .param("from", DAY.toString()).param("to", DAY.plusDays(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].vetLastName").value("Douglas"))
+            .andExpect(jsonPath("$[1].vetId").value(4));
+    }
+
+}
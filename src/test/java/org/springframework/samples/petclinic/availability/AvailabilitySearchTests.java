@@ -0,0 +1,146 @@
+package org.springframework.samples.petclinic.availability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.samples.petclinic.calendar.CalendarProperties;
+import org.springframework.samples.petclinic.calendar.ClinicCalendar;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+
+/**
+ * Test class for {@link AvailabilitySearch}
+ */
+public class AvailabilitySearchTests {
+
+    private static final LocalDate MONDAY = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+    private final VetRepository vets = mock(VetRepository.class);
+    private final VisitRepository visits = mock(VisitRepository.class);
+    private final AvailabilitySearch search = new AvailabilitySearch(this.vets, this.visits,
+        new ClinicCalendar(new CalendarProperties()));
+
+    @Before
+    public void setup() {
+        Specialty surgery = specialty(2, "surgery");
+        Specialty dentistry = specialty(3, "dentistry");
+        given(this.vets.findAll()).willReturn(Arrays.asList(
+            vet(1, "James", "Carter"),
+            vet(3, "Linda", "Douglas", surgery, dentistry),
+            vet(4, "Rafael", "Ortega", surgery)));
+        given(this.visits.findVetsAndTimesFrom(any())).willReturn(Arrays.asList(
+            new Object[]{3, MONDAY.atTime(8, 0)},
+            new Object[]{4, MONDAY.atTime(8, 0)},
+            new Object[]{4, MONDAY.atTime(9, 0)}));
+    }
+
+    private static Specialty specialty(int id, String name) {
+        Specialty specialty = new Specialty();
+        specialty.setId(id);
+        specialty.setName(name);
+        return specialty;
+    }
+
+    private static Vet vet(int id, String firstName, String lastName, Specialty... specialties) {
+        Vet vet = new Vet();
+        vet.setId(id);
+        vet.setFirstName(firstName);
+        vet.setLastName(lastName);
+        for (Specialty specialty : specialties) {
+            vet.addSpecialty(specialty);
+        }
+        return vet;
+    }
+
+    @Test
+    public void shouldFindEarliestFreeSurgeons() {
+        List<FreeSlot> free = this.search.search(Collections.singleton("Surgery"), MONDAY.atStartOfDay(),
+            MONDAY.plusDays(1).atStartOfDay(), 3);
+
+        assertThat(free).extracting(FreeSlot::getVetLastName).containsExactly("Douglas", "Douglas", "Ortega");
+        assertThat(free).extracting(FreeSlot::getTime)
+            .containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(10, 0), MONDAY.atTime(10, 0));
+    }
+
+    @Test
+    public void shouldMatchAllSpecialties() {
+        List<FreeSlot> free = this.search.search(Arrays.asList("surgery", "dentistry"), MONDAY.atStartOfDay(),
+            MONDAY.plusDays(7).atStartOfDay(), 100);
+
+        assertThat(free).extracting(FreeSlot::getVetId).containsOnly(3);
+        // five weekdays of nine hours, less the booked one
+        assertThat(free).hasSize(5 * 9 - 1);
+        assertThat(this.search.search(Collections.singleton("radiology"), MONDAY.atStartOfDay(),
+            MONDAY.plusDays(7).atStartOfDay(), 100)).isEmpty();
+    }
+
+    @Test
+    public void shouldSkipWeekends() {
+        LocalDate saturday = MONDAY.plusDays(5);
+        List<FreeSlot> free = this.search.search(Collections.emptyList(), saturday.atStartOfDay(),
+            saturday.plusDays(3).atStartOfDay(), 1);
+
+        assertThat(free).extracting(FreeSlot::getTime).containsExactly(MONDAY.plusDays(7).atTime(8, 0));
+        assertThat(free).extracting(FreeSlot::getVetLastName).containsExactly("Carter");
+    }
+
+    @Test
+    public void shouldSkipHolidaysAndDaysOff() {
+        CalendarProperties rules = new CalendarProperties();
+        rules.getHolidays().add(MONDAY.toString());
+        rules.getOpeningHours().put(DayOfWeek.TUESDAY, "14-16");
+        rules.getRosters().put(3, EnumSet.of(DayOfWeek.WEDNESDAY));
+        AvailabilitySearch search = new AvailabilitySearch(this.vets, this.visits, new ClinicCalendar(rules));
+
+        List<FreeSlot> free = search.search(Collections.singleton("surgery"), MONDAY.atStartOfDay(),
+            MONDAY.plusDays(3).atStartOfDay(), 4);
+
+        assertThat(free).extracting(FreeSlot::getVetLastName).containsExactly("Ortega", "Ortega", "Ortega", "Douglas");
+        assertThat(free).extracting(FreeSlot::getTime).containsExactly(MONDAY.plusDays(1).atTime(14, 0),
+            MONDAY.plusDays(1).atTime(15, 0), MONDAY.plusDays(1).atTime(16, 0), MONDAY.plusDays(2).atTime(8, 0));
+    }
+
+    @Test
+    public void shouldFollowVisitAndVetEvents() {
+        this.search.warmUp();
+        this.search.onEvents(Arrays.asList(
+            visitEvent(1, "saved", 3, MONDAY.atTime(9, 0).toString()),
+            visitEvent(2, "removed", 4, MONDAY.atTime(8, 0).toString()),
+            new DomainEvent(3, "vet", 1, "specialty-added", Collections.emptyMap(), 0)));
+
+        List<FreeSlot> free = this.search.search(Collections.singleton("surgery"), MONDAY.atStartOfDay(),
+            MONDAY.plusDays(1).atStartOfDay(), 2);
+
+        assertThat(free).extracting(FreeSlot::getVetLastName).containsExactly("Ortega", "Douglas");
+        assertThat(free).extracting(FreeSlot::getTime).containsExactly(MONDAY.atTime(8, 0), MONDAY.atTime(10, 0));
+        verify(this.vets, times(2)).findAll();
+        verify(this.visits, times(1)).findVetsAndTimesFrom(any());
+    }
+
+    private static DomainEvent visitEvent(long sequence, String type, int vetId, Object time) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("vetId", vetId);
+        data.put("time", time);
+        return new DomainEvent(sequence, "visit", (int) sequence, type, data, 0);
+    }
+
+}
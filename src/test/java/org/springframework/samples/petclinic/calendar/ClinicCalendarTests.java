@@ -0,0 +1,149 @@
+package org.springframework.samples.petclinic.calendar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ClinicCalendar} and its {@link CalendarEndpoint}
+ */
+public class ClinicCalendarTests {
+
+    // a Monday
+    private static final LocalDate TODAY = LocalDate.of(2030, 1, 7);
+
+    private final MovableClock clock = new MovableClock(TODAY);
+
+    private final CalendarProperties rules = new CalendarProperties();
+
+    @Before
+    public void setup() {
+        this.rules.setHorizonDays(14);
+        this.rules.getHolidays().add("12-25");
+        this.rules.getHolidays().add("2030-01-09");
+        this.rules.getRosters().put(3, EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY));
+    }
+
+    @Test
+    public void shouldCompileOpeningHoursHolidaysAndRosters() {
+        ClinicCalendar calendar = new ClinicCalendar(this.rules, this.clock);
+
+        assertThat(calendar.openHours(TODAY)).isEqualTo(ClinicCalendar.parseHours("8-16"));
+        assertThat(calendar.isOpen(TODAY.atTime(8, 0))).isTrue();
+        assertThat(calendar.isOpen(TODAY.atTime(17, 0))).isFalse();
+        assertThat(calendar.openHours(TODAY.plusDays(2))).isZero();
+        assertThat(calendar.openHours(TODAY.plusDays(5))).isZero();
+        assertThat(calendar.isWorking(3, TODAY.plusDays(1).atTime(9, 0))).isTrue();
+        assertThat(calendar.isWorking(3, TODAY.plusDays(3).atTime(9, 0))).isFalse();
+        assertThat(calendar.isWorking(1, TODAY.plusDays(3).atTime(9, 0))).isTrue();
+        // beyond the horizon the rules are worked out on the spot
+        assertThat(calendar.openHours(LocalDate.of(2030, 12, 25))).isZero();
+        assertThat(calendar.workingHours(3, LocalDate.of(2030, 12, 26))).isZero();
+        assertThat(calendar.workingHours(3, LocalDate.of(2030, 12, 30))).isEqualTo(ClinicCalendar.parseHours("8-16"));
+    }
+
+    @Test
+    public void shouldRecompileAffectedDaysOnly() {
+        ClinicCalendar calendar = new ClinicCalendar(this.rules, this.clock);
+
+        assertThat(calendar.addHoliday("2030-01-10")).isEqualTo(1);
+        assertThat(calendar.openHours(TODAY.plusDays(3))).isZero();
+        assertThat(calendar.workingHours(1, TODAY.plusDays(3))).isZero();
+        assertThat(calendar.removeHoliday("2030-01-09")).isEqualTo(1);
+        assertThat(calendar.isOpen(TODAY.plusDays(2).atTime(10, 0))).isTrue();
+        assertThat(calendar.removeHoliday("2030-01-09")).isZero();
+
+        assertThat(calendar.setOpeningHours(DayOfWeek.SATURDAY, "9-11")).isEqualTo(2);
+        assertThat(calendar.openHours(TODAY.plusDays(5))).isEqualTo(ClinicCalendar.parseHours("9-11"));
+        assertThat(calendar.isWorking(3, TODAY.plusDays(5).atTime(9, 0))).isFalse();
+        assertThat(calendar.isWorking(1, TODAY.plusDays(5).atTime(9, 0))).isTrue();
+
+        // Wednesday is added and Monday dropped, twice each in the horizon
+        assertThat(calendar.setRoster(3, EnumSet.of(DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY))).isEqualTo(4);
+        assertThat(calendar.workingHours(3, TODAY)).isZero();
+        assertThat(calendar.workingHours(3, TODAY.plusDays(2))).isEqualTo(ClinicCalendar.parseHours("8-16"));
+        assertThat(calendar.setRoster(1, EnumSet.of(DayOfWeek.MONDAY))).isEqualTo(12);
+        assertThat(calendar.isWorking(1, TODAY.plusDays(1).atTime(9, 0))).isFalse();
+        assertThat(calendar.setRoster(1, null)).isEqualTo(12);
+        assertThat(calendar.isWorking(1, TODAY.plusDays(1).atTime(9, 0))).isTrue();
+    }
+
+    @Test
+    public void shouldRollHorizonForward() {
+        ClinicCalendar calendar = new ClinicCalendar(this.rules, this.clock);
+        calendar.setOpeningHours(DayOfWeek.SATURDAY, "9-11");
+
+        this.clock.today = TODAY.plusDays(20);
+        assertThat(calendar.openHours(TODAY.plusDays(26))).isEqualTo(ClinicCalendar.parseHours("9-11"));
+        assertThat(calendar.workingHours(3, TODAY.plusDays(21))).isEqualTo(ClinicCalendar.parseHours("8-16"));
+        assertThat(calendar.workingHours(3, TODAY.plusDays(23))).isZero();
+        assertThat(calendar.describe()).containsEntry("compiledFrom", TODAY.plusDays(20))
+            .containsEntry("compiledTo", TODAY.plusDays(33));
+    }
+
+    @Test
+    public void shouldParseHours() {
+        assertThat(ClinicCalendar.formatHours(ClinicCalendar.parseHours("8-12, 14-16"))).isEqualTo("8-12,14-16");
+        assertThat(ClinicCalendar.formatHours(ClinicCalendar.parseHours("9"))).isEqualTo("9");
+        assertThat(ClinicCalendar.parseHours("")).isZero();
+        assertThatThrownBy(() -> ClinicCalendar.parseHours("16-8")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ClinicCalendar.parseHours("noon")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldChangeRulesThroughEndpoint() {
+        ClinicCalendar calendar = new ClinicCalendar(this.rules, this.clock);
+        CalendarEndpoint endpoint = new CalendarEndpoint(calendar);
+
+        assertThat(endpoint.setRule("hours", "sunday", "10-12")).containsEntry("recompiledDays", 2);
+        assertThat(endpoint.setRule("rosters", "4", "friday")).containsEntry("recompiledDays", 12);
+        assertThat(endpoint.removeRule("holidays", "12-25")).containsEntry("recompiledDays", 0);
+
+        Map<String, Object> rules = endpoint.rules();
+        assertThat((Map<String, Object>) rules.get("openingHours")).containsEntry("SUNDAY", "10-12")
+            .containsEntry("MONDAY", "8-16").containsEntry("SATURDAY", "");
+        assertThat((Iterable<String>) rules.get("holidays")).containsExactly("2030-01-09");
+        assertThat((Map<String, Object>) rules.get("rosters")).containsKeys("3", "4");
+        assertThatThrownBy(() -> endpoint.setRule("hours", "someday", "8-16"))
+            .hasMessageContaining("SOMEDAY");
+    }
+
+    /**
+     * Clock whose day can be moved on.
+     */
+    private static class MovableClock extends Clock {
+
+        private LocalDate today;
+
+        MovableClock(LocalDate today) {
+            this.today = today;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.today.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link OwnerBatchController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(OwnerBatchController.class)
+public class OwnerBatchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OwnerRepository owners;
+
+    @MockBean
+    private PetRepository pets;
+
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private VetRepository vets;
+
+    @Before
+    public void setup() {
+        given(this.owners.findSummariesByIds(anyCollection())).willReturn(Lists.newArrayList(
+            new OwnerSummary(1, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023"),
+            new OwnerSummary(3, "Eduardo", "Rodriquez", "2693 Commerce St.", "McFarland", "6085558763")));
+        given(this.pets.findRowsByOwnerIds(anyCollection())).willReturn(Lists.newArrayList(
+            new Object[]{1, 1, "Leo", LocalDate.of(2010, 9, 7), 1},
+            new Object[]{3, 3, "Rosy", LocalDate.of(2011, 4, 17), 2},
+            new Object[]{3, 4, "Jewel", LocalDate.of(2010, 3, 7), 2}));
+        given(this.visits.findRowsByPetIds(anyCollection())).willReturn(Lists.newArrayList(
+            new Object[]{1, 1, LocalDateTime.of(2013, 1, 1, 10, 0), "rabies shot", 2},
+            new Object[]{4, 2, LocalDateTime.of(2013, 1, 2, 11, 0), "neutered", 2}));
+        given(this.vets.findNamesByIds(anyCollection())).willReturn(Collections.singletonList(
+            new Object[]{2, "Helen", "Leary"}));
+        PetType cat = new PetType();
+        cat.setId(1);
+        cat.setName("cat");
+        PetType dog = new PetType();
+        dog.setId(2);
+        dog.setName("dog");
+        PetType lizard = new PetType();
+        lizard.setId(3);
+        lizard.setName("lizard");
+        given(this.pets.findPetTypes()).willReturn(Arrays.asList(cat, dog, lizard));
+    }
+
+    @Test
+    public void testShowOwners() throws Exception {
+        mockMvc.perform(get("/owners/batch").param("ids", "3,2,1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.owners.length()").value(2))
+            .andExpect(jsonPath("$.owners[0].id").value(3))
+            .andExpect(jsonPath("$.owners[0].pets.length()").value(2))
+            .andExpect(jsonPath("$.owners[0].pets[1].name").value("Jewel"))
+            .andExpect(jsonPath("$.owners[0].pets[1].type").value(2))
+            .andExpect(jsonPath("$.owners[0].pets[1].visits[0].vet").value(2))
+            .andExpect(jsonPath("$.owners[1].lastName").value("Franklin"))
+            .andExpect(jsonPath("$.owners[1].pets[0].visits[0].description").value("rabies shot"))
+            .andExpect(jsonPath("$.notFound").value(2))
+            .andExpect(jsonPath("$.petTypes.length()").value(2))
+            .andExpect(jsonPath("$.petTypes['2']").value("dog"))
+            .andExpect(jsonPath("$.vets.length()").value(1))
+            .andExpect(jsonPath("$.vets['2'].lastName").value("Leary"));
+        verify(this.owners).findSummariesByIds(Arrays.asList(3, 2, 1));
+        verify(this.pets).findRowsByOwnerIds(anyCollection());
+        verify(this.visits).findRowsByPetIds(anyCollection());
+        verify(this.vets).findNamesByIds(Collections.singletonList(2));
+    }
+
+    @Test
+    public void testShowOwnersWithSelectedFields() throws Exception {
+        mockMvc.perform(get("/owners/batch").param("ids", "1,3").param("fields", "lastName,pets.name"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.owners[0].lastName").value("Franklin"))
+            .andExpect(jsonPath("$.owners[0].city").doesNotExist())
+            .andExpect(jsonPath("$.owners[0].pets[0].name").value("Leo"))
+            .andExpect(jsonPath("$.owners[0].pets[0].type").doesNotExist())
+            .andExpect(jsonPath("$.owners[0].pets[0].visits").doesNotExist())
+            .andExpect(jsonPath("$.petTypes").doesNotExist())
+            .andExpect(jsonPath("$.vets").doesNotExist());
+        verify(this.visits, never()).findRowsByPetIds(anyCollection());
+        verify(this.vets, never()).findNamesByIds(anyCollection());
+    }
+
+    @Test
+    public void testShowOwnersWithoutPets() throws Exception {
+        mockMvc.perform(get("/owners/batch").param("ids", "1").param("fields", "firstName"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.owners[0].firstName").value("George"))
+            .andExpect(jsonPath("$.owners[0].pets").doesNotExist());
+        verify(this.pets, never()).findRowsByOwnerIds(anyCollection());
+    }
+
+    @Test
+    public void testProcessOwnersInBatches() throws Exception {
+        StringBuilder ids = new StringBuilder();
+        for (int id = 1; id <= OwnerBatchController.BATCH_SIZE + 1; id++) {
+            ids.append(id > 1 ? "," : "").append(id);
+        }
+        mockMvc.perform(post("/owners/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"ids\": [" + ids + "], \"fields\": [\"city\"]}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.owners[0].city").value("Madison"))
+            .andExpect(jsonPath("$.notFound.length()").value(OwnerBatchController.BATCH_SIZE - 1));
+        verify(this.owners, times(2)).findSummariesByIds(anyCollection());
+    }
+
+    @Test
+    public void testProcessTooManyOwners() throws Exception {
+        StringBuilder ids = new StringBuilder();
+        for (int id = 1; id <= OwnerBatchController.MAX_OWNERS + 1; id++) {
+            ids.append(id > 1 ? "," : "").append(id);
+        }
+        mockMvc.perform(post("/owners/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"ids\": [" + ids + "]}"))
+            .andExpect(status().isBadRequest());
+        verify(this.owners, never()).findSummariesByIds(any());
+    }
+
+}
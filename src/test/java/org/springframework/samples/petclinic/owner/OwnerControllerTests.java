@@ -2,23 +2,36 @@ package org.springframework.samples.petclinic.owner;
 
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.assertj.core.util.Lists;
+import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerController;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.VisitArchive;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -39,6 +52,15 @@ public class OwnerControllerTests {
     @MockBean
     private OwnerRepository owners;
 
+    @MockBean
+    private VetRepository vets;
+
+    @MockBean
+    private VisitArchive archive;
+
+    @MockBean
+    private TelephoneIndex telephones;
+
     private Owner george;
 
     @Before
@@ -50,7 +72,14 @@ public class OwnerControllerTests {
         george.setAddress("110 W. Liberty St.");
         george.setCity("Madison");
         george.setTelephone("6085551023");
+        george.setVersion(3);
         given(this.owners.findById(TEST_OWNER_ID)).willReturn(george);
+        given(this.owners.findVersionById(TEST_OWNER_ID)).willReturn(3);
+        given(this.owners.updateIfVersionMatches(any(Owner.class))).willReturn(1);
+        given(this.vets.sumVersions()).willReturn(6L);
+        // mocked Integer lookups would answer 0 rather than null
+        given(this.owners.findIdByTelephone(any())).willReturn(null);
+        given(this.telephones.findOwnerId(any())).willReturn(null);
     }
 
     @Test
@@ -73,6 +102,37 @@ public class OwnerControllerTests {
             .andExpect(status().is3xxRedirection());
     }
 
+    @Test
+    public void testProcessCreationFormTelephoneInUse() throws Exception {
+        given(this.owners.findIdByTelephone("6085551023")).willReturn(TEST_OWNER_ID);
+        mockMvc.perform(post("/owners/new")
+            .param("firstName", "Joe")
+            .param("lastName", "Bloggs")
+            .param("address", "123 Caramel Street")
+            .param("city", "London")
+            .param("telephone", "6085551023")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasFieldErrorCode("owner", "telephone", "duplicate"))
+            .andExpect(view().name("owners/createOrUpdateOwnerForm"));
+    }
+
+    @Test
+    public void testProcessCreationFormFormattedTelephoneInUse() throws Exception {
+        given(this.owners.findIdByTelephone("6085551023")).willReturn(TEST_OWNER_ID);
+        mockMvc.perform(post("/owners/new")
+            .param("firstName", "Joe")
+            .param("lastName", "Bloggs")
+            .param("address", "123 Caramel Street")
+            .param("city", "London")
+            .param("telephone", "608-555-1023")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasFieldErrorCode("owner", "telephone", "duplicate"))
+            .andExpect(model().attribute("owner", hasProperty("telephone", is("6085551023"))))
+            .andExpect(view().name("owners/createOrUpdateOwnerForm"));
+    }
+
     @Test
     public void testProcessCreationFormHasErrors() throws Exception {
         mockMvc.perform(post("/owners/new")
@@ -95,17 +155,42 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/findOwners"));
     }
 
+    private static OwnerSummary summary(Owner owner) {
+        return new OwnerSummary(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+            owner.getCity(), owner.getTelephone());
+    }
+
     @Test
     public void testProcessFindFormSuccess() throws Exception {
-        given(this.owners.findByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
+        given(this.owners.findSummariesByLastName(eq(""), eq(0), any(Pageable.class)))
+            .willReturn(Lists.newArrayList(summary(george), new OwnerSummary(2, "Betty", "Davis", null, null, null)));
         mockMvc.perform(get("/owners"))
             .andExpect(status().isOk())
             .andExpect(view().name("owners/ownersList"));
     }
 
+    @Test
+    public void testProcessFindFormStreamsAllBatches() throws Exception {
+        List<OwnerSummary> firstBatch = new ArrayList<>();
+        for (int id = 1; id <= OwnerCursor.DEFAULT_BATCH_SIZE; id++) {
+            firstBatch.add(new OwnerSummary(id, "George", "Franklin" + id, null, null, null));
+        }
+        given(this.owners.findSummariesByLastName(eq(""), anyInt(), any(Pageable.class)))
+            .willReturn(new ArrayList<>());
+        given(this.owners.findSummariesByLastName(eq(""), eq(0), any(Pageable.class))).willReturn(firstBatch);
+        given(this.owners.findSummariesByLastName(eq(""), eq(OwnerCursor.DEFAULT_BATCH_SIZE), any(Pageable.class)))
+            .willReturn(Lists.newArrayList(new OwnerSummary(500, "Betty", "Davis", null, null, null)));
+        mockMvc.perform(get("/owners"))
+            .andExpect(status().isOk())
+            .andExpect(view().name("owners/ownersList"))
+            .andExpect(content().string(Matchers.containsString("Franklin100")))
+            .andExpect(content().string(Matchers.containsString("Betty Davis")));
+    }
+
     @Test
     public void testProcessFindFormByLastName() throws Exception {
-        given(this.owners.findByLastName(george.getLastName())).willReturn(Lists.newArrayList(george));
+        given(this.owners.findSummariesByLastName(eq(george.getLastName()), eq(0), any(Pageable.class)))
+            .willReturn(Lists.newArrayList(summary(george)));
         mockMvc.perform(get("/owners")
             .param("lastName", "Franklin")
         )
@@ -124,6 +209,42 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/findOwners"));
     }
 
+    @Test
+    public void testProcessFindFormByTelephone() throws Exception {
+        given(this.telephones.findOwnerId("6085551023")).willReturn(TEST_OWNER_ID);
+        mockMvc.perform(get("/owners")
+            .param("lastName", "")
+            .param("telephone", "(608) 555-1023")
+        )
+            .andExpect(status().is3xxRedirection())
+            .andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
+    }
+
+    @Test
+    public void testProcessFindFormTelephoneNotFound() throws Exception {
+        mockMvc.perform(get("/owners")
+            .param("telephone", "5550000000")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasFieldErrorCode("owner", "telephone", "notFound"))
+            .andExpect(view().name("owners/findOwners"));
+    }
+
+    @Test
+    public void testProcessUpdateOwnerFormKeepsOwnTelephone() throws Exception {
+        given(this.owners.findIdByTelephone("6085551023")).willReturn(TEST_OWNER_ID);
+        mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID)
+            .param("firstName", "George")
+            .param("lastName", "Franklin")
+            .param("address", "110 W. Liberty St.")
+            .param("city", "Madison")
+            .param("telephone", "6085551023")
+            .param("version", "3")
+        )
+            .andExpect(status().is3xxRedirection())
+            .andExpect(view().name("redirect:/owners/{ownerId}"));
+    }
+
     @Test
     public void testInitUpdateOwnerForm() throws Exception {
         mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -145,11 +266,31 @@ public class OwnerControllerTests {
             .param("address", "123 Caramel Street")
             .param("city", "London")
             .param("telephone", "01616291589")
+            .param("version", "3")
         )
             .andExpect(status().is3xxRedirection())
             .andExpect(view().name("redirect:/owners/{ownerId}"));
     }
 
+    @Test
+    public void testProcessUpdateOwnerFormConcurrentlyModified() throws Exception {
+        given(this.owners.updateIfVersionMatches(any(Owner.class))).willReturn(0);
+        given(this.owners.findVersionById(TEST_OWNER_ID)).willReturn(4);
+        mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID)
+            .param("firstName", "Joe")
+            .param("lastName", "Bloggs")
+            .param("address", "123 Caramel Street")
+            .param("city", "London")
+            .param("telephone", "01616291589")
+            .param("version", "3")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasErrors("owner"))
+            .andExpect(model().attribute("owner", hasProperty("firstName", is("Joe"))))
+            .andExpect(model().attribute("owner", hasProperty("version", is(4))))
+            .andExpect(view().name("owners/createOrUpdateOwnerForm"));
+    }
+
     @Test
     public void testProcessUpdateOwnerFormHasErrors() throws Exception {
         mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID)
@@ -176,4 +317,18 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/ownerDetails"));
     }
 
+    @Test
+    public void testShowOwnerNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+
+        given(this.owners.findVersionById(TEST_OWNER_ID)).willReturn(4);
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk());
+    }
+
 }
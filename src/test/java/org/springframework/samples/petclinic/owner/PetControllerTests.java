@@ -1,6 +1,13 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -59,6 +66,7 @@ public class PetControllerTests {
         given(this.pets.findPetTypes()).willReturn(Lists.newArrayList(cat));
         given(this.owners.findById(TEST_OWNER_ID)).willReturn(new Owner());
         given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
+        given(this.pets.updateIfVersionMatches(any(Pet.class), eq(TEST_OWNER_ID))).willReturn(1);
 
     }
 
@@ -106,6 +114,8 @@ public class PetControllerTests {
     @Test
     public void testProcessUpdateFormSuccess() throws Exception {
         mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID)
+            .param("id", String.valueOf(TEST_PET_ID))
+            .param("version", "0")
             .param("name", "Betty")
             .param("type", "hamster")
             .param("birthDate", "2015-02-12")
@@ -114,6 +124,38 @@ public class PetControllerTests {
             .andExpect(view().name("redirect:/owners/{ownerId}"));
     }
 
+    @Test
+    public void testProcessUpdateFormConcurrentlyModified() throws Exception {
+        given(this.pets.updateIfVersionMatches(any(Pet.class), eq(TEST_OWNER_ID))).willReturn(0);
+        given(this.pets.findVersionByIdAndOwnerId(TEST_PET_ID, TEST_OWNER_ID)).willReturn(1);
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID)
+            .param("id", String.valueOf(TEST_PET_ID))
+            .param("version", "0")
+            .param("name", "Betty")
+            .param("type", "hamster")
+            .param("birthDate", "2015-02-12")
+        )
+            .andExpect(model().attributeHasErrors("pet"))
+            .andExpect(model().attribute("pet", hasProperty("version", is(1))))
+            .andExpect(status().isOk())
+            .andExpect(view().name("pets/createOrUpdatePetForm"));
+    }
+
+    @Test
+    public void testProcessUpdateFormPetOfAnotherOwner() throws Exception {
+        given(this.pets.updateIfVersionMatches(any(Pet.class), eq(TEST_OWNER_ID))).willReturn(0);
+        given(this.pets.findVersionByIdAndOwnerId(TEST_PET_ID, TEST_OWNER_ID)).willReturn(null);
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID)
+            .param("id", String.valueOf(TEST_PET_ID))
+            .param("version", "0")
+            .param("name", "Betty")
+            .param("type", "hamster")
+            .param("birthDate", "2015-02-12")
+        )
+            .andExpect(status().isNotFound());
+        verify(this.owners, never()).incrementVersion(anyInt());
+    }
+
     @Test
     public void testProcessUpdateFormHasErrors() throws Exception {
         mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID)
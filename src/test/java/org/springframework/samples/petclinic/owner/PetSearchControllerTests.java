@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.util.Lists;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+/**
+ * Test class for {@link PetSearchController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(PetSearchController.class)
+public class PetSearchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PetRepository pets;
+
+    private static PetSummary leo(int id) {
+        return new PetSummary(id, "Leo", LocalDate.of(2010, 9, 7), "cat", 1, "George", "Franklin");
+    }
+
+    @Test
+    public void testShowPetSearch() throws Exception {
+        given(this.pets.findSummariesByNamePrefix(eq("Le"), eq(""), eq(0), any(Pageable.class)))
+            .willReturn(Lists.newArrayList(leo(1)));
+        mockMvc.perform(get("/pets.html").param("name", "le"))
+            .andExpect(status().isOk())
+            .andExpect(view().name("pets/findPets"))
+            .andExpect(content().string(Matchers.containsString("George Franklin")))
+            .andExpect(content().string(Matchers.not(Matchers.containsString("More pets"))));
+    }
+
+    @Test
+    public void testShowResourcesPetSearchWithNextPage() throws Exception {
+        List<PetSummary> page = new ArrayList<>();
+        for (int id = 1; id <= PetSearchController.DEFAULT_PAGE_SIZE; id++) {
+            page.add(leo(id));
+        }
+        given(this.pets.findSummariesByNamePrefix(eq("Leo"), eq("Leo"), eq(3), any(Pageable.class))).willReturn(page);
+        mockMvc.perform(get("/pets").param("name", "Leo").param("afterName", "Leo").param("afterId", "3"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.pets.length()").value(PetSearchController.DEFAULT_PAGE_SIZE))
+            .andExpect(jsonPath("$.pets[0].ownerLastName").value("Franklin"))
+            .andExpect(jsonPath("$.pets[0].sortKey").doesNotExist())
+            .andExpect(jsonPath("$.more").value(true))
+            .andExpect(jsonPath("$.nextAfterName").value("Leo"))
+            .andExpect(jsonPath("$.nextAfterId").value(PetSearchController.DEFAULT_PAGE_SIZE));
+    }
+
+    @Test
+    public void testShowResourcesPetSearchEscapesWildcards() throws Exception {
+        mockMvc.perform(get("/pets").param("name", "l_o%!"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("L_o%!"));
+        verify(this.pets).findSummariesByNamePrefix(eq("L!_o!%!!"), eq(""), eq(0), any(Pageable.class));
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.samples.petclinic.system.DomainEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for {@link TelephoneIndex}
+ */
+public class TelephoneIndexTests {
+
+    private final OwnerRepository owners = mock(OwnerRepository.class);
+
+    private final TelephoneIndex index = new TelephoneIndex(this.owners);
+
+    @Test
+    public void shouldFindOwnerByDigitsOnly() {
+        given(this.owners.findIdsAndTelephones())
+            .willReturn(Collections.singletonList(new Object[] { 1, "6085551023" }));
+        this.index.warmUp();
+
+        assertThat(this.index.findOwnerId("(608) 555-1023")).isEqualTo(1);
+        assertThat(this.index.findOwnerId("608.555.1023")).isEqualTo(1);
+        assertThat(this.index.findOwnerId("---")).isNull();
+        verify(this.owners, never()).findIdByTelephone("6085551023");
+    }
+
+    @Test
+    public void shouldFallBackToDataStoreAndFollowChanges() {
+        given(this.owners.findIdsAndTelephones()).willReturn(Collections.emptyList());
+        given(this.owners.findIdByTelephone("6085551749")).willReturn(2);
+        assertThat(this.index.findOwnerId("6085551749")).isEqualTo(2);
+
+        given(this.owners.findTelephoneById(2)).willReturn("6085550000");
+        this.index.onEvents(Collections.singletonList(
+            new DomainEvent(1, "owner", 2, "updated", Collections.emptyMap(), 0)));
+        given(this.owners.findIdByTelephone("6085551749")).willReturn(null);
+
+        assertThat(this.index.findOwnerId("6085551749")).isNull();
+        assertThat(this.index.findOwnerId("608 555 0000")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFollowChangesRelayedDuringLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch relayed = new CountDownLatch(1);
+        given(this.owners.findIdsAndTelephones()).willAnswer(invocation -> {
+            loading.countDown();
+            // the number is read before it changes
+            relayed.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(new Object[] { 2, "6085551749" });
+        });
+        given(this.owners.findTelephoneById(2)).willReturn("6085550000");
+        Thread loader = new Thread(this.index::warmUp);
+        loader.start();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread relay = new Thread(() -> this.index.onEvents(Collections.singletonList(
+            new DomainEvent(1, "owner", 2, "updated", Collections.emptyMap(), 0))));
+        relay.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (relay.getState() != Thread.State.BLOCKED && relay.isAlive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        relayed.countDown();
+        loader.join(5_000);
+        relay.join(5_000);
+
+        assertThat(this.index.findOwnerId("608 555 0000")).isEqualTo(2);
+        assertThat(this.index.findOwnerId("6085551749")).isNull();
+    }
+
+}
@@ -10,16 +10,25 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.samples.petclinic.calendar.CalendarProperties;
+import org.springframework.samples.petclinic.calendar.ClinicCalendar;
+import org.springframework.samples.petclinic.system.FragmentCache;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.samples.petclinic.visit.Visit;
@@ -36,20 +45,31 @@ import org.springframework.test.web.servlet.MockMvc;
 @WebMvcTest(VisitController.class)
 public class VisitControllerTests {
 
+    private static final int TEST_OWNER_ID = 1;
     private static final int TEST_PET_ID = 1;
 
+    private static final LocalDateTime NEXT_FRIDAY_NOON = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS)
+        .with(TemporalAdjusters.next(DayOfWeek.FRIDAY)).withHour(12);
+    private static final LocalDateTime NEXT_SATURDAY_NOON = NEXT_FRIDAY_NOON.plusDays(1);
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private VisitRepository visits;
 
+    @MockBean
+    private OwnerRepository owners;
+
     @MockBean
     private PetRepository pets;
 
     @MockBean
     private VetRepository vets;
 
+    @MockBean
+    private FragmentCache fragmentCache;
+
     @Before
     public void init() {
         given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
@@ -59,21 +79,26 @@ public class VisitControllerTests {
         vet.setLastName("Douglas");
         Vet[] vetArray = {vet};
         given(this.vets.findByFirstAndLastName(eq("Linda"), eq("Douglas"))).willReturn(Arrays.asList(vetArray));
+        Vet helen = new Vet();
+        helen.setId(2);
+        helen.setFirstName("Helen");
+        helen.setLastName("Leary");
+        given(this.vets.findByFirstAndLastName(eq("Helen"), eq("Leary"))).willReturn(Arrays.asList(helen));
     }
 
     @Test
     public void testInitNewVisitForm() throws Exception {
-        mockMvc.perform(get("/owners/*/pets/{petId}/visits/new", TEST_PET_ID))
+        mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID))
             .andExpect(status().isOk())
             .andExpect(view().name("pets/createOrUpdateVisitForm"));
     }
 
     @Test
     public void testProcessNewVisitFormSuccess() throws Exception {
-        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
             .param("name", "George")
             .param("description", "Visit Description")
-            .param("time", LocalDateTime.of(2019, 3, 1, 12, 0).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("time", NEXT_FRIDAY_NOON.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
             .param("inputVetFullName", "Linda Douglas")
         )
             .andExpect(status().is3xxRedirection())
@@ -82,7 +107,7 @@ public class VisitControllerTests {
 
     @Test
     public void testProcessNewVisitFormHasErrorsForNoDescription() throws Exception {
-        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
             .param("name", "George")
         )
             .andExpect(model().attributeHasErrors("visit"))
@@ -92,7 +117,7 @@ public class VisitControllerTests {
 
     @Test
     public void testProcessNewVisitFormHasErrorsForEarlierTime() throws Exception {
-        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
             .param("name", "George")
             .param("description", "Visit Description")
             .param("time", LocalDateTime.now().minusHours(5).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
@@ -104,10 +129,10 @@ public class VisitControllerTests {
 
     @Test
     public void testProcessNewVisitFormHasErrorsForWeekend() throws Exception {
-        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
             .param("name", "George")
             .param("description", "Visit Description")
-            .param("time", LocalDateTime.of(2019, 3, 2, 12, 0).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("time", NEXT_SATURDAY_NOON.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
         )
             .andExpect(model().attributeHasErrors("visit"))
             .andExpect(status().isOk())
@@ -118,11 +143,11 @@ public class VisitControllerTests {
     public void testProcessNewVisitFormHasErrorsNoVetFound() throws Exception {
         given(this.vets.findByFirstAndLastName(eq("Linda"), eq("Douglas"))).willReturn(new ArrayList<Vet>());
 
-        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
             .param("name", "George")
             .param("description", "Visit Description")
             .param("inputVetFullName", "Linda Douglas")
-            .param("time", LocalDateTime.of(2019, 3, 2, 12, 0).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("time", NEXT_SATURDAY_NOON.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
         )
             .andExpect(model().attributeHasErrors("visit"))
             .andExpect(status().isOk())
@@ -135,14 +160,50 @@ public class VisitControllerTests {
         given(this.visits.findByVetAndTime(anyInt(), any(LocalDateTime.class)))
             .willReturn(Arrays.asList(visitArr));
 
-        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
             .param("name", "George")
             .param("description", "Visit Description")
             .param("inputVetFullName", "Linda Douglas")
-            .param("time", LocalDateTime.of(2019, 3, 1, 12, 0).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("time", NEXT_FRIDAY_NOON.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
         )
             .andExpect(model().attributeHasErrors("visit"))
             .andExpect(status().isOk())
             .andExpect(view().name("pets/createOrUpdateVisitForm"));
     }
+
+    @Test
+    public void testProcessNewVisitFormHasErrorsOutsideOpeningHours() throws Exception {
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
+            .param("description", "Visit Description")
+            .param("inputVetFullName", "Linda Douglas")
+            .param("time", NEXT_FRIDAY_NOON.withHour(18).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+        )
+            .andExpect(model().attributeHasFieldErrorCode("visit", "time", "closed"))
+            .andExpect(status().isOk())
+            .andExpect(view().name("pets/createOrUpdateVisitForm"));
+    }
+
+    @Test
+    public void testProcessNewVisitFormHasErrorsVetOff() throws Exception {
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
+            .param("description", "Visit Description")
+            .param("inputVetFullName", "Helen Leary")
+            .param("time", NEXT_FRIDAY_NOON.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+        )
+            .andExpect(model().attributeHasFieldErrorCode("visit", "inputVetFullName", "off"))
+            .andExpect(status().isOk())
+            .andExpect(view().name("pets/createOrUpdateVisitForm"));
+    }
+
+    @TestConfiguration
+    static class CalendarConfiguration {
+
+        @Bean
+        ClinicCalendar clinicCalendar() {
+            CalendarProperties rules = new CalendarProperties();
+            rules.getRosters().put(2, EnumSet.of(DayOfWeek.MONDAY));
+            return new ClinicCalendar(rules);
+        }
+    }
+
 }
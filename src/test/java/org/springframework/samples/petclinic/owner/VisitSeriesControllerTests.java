@@ -0,0 +1,198 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.calendar.CalendarProperties;
+import org.springframework.samples.petclinic.calendar.ClinicCalendar;
+import org.springframework.samples.petclinic.system.FragmentCache;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link VisitSeriesController} and {@link VisitSeriesBooking}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(VisitSeriesController.class)
+@Import(VisitSeriesBooking.class)
+public class VisitSeriesControllerTests {
+
+    private static final int TEST_OWNER_ID = 1;
+    private static final int TEST_PET_ID = 1;
+
+    private static final LocalDateTime NEXT_MONDAY_TEN = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS)
+        .with(TemporalAdjusters.next(DayOfWeek.MONDAY)).withHour(10);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private OwnerRepository owners;
+
+    @MockBean
+    private PetRepository pets;
+
+    @MockBean
+    private VetRepository vets;
+
+    @MockBean
+    private FragmentCache fragmentCache;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void init() {
+        given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
+        Vet vet = new Vet();
+        vet.setId(1);
+        vet.setFirstName("Linda");
+        vet.setLastName("Douglas");
+        given(this.vets.findAll()).willReturn(Collections.singletonList(vet));
+        given(this.vets.findByFirstAndLastName(eq("Linda"), eq("Douglas"))).willReturn(Collections.singletonList(vet));
+    }
+
+    @Test
+    public void testInitVisitSeriesForm() throws Exception {
+        mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits/series", TEST_OWNER_ID, TEST_PET_ID))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("visitSeries"))
+            .andExpect(view().name("pets/createVisitSeriesForm"));
+    }
+
+    @Test
+    public void testBookWholeSeries() throws Exception {
+        given(this.visits.findTakenTimes(eq(1), anyCollection())).willReturn(Collections.emptyList());
+
+        postSeries(true)
+            .andExpect(status().is3xxRedirection())
+            .andExpect(view().name("redirect:/owners/{ownerId}"));
+
+        verify(this.visits, times(1)).findTakenTimes(eq(1), anyCollection());
+        verify(this.visits, times(4)).save(any(Visit.class));
+        verify(this.owners).incrementVersion(TEST_OWNER_ID);
+        verify(this.fragmentCache).invalidate(FragmentCache.petVisitsKey(TEST_PET_ID));
+    }
+
+    @Test
+    public void testAllOrNothingSeriesWithTakenVisit() throws Exception {
+        given(this.visits.findTakenTimes(eq(1), anyCollection()))
+            .willReturn(Collections.singletonList(NEXT_MONDAY_TEN.plusWeeks(2)));
+
+        postSeries(true)
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("occurrences", hasSize(4)))
+            .andExpect(model().attribute("occurrences",
+                hasItem(hasProperty("status", is(VisitSeriesBooking.Status.TAKEN)))))
+            .andExpect(model().attribute("occurrences",
+                hasItem(hasProperty("status", is(VisitSeriesBooking.Status.NOT_BOOKED)))))
+            .andExpect(view().name("pets/createVisitSeriesForm"));
+
+        verify(this.visits, never()).save(any(Visit.class));
+        verify(this.owners, never()).incrementVersion(TEST_OWNER_ID);
+        verify(this.fragmentCache, never()).invalidate(any());
+    }
+
+    @Test
+    public void testBestEffortSeriesWithTakenVisit() throws Exception {
+        given(this.visits.findTakenTimes(eq(1), anyCollection()))
+            .willReturn(Collections.singletonList(NEXT_MONDAY_TEN.plusWeeks(2)));
+
+        postSeries(false)
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("occurrences"))
+            .andExpect(view().name("pets/createVisitSeriesForm"));
+
+        verify(this.visits, times(1)).findTakenTimes(eq(1), anyCollection());
+        verify(this.visits, times(3)).save(any(Visit.class));
+        verify(this.owners).incrementVersion(TEST_OWNER_ID);
+        verify(this.fragmentCache).invalidate(FragmentCache.petVisitsKey(TEST_PET_ID));
+    }
+
+    @Test
+    public void testSeriesWithUnknownVet() throws Exception {
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/series", TEST_OWNER_ID, TEST_PET_ID)
+            .param("time", NEXT_MONDAY_TEN.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("inputVetFullName", "Helen Leary")
+            .param("description", "Weekly check")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasFieldErrors("visitSeries", "inputVetFullName"))
+            .andExpect(view().name("pets/createVisitSeriesForm"));
+
+        verify(this.visits, never()).findTakenTimes(any(), anyCollection());
+    }
+
+    @Test
+    public void testSeriesWithTooManyVisits() throws Exception {
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/series", TEST_OWNER_ID, TEST_PET_ID)
+            .param("time", NEXT_MONDAY_TEN.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("inputVetFullName", "Linda Douglas")
+            .param("description", "Weekly check")
+            .param("occurrences", "53")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasFieldErrors("visitSeries", "occurrences"))
+            .andExpect(view().name("pets/createVisitSeriesForm"));
+    }
+
+    private ResultActions postSeries(boolean allOrNothing) throws Exception {
+        return mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/series", TEST_OWNER_ID, TEST_PET_ID)
+            .param("time", NEXT_MONDAY_TEN.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00")))
+            .param("inputVetFullName", "Linda Douglas")
+            .param("description", "Weekly check")
+            .param("interval", "1")
+            .param("unit", "WEEKS")
+            .param("occurrences", "4")
+            .param("allOrNothing", String.valueOf(allOrNothing))
+        );
+    }
+
+    @TestConfiguration
+    static class CalendarConfiguration {
+
+        @Bean
+        ClinicCalendar clinicCalendar() {
+            return new ClinicCalendar(new CalendarProperties());
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package org.springframework.samples.petclinic.reminder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.samples.petclinic.system.DomainEvent;
+
+/**
+ * Test class for {@link ReminderScheduler}, with the database mocked and the reminders
+ * recorded.
+ */
+public class ReminderSchedulerTests {
+
+    private final UpcomingVisitRepository visits = mock(UpcomingVisitRepository.class);
+    private final List<List<Reminder>> batches = new ArrayList<>();
+    private final ReminderProperties properties = new ReminderProperties();
+    private LocalDateTime now;
+
+    @Before
+    public void setup() {
+        this.now = LocalDateTime.now().withSecond(0).withNano(0);
+    }
+
+    @Test
+    public void shouldDeliverRemindersAheadOfUpcomingVisits() {
+        given(this.visits.findUpcomingAfter(any(), eq(-1), any())).willReturn(Arrays.asList(
+            new UpcomingVisit(1, 7, 2, this.now.plusDays(2)),
+            new UpcomingVisit(2, 8, null, this.now.plusMinutes(30)),
+            new UpcomingVisit(3, 9, 1, this.now.plusHours(5))));
+        ReminderScheduler scheduler = scheduler();
+        scheduler.load();
+        assertThat(scheduler.getScheduledCount()).isEqualTo(3);
+
+        scheduler.tick(this.now.plusHours(3));
+        assertThat(this.batches).isEmpty();
+        scheduler.tick(this.now.plusHours(4));
+        assertThat(delivered()).containsExactly("visit 3 1h");
+        scheduler.tick(this.now.plusDays(1).plusMinutes(5));
+        assertThat(delivered()).containsExactly("visit 3 1h", "visit 1 24h");
+        scheduler.tick(this.now.plusDays(2));
+        assertThat(delivered()).containsExactly("visit 3 1h", "visit 1 24h", "visit 1 1h");
+        assertThat(scheduler.getScheduledCount()).isZero();
+    }
+
+    @Test
+    public void shouldFollowVisitChanges() {
+        given(this.visits.findUpcomingAfter(any(), eq(-1), any())).willReturn(Collections.singletonList(
+            new UpcomingVisit(2, 8, 1, this.now.plusHours(3))));
+        ReminderScheduler scheduler = scheduler();
+        scheduler.onEvents(Collections.singletonList(visitEvent(1, 1, "saved", this.now.plusHours(2))));
+        scheduler.load();
+        scheduler.onEvents(Arrays.asList(visitEvent(2, 2, "removed", this.now.plusHours(3)),
+            visitEvent(3, 1, "saved", this.now.plusHours(4))));
+        assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+
+        scheduler.tick(this.now.plusHours(2));
+        assertThat(this.batches).isEmpty();
+        scheduler.tick(this.now.plusHours(3));
+        assertThat(delivered()).containsExactly("visit 1 1h");
+        assertThat(this.batches.get(0).get(0).getTime()).isEqualTo(this.now.plusHours(4));
+        assertThat(this.batches.get(0).get(0).getPetId()).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldApplyEventsAndRetryWhenLoadFails() {
+        given(this.visits.findUpcomingAfter(any(), eq(-1), any()))
+            .willThrow(new IllegalStateException("database down"))
+            .willReturn(Collections.singletonList(new UpcomingVisit(2, 8, 1, this.now.plusHours(3))));
+        ReminderScheduler scheduler = scheduler();
+        scheduler.onEvents(Collections.singletonList(visitEvent(1, 1, "saved", this.now.plusHours(2))));
+        assertThat(scheduler.load()).isFalse();
+        assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+
+        scheduler.onEvents(Collections.singletonList(visitEvent(2, 3, "saved", this.now.plusHours(4))));
+        assertThat(scheduler.getScheduledCount()).isEqualTo(2);
+        assertThat(scheduler.load()).isTrue();
+        assertThat(scheduler.getScheduledCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldDeliverInBatches() {
+        this.properties.setBatchSize(2);
+        List<UpcomingVisit> upcoming = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            upcoming.add(new UpcomingVisit(id, id, 1, this.now.plusHours(2)));
+        }
+        given(this.visits.findUpcomingAfter(any(), eq(-1), any())).willReturn(upcoming);
+        ReminderScheduler scheduler = scheduler();
+        scheduler.load();
+
+        scheduler.tick(this.now.plusHours(1));
+        assertThat(this.batches).extracting(List::size).containsExactly(2, 2, 1);
+    }
+
+    private ReminderScheduler scheduler() {
+        this.properties.setLeads(Arrays.asList(Duration.ofHours(24), Duration.ofHours(1)));
+        return new ReminderScheduler(this.visits, reminders -> this.batches.add(new ArrayList<>(reminders)),
+            this.properties);
+    }
+
+    private List<String> delivered() {
+        List<String> delivered = new ArrayList<>();
+        for (List<Reminder> batch : this.batches) {
+            for (Reminder reminder : batch) {
+                delivered.add("visit " + reminder.getVisitId() + " " + reminder.getLead().toHours() + "h");
+            }
+        }
+        return delivered;
+    }
+
+    private static DomainEvent visitEvent(long sequence, int visitId, String type, LocalDateTime time) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", visitId);
+        data.put("petId", 7);
+        data.put("vetId", 1);
+        data.put("time", time.toString());
+        return new DomainEvent(sequence, "visit", visitId, type, data, System.currentTimeMillis());
+    }
+
+}
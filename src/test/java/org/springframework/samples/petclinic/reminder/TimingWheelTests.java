@@ -0,0 +1,92 @@
+package org.springframework.samples.petclinic.reminder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test class for {@link TimingWheel}
+ */
+public class TimingWheelTests {
+
+    @Test
+    public void shouldExpireInTickOrderOnEveryLevel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1000);
+        long[] ticks = { 1001, 1063, 1064, 1100, 5096, 300_000, 17_000_000, 40_000_000 };
+        for (int i = ticks.length - 1; i >= 0; i--) {
+            wheel.schedule(ticks[i], ticks[i]);
+        }
+        assertThat(wheel.size()).isEqualTo(ticks.length);
+
+        List<Long> expired = new ArrayList<>();
+        for (long tick : ticks) {
+            assertThat(wheel.advance(tick - 1)).isEmpty();
+            expired.addAll(wheel.advance(tick));
+        }
+        assertThat(expired).containsExactly(1001L, 1063L, 1064L, 1100L, 5096L, 300_000L, 17_000_000L, 40_000_000L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void shouldExpireOverdueOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        wheel.schedule(100, "now");
+        wheel.schedule(50, "past");
+        assertThat(wheel.advance(100)).containsExactlyInAnyOrder("now", "past");
+        assertThat(wheel.advance(101)).isEmpty();
+    }
+
+    @Test
+    public void shouldCancel() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        TimingWheel.Timer<String> first = wheel.schedule(10, "first");
+        TimingWheel.Timer<String> second = wheel.schedule(10, "second");
+        TimingWheel.Timer<String> third = wheel.schedule(10, "third");
+        TimingWheel.Timer<String> far = wheel.schedule(100_000, "far");
+
+        assertThat(wheel.cancel(second)).isTrue();
+        assertThat(wheel.cancel(second)).isFalse();
+        assertThat(wheel.cancel(far)).isTrue();
+        assertThat(wheel.size()).isEqualTo(2);
+        assertThat(wheel.advance(200_000)).containsExactlyInAnyOrder("first", "third");
+        assertThat(first.isScheduled()).isFalse();
+        assertThat(wheel.cancel(third)).isFalse();
+    }
+
+    @Test
+    public void shouldMatchPlainListOverManyTimers() {
+        Random random = new Random(42);
+        TimingWheel<Long> wheel = new TimingWheel<>(0);
+        List<TimingWheel.Timer<Long>> timers = new ArrayList<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            // after the start tick, which would expire on the first advance
+            long tick = 1 + (random.nextInt(10) == 0 ? random.nextInt(20_000_000) : random.nextInt(100_000));
+            timers.add(wheel.schedule(tick, tick));
+        }
+        List<Long> remaining = new ArrayList<>();
+        for (int i = 0; i < timers.size(); i++) {
+            if (i % 2 == 0) {
+                wheel.cancel(timers.get(i));
+            } else {
+                remaining.add(timers.get(i).getTick());
+            }
+        }
+        assertThat(wheel.size()).isEqualTo(remaining.size());
+
+        long tick = 0;
+        int expired = 0;
+        while (wheel.size() > 0) {
+            long next = tick + 1 + random.nextInt(5000);
+            for (long expiredTick : wheel.advance(next)) {
+                assertThat(expiredTick).isGreaterThan(tick).isLessThanOrEqualTo(next);
+                expired++;
+            }
+            tick = next;
+        }
+        assertThat(expired).isEqualTo(remaining.size());
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.springframework.samples.petclinic.report;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for {@link ActivityController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(ActivityController.class)
+public class ActivityControllerTests {
+
+    private static final LocalDate MONDAY = LocalDate.of(2018, 9, 3);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VetDayActivityRepository vetDays;
+
+    @MockBean
+    private PetTypeActivityRepository petTypes;
+
+    @MockBean
+    private VetRepository vets;
+
+    @MockBean
+    private PetRepository pets;
+
+    @Before
+    public void setup() {
+        Vet james = new Vet();
+        james.setFirstName("James");
+        james.setLastName("Carter");
+        james.setId(1);
+        Vet helen = new Vet();
+        helen.setFirstName("Helen");
+        helen.setLastName("Leary");
+        helen.setId(2);
+        given(this.vets.findAll()).willReturn(Arrays.asList(james, helen));
+        PetType cat = new PetType();
+        cat.setId(1);
+        cat.setName("cat");
+        given(this.pets.findPetTypes()).willReturn(Collections.singletonList(cat));
+        // two shards with activity of the same vet on the same day
+        given(this.vetDays.findByDayBetween(MONDAY, MONDAY.plusDays(6))).willReturn(Arrays.asList(
+            new VetDayActivity(1, MONDAY.plusDays(1), 3, 1), new VetDayActivity(1, MONDAY.plusDays(1), 1, 0),
+            new VetDayActivity(1, MONDAY.plusDays(4), 4, 1)));
+        given(this.petTypes.findAll()).willReturn(Arrays.asList(new PetTypeActivity(1, 10, 1),
+            new PetTypeActivity(1, 10, 3)));
+    }
+
+    @Test
+    public void testShowActivityHtml() throws Exception {
+        mockMvc.perform(get("/activity.html").param("week", "2018-09-05"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("report"))
+            .andExpect(view().name("reports/activity"));
+    }
+
+    @Test
+    public void testShowResourcesActivity() throws Exception {
+        mockMvc.perform(get("/activity").param("week", "2018-09-05").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.weekStart").value("2018-09-03"))
+            .andExpect(jsonPath("$.days", hasSize(7)))
+            .andExpect(jsonPath("$.vets[0].name").value("James Carter"))
+            .andExpect(jsonPath("$.vets[0].visitsPerDay[1]").value(4))
+            .andExpect(jsonPath("$.vets[0].visitsPerDay[4]").value(4))
+            .andExpect(jsonPath("$.vets[0].visits").value(8))
+            .andExpect(jsonPath("$.vets[0].cancellationRate").value(0.25))
+            .andExpect(jsonPath("$.vets[1].visits").value(0))
+            .andExpect(jsonPath("$.vets[1].cancellationRate").value(nullValue()))
+            .andExpect(jsonPath("$.petTypes[0].petType").value("cat"))
+            .andExpect(jsonPath("$.petTypes[0].visits").value(20))
+            .andExpect(jsonPath("$.petTypes[0].cancellationRate").value(0.2));
+    }
+
+}
@@ -0,0 +1,142 @@
+package org.springframework.samples.petclinic.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for {@link ActivityRecorder}, with the outbox configuration that publishes the
+ * visit changes.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(includeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = {
+    ".*\\.RepositoryConfiguration", ".*\\.DomainEventConfiguration", ".*\\.ActivityRecorder" }))
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:activity",
+    "petclinic.events.poll-interval=0"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ActivityRecorderTests {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private VetRepository vets;
+
+    @Autowired
+    private VetDayActivityRepository vetDays;
+
+    @Autowired
+    private PetTypeActivityRepository petTypes;
+
+    @Test
+    public void shouldCountCreatedAndCancelledVisits() {
+        int catVisits = catActivity().getVisits();
+        int catCancellations = catActivity().getCancellations();
+        Visit first = newVisit(9);
+        this.visits.save(first);
+        this.visits.save(newVisit(14));
+        this.visits.removeById(first.getId());
+
+        List<VetDayActivity> activity = this.vetDays.findByDayBetween(DAY, DAY);
+        assertThat(activity).hasSize(1);
+        assertThat(activity.get(0).getVetId()).isEqualTo(2);
+        assertThat(activity.get(0).getVisits()).isEqualTo(2);
+        assertThat(activity.get(0).getCancellations()).isEqualTo(1);
+        assertThat(catActivity().getVisits()).isEqualTo(catVisits + 2);
+        assertThat(catActivity().getCancellations()).isEqualTo(catCancellations + 1);
+    }
+
+    @Test
+    public void shouldCountBulkCancellationsTogether() {
+        LocalDate day = DAY.plusDays(2);
+        int catCancellations = catActivity().getCancellations();
+        List<Integer> ids = new ArrayList<>();
+        for (int hour = 9; hour < 12; hour++) {
+            Visit visit = newVisit(day, hour);
+            this.visits.save(visit);
+            ids.add(visit.getId());
+        }
+
+        assertThat(this.visits.removeByIds(ids)).isEqualTo(3);
+
+        List<VetDayActivity> activity = this.vetDays.findByDayBetween(day, day);
+        assertThat(activity).hasSize(1);
+        assertThat(activity.get(0).getVisits()).isEqualTo(3);
+        assertThat(activity.get(0).getCancellations()).isEqualTo(3);
+        assertThat(catActivity().getCancellations()).isEqualTo(catCancellations + 3);
+    }
+
+    @Test
+    public void shouldCountConcurrentFirstVisitsOfADay() throws Exception {
+        LocalDate day = DAY.plusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> bookings = new ArrayList<>();
+            for (int hour = 9; hour < 13; hour++) {
+                Visit visit = newVisit(day, hour);
+                bookings.add(executor.submit(() -> this.visits.save(visit)));
+            }
+            for (Future<?> booking : bookings) {
+                booking.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<VetDayActivity> activity = this.vetDays.findByDayBetween(day, day);
+        assertThat(activity).hasSize(1);
+        assertThat(activity.get(0).getVisits()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldKeepSeedActivity() {
+        assertThat(this.vetDays.findByDayBetween(LocalDate.of(2013, 1, 1), LocalDate.of(2013, 1, 7)))
+            .extracting(VetDayActivity::getVetId).containsExactlyInAnyOrder(3, 2, 5, 6);
+    }
+
+    private PetTypeActivity catActivity() {
+        return this.petTypes.findAll().stream().filter(activity -> activity.getTypeId() == 1).findFirst().get();
+    }
+
+    private Visit newVisit(int hour) {
+        return newVisit(DAY, hour);
+    }
+
+    private Visit newVisit(LocalDate day, int hour) {
+        Visit visit = new Visit();
+        visit.setPetId(7);
+        visit.setVet(this.vets.findById(2));
+        visit.setTime(LocalDateTime.of(day, LocalTime.of(hour, 0)));
+        visit.setDescription("checkup");
+        return visit;
+    }
+
+}
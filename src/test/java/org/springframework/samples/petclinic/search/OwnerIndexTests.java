@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.List;
+
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link OwnerIndex}
+ */
+public class OwnerIndexTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OwnerIndex index;
+
+    @Before
+    public void setup() throws Exception {
+        this.index = new OwnerIndex(FSDirectory.open(this.folder.getRoot().toPath()));
+        OwnerDocument george = new OwnerDocument(1, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023");
+        george.getPetNames().add("Leo");
+        OwnerDocument jean = new OwnerDocument(6, "Jean", "Coleman", "105 N. Lake St.", "Monona", "6085552654");
+        jean.getPetNames().add("Samantha");
+        jean.getPetNames().add("Max");
+        jean.getVisitDescriptions().add("rabies shot");
+        jean.getVisitDescriptions().add("neutered");
+        OwnerDocument harold = new OwnerDocument(7, "Jeff", "Black", "1450 Oak Blvd.", "Monona", "6085555387");
+        harold.getPetNames().add("Lucky");
+        this.index.update(george);
+        this.index.update(jean);
+        this.index.update(harold);
+        this.index.publish();
+    }
+
+    @After
+    public void close() throws Exception {
+        this.index.close();
+    }
+
+    @Test
+    public void shouldFindMisspeltNames() throws Exception {
+        assertThat(this.index.search("Franklyn", 10)).extracting(OwnerHit::getOwnerId).containsExactly(1);
+        assertThat(this.index.search("coleman samanta", 10)).extracting(OwnerHit::getOwnerId).containsExactly(6);
+        assertThat(this.index.search("rabis", 10)).extracting(OwnerHit::getOwnerId).containsExactly(6);
+        assertThat(this.index.search("608-555-1023", 10)).extracting(OwnerHit::getOwnerId).containsExactly(1);
+    }
+
+    @Test
+    public void shouldRankBetterMatchesFirst() throws Exception {
+        List<OwnerHit> hits = this.index.search("Monona Lucky", 10);
+        assertThat(hits).extracting(OwnerHit::getOwnerId).containsExactly(7, 6);
+        assertThat(hits.get(0).getLastName()).isEqualTo("Black");
+    }
+
+    @Test
+    public void shouldReplaceAndDeleteDocuments() throws Exception {
+        this.index.update(new OwnerDocument(1, "George", "Franklin", "110 W. Liberty St.", "Sun Prairie", "6085551023"));
+        this.index.delete(7);
+        assertThat(this.index.search("Madison", 10)).extracting(OwnerHit::getOwnerId).containsExactly(1);
+        this.index.publish();
+        assertThat(this.index.search("Madison", 10)).isEmpty();
+        assertThat(this.index.search("Prairie", 10)).extracting(OwnerHit::getOwnerId).containsExactly(1);
+        assertThat(this.index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldDeleteDocumentsNotUpdatedSince() throws Exception {
+        Thread.sleep(5);
+        long rebuild = System.currentTimeMillis();
+        this.index.update(new OwnerDocument(6, "Jean", "Coleman", "105 N. Lake St.", "Monona", "6085552654"));
+        this.index.deleteUpdatedBefore(rebuild);
+        this.index.publish();
+        assertThat(this.index.search("Monona", 10)).extracting(OwnerHit::getOwnerId).containsExactly(6);
+        assertThat(this.index.size()).isEqualTo(1);
+    }
+
+}
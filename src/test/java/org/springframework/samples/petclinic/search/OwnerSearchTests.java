@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.search;
+
+import java.util.Collections;
+
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.samples.petclinic.system.DomainEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for {@link OwnerSearch}, with the owners of the database mocked.
+ */
+public class OwnerSearchTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final OwnerSourceRepository owners = mock(OwnerSourceRepository.class);
+
+    private OwnerIndex index;
+
+    private OwnerSearch search;
+
+    @Before
+    public void setup() throws Exception {
+        this.index = new OwnerIndex(FSDirectory.open(this.folder.getRoot().toPath()));
+        this.index.update(new OwnerDocument(1, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023"));
+        this.index.update(new OwnerDocument(6, "Jean", "Coleman", "105 N. Lake St.", "Monona", "6085552654"));
+        this.index.publish();
+        SearchProperties properties = new SearchProperties();
+        properties.setRebuildOnStartup(false);
+        this.search = new OwnerSearch(this.owners, this.index, properties);
+    }
+
+    @After
+    public void close() throws Exception {
+        this.index.close();
+    }
+
+    @Test
+    public void shouldKeepIndexWhenRebuildFails() throws Exception {
+        OwnerDocument jean = new OwnerDocument(6, "Jean", "Coleman", "105 N. Lake St.", "Sun Prairie", "6085552654");
+        given(this.owners.findDocumentsAfter(anyInt(), any(Pageable.class))).willReturn(Collections.singletonList(jean));
+        given(this.owners.findPetNamesByOwnerIds(any()))
+            .willThrow(new IllegalStateException("database down"))
+            .willReturn(Collections.emptyList());
+        given(this.owners.findDocumentsByIds(any())).willReturn(Collections.singletonList(jean));
+
+        assertThat(this.search.rebuild()).isTrue();
+        awaitRebuild();
+        // publishes the changes of the owner, and anything the failed rebuild left behind
+        this.search.onEvents(Collections.singletonList(
+            new DomainEvent(1, "owner", 6, "saved", Collections.emptyMap(), System.currentTimeMillis())));
+
+        assertThat(this.search.search("Madison")).extracting(OwnerHit::getOwnerId).containsExactly(1);
+        assertThat(this.search.search("Prairie")).extracting(OwnerHit::getOwnerId).containsExactly(6);
+        assertThat(this.index.size()).isEqualTo(2);
+    }
+
+    private void awaitRebuild() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Boolean.TRUE.equals(this.search.describe().get("rebuilding"))) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -19,17 +19,22 @@ package org.springframework.samples.petclinic.service;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.owner.PetSummary;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
@@ -85,6 +90,18 @@ public class ClinicServiceTests {
         assertThat(owners.isEmpty()).isTrue();
     }
 
+    @Test
+    public void shouldFindOwnerSummariesByLastNameInBatches() {
+        List<OwnerSummary> summaries = this.owners.findSummariesByLastName("", 0, PageRequest.of(0, 4));
+        assertThat(summaries).extracting(OwnerSummary::getId).containsExactly(1, 2, 3, 4);
+
+        summaries = this.owners.findSummariesByLastName("Davis", 2, PageRequest.of(0, 4));
+        assertThat(summaries).extracting(OwnerSummary::getId).containsExactly(4);
+
+        List<Object[]> petNames = this.owners.findPetNamesByOwnerIds(Arrays.asList(3, 6));
+        assertThat(petNames).extracting(row -> row[1]).containsExactly("Jewel", "Max", "Rosy", "Samantha");
+    }
+
     @Test
     public void shouldFindSingleOwnerWithPet() {
         Owner owner = this.owners.findById(1);
@@ -128,6 +145,38 @@ public class ClinicServiceTests {
         assertThat(owner.getLastName()).isEqualTo(newLastName);
     }
 
+    @Test
+    @Transactional
+    public void shouldUpdateOwnerOnlyIfVersionMatches() {
+        Owner owner = new Owner();
+        owner.setId(1);
+        owner.setVersion(this.owners.findVersionById(1));
+        owner.setFirstName("George");
+        owner.setLastName("Franklin");
+        owner.setAddress("1 Main St.");
+        owner.setCity("Madison");
+        owner.setTelephone("6085551023");
+
+        assertThat(this.owners.updateIfVersionMatches(owner)).isEqualTo(1);
+        // the second update still carries the version read before the first one
+        owner.setAddress("2 Main St.");
+        assertThat(this.owners.updateIfVersionMatches(owner)).isEqualTo(0);
+
+        assertThat(this.owners.findVersionById(1)).isEqualTo(owner.getVersion() + 1);
+        assertThat(this.owners.findById(1).getAddress()).isEqualTo("1 Main St.");
+    }
+
+    @Test
+    @Transactional
+    public void shouldAddSpecialtyToVetOnlyOnce() {
+        Integer version = this.vets.findVersionById(1);
+        assertThat(this.vets.addSpecialty(1, "surgery")).isTrue();
+        assertThat(this.vets.addSpecialty(1, "surgery")).isFalse();
+
+        assertThat(this.vets.findVersionById(1)).isEqualTo(version + 1);
+        assertThat(this.vets.findById(1).getSpecialties()).extracting("name").containsExactly("surgery");
+    }
+
     @Test
     public void shouldFindPetWithCorrectId() {
         Pet pet7 = this.pets.findById(7);
@@ -169,6 +218,26 @@ public class ClinicServiceTests {
         assertThat(pet.getId()).isNotNull();
     }
 
+    @Test
+    @Transactional
+    public void shouldFindPetsByCapitalizedNamePrefix() {
+        Owner owner6 = this.owners.findById(6);
+        Collection<PetType> types = this.pets.findPetTypes();
+        for (String name : Arrays.asList(" bo_bo", "boxer")) {
+            Pet pet = new Pet();
+            pet.setName(name);
+            pet.setType(EntityUtils.getById(types, PetType.class, 2));
+            pet.setBirthDate(LocalDate.now());
+            owner6.addPet(pet);
+            this.pets.save(pet);
+        }
+
+        assertThat(this.pets.findSummariesByNamePrefix("Bo", "", 0, PageRequest.of(0, 10)))
+            .extracting(PetSummary::getName).containsExactly("Bo_bo", "Boxer");
+        assertThat(this.pets.findSummariesByNamePrefix("Bo!_", "", 0, PageRequest.of(0, 10)))
+            .extracting(PetSummary::getName).containsExactly("Bo_bo");
+    }
+
     @Test
     @Transactional
     public void shouldUpdatePetName() throws Exception {
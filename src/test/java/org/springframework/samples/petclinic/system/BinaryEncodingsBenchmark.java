@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.Vets;
+
+/**
+ * Compares the payload size and serialization throughput of JSON, CBOR and Smile for the
+ * vet list and for an owner aggregate as returned by <code>/owners/batch</code>. Run it as a
+ * plain Java program from the test class path, for example with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.springframework.samples.petclinic.system.BinaryEncodingsBenchmark</code>.
+ *
+ * @author Jackie Shao
+ */
+public class BinaryEncodingsBenchmark {
+
+    private static final long WARM_UP_MILLIS = 2_000;
+    private static final long MEASURE_MILLIS = 3_000;
+
+    public static void main(String[] args) throws Exception {
+        Jackson2ObjectMapperBuilder builder = builder();
+        ObjectMapper json = builder.build();
+        BinaryEncodings encodings = new BinaryEncodings(builder);
+        List<Object[]> payloads = Arrays.asList(new Object[]{"vet list", vets()},
+            new Object[]{"1 owner", owners(1)}, new Object[]{"200 owners", owners(200)});
+        System.out.println(String.format("%-12s %-6s %10s %8s %12s %10s", "payload", "format", "bytes", "of json",
+            "ops/s", "MB/s"));
+        for (Object[] payload : payloads) {
+            Object value = payload[1];
+            int jsonSize = json.writeValueAsBytes(value).length;
+            measure((String) payload[0], "json", jsonSize, value, v -> {
+                try {
+                    return json.writeValueAsBytes(v);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            measure((String) payload[0], "cbor", jsonSize, value, encodings::toCbor);
+            measure((String) payload[0], "smile", jsonSize, value, encodings::toSmile);
+        }
+    }
+
+    private static void measure(String payload, String format, int jsonSize, Object value,
+                                Function<Object, byte[]> writer) {
+        int size = writer.apply(value).length;
+        run(writer, value, WARM_UP_MILLIS);
+        long start = System.nanoTime();
+        long operations = run(writer, value, MEASURE_MILLIS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%-12s %-6s %10d %7.0f%% %12.0f %10.1f", payload, format, size,
+            100.0 * size / jsonSize, operations / seconds, operations * size / seconds / (1024 * 1024)));
+    }
+
+    private static long run(Function<Object, byte[]> writer, Object value, long millis) {
+        long end = System.currentTimeMillis() + millis;
+        long operations = 0;
+        long sink = 0;
+        while (System.currentTimeMillis() < end) {
+            for (int i = 0; i < 100; i++) {
+                sink += writer.apply(value).length;
+            }
+            operations += 100;
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+        return operations;
+    }
+
+    /**
+     * A builder configured like Spring Boot configures the application's.
+     */
+    static Jackson2ObjectMapperBuilder builder() {
+        return new Jackson2ObjectMapperBuilder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * The vets and specialties of the sample data.
+     */
+    static Vets vets() {
+        String[] specialtyNames = { "radiology", "surgery", "dentistry" };
+        Specialty[] specialties = new Specialty[specialtyNames.length];
+        for (int i = 0; i < specialties.length; i++) {
+            specialties[i] = new Specialty();
+            specialties[i].setId(i + 1);
+            specialties[i].setName(specialtyNames[i]);
+        }
+        String[][] names = { { "James", "Carter" }, { "Helen", "Leary" }, { "Linda", "Douglas" },
+            { "Rafael", "Ortega" }, { "Henry", "Stevens" }, { "Sharon", "Jenkins" } };
+        int[][] vetSpecialties = { {}, { 0 }, { 1, 2 }, { 1 }, { 0 }, {} };
+        Vets vets = new Vets();
+        for (int i = 0; i < names.length; i++) {
+            Vet vet = new Vet();
+            vet.setId(i + 1);
+            vet.setFirstName(names[i][0]);
+            vet.setLastName(names[i][1]);
+            vet.setVersion(0);
+            for (int specialty : vetSpecialties[i]) {
+                vet.addSpecialty(specialties[specialty]);
+            }
+            vets.getVetList().add(vet);
+        }
+        return vets;
+    }
+
+    /**
+     * Owners with two pets and three visits each, in the shape of <code>/owners/batch</code>.
+     */
+    static Map<String, Object> owners(int count) {
+        List<Map<String, Object>> owners = new ArrayList<>();
+        String[] cities = { "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona" };
+        for (int id = 1; id <= count; id++) {
+            Map<String, Object> owner = new LinkedHashMap<>();
+            owner.put("id", id);
+            owner.put("firstName", "George" + id);
+            owner.put("lastName", "Franklin");
+            owner.put("address", (100 + id) + " W. Liberty St.");
+            owner.put("city", cities[id % cities.length]);
+            owner.put("telephone", String.valueOf(6085550000L + id));
+            List<Map<String, Object>> pets = new ArrayList<>();
+            for (int p = 0; p < 2; p++) {
+                Map<String, Object> pet = new LinkedHashMap<>();
+                pet.put("id", id * 2 + p);
+                pet.put("name", p == 0 ? "Leo" : "Basil");
+                pet.put("birthDate", LocalDate.of(2010, 9, 7).plusDays(id));
+                pet.put("type", 1 + p);
+                List<Map<String, Object>> visits = new ArrayList<>();
+                for (int v = 0; v < 3; v++) {
+                    Map<String, Object> visit = new LinkedHashMap<>();
+                    visit.put("id", (id * 2 + p) * 3 + v);
+                    visit.put("time", LocalDateTime.of(2018, 1, 1, 9, 0).plusDays(id + v * 30));
+                    visit.put("description", v == 0 ? "rabies shot" : "check up");
+                    visit.put("vet", 1 + v);
+                    visits.add(visit);
+                }
+                pet.put("visits", visits);
+                pets.add(pet);
+            }
+            owner.put("pets", pets);
+            owners.add(owner);
+        }
+        Map<Integer, String> petTypes = new TreeMap<>();
+        petTypes.put(1, "cat");
+        petTypes.put(2, "dog");
+        Map<Integer, Map<String, Object>> vets = new TreeMap<>();
+        for (Vet vet : vets().getVetList().subList(0, 3)) {
+            Map<String, Object> names = new LinkedHashMap<>();
+            names.put("firstName", vet.getFirstName());
+            names.put("lastName", vet.getLastName());
+            vets.put(vet.getId(), names);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("owners", owners);
+        result.put("notFound", new ArrayList<>());
+        result.put("petTypes", petTypes);
+        result.put("vets", vets);
+        return result;
+    }
+
+}
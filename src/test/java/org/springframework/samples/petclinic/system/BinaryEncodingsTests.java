@@ -0,0 +1,70 @@
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link BinaryEncodings}
+ */
+public class BinaryEncodingsTests {
+
+    private final BinaryEncodings encodings = new BinaryEncodings(BinaryEncodingsBenchmark.builder());
+
+    @Test
+    public void shouldWriteOwnerAggregateCompactly() throws Exception {
+        Map<String, Object> owners = BinaryEncodingsBenchmark.owners(20);
+        ObjectMapper json = BinaryEncodingsBenchmark.builder().build();
+        JsonNode expected = json.readTree(json.writeValueAsBytes(owners));
+
+        byte[] cbor = this.encodings.toCbor(owners);
+        byte[] smile = this.encodings.toSmile(owners);
+
+        assertThat(this.encodings.getCborMapper().readTree(cbor)).isEqualTo(expected);
+        assertThat(this.encodings.getSmileMapper().readTree(smile)).isEqualTo(expected);
+        assertThat(expected.at("/owners/0/pets/0/visits/0/time").asText()).startsWith("2018-01-02T09:00");
+        int jsonSize = json.writeValueAsBytes(owners).length;
+        assertThat(cbor.length).isLessThan(jsonSize);
+        assertThat(smile.length).isLessThan(cbor.length);
+    }
+
+    @Test
+    public void shouldNotRecycleBuffersThroughThreadLocals() {
+        assertThat(this.encodings.getCborMapper().getFactory()
+            .isEnabled(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING)).isFalse();
+        assertThat(this.encodings.getSmileMapper().getFactory()
+            .isEnabled(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING)).isFalse();
+    }
+
+    @Test
+    public void shouldReplaceConvertersAfterJson() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new StringHttpMessageConverter());
+        converters.add(new MappingJackson2HttpMessageConverter());
+        converters.add(new MappingJackson2SmileHttpMessageConverter());
+        converters.add(new MappingJackson2CborHttpMessageConverter());
+
+        this.encodings.extendMessageConverters(converters);
+
+        assertThat(converters).hasSize(4);
+        assertThat(converters.get(1)).isInstanceOf(MappingJackson2HttpMessageConverter.class);
+        assertThat(((MappingJackson2SmileHttpMessageConverter) converters.get(2)).getObjectMapper())
+            .isSameAs(this.encodings.getSmileMapper());
+        assertThat(((MappingJackson2CborHttpMessageConverter) converters.get(3)).getObjectMapper())
+            .isSameAs(this.encodings.getCborMapper());
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Test class for {@link CacheInvalidationBus} and its transports
+ */
+public class CacheInvalidationBusTests {
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("vets", "owners");
+
+    @Test
+    public void shouldDropInvalidationsOlderThanTheLastApplied() {
+        CacheInvalidationBus bus = new CacheInvalidationBus(this.cacheManager, null);
+        List<Long> applied = new ArrayList<>();
+        bus.subscribe("vets", invalidation -> applied.add(invalidation.getVersion()));
+
+        bus.receive(new Invalidation("other", "vets", null, 5));
+        bus.receive(new Invalidation("other", "vets", null, 3));
+        bus.receive(new Invalidation("other", "vets", null, 5));
+        bus.receive(new Invalidation("other", "vets", null, 6));
+        bus.receive(new Invalidation(bus.getNode(), "vets", null, 7));
+
+        assertThat(applied).containsExactly(5L, 6L);
+        assertThat(bus.isCurrent("vets", null, 5)).isFalse();
+        assertThat(bus.isCurrent("vets", null, 6)).isTrue();
+    }
+
+    @Test
+    public void shouldEvictFromCacheWithoutListener() {
+        CacheInvalidationBus bus = new CacheInvalidationBus(this.cacheManager, null);
+        this.cacheManager.getCache("owners").put("1", "George");
+        this.cacheManager.getCache("owners").put("2", "Betty");
+
+        bus.receive(new Invalidation("other", "owners", "1", 1));
+        assertThat(this.cacheManager.getCache("owners").get("1")).isNull();
+        assertThat(this.cacheManager.getCache("owners").get("2")).isNotNull();
+    }
+
+    @Test
+    public void shouldDeliverThroughOutbox() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:invalidations", "sa", "");
+        new JdbcTemplate(dataSource).execute("CREATE TABLE cache_invalidations (id BIGINT IDENTITY PRIMARY KEY, "
+            + "node VARCHAR(40) NOT NULL, cache_name VARCHAR(80) NOT NULL, cache_key VARCHAR(255), "
+            + "version BIGINT NOT NULL, created BIGINT NOT NULL)");
+        OutboxInvalidationTransport first = new OutboxInvalidationTransport(dataSource, Duration.ofHours(1), Duration.ofHours(1));
+        OutboxInvalidationTransport second = new OutboxInvalidationTransport(dataSource, Duration.ofHours(1), Duration.ofHours(1));
+        CacheInvalidationBus firstBus = new CacheInvalidationBus(this.cacheManager, first);
+        CacheInvalidationBus secondBus = new CacheInvalidationBus(this.cacheManager, second);
+        BlockingQueue<Invalidation> received = new LinkedBlockingQueue<>();
+        secondBus.subscribe("vets", received::add);
+        try {
+            first.poll();
+            second.poll();
+            firstBus.publish("vets", null, 2);
+            first.poll();
+            second.poll();
+            second.poll();
+            assertThat(received).extracting(Invalidation::getVersion).containsExactly(2L);
+        } finally {
+            first.destroy();
+            second.destroy();
+        }
+    }
+
+    @Test
+    public void shouldDeliverThroughUdp() throws Exception {
+        UdpInvalidationTransport first = new UdpInvalidationTransport(new InetSocketAddress("127.0.0.1", 0),
+            Collections.emptyList());
+        UdpInvalidationTransport second = new UdpInvalidationTransport(new InetSocketAddress("127.0.0.1", 0),
+            Collections.singletonList("127.0.0.1:" + first.getLocalPort()));
+        CacheInvalidationBus firstBus = new CacheInvalidationBus(this.cacheManager, first);
+        CacheInvalidationBus secondBus = new CacheInvalidationBus(this.cacheManager, second);
+        BlockingQueue<Invalidation> received = new LinkedBlockingQueue<>();
+        firstBus.subscribe("vets", received::add);
+        try {
+            secondBus.publish("vets", "list", 4);
+            Invalidation invalidation = received.poll(5, TimeUnit.SECONDS);
+            assertThat(invalidation).isNotNull();
+            assertThat(invalidation.getKey()).isEqualTo("list");
+            assertThat(invalidation.getVersion()).isEqualTo(4);
+            assertThat(invalidation.getNode()).isEqualTo(secondBus.getNode());
+        } finally {
+            first.destroy();
+            second.destroy();
+        }
+    }
+
+}
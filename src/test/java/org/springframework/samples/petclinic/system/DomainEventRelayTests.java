@@ -0,0 +1,244 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for {@link DomainEventRelay} and the outbox written by {@link DomainEventInterceptor}.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ RepositoryConfiguration.class, DomainEventConfiguration.class })
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:events",
+    "petclinic.events.poll-interval=0",
+    "petclinic.events.batch-size=2",
+    "petclinic.events.gap-timeout=1m"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DomainEventRelayTests {
+
+    private static final AtomicInteger TELEPHONES = new AtomicInteger();
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private VetRepository vets;
+
+    @Autowired
+    private DomainEventRelay relay;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setup() {
+        this.relay.relay();
+        this.subscriber.batches.clear();
+    }
+
+    @Test
+    public void shouldRelayChangesInOrder() {
+        Owner owner = newOwner("Schroeder");
+        this.owners.save(owner);
+        owner = this.owners.findById(owner.getId());
+        owner.setCity("Madison");
+        assertThat(this.owners.updateIfVersionMatches(owner)).isEqualTo(1);
+
+        this.relay.relay();
+        List<DomainEvent> events = this.subscriber.events();
+        assertThat(events).extracting(DomainEvent::getType).containsExactly("saved", "updated");
+        assertThat(events).extracting(DomainEvent::getAggregateId).containsOnly(owner.getId());
+        assertThat(events.get(0).getSequence()).isLessThan(events.get(1).getSequence());
+        assertThat(events.get(1).getData()).containsEntry("lastName", "Schroeder").containsEntry("city", "Madison");
+    }
+
+    @Test
+    public void shouldRelayInBatches() {
+        for (int i = 0; i < 3; i++) {
+            this.owners.save(newOwner("Batch" + i));
+        }
+        this.relay.relay();
+        assertThat(this.subscriber.batches).extracting(List::size).containsExactly(2, 1);
+    }
+
+    @Test
+    public void shouldNotRecordUpdateThatDidNotMatch() {
+        Owner owner = this.owners.findById(1);
+        owner.setVersion(owner.getVersion() + 1);
+        assertThat(this.owners.updateIfVersionMatches(owner)).isEqualTo(0);
+        this.relay.relay();
+        assertThat(this.subscriber.events()).isEmpty();
+    }
+
+    @Test
+    public void shouldDiscardEventWithRolledBackChange() {
+        new TransactionTemplate(this.transactionManager).execute(status -> {
+            this.owners.save(newOwner("Rollback"));
+            status.setRollbackOnly();
+            return null;
+        });
+        Owner owner = newOwner("Committed");
+        this.owners.save(owner);
+
+        // the rolled back sequence number is only skipped after the gap timeout
+        this.relay.relay();
+        assertThat(this.subscriber.events()).isEmpty();
+        relayAfterGapTimeout();
+        assertThat(this.subscriber.events()).extracting(DomainEvent::getAggregateId).containsExactly(owner.getId());
+    }
+
+    @Test
+    public void shouldWaitForMissingSequence() {
+        JdbcTemplate template = new JdbcTemplate(this.dataSource);
+        long next = template.queryForObject("SELECT COALESCE(MAX(id), -1) FROM domain_events", Long.class) + 2;
+        template.update("INSERT INTO domain_events (id, aggregate, aggregate_id, event_type, data, created) "
+            + "VALUES (?, 'owner', 1, 'saved', '{}', ?)", next, System.currentTimeMillis());
+        this.relay.relay();
+        assertThat(this.subscriber.events()).isEmpty();
+
+        relayAfterGapTimeout();
+        assertThat(this.subscriber.events()).extracting(DomainEvent::getSequence).containsExactly(next);
+    }
+
+    @Test
+    public void shouldWaitForMissingSequenceBeforeOlderEvent() {
+        // an event committed long after it was written does not shorten the wait
+        JdbcTemplate template = new JdbcTemplate(this.dataSource);
+        long next = template.queryForObject("SELECT COALESCE(MAX(id), -1) FROM domain_events", Long.class) + 2;
+        template.update("INSERT INTO domain_events (id, aggregate, aggregate_id, event_type, data, created) "
+            + "VALUES (?, 'owner', 1, 'saved', '{}', ?)", next, System.currentTimeMillis() - 120_000);
+        this.relay.relay();
+        assertThat(this.subscriber.events()).isEmpty();
+
+        relayAfterGapTimeout();
+        assertThat(this.subscriber.events()).extracting(DomainEvent::getSequence).containsExactly(next);
+    }
+
+    @Test
+    public void shouldDescribeRemovedVisit() {
+        Visit visit = new Visit();
+        visit.setPetId(7);
+        visit.setVet(this.vets.findById(2));
+        visit.setTime(LocalDateTime.of(2030, 1, 7, 9, 0));
+        visit.setDescription("checkup");
+        this.visits.save(visit);
+        this.visits.removeById(visit.getId());
+
+        this.relay.relay();
+        List<DomainEvent> events = this.subscriber.events();
+        assertThat(events).extracting(DomainEvent::getType).containsExactly("saved", "removed");
+        assertThat(events.get(1).getAggregateId()).isEqualTo(visit.getId());
+        assertThat(events.get(1).getData()).containsEntry("petId", 7).containsEntry("vetId", 2)
+            .containsEntry("time", "2030-01-07T09:00:00");
+    }
+
+    @Test
+    public void shouldDescribeEveryVisitOfBulkRemoval() {
+        Visit first = newVisit(LocalDateTime.of(2030, 1, 8, 9, 0));
+        Visit second = newVisit(LocalDateTime.of(2030, 1, 8, 10, 0));
+        this.visits.save(first);
+        this.visits.save(second);
+        this.relay.relay();
+        this.subscriber.batches.clear();
+
+        assertThat(this.visits.removeByIds(Arrays.asList(first.getId(), second.getId()))).isEqualTo(2);
+
+        this.relay.relay();
+        List<DomainEvent> events = this.subscriber.events();
+        assertThat(events).extracting(DomainEvent::getType).containsExactly("removed", "removed");
+        assertThat(events).extracting(DomainEvent::getAggregateId)
+            .containsExactlyInAnyOrder(first.getId(), second.getId());
+        assertThat(events).extracting(event -> event.getData().get("time"))
+            .containsExactlyInAnyOrder("2030-01-08T09:00:00", "2030-01-08T10:00:00");
+        assertThat(events.get(0).getData()).containsEntry("petId", 7).containsEntry("vetId", 2);
+    }
+
+    private Visit newVisit(LocalDateTime time) {
+        Visit visit = new Visit();
+        visit.setPetId(7);
+        visit.setVet(this.vets.findById(2));
+        visit.setTime(time);
+        visit.setDescription("checkup");
+        return visit;
+    }
+
+    private void relayAfterGapTimeout() {
+        this.relay.relay(System.currentTimeMillis() + 120_000);
+    }
+
+    private static Owner newOwner(String lastName) {
+        Owner owner = new Owner();
+        owner.setFirstName("Sam");
+        owner.setLastName(lastName);
+        owner.setAddress("4, Evans Street");
+        owner.setCity("Wollongong");
+        // telephone numbers are unique, and these owners are committed
+        owner.setTelephone(String.format("44%08d", TELEPHONES.incrementAndGet()));
+        return owner;
+    }
+
+    static class RecordingSubscriber implements DomainEventSubscriber {
+
+        private final List<List<DomainEvent>> batches = new ArrayList<>();
+
+        @Override
+        public void onEvents(List<DomainEvent> events) {
+            this.batches.add(new ArrayList<>(events));
+        }
+
+        List<DomainEvent> events() {
+            return this.batches.stream().flatMap(List::stream).collect(Collectors.toList());
+        }
+    }
+
+    @TestConfiguration
+    static class SubscriberConfiguration {
+
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+}
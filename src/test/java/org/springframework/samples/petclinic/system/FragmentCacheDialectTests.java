@@ -0,0 +1,113 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.LazyContextVariable;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+/**
+ * Test class for {@link FragmentCacheDialect}
+ */
+public class FragmentCacheDialectTests {
+
+    private static final String TEMPLATE = "<div><ul pc:cache=\"|pet:${petId}:visits|\" pc:cache-vary=\"${vary}\">"
+        + "<li th:each=\"item : ${items}\" th:text=\"${item}\">x</li></ul><p th:text=\"${petId}\">p</p></div>";
+
+    private FragmentCache fragmentCache;
+
+    private SpringTemplateEngine templateEngine;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(FragmentCache.CACHE_NAME);
+        this.fragmentCache = new FragmentCache(cacheManager, new CacheInvalidationBus(cacheManager, null));
+        StringTemplateResolver templateResolver = new StringTemplateResolver();
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        this.templateEngine = new SpringTemplateEngine();
+        this.templateEngine.setTemplateResolver(templateResolver);
+        this.templateEngine.addDialect(new FragmentCacheDialect(this.fragmentCache));
+    }
+
+    @Test
+    public void shouldRenderFragmentOnceUntilInvalidated() {
+        String first = render(7, "a");
+        assertThat(first).isEqualTo("<div><ul><li>dog</li><li>cat</li></ul><p>7</p></div>");
+        assertThat(render(7, "a")).isEqualTo(first);
+        assertThat(this.loads.get()).isEqualTo(1);
+
+        this.fragmentCache.invalidate(FragmentCache.petVisitsKey(7));
+        assertThat(render(7, "a")).isEqualTo(first);
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldKeepSeparateEntriesPerKeyAndVary() {
+        render(7, "a");
+        render(8, "a");
+        render(7, "b");
+        assertThat(this.loads.get()).isEqualTo(3);
+
+        this.fragmentCache.invalidateAll();
+        render(8, "a");
+        assertThat(this.loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldNotStoreFragmentLoadedBeforeInvalidation() {
+        render(7, "a");
+        long snapshot = this.fragmentCache.snapshot();
+        this.fragmentCache.invalidate(FragmentCache.petVisitsKey(7));
+        render(7, "a", snapshot);
+        assertThat(this.loads.get()).isEqualTo(2);
+
+        render(7, "a");
+        render(7, "a");
+        assertThat(this.loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldBoundChangeCounters() {
+        render(7, "a");
+        for (int petId = 1; petId <= FragmentCache.MAX_VERSIONED_KEYS; petId++) {
+            this.fragmentCache.invalidate(FragmentCache.petVisitsKey(1000 + petId));
+        }
+        assertThat(this.fragmentCache.getVersionedKeyCount()).isEqualTo(FragmentCache.MAX_VERSIONED_KEYS);
+        render(7, "a");
+        assertThat(this.loads.get()).isEqualTo(1);
+
+        // one more key starts over with every fragment stale
+        this.fragmentCache.invalidate(FragmentCache.petVisitsKey(999));
+        assertThat(this.fragmentCache.getVersionedKeyCount()).isZero();
+        render(7, "a");
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    private String render(int petId, String vary) {
+        return render(petId, vary, this.fragmentCache.snapshot());
+    }
+
+    private String render(int petId, String vary, long snapshot) {
+        Context context = new Context();
+        context.setVariable(FragmentCache.SNAPSHOT_ATTRIBUTE, snapshot);
+        context.setVariable("petId", petId);
+        context.setVariable("vary", vary);
+        context.setVariable("items", new LazyContextVariable<String[]>() {
+            @Override
+            protected String[] loadValue() {
+                loads.incrementAndGet();
+                return new String[] { "dog", "cat" };
+            }
+        });
+        return this.templateEngine.process(TEMPLATE, context);
+    }
+
+}
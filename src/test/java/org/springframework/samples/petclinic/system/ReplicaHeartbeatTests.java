@@ -0,0 +1,69 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for {@link ReplicaRoutingDataSource} with the heartbeat running, as configured
+ * by <code>petclinic.datasource.replicas.initialize</code>. The initialized replica is not
+ * fed by replication, so it only serves reads once its heartbeat is seeded.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import(ReplicaRoutingConfiguration.class)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:heartbeat-primary",
+    "petclinic.datasource.replicas.urls=jdbc:hsqldb:mem:heartbeat-replica",
+    "petclinic.datasource.replicas.initialize=true",
+    "petclinic.datasource.replicas.heartbeat-interval=20ms"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReplicaHeartbeatTests {
+
+    @Autowired
+    private OwnerRepository owners;
+
+    private final JdbcTemplate replica = new JdbcTemplate(
+        new DriverManagerDataSource("jdbc:hsqldb:mem:heartbeat-replica", "sa", ""));
+
+    @Before
+    public void setup() {
+        this.replica.update("UPDATE owners SET first_name = 'Replica' WHERE id = 1");
+        this.replica.update("DELETE FROM replication_heartbeat");
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWithoutReplicaHeartbeat() throws InterruptedException {
+        Thread.sleep(200);
+        assertThat(this.owners.findById(1).getFirstName()).isEqualTo("George");
+    }
+
+    @Test
+    public void shouldReadFromReplicaOnceHeartbeatIsSeeded() throws InterruptedException {
+        this.replica.update("INSERT INTO replication_heartbeat (id, beat) VALUES (1, ?)", Long.MAX_VALUE);
+        long deadline = System.currentTimeMillis() + 5_000;
+        String firstName = this.owners.findById(1).getFirstName();
+        while (!"Replica".equals(firstName) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            firstName = this.owners.findById(1).getFirstName();
+        }
+        assertThat(firstName).isEqualTo("Replica");
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for {@link ReplicaRoutingDataSource}, with two embedded HSQLDB databases
+ * standing in for the primary and a replica. The replica is not fed by replication, so
+ * the tests change its copy of the first owner and its heartbeat directly to tell which
+ * database served a read.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import(ReplicaRoutingConfiguration.class)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:primary",
+    "petclinic.datasource.replicas.urls=jdbc:hsqldb:mem:replica",
+    "petclinic.datasource.replicas.initialize=true",
+    "petclinic.datasource.replicas.heartbeat-interval=0"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReplicaRoutingDataSourceTests {
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private ReplicaRoutingDataSource dataSource;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource("jdbc:hsqldb:mem:replica", "sa", ""));
+
+    @Before
+    public void setup() {
+        this.replica.update("UPDATE owners SET first_name = 'Replica' WHERE id = 1");
+    }
+
+    @Test
+    public void shouldReadFromCurrentReplica() {
+        replicaCompleteUntil(System.currentTimeMillis());
+        assertThat(this.owners.findById(1).getFirstName()).isEqualTo("Replica");
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhenReplicaLags() {
+        replicaCompleteUntil(System.currentTimeMillis() - 60_000);
+        assertThat(this.owners.findById(1).getFirstName()).isEqualTo("George");
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWithoutReplicaHeartbeat() {
+        this.replica.update("DELETE FROM replication_heartbeat");
+        this.dataSource.checkReplicas();
+        assertThat(this.owners.findById(1).getFirstName()).isEqualTo("George");
+    }
+
+    @Test
+    public void shouldWriteToPrimaryAndReadOwnWrites() {
+        replicaCompleteUntil(System.currentTimeMillis());
+        this.owners.incrementVersion(1);
+        assertThat(this.replica.queryForObject("SELECT version FROM owners WHERE id = 1", Integer.class)).isEqualTo(0);
+
+        // the replica has not caught up with the write yet
+        assertThat(this.owners.findById(1).getFirstName()).isEqualTo("George");
+
+        replicaCompleteUntil(System.currentTimeMillis());
+        assertThat(this.owners.findById(1).getFirstName()).isEqualTo("Replica");
+    }
+
+    private void replicaCompleteUntil(long beat) {
+        if (this.replica.update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", beat) == 0) {
+            this.replica.update("INSERT INTO replication_heartbeat (id, beat) VALUES (1, ?)", beat);
+        }
+        this.dataSource.checkReplicas();
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.owner.PetSummary;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for {@link ShardingConfiguration}, with three embedded HSQLDB databases as
+ * owner shards.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ RepositoryConfiguration.class, ShardingConfiguration.class })
+@TestPropertySource(properties = {
+    "petclinic.datasource.shards.urls=jdbc:hsqldb:mem:shard0,jdbc:hsqldb:mem:shard1,jdbc:hsqldb:mem:shard2",
+    "petclinic.datasource.shards.initialize=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ShardingTests {
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private PetRepository pets;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private VetRepository vets;
+
+    @Autowired
+    private ShardRoutingDataSource dataSource;
+
+    @Test
+    public void shouldKeepEachOwnerOnOneShard() {
+        assertThat(shard(0).queryForList("SELECT id FROM owners WHERE id <= 10 ORDER BY id", Integer.class))
+            .containsExactly(1, 4, 7, 10);
+        assertThat(shard(1).queryForList("SELECT id FROM owners WHERE id <= 10 ORDER BY id", Integer.class))
+            .containsExactly(2, 5, 8);
+        assertThat(shard(2).queryForObject("SELECT COUNT(*) FROM pets WHERE owner_id = 6", Integer.class)).isEqualTo(2);
+        assertThat(shard(0).queryForObject("SELECT COUNT(*) FROM visits", Integer.class)).isZero();
+
+        assertThat(this.owners.findById(5).getLastName()).isEqualTo("McTavish");
+        assertThat(this.owners.findById(6).getPets()).hasSize(2);
+    }
+
+    @Test
+    public void shouldFindOwnersByLastNameOnAllShards() {
+        assertThat(this.owners.findByLastName("Davis")).extracting(Owner::getId).containsOnly(2, 4);
+    }
+
+    @Test
+    public void shouldMergeOwnerSummariesInIdOrder() {
+        List<OwnerSummary> summaries = this.owners.findSummariesByLastName("", 1, PageRequest.of(0, 4));
+        assertThat(summaries).extracting(OwnerSummary::getId).containsExactly(2, 3, 4, 5);
+    }
+
+    @Test
+    public void shouldPagePetsByNameAndIdOnAllShards() {
+        assertThat(this.pets.findSummariesByNamePrefix("", "Lucky", 9, PageRequest.of(0, 3)))
+            .extracting(PetSummary::getId).containsExactly(12, 8, 10);
+        assertThat(this.pets.findSummariesByNamePrefix("L", "", 0, PageRequest.of(0, 2)))
+            .extracting(PetSummary::getId).containsExactly(1, 9);
+    }
+
+    @Test
+    public void shouldFindVisitsOfVetOnAllShards() {
+        assertThat(this.visits.findByVetAndTime(3, LocalDateTime.of(2013, 1, 1, 12, 0)))
+            .extracting(Visit::getPetId).containsExactly(7);
+    }
+
+    @Test
+    public void shouldInsertOwnerAndPetOnTheSameShard() {
+        Owner owner = new Owner();
+        owner.setFirstName("Sam");
+        owner.setLastName("Schultz");
+        owner.setAddress("4, Evans Street");
+        owner.setCity("Wollongong");
+        owner.setTelephone("4444444444");
+        this.owners.save(owner);
+        int shard = this.dataSource.shardOf(owner.getId());
+        assertThat(shard(shard).queryForObject("SELECT last_name FROM owners WHERE id = ?", String.class, owner.getId()))
+            .isEqualTo("Schultz");
+
+        Pet pet = new Pet();
+        pet.setName("bowser");
+        pet.setType(this.pets.findPetTypes().iterator().next());
+        pet.setBirthDate(LocalDate.now());
+        owner.addPet(pet);
+        this.pets.save(pet);
+        assertThat(pet.getId()).isGreaterThan(13);
+        assertThat(shard(shard).queryForObject("SELECT owner_id FROM pets WHERE id = ?", Integer.class, pet.getId()))
+            .isEqualTo(owner.getId());
+        assertThat(this.owners.findById(owner.getId()).getPets()).extracting(Pet::getName).containsExactly("Bowser");
+    }
+
+    @Test
+    public void shouldCopyVetChangesToAllShards() {
+        Vet vet = this.vets.findById(2);
+        vet.setLastName("Leary-Smith");
+        assertThat(this.vets.updateIfVersionMatches(vet)).isEqualTo(1);
+        assertThat(this.vets.addSpecialty(2, "dentistry")).isTrue();
+
+        for (int shard = 0; shard < this.dataSource.getShardCount(); shard++) {
+            assertThat(shard(shard).queryForObject("SELECT last_name FROM vets WHERE id = 2", String.class))
+                .isEqualTo("Leary-Smith");
+            assertThat(shard(shard).queryForObject("SELECT version FROM vets WHERE id = 2", Integer.class))
+                .isEqualTo(vet.getVersion() + 2);
+            assertThat(shard(shard).queryForList("SELECT specialty_id FROM vet_specialties WHERE vet_id = 2", Integer.class)
+                .stream().sorted().collect(Collectors.toList())).containsExactly(1, 3);
+        }
+    }
+
+    private JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(this.dataSource.getShard(shard));
+    }
+
+}
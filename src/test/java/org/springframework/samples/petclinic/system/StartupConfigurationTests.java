@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for {@link StartupConfiguration}, booting the application with the
+ * <code>fast</code> profile.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("fast")
+public class StartupConfigurationTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private StartupProperties properties;
+
+    @Autowired
+    private VetRepository vets;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void shouldOpenDatabaseFromSnapshot() throws Exception {
+        try (Connection connection = this.dataSource.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).startsWith("jdbc:hsqldb:file:")
+                .contains(this.properties.getSnapshot().toAbsolutePath().toString());
+        }
+        try (Stream<Path> snapshots = Files.list(this.properties.getSnapshot())) {
+            assertThat(snapshots.map(snapshot -> snapshot.getFileName().toString()))
+                .anyMatch(name -> name.startsWith("petclinic-"));
+        }
+        // the rows of the data script come from the snapshot, the scripts are not run
+        assertThat(this.vets.findAll()).hasSize(6);
+    }
+
+    @Test
+    public void shouldShowStartupTimeline() throws Exception {
+        this.mockMvc.perform(get("/manage/startup"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.phases.contextRefreshed").isNumber())
+            .andExpect(jsonPath("$.phases.applicationReady").isNumber())
+            .andExpect(jsonPath("$.beans").isNotEmpty())
+            .andExpect(jsonPath("$.beans[0].name").isString());
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.boot.actuate.health.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link WarmUp}
+ */
+public class WarmUpTests {
+
+    @Test
+    public void shouldBeOutOfServiceUntilTasksAreDone() {
+        List<String> done = new ArrayList<>();
+        WarmUp warmUp = new WarmUp(() -> Arrays.<WarmUpTask>asList(() -> done.add("vets"), () -> done.add("petTypes")),
+            new WarmUpProperties(), new StartupTimeline());
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmUp.run();
+        assertThat(done).containsExactly("vets", "petTypes");
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    public void shouldBecomeReadyDespiteFailingTask() {
+        List<String> done = new ArrayList<>();
+        StartupTimeline timeline = new StartupTimeline();
+        WarmUp warmUp = new WarmUp(() -> Arrays.<WarmUpTask>asList(() -> {
+            throw new IllegalStateException("database down");
+        }, () -> done.add("petTypes")), new WarmUpProperties(), timeline);
+
+        warmUp.run();
+        assertThat(done).containsExactly("petTypes");
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmUp.health().getDetails()).containsEntry("failures", 1);
+        assertThat(timeline.getPhases()).containsKey("warmedUp");
+    }
+
+}
@@ -1,16 +1,30 @@
 package org.springframework.samples.petclinic.vet;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.xml.HasXPath.hasXPath;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.assertj.core.util.Lists;
 import org.hamcrest.core.StringStartsWith;
 import org.junit.Before;
@@ -19,7 +33,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.system.BinaryEncodings;
+import org.springframework.samples.petclinic.system.CacheInvalidationBus;
+import org.springframework.samples.petclinic.system.FragmentCache;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -29,6 +48,7 @@ import org.springframework.test.web.servlet.ResultActions;
  */
 @RunWith(SpringRunner.class)
 @WebMvcTest(VetController.class)
+@Import(VetListCache.class)
 public class VetControllerTests {
 
     private static final int TEST_VET_ID = 1;
@@ -36,12 +56,21 @@ public class VetControllerTests {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private VetListCache vetListCache;
+
     @MockBean
     private VetRepository vets;
 
     @MockBean
     private SpecialtyRepository specialtyRepository;
 
+    @MockBean
+    private FragmentCache fragmentCache;
+
+    @MockBean
+    private CacheInvalidationBus invalidationBus;
+
     @Before
     public void setup() {
         Vet james = new Vet();
@@ -57,6 +86,11 @@ public class VetControllerTests {
         radiology.setName("radiology");
         helen.addSpecialty(radiology);
         given(this.vets.findAll()).willReturn(Lists.newArrayList(james, helen));
+        given(this.vets.findById(TEST_VET_ID)).willReturn(james);
+        given(this.vets.findVersionById(TEST_VET_ID)).willReturn(0);
+        given(this.invalidationBus.isCurrent(eq(VetListCache.CACHE_NAME), any(), anyLong())).willReturn(true);
+        // the cache outlives the mocks, which are reset after every test
+        this.vetListCache.invalidate();
     }
 
     @Test
@@ -83,6 +117,54 @@ public class VetControllerTests {
             .andExpect(content().node(hasXPath("/vets/vetList[id=1]/id")));
     }
 
+    @Test
+    public void testShowVetListCbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/vets").accept(BinaryEncodings.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BinaryEncodings.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+        JsonNode vets = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(vets.at("/vetList/1/specialties/0/name").asText()).isEqualTo("radiology");
+    }
+
+    @Test
+    public void testShowVetListSmile() throws Exception {
+        byte[] body = mockMvc.perform(get("/vets").accept(BinaryEncodings.APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BinaryEncodings.APPLICATION_SMILE))
+            .andReturn().getResponse().getContentAsByteArray();
+        JsonNode vets = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertThat(vets.at("/vetList/0/lastName").asText()).isEqualTo("Carter");
+    }
+
+    @Test
+    public void testShowVetListNotAcceptable() throws Exception {
+        mockMvc.perform(get("/vets").accept(MediaType.IMAGE_PNG))
+            .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    public void testShowResourcesVetListNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+        verify(this.vets, times(1)).findAll();
+    }
+
+    @Test
+    public void testShowResourcesVetListRebuiltAfterChange() throws Exception {
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        mockMvc.perform(post("/vets/new")
+            .param("firstName", "Bob")
+            .param("lastName", "Handsaker"))
+            .andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        verify(this.vets, times(2)).findAll();
+    }
+
     @Test
     public void testNewVetGetRequest() throws Exception {
         mockMvc.perform(get("/vets/new"))
@@ -128,14 +210,49 @@ public class VetControllerTests {
 
     @Test
     public void testEditVetPostRequest() throws Exception {
-        Vet vet = new Vet();
-        vet.setFirstName("Bob");
-        vet.setLastName("Handsaker");
-        given(this.vets.findById(anyInt())).willReturn(vet);
+        given(this.vets.updateIfVersionMatches(any(Vet.class))).willReturn(1);
+        mockMvc.perform(post("/vets/{vetId}/edit", TEST_VET_ID)
+            .param("firstName", "John")
+            .param("lastName", "Doe")
+            .param("version", "0"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(view().name("redirect:/vets/{vetId}"));
+        verify(this.fragmentCache).invalidateAll();
+    }
+
+    @Test
+    public void testEditVetPostRequestConcurrentlyModified() throws Exception {
+        given(this.vets.updateIfVersionMatches(any(Vet.class))).willReturn(0);
+        given(this.vets.findVersionById(TEST_VET_ID)).willReturn(1);
         mockMvc.perform(post("/vets/{vetId}/edit", TEST_VET_ID)
             .param("firstName", "John")
-            .param("lastName", "Doe"))
+            .param("lastName", "Doe")
+            .param("version", "0"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeHasErrors("vet"))
+            .andExpect(model().attribute("vet", hasProperty("version", is(1))))
+            .andExpect(view().name("vets/createOrUpdateVetForm"));
+        verify(this.fragmentCache, never()).invalidateAll();
+    }
+
+    @Test
+    public void testAddSpecialtyPostRequest() throws Exception {
+        given(this.vets.addSpecialty(TEST_VET_ID, "surgery")).willReturn(true);
+        mockMvc.perform(post("/vets/{vetId}/specialty/add", TEST_VET_ID)
+            .param("specialtyToAdd", "surgery"))
             .andExpect(status().is3xxRedirection())
             .andExpect(view().name("redirect:/vets/{vetId}"));
+        verify(this.fragmentCache).invalidateAll();
+    }
+
+    @Test
+    public void testShowVetNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/vets/{vetId}", TEST_VET_ID))
+            .andExpect(status().isOk())
+            .andExpect(view().name("vets/vetDetails"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/vets/{vetId}", TEST_VET_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+        verify(this.vets, times(1)).findById(eq(TEST_VET_ID));
     }
 }
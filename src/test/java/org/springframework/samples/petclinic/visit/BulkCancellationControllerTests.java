@@ -0,0 +1,158 @@
+package org.springframework.samples.petclinic.visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.system.FragmentCache;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link BulkCancellationController} and {@link BulkCancellation}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(BulkCancellationController.class)
+@Import(BulkCancellation.class)
+public class BulkCancellationControllerTests {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private VetRepository vets;
+
+    @MockBean
+    private OwnerRepository owners;
+
+    @MockBean
+    private FragmentCache fragmentCache;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setup() {
+        Vet helen = new Vet();
+        helen.setId(2);
+        helen.setFirstName("Helen");
+        helen.setLastName("Leary");
+        given(this.vets.findById(2)).willReturn(helen);
+    }
+
+    @Test
+    public void testInitCancelVisitsForm() throws Exception {
+        mockMvc.perform(get("/vets/2/visits/cancel"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("vet", "from", "to"))
+            .andExpect(view().name("vets/cancelVisitsForm"));
+    }
+
+    @Test
+    public void testCancelDaysOfVet() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { 11, 7, 6, DAY.atTime(9, 0), "rabies shot" });
+        rows.add(new Object[] { 12, 8, 6, DAY.atTime(10, 0), "rabies shot" });
+        rows.add(new Object[] { 13, 1, 1, DAY.plusDays(1).atTime(9, 0), "checkup" });
+        given(this.visits.findRowsByVetBetween(2, DAY.atStartOfDay(), DAY.plusDays(2).atStartOfDay())).willReturn(rows);
+
+        Map<String, Object> model = mockMvc.perform(post("/vets/2/visits/cancel")
+            .param("from", DAY.toString())
+            .param("to", DAY.plusDays(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(view().name("vets/cancelVisitsForm"))
+            .andReturn().getModelAndView().getModel();
+
+        assertThat((List<?>) model.get("cancelled")).extracting("id").containsExactly(11, 12, 13);
+
+        verify(this.visits).removeByIds(Arrays.asList(11, 12, 13));
+        verify(this.owners, times(1)).incrementVersion(6);
+        verify(this.owners, times(1)).incrementVersion(1);
+        verify(this.fragmentCache, times(3)).invalidate(any());
+    }
+
+    @Test
+    public void testCancelDaysWithoutVisits() throws Exception {
+        mockMvc.perform(post("/vets/2/visits/cancel")
+            .param("from", DAY.toString())
+            .param("to", DAY.toString()))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("cancelled"));
+
+        verify(this.visits, never()).removeByIds(anyCollection());
+        verify(this.fragmentCache, never()).invalidate(any());
+    }
+
+    @Test
+    public void testCancelTodayKeepsPastVisits() throws Exception {
+        LocalDateTime before = LocalDateTime.now();
+        mockMvc.perform(post("/vets/2/visits/cancel")
+            .param("from", LocalDate.now().toString())
+            .param("to", LocalDate.now().toString()))
+            .andExpect(status().isOk());
+
+        verify(this.visits).findRowsByVetBetween(eq(2), argThat(from -> !from.isBefore(before)),
+            eq(LocalDate.now().plusDays(1).atStartOfDay()));
+    }
+
+    @Test
+    public void testCancelPastDays() throws Exception {
+        mockMvc.perform(post("/vets/2/visits/cancel")
+            .param("from", LocalDate.now().minusDays(2).toString())
+            .param("to", LocalDate.now().minusDays(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("cancelled"));
+
+        verify(this.visits, never()).findRowsByVetBetween(any(), any(), any());
+    }
+
+    @Test
+    public void testCancelReversedDays() throws Exception {
+        mockMvc.perform(post("/vets/2/visits/cancel")
+            .param("from", DAY.toString())
+            .param("to", DAY.minusDays(1).toString()))
+            .andExpect(status().isBadRequest());
+
+        verify(this.visits, never()).findRowsByVetBetween(any(), any(), any());
+    }
+
+    @Test
+    public void testCancelUnknownVet() throws Exception {
+        mockMvc.perform(get("/vets/99/visits/cancel"))
+            .andExpect(status().isNotFound());
+    }
+
+}
@@ -0,0 +1,181 @@
+package org.springframework.samples.petclinic.visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.samples.petclinic.system.DomainEvent;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Test class for {@link SlotController} and the {@link SlotFeed}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(SlotController.class)
+@Import(SlotFeed.class)
+public class SlotControllerTests {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(7);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SlotFeed slotFeed;
+
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private VetRepository vets;
+
+    @Before
+    public void setup() {
+        Vet helen = new Vet();
+        helen.setId(2);
+        helen.setFirstName("Helen");
+        helen.setLastName("Leary");
+        Vet helena = new Vet();
+        helena.setId(7);
+        helena.setFirstName("Helena");
+        helena.setLastName("Learyson");
+        given(this.vets.findByFirstAndLastName("Helen", "Leary")).willReturn(Arrays.asList(helena, helen));
+        given(this.vets.findByFirstAndLastName(eq("Nobody"), anyString())).willReturn(Collections.emptyList());
+        given(this.visits.findTimesByVetBetween(2, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()))
+            .willReturn(Arrays.asList(DAY.atTime(14, 0), DAY.atTime(9, 0)));
+    }
+
+    @Test
+    public void testShowTakenSlots() throws Exception {
+        mockMvc.perform(get("/slots").param("vet", "Helen Leary").param("date", DAY.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.vetId").value(2))
+            .andExpect(jsonPath("$.taken[0]").value(9))
+            .andExpect(jsonPath("$.taken[1]").value(14));
+    }
+
+    @Test
+    public void testShowTakenSlotsOfUnknownVet() throws Exception {
+        mockMvc.perform(get("/slots").param("vet", "Nobody Here").param("date", DAY.toString()))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testStreamSlotEvents() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/slots/events").param("vetId", "2"))
+            .andExpect(request().asyncStarted())
+            .andReturn().getResponse();
+
+        this.slotFeed.onEvents(Arrays.asList(
+            visitEvent(1, "saved", 3, DAY.atTime(10, 0)),
+            visitEvent(2, "saved", 2, DAY.atTime(11, 0).toString()),
+            visitEvent(3, "saved", 2, LocalDateTime.now().minusDays(1)),
+            visitEvent(4, "removed", 2, DAY.atTime(9, 0))));
+
+        String content = awaitContent(response, "slot-freed");
+        assertThat(content).contains("event:slot-taken\ndata:{\"vetId\":2,\"time\":\"" + DAY + "T11:00\"}");
+        assertThat(content).contains("event:slot-freed\ndata:{\"vetId\":2,\"time\":\"" + DAY + "T09:00\"}");
+        assertThat(content).doesNotContain("\"vetId\":3");
+        assertThat(content.split("event:slot-taken", -1)).hasSize(2);
+    }
+
+    @Test
+    public void testDisconnectStalledSubscribers() throws Exception {
+        SlotFeed feed = new SlotFeed(new ObjectMapper(), 500);
+        // more than a fixed pool of writers would have threads for
+        int stalled = 4;
+        CountDownLatch stuckSending = new CountDownLatch(stalled);
+        CountDownLatch interrupted = new CountDownLatch(stalled);
+        CountDownLatch stuck = new CountDownLatch(1);
+        int burst = 500;
+        CountDownLatch received = new CountDownLatch(burst);
+        CountDownLatch receivedAll = new CountDownLatch(burst + 1);
+        try {
+            for (int i = 0; i < stalled; i++) {
+                feed.subscribe(new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder builder) throws IOException {
+                        stuckSending.countDown();
+                        try {
+                            stuck.await();
+                        } catch (InterruptedException ex) {
+                            interrupted.countDown();
+                            throw new IOException(ex);
+                        }
+                    }
+                }, null);
+            }
+            feed.subscribe(new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    received.countDown();
+                    receivedAll.countDown();
+                }
+            }, null);
+
+            // a burst far beyond what a connection buffers reaches the subscriber keeping up
+            for (int i = 0; i < burst; i++) {
+                feed.slotChanged(1, DAY.atTime(10, 0), i % 2 == 0);
+            }
+            assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(stuckSending.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // the stalled ones are dropped once their sends exceed the stall timeout
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(feed.getSubscriberCount()).isEqualTo(1);
+
+            // the one keeping up was never blamed for the others
+            feed.slotChanged(1, DAY.atTime(11, 0), true);
+            assertThat(receivedAll.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(feed.getSubscriberCount()).isEqualTo(1);
+        } finally {
+            stuck.countDown();
+            feed.destroy();
+        }
+    }
+
+    private static DomainEvent visitEvent(long sequence, String type, int vetId, Object time) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("vetId", vetId);
+        data.put("time", time);
+        return new DomainEvent(sequence, "visit", (int) sequence, type, data, System.currentTimeMillis());
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long end = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+
+}
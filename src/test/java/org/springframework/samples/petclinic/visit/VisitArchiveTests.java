@@ -0,0 +1,141 @@
+package org.springframework.samples.petclinic.visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
+
+/**
+ * Test class for {@link VisitArchive} and its {@link VisitSegment} files, with the visits
+ * of the database mocked.
+ */
+public class VisitArchiveTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final VisitRepository visits = mock(VisitRepository.class);
+    private final VetRepository vets = mock(VetRepository.class);
+    private final VisitArchiveProperties properties = new VisitArchiveProperties();
+
+    private Vet carter;
+    private Vet leary;
+
+    @Before
+    public void setup() {
+        this.properties.setDirectory(this.folder.getRoot().toPath());
+        this.properties.setOlderThan(Duration.ofDays(365));
+        this.carter = vet(1, "James", "Carter");
+        this.leary = vet(2, "Helen", "Leary");
+        given(this.vets.findAll()).willReturn(Arrays.asList(this.carter, this.leary));
+    }
+
+    @Test
+    public void shouldServeExportedVisitsFromSegments() throws Exception {
+        oldVisits(visit(1, 7, this.carter, "2013-01-01T12:00", "rabies shot"),
+            visit(2, 8, this.leary, "2013-01-02T15:00", "rabies shot"),
+            visit(4, 7, this.leary, "2013-01-04T09:00", "spayed"));
+        VisitArchive archive = new VisitArchive(this.visits, this.vets, this.properties);
+
+        assertThat(archive.export()).isEqualTo(3);
+        verify(this.visits).removeArchived(Arrays.asList(1, 2, 4));
+
+        // a new archive maps the segments written by the first one
+        archive = new VisitArchive(this.visits, this.vets, this.properties);
+        assertThat(archive.getSegments()).hasSize(1);
+        List<Visit> history = archive.findByPetId(7);
+        assertThat(history).extracting(Visit::getId).containsExactly(4, 1);
+        assertThat(history).extracting(Visit::getDescription).containsExactly("spayed", "rabies shot");
+        assertThat(history).extracting(Visit::getVet).containsExactly(this.leary, this.carter);
+        assertThat(history.get(0).getTime()).isEqualTo(LocalDateTime.parse("2013-01-04T09:00"));
+        assertThat(history.get(0).getPetId()).isEqualTo(7);
+        assertThat(archive.findByPetId(8)).extracting(Visit::getId).containsExactly(2);
+        assertThat(archive.findByPetId(9)).isEmpty();
+    }
+
+    @Test
+    public void shouldWriteOneSegmentPerBatch() throws Exception {
+        this.properties.setSegmentSize(2);
+        Visit first = visit(1, 7, this.carter, "2013-01-01T12:00", "rabies shot");
+        Visit second = visit(2, 8, this.leary, "2013-01-02T15:00", "rabies shot");
+        Visit third = visit(3, 7, this.leary, "2013-01-03T09:00", "spayed");
+        given(this.visits.findBeforeAfterId(any(LocalDateTime.class), eq(-1), any(Pageable.class)))
+            .willReturn(Arrays.asList(first, second));
+        given(this.visits.findBeforeAfterId(any(LocalDateTime.class), eq(2), any(Pageable.class)))
+            .willReturn(Collections.singletonList(third));
+        given(this.visits.findBeforeAfterId(any(LocalDateTime.class), eq(3), any(Pageable.class)))
+            .willReturn(Collections.emptyList());
+        VisitArchive archive = new VisitArchive(this.visits, this.vets, this.properties);
+
+        assertThat(archive.export()).isEqualTo(3);
+        assertThat(archive.getSegments()).extracting(segment -> segment.getFile().getFileName().toString())
+            .containsExactly("visits-000000.seg", "visits-000001.seg");
+        assertThat(archive.findByPetId(7)).extracting(Visit::getId).containsExactly(3, 1);
+    }
+
+    @Test
+    public void shouldNotArchiveVisitsTwice() throws Exception {
+        Visit visit = visit(1, 7, this.carter, "2013-01-01T12:00", "rabies shot");
+        oldVisits(visit);
+        VisitArchive archive = new VisitArchive(this.visits, this.vets, this.properties);
+        archive.export();
+
+        // the visit is still in the database, as after a crash before its removal
+        assertThat(archive.export()).isEqualTo(0);
+        assertThat(archive.getSegments()).hasSize(1);
+        assertThat(archive.findByPetId(7)).hasSize(1);
+    }
+
+    @Test
+    public void shouldArchiveVisitWithoutVet() throws Exception {
+        oldVisits(visit(1, 7, null, "2013-01-01T12:00", "checkup"),
+            visit(2, 7, this.carter, "2013-01-02T15:00", "rabies shot"));
+        VisitArchive archive = new VisitArchive(this.visits, this.vets, this.properties);
+
+        assertThat(archive.export()).isEqualTo(2);
+        List<Visit> history = archive.findByPetId(7);
+        assertThat(history).extracting(Visit::getId).containsExactly(2, 1);
+        assertThat(history).extracting(Visit::getVet).containsExactly(this.carter, null);
+    }
+
+    private void oldVisits(Visit... visits) {
+        given(this.visits.findBeforeAfterId(any(LocalDateTime.class), eq(-1), any(Pageable.class)))
+            .willReturn(Arrays.asList(visits));
+        given(this.visits.findBeforeAfterId(any(LocalDateTime.class), eq(visits[visits.length - 1].getId()),
+            any(Pageable.class))).willReturn(Collections.emptyList());
+    }
+
+    private static Visit visit(int id, int petId, Vet vet, String time, String description) {
+        Visit visit = new Visit();
+        visit.setId(id);
+        visit.setPetId(petId);
+        visit.setVet(vet);
+        visit.setTime(LocalDateTime.parse(time));
+        visit.setDescription(description);
+        return visit;
+    }
+
+    private static Vet vet(int id, String firstName, String lastName) {
+        Vet vet = new Vet();
+        vet.setId(id);
+        vet.setFirstName(firstName);
+        vet.setLastName(lastName);
+        return vet;
+    }
+
+}